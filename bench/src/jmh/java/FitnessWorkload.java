@@ -0,0 +1,111 @@
+import fitnesstracker.bench.Workload;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Default-package implementation of the benchmark workload; see {@link Workload} for why it exists.
+ * All data comes from SyntheticDataset with the default seed, so runs are comparable.
+ */
+public class FitnessWorkload implements Workload {
+    private final SyntheticDataset dataset = new SyntheticDataset(SyntheticDataset.DEFAULT_SEED);
+    private FitnessDatabaseManager manager;
+    private List<FitnessRecord> generated = List.of();   // Records written by open, reused by saveAllRecords
+    private final RecordStore store = new RecordStore();
+    private final NameIndex names = new NameIndex();
+    private int highestInsertedId;                       // Upper bound of IDs added by the insert benchmarks
+
+    @Override
+    public void open(Path database, int rows) throws Exception {
+        manager = new FitnessDatabaseManager(database.toString(), true);
+        generated = dataset.records(rows);
+        dataset.populate(manager, rows);
+    }
+
+    @Override
+    public void truncate(int rows) {
+        RecordChangeSet changes = new RecordChangeSet();
+        for (int id = rows + 1; id <= highestInsertedId; id++) {
+            changes.markDeleted(id);
+        }
+        manager.saveChanges(changes);
+        highestInsertedId = rows;
+    }
+
+    @Override
+    public void insertSingle(int firstId, int count) {
+        highestInsertedId = Math.max(highestInsertedId, firstId + count - 1);
+        for (int id = firstId; id < firstId + count; id++) {
+            manager.insertRecord(dataset.record(id));
+        }
+    }
+
+    @Override
+    public void insertBatched(int firstId, int count) {
+        highestInsertedId = Math.max(highestInsertedId, firstId + count - 1);
+        RecordChangeSet changes = new RecordChangeSet();
+        for (int id = firstId; id < firstId + count; id++) {
+            changes.markUpserted(dataset.record(id));
+        }
+        manager.saveChanges(changes);
+    }
+
+    @Override
+    public int getAllRecords() {
+        return manager.getAllRecords().size();
+    }
+
+    @Override
+    public void saveAllRecords() {
+        manager.saveAllRecords(generated);
+    }
+
+    @Override
+    public double calculateAverageSteps() {
+        return manager.calculateAverageSteps();
+    }
+
+    @Override
+    public int searchByName(String query, int limit) {
+        return manager.searchByName(query, limit).size();
+    }
+
+    @Override
+    public void loadInMemory(int rows) {
+        store.clear();
+        names.clear();
+        for (int id = 1; id <= rows; id++) {
+            FitnessRecord record = dataset.record(id);
+            store.add(record);
+            names.put(id, record.getFullName());
+        }
+    }
+
+    @Override
+    public int searchInMemory(String query, int limit) {
+        return names.search(query, limit).length;
+    }
+
+    @Override
+    public double inMemoryAverage() {
+        return RecordColumns.from(store).stats(RecordField.STEPS_TODAY).mean();
+    }
+
+    @Override
+    public String recordToString(int index) {
+        return store.get(index).toString();
+    }
+
+    @Override
+    public int appendRecord(int index, StringBuilder sb) {
+        sb.setLength(0);
+        return store.get(index).appendTo(sb).length();
+    }
+
+    @Override
+    public void close() {
+        if (manager != null) {
+            manager.close();
+        }
+    }
+}
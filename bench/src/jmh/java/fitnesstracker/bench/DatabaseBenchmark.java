@@ -0,0 +1,46 @@
+package fitnesstracker.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Base class of the benchmarks that need a populated database: each trial gets a fresh
+ * database file in a temporary directory, filled with {@link #rows()} synthetic records,
+ * and removes it afterwards.
+ */
+@State(Scope.Benchmark)
+public abstract class DatabaseBenchmark {
+    protected Workload workload;
+    private Path directory;
+
+    /**
+     * @return Number of records to generate before the trial
+     */
+    protected abstract int rows();
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws Exception {
+        directory = Files.createTempDirectory("fitness-bench");
+        workload = Workload.create();
+        workload.open(directory.resolve("bench.db"), rows());
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws IOException {
+        workload.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
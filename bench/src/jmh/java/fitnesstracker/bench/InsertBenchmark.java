@@ -0,0 +1,49 @@
+package fitnesstracker.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * insertRecord one row per transaction versus the same rows in one batched transaction.
+ * Scores are per row. Rows added during an iteration are deleted before the next one,
+ * so the table size stays fixed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertBenchmark extends DatabaseBenchmark {
+    private static final int ROWS_PER_INVOCATION = 100;
+
+    @Param({"10000"})
+    public int rows;
+
+    private int nextId;
+
+    @Override
+    protected int rows() {
+        return rows;
+    }
+
+    @Setup(Level.Iteration)
+    public void resetTable() {
+        workload.truncate(rows);
+        nextId = rows + 1;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public void insertSingle() {
+        workload.insertSingle(nextId, ROWS_PER_INVOCATION);
+        nextId += ROWS_PER_INVOCATION;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public void insertBatched() {
+        workload.insertBatched(nextId, ROWS_PER_INVOCATION);
+        nextId += ROWS_PER_INVOCATION;
+    }
+}
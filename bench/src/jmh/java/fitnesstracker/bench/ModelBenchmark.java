@@ -0,0 +1,57 @@
+package fitnesstracker.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory hot paths that do not touch the database: record formatting and the GUI's average.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    private Workload workload;
+    private final StringBuilder sb = new StringBuilder(128);
+    private int index;
+
+    @Setup(Level.Trial)
+    public void load() {
+        workload = Workload.create();
+        workload.loadInMemory(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        workload.close();
+    }
+
+    /** Cycles through the records so the benchmark does not format one value forever. */
+    private int nextIndex() {
+        index = index + 1 == rows ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public String recordToString() {
+        return workload.recordToString(nextIndex());
+    }
+
+    @Benchmark
+    public int recordAppendTo() {
+        return workload.appendRecord(nextIndex(), sb);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double inMemoryAverage() {
+        return workload.inMemoryAverage();
+    }
+}
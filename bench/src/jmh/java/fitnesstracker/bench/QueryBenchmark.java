@@ -0,0 +1,41 @@
+package fitnesstracker.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the whole table, the average steps and a name search at increasing table sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark extends DatabaseBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Override
+    protected int rows() {
+        return rows;
+    }
+
+    @Benchmark
+    public int getAllRecords() {
+        return workload.getAllRecords();
+    }
+
+    @Benchmark
+    public double calculateAverageSteps() {
+        return workload.calculateAverageSteps();
+    }
+
+    /** A substring that occurs in few names, so the time is the index lookup rather than reading rows. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int searchByName() {
+        return workload.searchByName("ivan pet", 50);
+    }
+}
@@ -0,0 +1,29 @@
+package fitnesstracker.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rewriting the whole table with saveAllRecords, as the GUI's full save did.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveAllBenchmark extends DatabaseBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Override
+    protected int rows() {
+        return rows;
+    }
+
+    @Benchmark
+    public void saveAllRecords() {
+        workload.saveAllRecords();
+    }
+}
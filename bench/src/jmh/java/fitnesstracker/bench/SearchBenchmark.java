@@ -0,0 +1,42 @@
+package fitnesstracker.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The GUI search box: NameIndex lookups over a million in-memory names, with the GUI's result limit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SearchBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    /** A word prefix, a common substring, a rare substring and a substring with no match. */
+    @Param({"an", "son", "ivan pet", "xyz"})
+    public String query;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void load() {
+        workload = Workload.create();
+        workload.loadInMemory(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        workload.close();
+    }
+
+    @Benchmark
+    public int searchInMemory() {
+        return workload.searchInMemory(query, 1000);
+    }
+}
@@ -0,0 +1,127 @@
+package fitnesstracker.bench;
+
+import java.nio.file.Path;
+
+/**
+ * Operations measured by the benchmarks.
+ * <p>
+ * JMH requires benchmark classes to be in a named package, but the application lives in the
+ * default package, which named packages cannot reference. Benchmarks therefore call the
+ * application through this interface, implemented by the default-package class
+ * {@code FitnessWorkload} and loaded once per trial with {@link #create()}. The calls in the
+ * measured loop are ordinary monomorphic interface calls, which the JIT inlines.
+ */
+public interface Workload extends AutoCloseable {
+
+    /**
+     * Creates the default-package implementation.
+     *
+     * @return A new, unopened workload
+     */
+    static Workload create() {
+        try {
+            return (Workload) Class.forName("FitnessWorkload").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("FitnessWorkload is not on the benchmark classpath", e);
+        }
+    }
+
+    /**
+     * Opens a database file and fills it with {@code rows} synthetic records (IDs 1..rows).
+     *
+     * @param database Database file to create
+     * @param rows     Number of records to generate
+     * @throws Exception if the database cannot be populated
+     */
+    void open(Path database, int rows) throws Exception;
+
+    /**
+     * Deletes every record with an ID above {@code rows}, undoing inserts made by a previous iteration.
+     *
+     * @param rows Highest ID to keep
+     */
+    void truncate(int rows);
+
+    /**
+     * Inserts records one at a time with insertRecord, one autocommit transaction each.
+     *
+     * @param firstId ID of the first record
+     * @param count   Number of records
+     */
+    void insertSingle(int firstId, int count);
+
+    /**
+     * Inserts the same kind of records as {@link #insertSingle(int, int)} in one batched transaction.
+     *
+     * @param firstId ID of the first record
+     * @param count   Number of records
+     */
+    void insertBatched(int firstId, int count);
+
+    /**
+     * @return Number of records read by getAllRecords
+     */
+    int getAllRecords();
+
+    /**
+     * Rewrites the whole table with saveAllRecords, using the records generated by open.
+     */
+    void saveAllRecords();
+
+    /**
+     * @return Result of calculateAverageSteps
+     */
+    double calculateAverageSteps();
+
+    /**
+     * @param query Name search query
+     * @param limit Maximum number of matches
+     * @return Number of records found by searchByName
+     */
+    int searchByName(String query, int limit);
+
+    /**
+     * Loads the generated records into the GUI's in-memory RecordStore and NameIndex.
+     *
+     * @param rows Number of records
+     */
+    void loadInMemory(int rows);
+
+    /**
+     * Computes the average steps the way the GUI does: a columnar snapshot of the RecordStore
+     * followed by a parallel scan.
+     *
+     * @return Average steps of the in-memory records
+     */
+    double inMemoryAverage();
+
+    /**
+     * Searches the in-memory names the way the GUI search box does.
+     *
+     * @param query Name search query
+     * @param limit Maximum number of matches
+     * @return Number of matching records
+     */
+    int searchInMemory(String query, int limit);
+
+    /**
+     * @param index Position in the in-memory records
+     * @return FitnessRecord.toString of that record
+     */
+    String recordToString(int index);
+
+    /**
+     * Formats a record with FitnessRecord.appendTo into a reused builder, as the list renderer does.
+     *
+     * @param index Position in the in-memory records
+     * @param sb    Builder to reuse; cleared first
+     * @return Length of the formatted text
+     */
+    int appendRecord(int index, StringBuilder sb);
+
+    /**
+     * Closes the database, if one was opened.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,251 @@
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous facade over a FitnessDatabaseManager. Every call runs on its own virtual
+ * thread and returns a CompletableFuture, so callers can overlap work and fan out queries
+ * without tying up a platform thread each.
+ * <p>
+ * At most {@code maxConcurrency} operations touch SQLite at once; the rest wait on a
+ * semaphore. Virtual threads waiting there are cheap, whereas a virtual thread inside the
+ * SQLite driver pins its carrier thread (native calls and synchronized blocks), so the
+ * bound keeps the carrier pool free for everything else. The default matches the
+ * connection pool size.
+ * <p>
+ * Errors complete the future exceptionally with the original SQLException instead of being
+ * printed, so {@code future.get()} throws an ExecutionException whose cause is the SQLException.
+ */
+public class AsyncFitnessDatabaseManager implements AutoCloseable {
+    private final FitnessDatabaseManager manager;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;    // Limits concurrent operations against SQLite
+
+    /**
+     * Creates a facade allowing as many concurrent operations as the connection pool has connections.
+     *
+     * @param manager Manager to run operations on; not closed by this facade
+     */
+    public AsyncFitnessDatabaseManager(FitnessDatabaseManager manager) {
+        this(manager, ConnectionPool.DEFAULT_SIZE);
+    }
+
+    /**
+     * Creates a facade with an explicit concurrency bound.
+     *
+     * @param manager        Manager to run operations on; not closed by this facade
+     * @param maxConcurrency Maximum number of operations running against SQLite at once (at least 1)
+     */
+    public AsyncFitnessDatabaseManager(FitnessDatabaseManager manager, int maxConcurrency) {
+        this.manager = manager;
+        this.permits = new Semaphore(Math.max(1, maxConcurrency), true);
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#insertRecord(FitnessRecord)}.
+     *
+     * @return A future that fails with SQLException if the insert fails, e.g. on a duplicate ID
+     */
+    public CompletableFuture<Void> insertRecordAsync(FitnessRecord record) {
+        return submit(() -> {
+            manager.insertRecordChecked(record);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#updateRecord(FitnessRecord)}.
+     *
+     * @return A future of the outcome: APPLIED, CONFLICT or NOT_FOUND
+     */
+    public CompletableFuture<WriteResult> updateRecordAsync(FitnessRecord record) {
+        return submit(() -> manager.updateRecordChecked(record));
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#deleteRecord(int)}.
+     *
+     * @return A future of the outcome: APPLIED or NOT_FOUND
+     */
+    public CompletableFuture<WriteResult> deleteRecordAsync(int id) {
+        return submit(() -> manager.deleteRecordChecked(id));
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#deleteRecord(int, long)}.
+     *
+     * @return A future of the outcome: APPLIED, CONFLICT or NOT_FOUND
+     */
+    public CompletableFuture<WriteResult> deleteRecordAsync(int id, long expectedVersion) {
+        return submit(() -> manager.deleteRecordChecked(id, expectedVersion));
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#getRecordById(int)}.
+     *
+     * @return A future of the record, or of null if no record has the ID
+     */
+    public CompletableFuture<FitnessRecord> getRecordByIdAsync(int id) {
+        return submit(() -> manager.getRecordByIdChecked(id));
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#getRecordsByIds(Collection)}.
+     *
+     * @return A future of the found records by ID, in the order requested
+     */
+    public CompletableFuture<Map<Integer, FitnessRecord>> getRecordsByIdsAsync(Collection<Integer> ids) {
+        return submit(() -> manager.getRecordsByIdsChecked(ids));
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#getAllRecords()}.
+     *
+     * @return A future of all records in ID order
+     */
+    public CompletableFuture<List<FitnessRecord>> getAllRecordsAsync() {
+        return submit(manager::getAllRecordsChecked);
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#searchByName(String, int)}.
+     *
+     * @return A future of the matching records in ID order
+     */
+    public CompletableFuture<List<FitnessRecord>> searchByNameAsync(String query, int limit) {
+        return submit(() -> manager.searchByNameChecked(query, limit));
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#findRecords(RecordQuery)}.
+     *
+     * @param query Predicates, order and limit; must not be modified until the future completes
+     * @return A future of the matching records in the query's order
+     */
+    public CompletableFuture<List<FitnessRecord>> findRecordsAsync(RecordQuery query) {
+        return submit(() -> manager.findRecordsChecked(query));
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#getHistory(int, LocalDate, LocalDate)}.
+     *
+     * @return A future of the days with history, in date order
+     */
+    public CompletableFuture<List<DailyEntry>> getHistoryAsync(int id, LocalDate from, LocalDate to) {
+        return submit(() -> manager.getHistoryChecked(id, from, to));
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#getWeeklyTotals(int, LocalDate, LocalDate)}.
+     *
+     * @return A future of the weekly totals, in date order
+     */
+    public CompletableFuture<List<PeriodTotal>> getWeeklyTotalsAsync(int id, LocalDate from, LocalDate to) {
+        return submit(() -> manager.getWeeklyTotalsChecked(id, from, to));
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#getMonthlyTotals(int, YearMonth, YearMonth)}.
+     *
+     * @return A future of the monthly totals, in date order
+     */
+    public CompletableFuture<List<PeriodTotal>> getMonthlyTotalsAsync(int id, YearMonth from, YearMonth to) {
+        return submit(() -> manager.getMonthlyTotalsChecked(id, from, to));
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#saveAllRecords(List)}.
+     *
+     * @return A future that completes once the table has been replaced
+     */
+    public CompletableFuture<Void> saveAllRecordsAsync(List<FitnessRecord> records) {
+        return submit(() -> {
+            manager.saveAllRecordsChecked(records);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#saveChanges(RecordChangeSet)}.
+     *
+     * @param changes Pending changes; must not be modified until the future completes
+     * @return A future of the rows written; fails with SQLException if the transaction was rolled back
+     */
+    public CompletableFuture<SaveResult> saveChangesAsync(RecordChangeSet changes) {
+        return submit(() -> manager.saveChangesChecked(changes));
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#getColumnStats(RecordField)}.
+     *
+     * @return A future of the running statistics of one column
+     */
+    public CompletableFuture<ColumnStats> getColumnStatsAsync(RecordField field) {
+        return submit(() -> manager.getColumnStatsChecked(field));
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#calculateAverageSteps()}.
+     *
+     * @return A future of the average steps, 0 if there are no records
+     */
+    public CompletableFuture<Double> calculateAverageStepsAsync() {
+        return getColumnStatsAsync(RecordField.STEPS_TODAY).thenApply(ColumnStats::mean);
+    }
+
+    /**
+     * Asynchronous version of {@link FitnessDatabaseManager#countRecords()}.
+     *
+     * @return A future of the number of records
+     */
+    public CompletableFuture<Integer> countRecordsAsync() {
+        return getColumnStatsAsync(RecordField.AGE).thenApply(stats -> (int) stats.count());
+    }
+
+    /**
+     * Stops accepting operations and waits briefly for running ones to finish.
+     * The underlying manager stays open.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs a task on a new virtual thread once a permit is free and completes the future with its outcome.
+     */
+    private <T> CompletableFuture<T> submit(SqlTask<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            try {
+                future.complete(task.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                permits.release();
+            }
+        });
+        return future;
+    }
+}
@@ -0,0 +1,149 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Writes many records through one connection and one prepared UPSERT statement,
+ * committing a transaction every {@code commitEvery} rows (group commit) instead of
+ * one transaction per row. Obtained from {@link FitnessDatabaseManager#openBulkWriter(int)}
+ * and must be closed, which flushes and commits the final partial group.
+ * <p>
+ * If a group fails to execute or commit, it is rolled back and the writer is marked failed:
+ * further writes are refused and closing commits nothing, so only groups committed before
+ * the failure remain.
+ */
+public class BulkRecordWriter implements AutoCloseable {
+    private final ConnectionPool.Lease lease;   // Connection held for the whole bulk write
+    private final PreparedStatement upsert;     // Cached UPSERT statement
+    private final int commitEvery;              // Rows per transaction
+    private final Runnable afterCommit;         // Invalidates caches of the written rows
+    private final OperationMetrics commitMetrics; // Duration and rows of each group commit
+    private int pending;                        // Rows batched since the last commit
+    private long written;                       // Rows committed so far
+    private int commits;                        // Transactions committed so far
+    private boolean failed;                     // A group failed and was rolled back
+    private boolean closed;
+
+    /**
+     * Starts a bulk write on the given lease. Takes ownership of the lease.
+     *
+     * @param lease       Connection lease, released on close
+     * @param upsertSql   SQL of the UPSERT statement with the six record columns
+     * @param commitEvery Number of rows per committed transaction (at least 1)
+     * @param afterCommit   Called after every successful commit
+     * @param commitMetrics Receives the duration and row count of every commit
+     * @throws SQLException if the statement cannot be prepared
+     */
+    BulkRecordWriter(ConnectionPool.Lease lease, String upsertSql, int commitEvery, Runnable afterCommit,
+                     OperationMetrics commitMetrics) throws SQLException {
+        this.lease = lease;
+        this.commitEvery = Math.max(1, commitEvery);
+        this.afterCommit = afterCommit;
+        this.commitMetrics = commitMetrics;
+        try {
+            lease.connection().setAutoCommit(false);
+            this.upsert = lease.prepare(upsertSql);
+        } catch (SQLException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Adds a record to the current batch, committing when the group is full.
+     *
+     * @param record Record to insert or replace
+     * @throws SQLException if the batch cannot be executed or committed, or an earlier group failed
+     */
+    public void write(FitnessRecord record) throws SQLException {
+        checkNotFailed();
+        FitnessDatabaseManager.bindRecord(upsert, record);
+        upsert.addBatch();
+        if (++pending >= commitEvery) {
+            commit();
+        }
+    }
+
+    /**
+     * Executes the current batch and commits it. On failure the group is rolled back.
+     *
+     * @throws SQLException if the batch cannot be executed or committed, or an earlier group failed
+     */
+    public void commit() throws SQLException {
+        checkNotFailed();
+        if (pending == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            upsert.executeBatch();
+            lease.connection().commit();
+        } catch (SQLException e) {
+            commitMetrics.recordError(System.nanoTime() - start);
+            rollback(e);
+            throw e;
+        }
+        commitMetrics.recordSuccess(System.nanoTime() - start, 0, pending);
+        written += pending;
+        pending = 0;
+        commits++;
+        afterCommit.run();
+    }
+
+    /**
+     * Discards the failed group, including rows of it that already executed, and marks the writer failed.
+     */
+    private void rollback(SQLException cause) {
+        failed = true;
+        pending = 0;
+        try {
+            upsert.clearBatch();
+            lease.connection().rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private void checkNotFailed() throws SQLException {
+        if (failed) {
+            throw new SQLException("Bulk write failed earlier and was rolled back");
+        }
+    }
+
+    /**
+     * @return Rows committed so far
+     */
+    public long getRowsWritten() {
+        return written;
+    }
+
+    /**
+     * @return Transactions committed so far
+     */
+    public int getCommitCount() {
+        return commits;
+    }
+
+    /**
+     * Commits the last partial group and releases the connection. A failed writer commits
+     * nothing; its connection is rolled back by the pool.
+     *
+     * @throws SQLException if the final commit fails
+     */
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!failed) {
+                commit();
+                Connection conn = lease.connection();
+                conn.setAutoCommit(true);
+            }
+        } finally {
+            lease.close();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Estimates the calories a person burned from the other fields of their record.
+ * Used by {@link CalorieRecomputeJob} to derive {@code caloriesBurned} instead of
+ * trusting the value typed in. Implementations must be stateless or thread-safe,
+ * because the job calls them from several fork-join threads at once.
+ */
+public interface CalorieModel {
+
+    /**
+     * Walking model: about 0.04 kcal per step for a 160 lb person, scaling with body weight.
+     */
+    CalorieModel WALKING = walking(0.04);
+
+    /**
+     * Estimates calories burned today.
+     *
+     * @param age        Age in years
+     * @param weight     Weight in pounds
+     * @param stepsToday Steps taken today
+     * @return Calories burned; must be finite and not negative
+     */
+    double caloriesBurned(int age, double weight, int stepsToday);
+
+    /**
+     * Estimates calories burned today from a record's age, weight and steps.
+     *
+     * @param record Record to estimate for; not changed
+     * @return Calories burned
+     */
+    default double caloriesBurned(FitnessRecord record) {
+        return caloriesBurned(record.getAge(), record.getWeight(), record.getStepsToday());
+    }
+
+    /**
+     * Identifies the model in recompute checkpoints, so a job is only resumed with the model
+     * it started with. Must be the same in every run of the application, so it cannot be
+     * derived from a class name, which differs between runs for lambdas.
+     *
+     * @return A name that is the same for equal models
+     */
+    String name();
+
+    /**
+     * A model computed by a formula, e.g. a lambda.
+     *
+     * @param name    Stable name, see {@link #name()}
+     * @param formula Calories burned from age, weight and steps
+     * @return The model
+     */
+    static CalorieModel of(String name, Formula formula) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("A calorie model needs a name");
+        }
+        return new CalorieModel() {
+            @Override
+            public double caloriesBurned(int age, double weight, int stepsToday) {
+                return formula.caloriesBurned(age, weight, stepsToday);
+            }
+
+            @Override
+            public String name() {
+                return name;
+            }
+        };
+    }
+
+    /**
+     * A walking model with the given energy cost per step at 160 lb, scaled linearly by weight.
+     *
+     * @param caloriesPerStep Calories per step for a 160 lb person
+     * @return The model
+     */
+    static CalorieModel walking(double caloriesPerStep) {
+        return of("walking(" + caloriesPerStep + ")", (age, weight, steps) -> steps * caloriesPerStep * weight / 160);
+    }
+
+    /**
+     * Calories burned from age in years, weight in pounds and steps taken today.
+     */
+    @FunctionalInterface
+    interface Formula {
+        double caloriesBurned(int age, double weight, int stepsToday);
+    }
+}
@@ -0,0 +1,349 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Recomputes {@code caloriesBurned} of every record from a {@link CalorieModel}.
+ * <p>
+ * Records are read in ID order in chunks using keyset pagination, and the next chunk is
+ * read on a background thread while the current one is computed and written, so memory
+ * use is bounded by the chunk size however large the table is. Each chunk is computed on
+ * a fork-join pool, and only rows whose value (rounded to hundredths) changed are written,
+ * in one batched transaction per chunk. Writes are compare-and-set on the row version, so
+ * rows edited while the job runs are left alone and counted as conflicts.
+ * <p>
+ * With a checkpoint file, the last ID of every written chunk is saved after its commit; a
+ * job that is interrupted or killed resumes after that ID when run again with the same model.
+ * The checkpoint is deleted once the whole table has been processed.
+ */
+public final class CalorieRecomputeJob {
+    private static final Logger LOG = Logger.getLogger(CalorieRecomputeJob.class.getName());
+
+    public static final int DEFAULT_CHUNK_SIZE = 20_000;
+    private static final int LEAF_ROWS = 1024; // Rows computed per fork-join leaf task
+
+    private final FitnessDatabaseManager manager;
+    private final CalorieModel model;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private Path checkpoint;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private Consumer<Report> progress = report -> { };
+
+    /**
+     * Creates a job; nothing is read until {@link #run()}.
+     *
+     * @param manager Database to recompute
+     * @param model   Model giving the new calories of each record; its name identifies it in checkpoints
+     * @throws IllegalArgumentException if the model has no name
+     */
+    public CalorieRecomputeJob(FitnessDatabaseManager manager, CalorieModel model) {
+        this.manager = Objects.requireNonNull(manager);
+        this.model = Objects.requireNonNull(model);
+        if (model.name() == null || model.name().isBlank()) {
+            throw new IllegalArgumentException("A calorie model needs a stable name to checkpoint its progress");
+        }
+    }
+
+    /**
+     * @param rows Records read, computed and written per transaction
+     * @return This job
+     */
+    public CalorieRecomputeJob chunkSize(int rows) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + rows);
+        }
+        this.chunkSize = rows;
+        return this;
+    }
+
+    /**
+     * @param file File recording progress so an interrupted job can resume; null for none
+     * @return This job
+     */
+    public CalorieRecomputeJob checkpoint(Path file) {
+        this.checkpoint = file;
+        return this;
+    }
+
+    /**
+     * @param pool Fork-join pool computing each chunk; the common pool by default
+     * @return This job
+     */
+    public CalorieRecomputeJob pool(ForkJoinPool pool) {
+        this.pool = Objects.requireNonNull(pool);
+        return this;
+    }
+
+    /**
+     * @param listener Called on the job's thread after every chunk with the totals so far
+     * @return This job
+     */
+    public CalorieRecomputeJob onProgress(Consumer<Report> listener) {
+        this.progress = Objects.requireNonNull(listener);
+        return this;
+    }
+
+    /**
+     * Runs the job on the calling thread until every record has been processed or the
+     * thread is interrupted. An interrupted job stops after its current chunk and keeps
+     * its checkpoint.
+     *
+     * @return Totals of this run; {@code complete} is false if it was interrupted
+     * @throws SQLException if reading or writing fails; chunks already committed stay written
+     * @throws IOException  if the checkpoint cannot be read or written
+     */
+    public Report run() throws SQLException, IOException {
+        long start = System.nanoTime();
+        int resumedAfterId = readCheckpoint();
+        Totals totals = new Totals();
+        ExecutorService reader = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "fitness-recompute-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Future<List<FitnessRecord>> next = reader.submit(() -> manager.getRecordsAfterChecked(resumedAfterId, chunkSize));
+            while (true) {
+                List<FitnessRecord> chunk = await(next);
+                if (chunk == null) {
+                    return totals.report(resumedAfterId, false, start);
+                }
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                int lastId = chunk.get(chunk.size() - 1).getId();
+                next = reader.submit(() -> manager.getRecordsAfterChecked(lastId, chunkSize));
+
+                Changes changes = compute(chunk);
+                int written = changes.count == 0 ? 0
+                        : manager.updateCaloriesChecked(changes.ids, changes.versions, changes.calories, changes.count);
+                writeCheckpoint(lastId);
+
+                totals.scanned += chunk.size();
+                totals.changed += changes.count;
+                totals.written += written;
+                totals.chunks++;
+                progress.accept(totals.report(resumedAfterId, false, start));
+                if (Thread.currentThread().isInterrupted()) {
+                    return totals.report(resumedAfterId, false, start);
+                }
+            }
+        } finally {
+            reader.shutdownNow();
+        }
+        if (checkpoint != null) {
+            Files.deleteIfExists(checkpoint);
+        }
+        return totals.report(resumedAfterId, true, start);
+    }
+
+    /**
+     * Waits for a chunk being read.
+     *
+     * @return The chunk, or null if this thread was interrupted while waiting
+     */
+    private static List<FitnessRecord> await(Future<List<FitnessRecord>> chunk) throws SQLException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sql) {
+                throw sql;
+            }
+            throw new IllegalStateException("Reading records failed", e.getCause());
+        }
+    }
+
+    /**
+     * Computes the chunk on the fork-join pool, then collects the rows whose value changed.
+     */
+    private Changes compute(List<FitnessRecord> chunk) {
+        double[] computed = new double[chunk.size()];
+        pool.invoke(new ComputeTask(chunk, computed, 0, chunk.size()));
+
+        Changes changes = new Changes(chunk.size());
+        for (int i = 0; i < computed.length; i++) {
+            FitnessRecord r = chunk.get(i);
+            if (Double.compare(computed[i], r.getCaloriesBurned()) != 0) {
+                changes.ids[changes.count] = r.getId();
+                changes.versions[changes.count] = r.getVersion();
+                changes.calories[changes.count] = computed[i];
+                changes.count++;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * @return ID to resume after, or Integer.MIN_VALUE to start from the first record
+     */
+    private int readCheckpoint() throws IOException {
+        if (checkpoint == null) {
+            return Integer.MIN_VALUE;
+        }
+        Properties saved = new Properties();
+        try (InputStream in = Files.newInputStream(checkpoint)) {
+            saved.load(in);
+        } catch (NoSuchFileException e) {
+            return Integer.MIN_VALUE;
+        }
+        if (!model.name().equals(saved.getProperty("model"))) {
+            LOG.log(Level.INFO, "Ignoring recompute checkpoint of model {0}", saved.getProperty("model"));
+            return Integer.MIN_VALUE;
+        }
+        try {
+            return Integer.parseInt(saved.getProperty("lastId", ""));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid recompute checkpoint " + checkpoint, e);
+        }
+    }
+
+    /**
+     * Saves the last processed ID, replacing the checkpoint file atomically where supported.
+     */
+    private void writeCheckpoint(int lastId) throws IOException {
+        if (checkpoint == null) {
+            return;
+        }
+        Properties saved = new Properties();
+        saved.setProperty("model", model.name());
+        saved.setProperty("lastId", Integer.toString(lastId));
+        Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            saved.store(out, "Calorie recompute progress");
+        }
+        try {
+            Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Totals of one run.
+     *
+     * @param scanned        Records read and computed
+     * @param changed        Records whose calories differed from the model
+     * @param written        Changed records updated; the others were edited or deleted meanwhile
+     * @param chunks         Chunks processed
+     * @param resumedAfterId ID the run resumed after, or Integer.MIN_VALUE if it started from the beginning
+     * @param complete       true if every record was processed
+     * @param elapsedNanos   Wall-clock time so far
+     */
+    public record Report(long scanned, long changed, long written, int chunks, int resumedAfterId,
+                         boolean complete, long elapsedNanos) {
+
+        /**
+         * @return Changed records that were not written because another writer got there first
+         */
+        public long conflicts() {
+            return changed - written;
+        }
+
+        /**
+         * @return true if the run continued from a checkpoint
+         */
+        public boolean resumed() {
+            return resumedAfterId != Integer.MIN_VALUE;
+        }
+
+        /**
+         * @return Scanned records per second of wall-clock time
+         */
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : scanned * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @return One-line human-readable summary
+         */
+        public String summary() {
+            return String.format("Scanned %d records in %.2f s (%.0f rows/sec), updated %d, %d conflicts%s%s.",
+                    scanned, elapsedNanos / 1e9, rowsPerSecond(), written, conflicts(),
+                    resumed() ? ", resumed after ID " + resumedAfterId : "",
+                    complete ? "" : ", incomplete");
+        }
+    }
+
+    private static final class Totals {
+        long scanned;
+        long changed;
+        long written;
+        int chunks;
+
+        Report report(int resumedAfterId, boolean complete, long start) {
+            return new Report(scanned, changed, written, chunks, resumedAfterId, complete, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Rows of a chunk to write, in parallel arrays.
+     */
+    private static final class Changes {
+        final int[] ids;
+        final long[] versions;
+        final double[] calories;
+        int count;
+
+        Changes(int capacity) {
+            ids = new int[capacity];
+            versions = new long[capacity];
+            calories = new double[capacity];
+        }
+    }
+
+    /**
+     * Splits a row range in half until it is small enough, then computes each row, rounded to hundredths.
+     */
+    private final class ComputeTask extends RecursiveAction {
+        private final List<FitnessRecord> chunk;
+        private final double[] computed;
+        private final int from;
+        private final int to;
+
+        ComputeTask(List<FitnessRecord> chunk, double[] computed, int from, int to) {
+            this.chunk = chunk;
+            this.computed = computed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_ROWS) {
+                for (int i = from; i < to; i++) {
+                    FitnessRecord r = chunk.get(i);
+                    double calories = model.caloriesBurned(r);
+                    if (!Double.isFinite(calories) || calories < 0) {
+                        throw new IllegalStateException("Model " + model.name() + " gave " + calories
+                                + " calories for record " + r.getId());
+                    }
+                    computed[i] = Math.round(calories * 100) / 100.0;
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ComputeTask(chunk, computed, from, mid), new ComputeTask(chunk, computed, mid, to));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Schema and SQL for FitnessVersion, a one-row table holding a random database ID and a
+ * version number that triggers increment on every insert, update or delete in FitnessRecords.
+ * Together they tell whether anything derived from the records, such as a RecordSnapshot,
+ * is still current, without comparing the records themselves.
+ */
+final class ChangeTracking {
+    static final String SELECT_VERSION = "SELECT databaseId, version FROM FitnessVersion";
+
+    private ChangeTracking() {
+    }
+
+    /**
+     * Creates the version table with a new database ID, and its triggers, if needed.
+     */
+    static void createSchema(Statement stmt) throws SQLException {
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS FitnessVersion (
+                singleton INTEGER PRIMARY KEY CHECK (singleton = 0),
+                databaseId TEXT NOT NULL,
+                version INTEGER NOT NULL
+            )""");
+        stmt.execute("INSERT OR IGNORE INTO FitnessVersion VALUES (0, lower(hex(randomblob(16))), 0)");
+        createTriggers(stmt);
+    }
+
+    /**
+     * Creates the triggers that count changes to FitnessRecords.
+     */
+    static void createTriggers(Statement stmt) throws SQLException {
+        for (String event : new String[]{"INSERT", "UPDATE", "DELETE"}) {
+            stmt.execute("""
+                CREATE TRIGGER IF NOT EXISTS FitnessVersion_%1$s AFTER %2$s ON FitnessRecords
+                BEGIN
+                    UPDATE FitnessVersion SET version = version + 1;
+                END""".formatted(event.toLowerCase(), event));
+        }
+    }
+
+    /**
+     * Drops the triggers, e.g. before rewriting the whole table. Must be followed by
+     * {@link #bump(Statement)} and {@link #createTriggers(Statement)} in the same transaction.
+     */
+    static void dropTriggers(Statement stmt) throws SQLException {
+        for (String event : new String[]{"insert", "update", "delete"}) {
+            stmt.execute("DROP TRIGGER IF EXISTS FitnessVersion_" + event);
+        }
+    }
+
+    /**
+     * Counts a change made while the triggers were dropped.
+     */
+    static void bump(Statement stmt) throws SQLException {
+        stmt.execute("UPDATE FitnessVersion SET version = version + 1");
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Summary statistics of one numeric column: count, sum, mean, min, max and the sum of squared
+ * deviations from the mean (m2), from which variance and standard deviation follow.
+ * Partial results from separate ranges or shards combine exactly with {@link #merge(ColumnStats)}.
+ *
+ * @param count Number of values
+ * @param sum   Sum of the values
+ * @param mean  Arithmetic mean (0 when empty)
+ * @param m2    Sum of squared deviations from the mean
+ * @param min   Smallest value (NaN when empty)
+ * @param max   Largest value (NaN when empty)
+ */
+public record ColumnStats(long count, double sum, double mean, double m2, double min, double max) {
+    /** Statistics of an empty column. */
+    public static final ColumnStats EMPTY = new ColumnStats(0, 0, 0, 0, Double.NaN, Double.NaN);
+
+    /**
+     * Builds statistics from running totals, as kept by an aggregate table.
+     *
+     * @param count      Number of values
+     * @param sum        Sum of the values
+     * @param sumSquares Sum of the squared values
+     * @param min        Smallest value
+     * @param max        Largest value
+     * @return The equivalent ColumnStats
+     */
+    public static ColumnStats fromSums(long count, double sum, double sumSquares, double min, double max) {
+        if (count == 0) {
+            return EMPTY;
+        }
+        double mean = sum / count;
+        double m2 = Math.max(0, sumSquares - sum * mean); // guard against tiny negative rounding
+        return new ColumnStats(count, sum, mean, m2, min, max);
+    }
+
+    /**
+     * Combines two partial results (Chan et al. parallel variance update).
+     *
+     * @param other Statistics of a disjoint set of values
+     * @return Statistics of both sets together
+     */
+    public ColumnStats merge(ColumnStats other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+        long n = count + other.count;
+        double delta = other.mean - mean;
+        double combinedMean = mean + delta * other.count / n;
+        double combinedM2 = m2 + other.m2 + delta * delta * ((double) count * other.count / n);
+        return new ColumnStats(n, sum + other.sum, combinedMean, combinedM2,
+                Math.min(min, other.min), Math.max(max, other.max));
+    }
+
+    /**
+     * @return Population variance (0 when fewer than one value)
+     */
+    public double variance() {
+        return count == 0 ? 0 : m2 / count;
+    }
+
+    /**
+     * @return Population standard deviation
+     */
+    public double stddev() {
+        return Math.sqrt(variance());
+    }
+
+    /**
+     * @return Sum of the squared values, as stored by an aggregate table
+     */
+    public double sumSquares() {
+        return m2 + sum * mean;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d sum=%.2f mean=%.2f min=%.2f max=%.2f stddev=%.2f",
+                count, sum, mean, min, max, stddev());
+    }
+}
@@ -0,0 +1,276 @@
+import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Small fixed-size pool of SQLite connections used by FitnessDatabaseManager.
+ * Each pooled connection is configured once (WAL journal, synchronous level, page cache)
+ * and keeps its own cache of prepared statements, so repeated operations skip both
+ * opening the database file and re-parsing SQL.
+ * When pooling is disabled every lease opens a fresh connection and closes it again,
+ * which matches the original one-connection-per-call behaviour for comparison.
+ * <p>
+ * Capacity is a semaphore with one permit per connection: a lease holds a permit until it
+ * is released, whether its connection goes back to the idle queue or is discarded, so a
+ * waiting caller is woken whenever a slot frees up. Closing the pool wakes all waiters.
+ */
+public class ConnectionPool implements AutoCloseable {
+    /** Default number of pooled connections. */
+    public static final int DEFAULT_SIZE = 4;
+
+    private final String dbUrl;                            // JDBC URL of the SQLite database
+    private final int maxSize;                             // Upper bound on open pooled connections
+    private final boolean enabled;                         // False = open/close a connection per lease
+    private final BlockingQueue<PooledConnection> idle;    // Connections waiting to be leased
+    private final Semaphore permits;                       // One per connection that may be leased
+    private final OperationMetrics waitMetrics;            // Time taken to obtain each lease
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool for the given database URL.
+     *
+     * @param dbUrl   JDBC URL, e.g. "jdbc:sqlite:fitness.db"
+     * @param maxSize Maximum number of connections kept open (at least 1)
+     * @param enabled Whether connections are reused; false opens a new connection per lease
+     */
+    public ConnectionPool(String dbUrl, int maxSize, boolean enabled) {
+        this(dbUrl, maxSize, enabled, new OperationMetrics(DatabaseOperation.CONNECTION_WAIT));
+    }
+
+    /**
+     * Creates a pool that reports how long each {@link #acquire()} takes.
+     *
+     * @param dbUrl       JDBC URL, e.g. "jdbc:sqlite:fitness.db"
+     * @param maxSize     Maximum number of connections kept open (at least 1)
+     * @param enabled     Whether connections are reused; false opens a new connection per lease
+     * @param waitMetrics Receives the time from calling acquire until a connection is available,
+     *                    including opening it when needed
+     */
+    public ConnectionPool(String dbUrl, int maxSize, boolean enabled, OperationMetrics waitMetrics) {
+        this.dbUrl = dbUrl;
+        this.maxSize = Math.max(1, maxSize);
+        this.enabled = enabled;
+        this.idle = new ArrayBlockingQueue<>(this.maxSize);
+        this.permits = new Semaphore(this.maxSize, true);
+        this.waitMetrics = waitMetrics;
+    }
+
+    /**
+     * @return true if connections are reused between leases
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if the pool is below its
+     * maximum size, otherwise waiting for another caller to release one.
+     * The returned lease must be closed to give the connection back.
+     *
+     * @return A lease wrapping a configured connection
+     * @throws SQLException if the pool is closed or the connection cannot be opened
+     */
+    public Lease acquire() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Lease lease = borrow();
+            waitMetrics.recordSuccess(System.nanoTime() - start, 0, 0);
+            return lease;
+        } catch (SQLException e) {
+            waitMetrics.recordError(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for a free slot, then takes an idle connection or opens a new one.
+     */
+    private Lease borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        if (!enabled) {
+            return new Lease(open(), false);
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        if (closed) {
+            permits.release(); // Pass the wake-up on to the next waiter
+            throw new SQLException("Connection pool is closed");
+        }
+        PooledConnection pooled = idle.poll();
+        if (pooled == null) {
+            try {
+                pooled = open();
+            } catch (SQLException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+        return new Lease(pooled, true);
+    }
+
+    /**
+     * Closes all idle connections and refuses further leases.
+     * Connections currently leased are closed when they are released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.poll()) != null) {
+            pooled.closeQuietly();
+        }
+        permits.release(maxSize); // Wakes waiters, which fail since the pool is closed
+    }
+
+    /**
+     * Opens a new connection and applies the per-connection PRAGMA settings.
+     */
+    private PooledConnection open() throws SQLException {
+        Connection conn = DriverManager.getConnection(dbUrl);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = WAL");      // readers no longer block the writer
+            stmt.execute("PRAGMA synchronous = NORMAL");    // fsync on checkpoint, safe with WAL
+            stmt.execute("PRAGMA cache_size = -8000");      // ~8 MB page cache per connection
+            stmt.execute("PRAGMA busy_timeout = 5000");     // wait for the write lock instead of failing
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return new PooledConnection(conn);
+    }
+
+    /**
+     * Returns a connection to the idle queue, or closes it if it cannot be reused,
+     * and frees its slot either way.
+     */
+    private void release(PooledConnection pooled, boolean reuse) {
+        if (!reuse) {
+            pooled.closeQuietly();
+            return;
+        }
+        try {
+            if (!pooled.connection.getAutoCommit()) {
+                // A caller left a transaction open; never hand that state to the next lease
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            if (closed || !idle.offer(pooled)) {
+                pooled.closeQuietly();
+            } else if (closed && idle.remove(pooled)) {
+                pooled.closeQuietly(); // Closed while offering; close() has already drained the queue
+            }
+        } catch (SQLException e) {
+            pooled.closeQuietly();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * A physical connection together with its prepared statement cache.
+     */
+    private static final class PooledConnection {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        private void closeQuietly() {
+            for (PreparedStatement pstmt : statements.values()) {
+                try {
+                    pstmt.close();
+                } catch (SQLException ignored) {
+                    // Closing anyway
+                }
+            }
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // Closing anyway
+            }
+        }
+    }
+
+    /**
+     * Exclusive use of one connection until closed.
+     * Statements obtained through {@link #prepare(String)} are owned by the lease
+     * (or the pool) and must not be closed by the caller.
+     */
+    public final class Lease implements AutoCloseable {
+        private final PooledConnection pooled;
+        private final boolean reuse;
+        private final ArrayDeque<PreparedStatement> borrowed = new ArrayDeque<>();
+        private boolean released;
+
+        private Lease(PooledConnection pooled, boolean reuse) {
+            this.pooled = pooled;
+            this.reuse = reuse;
+        }
+
+        /**
+         * @return The underlying JDBC connection
+         */
+        public Connection connection() {
+            return pooled.connection;
+        }
+
+        /**
+         * Returns a prepared statement for the SQL, reusing the cached one when pooling is on.
+         * Parameters from a previous use are cleared.
+         *
+         * @param sql SQL text with ? placeholders
+         * @return Ready-to-bind prepared statement
+         * @throws SQLException if the statement cannot be prepared
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            if (!reuse) {
+                PreparedStatement pstmt = pooled.connection.prepareStatement(sql);
+                borrowed.push(pstmt);
+                return pstmt;
+            }
+            PreparedStatement pstmt = pooled.statements.get(sql);
+            if (pstmt == null || pstmt.isClosed()) {
+                pstmt = pooled.connection.prepareStatement(sql);
+                pooled.statements.put(sql, pstmt);
+            } else {
+                pstmt.clearParameters();
+                pstmt.clearBatch();
+            }
+            return pstmt;
+        }
+
+        /**
+         * Releases the connection back to the pool (or closes it when pooling is off).
+         */
+        @Override
+        public void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+            PreparedStatement pstmt;
+            while ((pstmt = borrowed.poll()) != null) {
+                try {
+                    pstmt.close();
+                } catch (SQLException ignored) {
+                    // Connection is closed below
+                }
+            }
+            release(pooled, reuse);
+        }
+    }
+}
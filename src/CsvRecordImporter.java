@@ -0,0 +1,473 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Bulk importer for vendor files in the {@code id,name,age,weight,steps,calories} text format.
+ * <p>
+ * The file is split into chunks at line boundaries, each chunk is memory-mapped and parsed
+ * byte by byte on the common fork-join pool, and the parsed rows are written in file order
+ * through a {@link BulkRecordWriter} that commits every N rows. While one wave of chunks is
+ * being written, the next wave is already being parsed. Rows with an existing ID replace
+ * the stored record. An optional header line and blank lines are skipped; other lines that
+ * fail to parse or validate are rejected and reported with their line numbers.
+ */
+public class CsvRecordImporter {
+    /** Default number of rows per committed transaction. */
+    public static final int DEFAULT_COMMIT_EVERY = 10_000;
+    /** Default size of a parsed chunk in bytes. */
+    public static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+
+    private static final int MAX_REPORTED_REJECTS = 1000;
+    private static final int MAX_REJECT_TEXT = 200;
+    private static final int FIELD_COUNT = 6;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final FitnessDatabaseManager dbManager;
+    private final int commitEvery;   // Rows per transaction
+    private final int chunkBytes;    // Target chunk size; chunks end at the next newline
+    private final int parallelism;   // Chunks parsed concurrently per wave
+
+    /**
+     * Creates an importer with default commit size, chunk size and parallelism.
+     *
+     * @param dbManager Database to import into
+     */
+    public CsvRecordImporter(FitnessDatabaseManager dbManager) {
+        this(dbManager, DEFAULT_COMMIT_EVERY, DEFAULT_CHUNK_BYTES, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an importer with explicit tuning parameters.
+     *
+     * @param dbManager   Database to import into
+     * @param commitEvery Rows per committed transaction
+     * @param chunkBytes  Target size of each parsed chunk in bytes
+     * @param parallelism Number of chunks parsed concurrently
+     */
+    public CsvRecordImporter(FitnessDatabaseManager dbManager, int commitEvery, int chunkBytes, int parallelism) {
+        this.dbManager = dbManager;
+        this.commitEvery = Math.max(1, commitEvery);
+        this.chunkBytes = Math.max(1024, chunkBytes);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Imports every valid line of the file into the database.
+     *
+     * @param file Path of the text file to import
+     * @return Report with rows imported, rejected lines and throughput
+     * @throws IOException  if the file cannot be read
+     * @throws SQLException if writing to the database fails; rows of already committed groups remain
+     */
+    public ImportReport importFile(Path file) throws IOException, SQLException {
+        long start = System.nanoTime();
+        List<ImportReport.RejectedLine> rejected = new ArrayList<>();
+        long rejectedCount = 0;
+        long lineBase = 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             BulkRecordWriter writer = dbManager.openBulkWriter(commitEvery)) {
+            List<long[]> chunks = splitChunks(channel);
+            CompletableFuture<List<ParsedChunk>> nextWave = parseWave(channel, chunks, 0);
+
+            for (int first = 0; first < chunks.size(); first += parallelism) {
+                List<ParsedChunk> wave = await(nextWave);
+                if (first + parallelism < chunks.size()) {
+                    nextWave = parseWave(channel, chunks, first + parallelism); // overlaps with the writes below
+                }
+                for (ParsedChunk chunk : wave) {
+                    for (FitnessRecord record : chunk.records) {
+                        writer.write(record);
+                    }
+                    for (ImportReport.RejectedLine line : chunk.rejected) {
+                        if (rejected.size() < MAX_REPORTED_REJECTS) {
+                            rejected.add(new ImportReport.RejectedLine(
+                                    lineBase + line.lineNumber(), line.reason(), line.text()));
+                        }
+                    }
+                    rejectedCount += chunk.rejected.size();
+                    lineBase += chunk.lines;
+                }
+            }
+            writer.commit();
+            return new ImportReport(writer.getRowsWritten(), lineBase, rejectedCount,
+                    List.copyOf(rejected), writer.getCommitCount(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Splits the file into [start, end) byte ranges of roughly chunkBytes, each ending just after a newline.
+     */
+    private List<long[]> splitChunks(FileChannel channel) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long size = channel.size();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = 0;
+        while (start < size) {
+            long end = start + chunkBytes;
+            if (end >= size) {
+                end = size;
+            } else {
+                end = nextLineStart(channel, end, size, probe);
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Position just after the first newline at or after {@code from}, or the file size if there is none.
+     */
+    private static long nextLineStart(FileChannel channel, long from, long size, ByteBuffer probe) throws IOException {
+        long pos = from;
+        while (pos < size) {
+            probe.clear();
+            int read = channel.read(probe, pos);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return size;
+    }
+
+    /**
+     * Starts parsing up to {@code parallelism} chunks beginning at {@code first}, each on the common pool.
+     */
+    private CompletableFuture<List<ParsedChunk>> parseWave(FileChannel channel, List<long[]> chunks, int first) {
+        int last = Math.min(chunks.size(), first + parallelism);
+        List<CompletableFuture<ParsedChunk>> parts = new ArrayList<>();
+        for (int i = first; i < last; i++) {
+            long[] range = chunks.get(i);
+            boolean firstChunk = i == 0;
+            parts.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+                    return new ChunkParser(buffer, firstChunk).parse();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> parts.stream().map(CompletableFuture::join).toList());
+    }
+
+    private static List<ParsedChunk> await(CompletableFuture<List<ParsedChunk>> wave) throws IOException {
+        try {
+            return wave.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Records and rejected lines of one chunk. Rejected line numbers are relative to the chunk.
+     */
+    private record ParsedChunk(List<FitnessRecord> records, List<ImportReport.RejectedLine> rejected, long lines) {
+    }
+
+    /**
+     * Parses the lines of one mapped chunk without splitting them into Strings;
+     * only the name field (and the text of rejected lines) is decoded.
+     */
+    private static final class ChunkParser {
+        private final ByteBuffer buf;
+        private final boolean firstChunk;   // Only the file's first line may be a header
+        private byte[] text = new byte[64]; // Reused buffer for decoding the name field
+
+        // Bounds of the current line and field, as absolute buffer positions
+        private int lineEnd;
+        private int pos;
+        private int fieldStart;
+        private int fieldEnd;
+        private boolean fieldQuoted;
+        private String error;
+
+        ChunkParser(ByteBuffer buf, boolean firstChunk) {
+            this.buf = buf;
+            this.firstChunk = firstChunk;
+        }
+
+        ParsedChunk parse() {
+            List<FitnessRecord> records = new ArrayList<>();
+            List<ImportReport.RejectedLine> rejected = new ArrayList<>();
+            int limit = buf.limit();
+            long lineNumber = 0;
+            int lineStart = 0;
+            while (lineStart < limit) {
+                int newline = lineStart;
+                while (newline < limit && buf.get(newline) != '\n') {
+                    newline++;
+                }
+                lineNumber++;
+                lineEnd = newline;
+                if (lineEnd > lineStart && buf.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+                if (!isBlank(lineStart)) {
+                    FitnessRecord record = parseLine(lineStart);
+                    if (record != null) {
+                        records.add(record);
+                    } else if (!(firstChunk && lineNumber == 1 && looksLikeHeader(lineStart))) {
+                        rejected.add(new ImportReport.RejectedLine(lineNumber, error, lineText(lineStart)));
+                    }
+                }
+                lineStart = newline + 1;
+            }
+            return new ParsedChunk(records, rejected, lineNumber);
+        }
+
+        /**
+         * Parses and validates one line; returns null and sets {@code error} if it is invalid.
+         */
+        private FitnessRecord parseLine(int lineStart) {
+            pos = lineStart;
+            error = null;
+
+            if (!nextField()) return fail("missing id");
+            long id = parseLong();
+            if (id == Long.MIN_VALUE || id < Integer.MIN_VALUE || id > Integer.MAX_VALUE) return fail("invalid id");
+
+            if (!nextField()) return fail("missing name");
+            String name = decodeField();
+            if (error != null) return null;
+            if (name.isBlank()) return fail("name is empty");
+
+            if (!nextField()) return fail("missing age");
+            long age = parseLong();
+            if (age == Long.MIN_VALUE || age < 0 || age > 150) return fail("age must be between 0 and 150");
+
+            if (!nextField()) return fail("missing weight");
+            double weight = parseDouble();
+            if (!(weight > 0) || Double.isInfinite(weight)) return fail("weight must be a positive number");
+
+            if (!nextField()) return fail("missing steps");
+            long steps = parseLong();
+            if (steps == Long.MIN_VALUE || steps < 0 || steps > Integer.MAX_VALUE) return fail("steps must be a non-negative integer");
+
+            if (!nextField()) return fail("missing calories");
+            double calories = parseDouble();
+            if (!(calories >= 0) || Double.isInfinite(calories)) return fail("calories must be a non-negative number");
+
+            if (nextField()) return fail("expected " + FIELD_COUNT + " fields");
+            if (error != null) return null;
+            return new FitnessRecord((int) id, name.trim(), (int) age, weight, (int) steps, calories);
+        }
+
+        private FitnessRecord fail(String reason) {
+            if (error == null) {
+                error = reason;
+            }
+            return null;
+        }
+
+        /**
+         * Advances to the next comma-separated field of the current line, honouring double quotes.
+         *
+         * @return false if the line has no more fields
+         */
+        private boolean nextField() {
+            if (pos > lineEnd) {
+                return false;
+            }
+            while (pos < lineEnd && buf.get(pos) == ' ') {
+                pos++;
+            }
+            fieldQuoted = pos < lineEnd && buf.get(pos) == '"';
+            if (fieldQuoted) {
+                fieldStart = ++pos;
+                while (true) {
+                    if (pos >= lineEnd) {
+                        fail("unterminated quoted field");
+                        fieldEnd = lineEnd;
+                        pos = lineEnd + 1;
+                        return true;
+                    }
+                    if (buf.get(pos) == '"') {
+                        if (pos + 1 < lineEnd && buf.get(pos + 1) == '"') {
+                            pos += 2; // escaped quote
+                            continue;
+                        }
+                        break;
+                    }
+                    pos++;
+                }
+                fieldEnd = pos++;
+                while (pos < lineEnd && buf.get(pos) == ' ') {
+                    pos++;
+                }
+                if (pos < lineEnd && buf.get(pos) != ',') {
+                    fail("unexpected text after quoted field");
+                    while (pos < lineEnd && buf.get(pos) != ',') {
+                        pos++;
+                    }
+                }
+            } else {
+                fieldStart = pos;
+                while (pos < lineEnd && buf.get(pos) != ',') {
+                    pos++;
+                }
+                fieldEnd = pos;
+                while (fieldEnd > fieldStart && buf.get(fieldEnd - 1) == ' ') {
+                    fieldEnd--;
+                }
+            }
+            pos++; // skip the comma (or step past the end of the line)
+            return true;
+        }
+
+        /**
+         * Parses the current field as a decimal integer.
+         *
+         * @return The value, or Long.MIN_VALUE if the field is not a valid integer
+         */
+        private long parseLong() {
+            int i = fieldStart;
+            boolean negative = false;
+            if (i < fieldEnd && (buf.get(i) == '-' || buf.get(i) == '+')) {
+                negative = buf.get(i) == '-';
+                i++;
+            }
+            if (i == fieldEnd || fieldEnd - i > 18) {
+                return Long.MIN_VALUE;
+            }
+            long value = 0;
+            for (; i < fieldEnd; i++) {
+                int digit = buf.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return Long.MIN_VALUE;
+                }
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+
+        /**
+         * Parses the current field as a decimal number. Plain decimals with up to 15 significant
+         * digits are converted exactly without allocation; anything else goes through Double.parseDouble.
+         *
+         * @return The value, or NaN if the field is not a valid number
+         */
+        private double parseDouble() {
+            int i = fieldStart;
+            boolean negative = false;
+            if (i < fieldEnd && (buf.get(i) == '-' || buf.get(i) == '+')) {
+                negative = buf.get(i) == '-';
+                i++;
+            }
+            long mantissa = 0;
+            int digits = 0;          // significant digits, leading zeros excluded
+            int fractionDigits = 0;
+            boolean seenDigit = false;
+            boolean seenPoint = false;
+            for (; i < fieldEnd; i++) {
+                byte b = buf.get(i);
+                if (b >= '0' && b <= '9') {
+                    seenDigit = true;
+                    if (mantissa != 0 || b != '0') {
+                        digits++;
+                    }
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (seenPoint) {
+                        fractionDigits++;
+                    }
+                    if (digits > 15) {
+                        return slowParseDouble();
+                    }
+                } else if (b == '.' && !seenPoint) {
+                    seenPoint = true;
+                } else {
+                    return slowParseDouble(); // exponent or invalid character
+                }
+            }
+            if (!seenDigit) {
+                return Double.NaN;
+            }
+            if (fractionDigits >= POWERS_OF_TEN.length) {
+                return slowParseDouble();
+            }
+            // Both operands are exact doubles, so the quotient is correctly rounded
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+
+        private double slowParseDouble() {
+            try {
+                return Double.parseDouble(decodeRange(fieldStart, fieldEnd));
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        /**
+         * Decodes the current field as UTF-8, unescaping doubled quotes in quoted fields.
+         */
+        private String decodeField() {
+            int length = fieldEnd - fieldStart;
+            if (text.length < length) {
+                text = new byte[Math.max(length, text.length * 2)];
+            }
+            int n = 0;
+            for (int i = fieldStart; i < fieldEnd; i++) {
+                byte b = buf.get(i);
+                text[n++] = b;
+                if (fieldQuoted && b == '"') {
+                    i++; // skip the second quote of an escaped pair
+                }
+            }
+            return new String(text, 0, n, StandardCharsets.UTF_8);
+        }
+
+        private String decodeRange(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            buf.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private String lineText(int lineStart) {
+            return decodeRange(lineStart, Math.min(lineEnd, lineStart + MAX_REJECT_TEXT));
+        }
+
+        private boolean isBlank(int lineStart) {
+            for (int i = lineStart; i < lineEnd; i++) {
+                byte b = buf.get(i);
+                if (b != ' ' && b != '\t') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * A header is a first line whose first field is not a number, e.g. "id,name,age,...".
+         */
+        private boolean looksLikeHeader(int lineStart) {
+            pos = lineStart;
+            return nextField() && parseLong() == Long.MIN_VALUE
+                    && fieldEnd > fieldStart && Character.isLetter(buf.get(fieldStart));
+        }
+    }
+}
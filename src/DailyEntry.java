@@ -0,0 +1,13 @@
+import java.time.LocalDate;
+
+/**
+ * One day of a record's history: the steps and calories it had at the end of that day
+ * (or so far, for today).
+ *
+ * @param id       Record ID
+ * @param day      The day
+ * @param steps    Steps on that day
+ * @param calories Calories burned on that day
+ */
+public record DailyEntry(int id, LocalDate day, int steps, double calories) {
+}
@@ -0,0 +1,189 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Schema and SQL for the daily step and calorie history, and its weekly and monthly rollups.
+ * <p>
+ * FitnessHistory holds one row per record and day. It is a WITHOUT ROWID table clustered on
+ * (id, day), so one person's history is stored contiguously and a date range is a single
+ * primary-key range scan. Triggers on FitnessRecords copy stepsToday and caloriesBurned into
+ * today's row whenever a record is inserted or those fields change; a later change on the same
+ * day replaces that day's values, since they are running totals for the day. Deleting a record
+ * deletes its history.
+ * <p>
+ * FitnessWeekly (weeks starting on Monday) and FitnessMonthly hold per-record totals that
+ * triggers on FitnessHistory keep current in O(1) per written day, so a year of totals is at
+ * most 53 or 12 rows read instead of 365 days.
+ * <p>
+ * Days are stored as epoch days (days since 1970-01-01) in local time, weeks as the epoch day
+ * of their Monday and months as "YYYY-MM".
+ */
+final class DailyHistory {
+    static final String TABLE = "FitnessHistory";
+
+    // Today's epoch day in local time, matching LocalDate.now().toEpochDay()
+    private static final String TODAY = "CAST(julianday('now', 'localtime') - 2440587.5 AS INTEGER)";
+    // Monday on or before the day, for both OLD and NEW rows via %1$s
+    private static final String WEEK = "%1$s.day - ((%1$s.day + 3) %% 7 + 7) %% 7";
+    private static final String MONTH = "strftime('%%Y-%%m', %1$s.day * 86400, 'unixepoch')";
+
+    static final String SELECT_DAYS = """
+        SELECT id, day, steps, calories FROM FitnessHistory
+        WHERE id = ? AND day BETWEEN ? AND ? ORDER BY day""";
+    static final String SELECT_WEEKS = """
+        SELECT id, week, days, steps, calories FROM FitnessWeekly
+        WHERE id = ? AND week BETWEEN ? AND ? ORDER BY week""";
+    static final String SELECT_MONTHS = """
+        SELECT id, month, days, steps, calories FROM FitnessMonthly
+        WHERE id = ? AND month BETWEEN ? AND ? ORDER BY month""";
+    static final String UPSERT_DAY = """
+        INSERT INTO FitnessHistory (id, day, steps, calories) VALUES (?, ?, ?, ?)
+        ON CONFLICT (id, day) DO UPDATE SET steps = excluded.steps, calories = excluded.calories
+        WHERE steps IS NOT excluded.steps OR calories IS NOT excluded.calories""";
+
+    private DailyHistory() {
+    }
+
+    /**
+     * Creates the history and rollup tables and their triggers if needed.
+     */
+    static void createSchema(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS FitnessHistory (
+                    id INTEGER NOT NULL,
+                    day INTEGER NOT NULL,
+                    steps INTEGER NOT NULL,
+                    calories REAL NOT NULL,
+                    PRIMARY KEY (id, day)
+                ) WITHOUT ROWID""");
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS FitnessWeekly (
+                    id INTEGER NOT NULL,
+                    week INTEGER NOT NULL,
+                    days INTEGER NOT NULL,
+                    steps INTEGER NOT NULL,
+                    calories REAL NOT NULL,
+                    PRIMARY KEY (id, week)
+                ) WITHOUT ROWID""");
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS FitnessMonthly (
+                    id INTEGER NOT NULL,
+                    month TEXT NOT NULL,
+                    days INTEGER NOT NULL,
+                    steps INTEGER NOT NULL,
+                    calories REAL NOT NULL,
+                    PRIMARY KEY (id, month)
+                ) WITHOUT ROWID""");
+            createRollupTriggers(stmt);
+            createRecordTriggers(stmt);
+        }
+    }
+
+    /**
+     * Creates the triggers that write today's values of changed FitnessRecords rows into the history.
+     */
+    static void createRecordTriggers(Statement stmt) throws SQLException {
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS FitnessHistory_record_insert AFTER INSERT ON FitnessRecords
+            BEGIN
+                INSERT INTO FitnessHistory (id, day, steps, calories)
+                VALUES (NEW.id, %1$s, NEW.stepsToday, NEW.caloriesBurned)
+                ON CONFLICT (id, day) DO UPDATE SET steps = excluded.steps, calories = excluded.calories;
+            END""".formatted(TODAY));
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS FitnessHistory_record_update
+            AFTER UPDATE OF stepsToday, caloriesBurned ON FitnessRecords
+            WHEN OLD.stepsToday IS NOT NEW.stepsToday OR OLD.caloriesBurned IS NOT NEW.caloriesBurned
+            BEGIN
+                INSERT INTO FitnessHistory (id, day, steps, calories)
+                VALUES (NEW.id, %1$s, NEW.stepsToday, NEW.caloriesBurned)
+                ON CONFLICT (id, day) DO UPDATE SET steps = excluded.steps, calories = excluded.calories;
+            END""".formatted(TODAY));
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS FitnessHistory_record_delete AFTER DELETE ON FitnessRecords
+            BEGIN
+                DELETE FROM FitnessHistory WHERE id = OLD.id;
+            END""");
+    }
+
+    /**
+     * Drops the FitnessRecords triggers, e.g. before rewriting the whole table, so the rewrite
+     * does not delete every history. Must be followed by {@link #syncAfterRewrite(Statement)}
+     * and {@link #createRecordTriggers(Statement)} in the same transaction.
+     */
+    static void dropRecordTriggers(Statement stmt) throws SQLException {
+        for (String event : new String[]{"insert", "update", "delete"}) {
+            stmt.execute("DROP TRIGGER IF EXISTS FitnessHistory_record_" + event);
+        }
+    }
+
+    /**
+     * Brings the history in line with a rewritten FitnessRecords table: drops the history of
+     * records that are gone and records today's values of the others where they changed.
+     */
+    static void syncAfterRewrite(Statement stmt) throws SQLException {
+        stmt.execute("DELETE FROM FitnessHistory WHERE id NOT IN (SELECT id FROM FitnessRecords)");
+        stmt.execute("""
+            INSERT INTO FitnessHistory (id, day, steps, calories)
+            SELECT id, %1$s, stepsToday, caloriesBurned FROM FitnessRecords WHERE true
+            ON CONFLICT (id, day) DO UPDATE SET steps = excluded.steps, calories = excluded.calories
+            WHERE steps IS NOT excluded.steps OR calories IS NOT excluded.calories""".formatted(TODAY));
+    }
+
+    /**
+     * Creates the triggers that keep FitnessWeekly and FitnessMonthly equal to the sums of FitnessHistory.
+     */
+    private static void createRollupTriggers(Statement stmt) throws SQLException {
+        for (String[] rollup : new String[][]{{"FitnessWeekly", "week", WEEK}, {"FitnessMonthly", "month", MONTH}}) {
+            String table = rollup[0];
+            String key = rollup[1];
+            String newKey = rollup[2].formatted("NEW");
+            String oldKey = rollup[2].formatted("OLD");
+            stmt.execute("""
+                CREATE TRIGGER IF NOT EXISTS %1$s_insert AFTER INSERT ON FitnessHistory
+                BEGIN
+                    INSERT INTO %1$s (id, %2$s, days, steps, calories) VALUES (NEW.id, %3$s, 1, NEW.steps, NEW.calories)
+                    ON CONFLICT (id, %2$s) DO UPDATE SET
+                        days = days + 1,
+                        steps = steps + excluded.steps,
+                        calories = calories + excluded.calories;
+                END""".formatted(table, key, newKey));
+            stmt.execute("""
+                CREATE TRIGGER IF NOT EXISTS %1$s_update AFTER UPDATE OF steps, calories ON FitnessHistory
+                BEGIN
+                    UPDATE %1$s SET
+                        steps = steps - OLD.steps + NEW.steps,
+                        calories = calories - OLD.calories + NEW.calories
+                    WHERE id = NEW.id AND %2$s = %3$s;
+                END""".formatted(table, key, newKey));
+            stmt.execute("""
+                CREATE TRIGGER IF NOT EXISTS %1$s_delete AFTER DELETE ON FitnessHistory
+                BEGIN
+                    UPDATE %1$s SET
+                        days = days - 1,
+                        steps = steps - OLD.steps,
+                        calories = calories - OLD.calories
+                    WHERE id = OLD.id AND %2$s = %3$s;
+                    DELETE FROM %1$s WHERE id = OLD.id AND %2$s = %3$s AND days = 0;
+                END""".formatted(table, key, oldKey));
+        }
+    }
+
+    /**
+     * @return The Monday on or before the given day, which identifies its week in FitnessWeekly
+     */
+    static LocalDate weekStart(LocalDate day) {
+        return day.minusDays(day.getDayOfWeek().getValue() - 1);
+    }
+
+    /**
+     * @return The month key used in FitnessMonthly, e.g. "2024-06"
+     */
+    static String monthKey(YearMonth month) {
+        return month.toString();
+    }
+}
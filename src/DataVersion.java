@@ -0,0 +1,9 @@
+/**
+ * Identifies the state of a database's records: which database, and how many changes
+ * it has seen. Two equal versions mean the records are identical.
+ *
+ * @param databaseId Random ID generated when the database was created
+ * @param version    Number of record inserts, updates and deletes so far
+ */
+public record DataVersion(String databaseId, long version) {
+}
@@ -0,0 +1,177 @@
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Metrics of one FitnessDatabaseManager: an OperationMetrics per DatabaseOperation,
+ * including the time spent waiting for a pooled connection.
+ * <p>
+ * The metrics can be read three ways: as JMX MBeans (one per operation, under
+ * {@code FitnessTracker:type=DatabaseOperation}) for JConsole, as a point-in-time
+ * {@link #snapshot()}, or as periodic interval snapshots via {@link #startReporting(long, Consumer)}.
+ */
+public class DatabaseMetrics {
+    private static final Logger LOG = Logger.getLogger(DatabaseMetrics.class.getName());
+    private static final String JMX_DOMAIN = "FitnessTracker";
+
+    // One daemon thread shared by all periodic reporters
+    private static final ScheduledExecutorService REPORTER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "fitness-metrics-reporter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<DatabaseOperation, OperationMetrics> operations = new EnumMap<>(DatabaseOperation.class);
+    private final List<ObjectName> registered = new ArrayList<>();
+    private final long createdNanos = System.nanoTime();
+
+    /**
+     * Creates empty metrics for every operation.
+     */
+    public DatabaseMetrics() {
+        for (DatabaseOperation operation : DatabaseOperation.values()) {
+            operations.put(operation, new OperationMetrics(operation));
+        }
+    }
+
+    /**
+     * @param operation An operation
+     * @return Its metrics
+     */
+    public OperationMetrics of(DatabaseOperation operation) {
+        return operations.get(operation);
+    }
+
+    /**
+     * @return Cumulative counters of every operation since the manager was created
+     */
+    public Snapshot snapshot() {
+        Map<DatabaseOperation, OperationMetrics.Snapshot> copies = new EnumMap<>(DatabaseOperation.class);
+        operations.forEach((operation, metrics) -> copies.put(operation, metrics.snapshot()));
+        return new Snapshot(System.currentTimeMillis(), System.nanoTime() - createdNanos,
+                Collections.unmodifiableMap(copies));
+    }
+
+    /**
+     * Calls the listener every period with the counters of that period only.
+     * Listeners run on a shared background thread and should return quickly.
+     *
+     * @param periodMillis Reporting interval
+     * @param listener     Receives interval snapshots
+     * @return Handle to stop reporting with {@code cancel(false)}
+     */
+    public ScheduledFuture<?> startReporting(long periodMillis, Consumer<Snapshot> listener) {
+        Snapshot[] previous = {snapshot()};
+        return REPORTER.scheduleAtFixedRate(() -> {
+            Snapshot current = snapshot();
+            try {
+                listener.accept(current.minus(previous[0]));
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Metrics listener failed", e);
+            }
+            previous[0] = current;
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers one MBean per operation with the platform MBean server. Failures (e.g. a
+     * second manager on the same file) are logged and otherwise ignored, since metrics must
+     * never stop the database from working.
+     *
+     * @param database Name identifying the database in JConsole, e.g. its file name
+     */
+    void registerMBeans(String database) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (OperationMetrics metrics : operations.values()) {
+            try {
+                ObjectName name = new ObjectName(JMX_DOMAIN + ":type=DatabaseOperation,database="
+                        + ObjectName.quote(database) + ",name=" + metrics.getOperation().label());
+                server.registerMBean(metrics, name);
+                registered.add(name);
+            } catch (JMException e) {
+                if (LOG.isLoggable(Level.FINE)) {
+                    LOG.fine("Could not register metrics MBean: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the MBeans registered by {@link #registerMBeans(String)}.
+     */
+    void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                // Already gone
+            }
+        }
+        registered.clear();
+    }
+
+    /**
+     * Counters of every operation at one point in time, or over an interval after {@link #minus(Snapshot)}.
+     *
+     * @param timestampMillis Wall-clock time the snapshot was taken
+     * @param elapsedNanos    Time covered: since the metrics were created, or the interval after minus
+     * @param operations      Counters by operation
+     */
+    public record Snapshot(long timestampMillis, long elapsedNanos,
+                           Map<DatabaseOperation, OperationMetrics.Snapshot> operations) {
+
+        /**
+         * @param operation An operation
+         * @return Its counters, never null
+         */
+        public OperationMetrics.Snapshot get(DatabaseOperation operation) {
+            return operations.getOrDefault(operation, OperationMetrics.Snapshot.EMPTY);
+        }
+
+        /**
+         * @param operation An operation
+         * @return Calls per second over the time covered by this snapshot
+         */
+        public double callsPerSecond(DatabaseOperation operation) {
+            return elapsedNanos <= 0 ? 0 : get(operation).calls() * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @param earlier Snapshot taken before this one
+         * @return Counters of the interval between the two
+         */
+        public Snapshot minus(Snapshot earlier) {
+            Map<DatabaseOperation, OperationMetrics.Snapshot> delta = new EnumMap<>(DatabaseOperation.class);
+            operations.forEach((operation, counters) -> delta.put(operation, counters.minus(earlier.get(operation))));
+            return new Snapshot(timestampMillis, elapsedNanos - earlier.elapsedNanos, Collections.unmodifiableMap(delta));
+        }
+
+        /**
+         * Formats one line per operation that was called, for console reports.
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            operations.forEach((operation, counters) -> {
+                if (counters.calls() > 0) {
+                    sb.append(String.format("%-16s %8.1f/s %s%n", operation.label(), callsPerSecond(operation), counters));
+                }
+            });
+            return sb.isEmpty() ? "No database operations recorded." + System.lineSeparator() : sb.toString();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Database operations measured by DatabaseMetrics, with the name used for their JMX MBean
+ * and whether the rows they report are rows read or rows written.
+ */
+public enum DatabaseOperation {
+    GET_BY_ID("getRecordById", false),
+    GET_BY_IDS("getRecordsByIds", false),
+    GET_ALL("getAllRecords", false),
+    GET_PAGE("getRecordsAfter", false),
+    INSERT("insertRecord", true),
+    UPDATE("updateRecord", true),
+    DELETE("deleteRecord", true),
+    SAVE_ALL("saveAllRecords", true),
+    SAVE_CHANGES("saveChanges", true),
+    BULK_COMMIT("bulkCommit", true),
+    RECOMPUTE("recomputeCalories", true),
+    COLUMN_STATS("getColumnStats", false),
+    SEARCH_NAME("searchByName", false),
+    FIND("findRecords", false),
+    GET_HISTORY("getHistory", false),
+    GET_PERIOD_TOTALS("getPeriodTotals", false),
+    SAVE_HISTORY("saveHistory", true),
+    CONNECTION_WAIT("connectionWait", false);
+
+    private final String label;     // Method name shown in JConsole and reports
+    private final boolean write;    // Rows reported by the operation are written, not read
+
+    DatabaseOperation(String label, boolean write) {
+        this.label = label;
+        this.write = write;
+    }
+
+    /**
+     * @return Name used in JMX object names and reports
+     */
+    public String label() {
+        return label;
+    }
+
+    /**
+     * @return true if the operation writes rows
+     */
+    public boolean isWrite() {
+        return write;
+    }
+}
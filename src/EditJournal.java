@@ -0,0 +1,492 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only file of local edits that are not saved to the database yet, so a crash does
+ * not lose them. Each upsert or delete is appended as a checksummed entry; opening the
+ * journal again reads the entries back as a {@link RecordChangeSet} to replay over the
+ * loaded records. After the changes are saved, {@link #reset()} empties the file.
+ * <p>
+ * Appends go to an in-memory buffer, which a background thread writes to the file and
+ * forces to disk every {@code syncIntervalMillis}, so a crash loses at most that much
+ * editing while each edit costs only a buffer copy. {@link #sync()} makes everything
+ * appended so far durable at once. A sync swaps in an empty buffer under the append lock
+ * and writes and forces the full one under a separate write lock, so appends (e.g. from
+ * the event dispatch thread) never wait for the disk.
+ * <p>
+ * The file is little-endian:
+ * <pre>
+ *   header (8 bytes): magic int, format version int
+ *   entry: payload length int, CRC32C of the payload int, payload
+ *   upsert payload: 'U', id int, version long, age int, stepsToday int, weight double,
+ *                   caloriesBurned double, UTF-8 name length int, name bytes
+ *   delete payload: 'D', id int, expected version long
+ * </pre>
+ * An entry cut short by a crash, or whose checksum does not match, ends the journal:
+ * it and anything after it are dropped when the file is opened.
+ * <p>
+ * Entries keep the row version each edit was based on, so replayed edits are still
+ * compare-and-set: one whose row another editor changed meanwhile is reported as a
+ * conflict on save instead of overwriting it. For the same reason, edits that were saved
+ * but not yet reset when the application stopped conflict with their own saved rows
+ * rather than being written twice.
+ */
+public final class EditJournal implements AutoCloseable {
+    /** "FTEJ": first four bytes of a journal file. */
+    public static final int MAGIC = 0x46544A45;
+    /** Current journal format version. */
+    public static final int VERSION = 2;
+    /** Default maximum time an appended edit waits before it is forced to disk. */
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 200;
+
+    private static final Logger LOG = Logger.getLogger(EditJournal.class.getName());
+    private static final int HEADER_BYTES = 8;
+    private static final int ENTRY_HEADER_BYTES = 8;
+    private static final int MAX_PAYLOAD_BYTES = 1 << 20;
+    private static final byte UPSERT = 'U';
+    private static final byte DELETE = 'D';
+
+    private final Path file;
+    private final FileChannel channel;
+    private final RecordChangeSet recovered;
+    private final int recoveredEntries;
+    private final long syncIntervalNanos;
+    private final ReentrantLock lock = new ReentrantLock();      // Appends; taken after writeLock, never before
+    private final ReentrantLock writeLock = new ReentrantLock(); // File writes, forces and truncation
+    private final Condition syncDue = lock.newCondition();
+    private final Thread syncer;
+
+    // Guarded by lock
+    private ByteBuffer pending = newBuffer(64 * 1024); // Entries appended but not yet written
+    private final CRC32C crc = new CRC32C();
+    private boolean closed;
+    private long entries;           // Entries in the file plus pending, since open or reset
+    private IOException syncFailure; // Failure of the last sync, reported to appends until one succeeds
+
+    // Guarded by writeLock
+    private ByteBuffer spare = newBuffer(64 * 1024);   // Empty buffer swapped in for pending by a sync
+    private boolean dirty;          // Written to the channel but not forced
+
+    private EditJournal(Path file, FileChannel channel, RecordChangeSet recovered, int recoveredEntries,
+                        long syncIntervalMillis) {
+        this.file = file;
+        this.channel = channel;
+        this.recovered = recovered;
+        this.recoveredEntries = recoveredEntries;
+        this.entries = recoveredEntries;
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, syncIntervalMillis));
+        this.syncer = new Thread(this::runSyncer, "fitness-journal-sync");
+        this.syncer.setDaemon(true);
+        this.syncer.start();
+    }
+
+    /**
+     * Opens the journal with the default sync interval; see {@link #open(Path, long)}.
+     */
+    public static EditJournal open(Path file) throws IOException {
+        return open(file, DEFAULT_SYNC_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Opens or creates a journal and reads the edits it already holds, which
+     * {@link #recovered()} returns. A torn or corrupt tail is cut off so new entries
+     * follow the last valid one.
+     *
+     * @param file               Journal file, created if it does not exist
+     * @param syncIntervalMillis Maximum time an appended edit waits before it is forced to disk
+     * @return The open journal
+     * @throws IOException if the file cannot be read or written, or is not an edit journal
+     */
+    public static EditJournal open(Path file, long syncIntervalMillis) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            RecordChangeSet changes = new RecordChangeSet();
+            int count = 0;
+            if (channel.size() < HEADER_BYTES) {
+                writeHeader(channel);
+            } else {
+                ByteBuffer header = newBuffer(HEADER_BYTES);
+                readFully(channel, header, 0);
+                if (header.getInt(0) != MAGIC) {
+                    throw new IOException(file + " is not an edit journal");
+                }
+                if (header.getInt(4) != VERSION) {
+                    throw new IOException("Unsupported edit journal version " + header.getInt(4) + " in " + file);
+                }
+                long end = HEADER_BYTES;
+                long size = channel.size();
+                ByteBuffer entryHeader = newBuffer(ENTRY_HEADER_BYTES);
+                CRC32C crc = new CRC32C();
+                while (end + ENTRY_HEADER_BYTES <= size) {
+                    entryHeader.clear();
+                    readFully(channel, entryHeader, end);
+                    int length = entryHeader.getInt(0);
+                    if (length <= 0 || length > MAX_PAYLOAD_BYTES || end + ENTRY_HEADER_BYTES + length > size) {
+                        break;
+                    }
+                    ByteBuffer payload = newBuffer(length);
+                    readFully(channel, payload, end + ENTRY_HEADER_BYTES);
+                    payload.flip();
+                    crc.reset();
+                    crc.update(payload.duplicate());
+                    if ((int) crc.getValue() != entryHeader.getInt(4) || !apply(payload, changes)) {
+                        break;
+                    }
+                    end += ENTRY_HEADER_BYTES + length;
+                    count++;
+                }
+                if (end < size) {
+                    LOG.log(Level.WARNING, "Dropping {0} bytes of torn or corrupt edit journal entries from {1}",
+                            new Object[]{size - end, file});
+                    channel.truncate(end);
+                    channel.force(false);
+                }
+            }
+            channel.position(channel.size());
+            return new EditJournal(file, channel, changes, count, syncIntervalMillis);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The edits read from the file when it was opened, merged per ID; empty for a new journal
+     */
+    public RecordChangeSet recovered() {
+        return recovered;
+    }
+
+    /**
+     * @return Number of entries read from the file when it was opened
+     */
+    public int recoveredEntries() {
+        return recoveredEntries;
+    }
+
+    /**
+     * @return Entries appended or recovered since the journal was opened or last reset
+     */
+    public long entries() {
+        lock.lock();
+        try {
+            return entries;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Appends an insert or update of the record's current values and version.
+     * Only copies into the buffer; the file is written by the next sync.
+     *
+     * @throws IOException if the last sync failed; the entry is still buffered and retried by the next sync
+     */
+    public void appendUpsert(FitnessRecord record) throws IOException {
+        byte[] name = record.getFullName().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = newBuffer(1 + 4 + 8 + 4 + 4 + 8 + 8 + 4 + name.length);
+        payload.put(UPSERT).putInt(record.getId()).putLong(record.getVersion())
+                .putInt(record.getAge()).putInt(record.getStepsToday())
+                .putDouble(record.getWeight()).putDouble(record.getCaloriesBurned())
+                .putInt(name.length).put(name).flip();
+        append(payload);
+    }
+
+    /**
+     * Appends a delete of one ID, whatever its version.
+     *
+     * @throws IOException if the last sync failed; see {@link #appendUpsert(FitnessRecord)}
+     */
+    public void appendDelete(int id) throws IOException {
+        appendDelete(id, 0);
+    }
+
+    /**
+     * Appends a delete of one ID that applies only while the row has the expected version.
+     *
+     * @throws IOException if the last sync failed; see {@link #appendUpsert(FitnessRecord)}
+     */
+    public void appendDelete(int id, long expectedVersion) throws IOException {
+        append(newBuffer(1 + 4 + 8).put(DELETE).putInt(id).putLong(expectedVersion).flip());
+    }
+
+    /**
+     * Writes the buffered entries and forces them to disk.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void sync() throws IOException {
+        if (!flush()) {
+            throw new IllegalStateException("Edit journal is closed");
+        }
+    }
+
+    /**
+     * Empties the journal, e.g. once its edits are saved to the database. The cut is
+     * forced to disk before returning, so the edits are not replayed after a crash.
+     *
+     * @throws IOException if the file cannot be truncated
+     */
+    public void reset() throws IOException {
+        writeLock.lock();
+        try {
+            lock.lock();
+            try {
+                ensureOpen();
+                pending.clear();
+                entries = 0;
+            } finally {
+                lock.unlock();
+            }
+            channel.truncate(HEADER_BYTES);
+            channel.position(HEADER_BYTES);
+            channel.force(false);
+            dirty = false;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Syncs the remaining entries, stops the sync thread and closes the file.
+     */
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            try {
+                if (!flush()) {
+                    return;
+                }
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to sync edit journal on close: {0}", e.getMessage());
+            }
+            lock.lock();
+            try {
+                closed = true;
+                syncDue.signal();
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        try {
+            syncer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to close edit journal: {0}", e.getMessage());
+        }
+    }
+
+    private void append(ByteBuffer payload) throws IOException {
+        lock.lock();
+        try {
+            ensureOpen();
+            crc.reset();
+            crc.update(payload.duplicate());
+            int needed = ENTRY_HEADER_BYTES + payload.remaining();
+            if (pending.remaining() < needed) {
+                // Grow rather than write here; the syncer empties the buffer within one interval
+                pending = newBuffer(Math.max(pending.capacity() * 2, pending.position() + needed)).put(pending.flip());
+            }
+            pending.putInt(payload.remaining()).putInt((int) crc.getValue()).put(payload);
+            entries++;
+            if (syncFailure != null) {
+                throw new IOException(syncFailure.getMessage(), syncFailure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Swaps the buffer of appended entries for an empty one, then writes it to the channel
+     * in one append and forces it to disk, holding only the write lock during the I/O.
+     * Entries that could not be written are put back ahead of newer ones.
+     *
+     * @return false if the journal is closed
+     */
+    private boolean flush() throws IOException {
+        writeLock.lock();
+        try {
+            ByteBuffer full;
+            lock.lock();
+            try {
+                if (closed) {
+                    return false;
+                }
+                full = pending;
+                pending = spare != null ? spare : newBuffer(full.capacity());
+                spare = null;
+            } finally {
+                lock.unlock();
+            }
+
+            full.flip();
+            if (full.hasRemaining()) {
+                try {
+                    while (full.hasRemaining()) {
+                        channel.write(full);
+                    }
+                } catch (IOException e) {
+                    requeue(full, e);
+                    throw e;
+                }
+                dirty = true;
+            }
+            spare = full.clear();
+            if (dirty) {
+                try {
+                    channel.force(false);
+                } catch (IOException e) {
+                    failed(e);
+                    throw e;
+                }
+                dirty = false;
+            }
+            failed(null);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Puts the unwritten rest of a failed write back in front of the entries appended since.
+     */
+    private void requeue(ByteBuffer unwritten, IOException cause) {
+        lock.lock();
+        try {
+            ByteBuffer merged = newBuffer(unwritten.remaining() + pending.capacity());
+            merged.put(unwritten).put(pending.flip());
+            pending = merged;
+            syncFailure = cause;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void failed(IOException cause) {
+        lock.lock();
+        try {
+            syncFailure = cause;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces the journal to disk every sync interval until closed.
+     */
+    private void runSyncer() {
+        while (true) {
+            lock.lock();
+            try {
+                long remaining = syncIntervalNanos;
+                while (!closed && remaining > 0) {
+                    remaining = syncDue.awaitNanos(remaining);
+                }
+                if (closed) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                if (!flush()) {
+                    return;
+                }
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to sync edit journal: {0}", e.getMessage());
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Edit journal is closed");
+        }
+    }
+
+    /**
+     * Decodes one payload into the change set.
+     *
+     * @return false if the payload is malformed
+     */
+    private static boolean apply(ByteBuffer payload, RecordChangeSet changes) {
+        try {
+            byte type = payload.get();
+            int id = payload.getInt();
+            long version = payload.getLong();
+            if (type == DELETE && !payload.hasRemaining()) {
+                changes.markDeleted(id, version);
+                return true;
+            }
+            if (type != UPSERT) {
+                return false;
+            }
+            int age = payload.getInt();
+            int steps = payload.getInt();
+            double weight = payload.getDouble();
+            double calories = payload.getDouble();
+            byte[] name = new byte[payload.getInt()];
+            payload.get(name);
+            if (payload.hasRemaining()) {
+                return false;
+            }
+            FitnessRecord record = new FitnessRecord(id, new String(name, StandardCharsets.UTF_8),
+                    age, weight, steps, calories);
+            record.setVersion(version);
+            changes.markUpserted(record);
+            return true;
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            return false;
+        }
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        channel.truncate(0);
+        ByteBuffer header = newBuffer(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(false);
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of edit journal");
+            }
+        }
+    }
+}
@@ -1,29 +1,161 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Manages SQLite database operations for Fitness Records.
  * Provides methods for creating the table, CRUD operations, and custom queries.
+ * Every operation is timed and counted in {@link #getMetrics()}; diagnostics go to
+ * java.util.logging rather than standard output.
  */
-public class FitnessDatabaseManager {
+public class FitnessDatabaseManager implements AutoCloseable {
+    /** System property that turns connection pooling on or off (default: on). */
+    public static final String POOL_PROPERTY = "fitness.db.pool";
+    /** System property with the maximum number of cached records (0 disables the cache). */
+    public static final String CACHE_PROPERTY = "fitness.db.cache";
+
+    private static final Logger LOG = Logger.getLogger(FitnessDatabaseManager.class.getName());
+
+    private static final String INSERT_SQL = "INSERT INTO FitnessRecords"
+            + " (id, fullName, age, weight, stepsToday, caloriesBurned, version) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPSERT_SQL = INSERT_SQL + """
+             ON CONFLICT(id) DO UPDATE SET
+                fullName = excluded.fullName,
+                age = excluded.age,
+                weight = excluded.weight,
+                stepsToday = excluded.stepsToday,
+                caloriesBurned = excluded.caloriesBurned,
+                version = FitnessRecords.version + 1""";
+    // Writes a row exactly as read elsewhere, keeping its version
+    private static final String COPY_SQL = INSERT_SQL + """
+             ON CONFLICT(id) DO UPDATE SET
+                fullName = excluded.fullName,
+                age = excluded.age,
+                weight = excluded.weight,
+                stepsToday = excluded.stepsToday,
+                caloriesBurned = excluded.caloriesBurned,
+                version = excluded.version""";
+    // Compare-and-set: an expected version of 0 matches any row
+    private static final String UPDATE_SQL = """
+            UPDATE FitnessRecords SET
+                fullName = ?,
+                age = ?,
+                weight = ?,
+                stepsToday = ?,
+                caloriesBurned = ?,
+                version = version + 1
+            WHERE id = ? AND (? = 0 OR version = ?)
+            RETURNING version""";
+    private static final String DELETE_SQL = "DELETE FROM FitnessRecords WHERE id = ? AND (? = 0 OR version = ?)";
+    private static final String UPDATE_CALORIES_SQL =
+            "UPDATE FitnessRecords SET caloriesBurned = ?, version = version + 1 WHERE id = ? AND version = ?";
+    private static final String SELECT_STATS =
+            "SELECT field, cnt, total, totalSquares, minValue, maxValue FROM " + RunningAggregates.TABLE;
+    private static final String SELECT_COLUMNS =
+            "SELECT id, fullName, age, weight, stepsToday, caloriesBurned, version FROM FitnessRecords";
+    private static final String SELECT_BY_ID = SELECT_COLUMNS + " WHERE id = ?";
+    private static final int IDS_PER_QUERY = 256;
+    private static final String SELECT_BY_IDS =
+            SELECT_COLUMNS + " WHERE id IN (" + "?, ".repeat(IDS_PER_QUERY - 1) + "?)";
+
     // The JDBC URL for connecting to the SQLite database file
     private final String dbUrl;
+    // Pooled connections with cached prepared statements
+    private final ConnectionPool pool;
+    // Recently read or written records by ID
+    private final RecordCache cache;
+    // Latency, throughput, row and error counters per operation
+    private final DatabaseMetrics metrics = new DatabaseMetrics();
 
     /**
      * Constructor accepts the SQLite database filename and constructs the connection URL.
      * It also ensures the FitnessRecords table exists by creating it if necessary.
+     * Pooling follows the {@value #POOL_PROPERTY} system property and is enabled by default;
+     * the record cache size follows {@value #CACHE_PROPERTY}.
      *
      * @param dbFileName Filename of the SQLite database, e.g., "fitness.db"
      */
     public FitnessDatabaseManager(String dbFileName) {
+        this(dbFileName, Boolean.parseBoolean(System.getProperty(POOL_PROPERTY, "true")));
+    }
+
+    /**
+     * Constructor that explicitly turns connection pooling on or off.
+     *
+     * @param dbFileName Filename of the SQLite database, e.g., "fitness.db"
+     * @param pooled     true to reuse configured connections and prepared statements,
+     *                   false to open a new connection for every operation
+     */
+    public FitnessDatabaseManager(String dbFileName, boolean pooled) {
         this.dbUrl = "jdbc:sqlite:" + dbFileName;
+        this.pool = new ConnectionPool(dbUrl, ConnectionPool.DEFAULT_SIZE, pooled,
+                metrics.of(DatabaseOperation.CONNECTION_WAIT));
+        this.cache = new RecordCache(Integer.getInteger(CACHE_PROPERTY, RecordCache.DEFAULT_CAPACITY));
         createTableIfNotExists();
+        metrics.registerMBeans(dbFileName);
+    }
+
+    /**
+     * @return Per-operation metrics of this manager, also published as JMX MBeans
+     */
+    public DatabaseMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return Hit, miss and eviction counters of the record cache
+     */
+    public RecordCache.Stats getCacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return true if this manager reuses pooled connections
+     */
+    public boolean isPooled() {
+        return pool.isEnabled();
+    }
+
+    /**
+     * Closes all pooled connections. The manager cannot be used afterwards.
+     * Runs {@code PRAGMA optimize} first, so SQLite refreshes the index statistics
+     * the query planner uses to choose between indexes.
+     */
+    @Override
+    public void close() {
+        metrics.unregisterMBeans();
+        try (ConnectionPool.Lease lease = pool.acquire();
+             Statement stmt = lease.connection().createStatement()) {
+            stmt.execute("PRAGMA optimize");
+        } catch (SQLException e) {
+            LOG.log(Level.FINE, "Could not optimize database: {0}", e.getMessage());
+        }
+        pool.close();
     }
 
     /**
      * Creates the FitnessRecords table with the appropriate schema
-     * if it does not already exist in the database.
+     * if it does not already exist in the database, together with the
+     * trigger-maintained FitnessStats summary table, FitnessNames search index,
+     * daily history with its rollups, the secondary indexes used by range queries,
+     * and the FitnessVersion change counter. Tables created before rows were versioned
+     * get the version column added, starting every row at version 1.
      */
     private void createTableIfNotExists() {
         String sql = """
@@ -33,195 +165,1246 @@ public class FitnessDatabaseManager {
                 age INTEGER NOT NULL,
                 weight REAL NOT NULL,
                 stepsToday INTEGER NOT NULL,
-                caloriesBurned REAL NOT NULL
+                caloriesBurned REAL NOT NULL,
+                version INTEGER NOT NULL DEFAULT 1
             );
             """;
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             Statement stmt = conn.createStatement()) {
+        try (ConnectionPool.Lease lease = pool.acquire();
+             Statement stmt = lease.connection().createStatement()) {
+            Connection conn = lease.connection();
+            conn.setAutoCommit(false);
             stmt.execute(sql);
+            addVersionColumn(stmt);
+            RecordIndexes.create(stmt);
+            RunningAggregates.createSchema(conn);
+            NameSearch.createSchema(conn);
+            DailyHistory.createSchema(conn);
+            ChangeTracking.createSchema(stmt);
+            conn.commit();
+            conn.setAutoCommit(true);
         } catch (SQLException e) {
-            System.out.println("Error creating table: " + e.getMessage());
+            LOG.log(Level.SEVERE, "Error creating table: {0}", e.getMessage());
         }
     }
 
+    /**
+     * Adds the row version column to a FitnessRecords table from before it existed.
+     */
+    private static void addVersionColumn(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT 1 FROM pragma_table_info('FitnessRecords') WHERE name = 'version'")) {
+            if (rs.next()) {
+                return;
+            }
+        }
+        stmt.execute("ALTER TABLE FitnessRecords ADD COLUMN version INTEGER NOT NULL DEFAULT 1");
+    }
+
+    /**
+     * Retrieves one fitness record by its ID, from the cache if possible. The cache is
+     * only trusted while the database's change counter has not moved, so writes by other
+     * processes or managers on the same file are seen.
+     *
+     * @param id The unique ID of the record
+     * @return A copy of the record, or null if no such record exists or an error occurs
+     */
+    public FitnessRecord getRecordById(int id) {
+        try {
+            return getRecordByIdChecked(id);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error retrieving record: {0}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Same as {@link #getRecordById(int)}, but reports errors by throwing.
+     */
+    FitnessRecord getRecordByIdChecked(int id) throws SQLException {
+        return measure(DatabaseOperation.GET_BY_ID, () -> {
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                cache.validate(readVersion(lease));
+                FitnessRecord cached = cache.get(id);
+                if (cached != null) {
+                    return cached;
+                }
+                long version = cache.version();
+                PreparedStatement pstmt = lease.prepare(SELECT_BY_ID);
+                pstmt.setInt(1, id);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    FitnessRecord record = readRecord(rs);
+                    cache.putIfUnchanged(record, version);
+                    return record;
+                }
+            }
+        }, record -> record == null ? 0 : 1);
+    }
+
+    /**
+     * Retrieves several fitness records by ID. Cached records are served from memory and
+     * the rest are read with a few {@code WHERE id IN (...)} queries rather than one per ID.
+     *
+     * @param ids IDs to look up; duplicates are ignored
+     * @return Records by ID in the order requested; IDs with no record are absent.
+     *         Empty map if an error occurs.
+     */
+    public Map<Integer, FitnessRecord> getRecordsByIds(Collection<Integer> ids) {
+        try {
+            return getRecordsByIdsChecked(ids);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error retrieving records: {0}", e.getMessage());
+            return new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Same as {@link #getRecordsByIds(Collection)}, but reports errors by throwing.
+     */
+    Map<Integer, FitnessRecord> getRecordsByIdsChecked(Collection<Integer> ids) throws SQLException {
+        return measure(DatabaseOperation.GET_BY_IDS, () -> {
+            Map<Integer, FitnessRecord> found = new LinkedHashMap<>();
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                cache.validate(readVersion(lease));
+                List<Integer> missing = new ArrayList<>();
+                for (int id : ids) {
+                    if (found.containsKey(id)) {
+                        continue;
+                    }
+                    FitnessRecord cached = cache.get(id);
+                    found.put(id, cached); // Placeholder keeps the requested order
+                    if (cached == null) {
+                        missing.add(id);
+                    }
+                }
+
+                long version = cache.version();
+                PreparedStatement pstmt = lease.prepare(SELECT_BY_IDS);
+                for (int from = 0; from < missing.size(); from += IDS_PER_QUERY) {
+                    // Every query binds IDS_PER_QUERY values, repeating the last ID in a short
+                    // final chunk, so one cached statement serves all chunks
+                    int to = Math.min(from + IDS_PER_QUERY, missing.size());
+                    for (int i = 0; i < IDS_PER_QUERY; i++) {
+                        pstmt.setInt(i + 1, missing.get(Math.min(from + i, to - 1)));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            FitnessRecord record = readRecord(rs);
+                            cache.putIfUnchanged(record, version);
+                            found.put(record.getId(), record);
+                        }
+                    }
+                }
+            }
+            found.values().removeIf(r -> r == null);
+            return found;
+        }, Map::size);
+    }
+
     /**
      * Retrieves all fitness records from the FitnessRecords table.
      *
      * @return List of FitnessRecord objects representing all records; empty list if none found
      */
     public List<FitnessRecord> getAllRecords() {
-        List<FitnessRecord> records = new ArrayList<>();
-        String sql = "SELECT * FROM FitnessRecords ORDER BY id";
-
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try {
+            List<FitnessRecord> records = getAllRecordsChecked();
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine(records.size() + " records fetched from the database.");
+            }
+            return records;
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error fetching records: {0}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
 
-            while (rs.next()) {
-                FitnessRecord record = new FitnessRecord(
-                        rs.getInt("id"),
-                        rs.getString("fullName"),
-                        rs.getInt("age"),
-                        rs.getDouble("weight"),
-                        rs.getInt("stepsToday"),
-                        rs.getDouble("caloriesBurned")
-                );
-                records.add(record);
+    /**
+     * Same as {@link #getAllRecords()}, but reports errors by throwing.
+     */
+    List<FitnessRecord> getAllRecordsChecked() throws SQLException {
+        return measure(DatabaseOperation.GET_ALL, () -> {
+            List<FitnessRecord> records = new ArrayList<>();
+            try (ConnectionPool.Lease lease = pool.acquire();
+                 ResultSet rs = lease.prepare(SELECT_COLUMNS + " ORDER BY id").executeQuery()) {
+                while (rs.next()) {
+                    records.add(readRecord(rs));
+                }
             }
+            return records;
+        }, List::size);
+    }
 
-            System.out.println(records.size() + " records fetched from the database.");
+    /**
+     * Finds records by name, ignoring case. A query of {@value NameIndex#MIN_SUBSTRING_LENGTH} or
+     * more characters matches names containing it anywhere and is answered by the FitnessNames
+     * trigram index; a shorter query matches names with a word starting with it.
+     *
+     * @param query Text to look for
+     * @param limit Maximum number of records returned
+     * @return Matching records in ID order; empty for a blank query or if an error occurs
+     */
+    public List<FitnessRecord> searchByName(String query, int limit) {
+        try {
+            return searchByNameChecked(query, limit);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error searching records: {0}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
 
+    /**
+     * Same as {@link #searchByName(String, int)}, but reports errors by throwing.
+     */
+    List<FitnessRecord> searchByNameChecked(String query, int limit) throws SQLException {
+        String q = NameIndex.normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        boolean substring = q.length() >= NameIndex.MIN_SUBSTRING_LENGTH;
+        return measure(DatabaseOperation.SEARCH_NAME, () -> {
+            List<FitnessRecord> found = new ArrayList<>();
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                PreparedStatement pstmt = lease.prepare(NameSearch.searchSql(SELECT_COLUMNS, substring));
+                pstmt.setString(1, NameSearch.parameter(q, substring));
+                pstmt.setInt(2, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        found.add(readRecord(rs));
+                    }
+                }
+            }
+            return found;
+        }, List::size);
+    }
+
+    /**
+     * Finds the records matching a range query, using the secondary indexes where SQLite
+     * finds them useful. With logging at FINE, the query plan of every call is logged too.
+     *
+     * @param query Predicates, order and limit
+     * @return Matching records in the query's order; empty list if an error occurs
+     */
+    public List<FitnessRecord> findRecords(RecordQuery query) {
+        try {
+            return findRecordsChecked(query);
         } catch (SQLException e) {
-            System.out.println("Error fetching records: " + e.getMessage());
+            LOG.log(Level.WARNING, "Error querying records: {0}", e.getMessage());
+            return new ArrayList<>();
         }
-        return records;
     }
 
     /**
-     * Inserts a new fitness record into the FitnessRecords table.
+     * Same as {@link #findRecords(RecordQuery)}, but reports errors by throwing.
+     */
+    List<FitnessRecord> findRecordsChecked(RecordQuery query) throws SQLException {
+        String sql = query.toSql(SELECT_COLUMNS);
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Plan for " + query + ": " + explain(query));
+        }
+        return measure(DatabaseOperation.FIND, () -> {
+            List<FitnessRecord> found = new ArrayList<>();
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                PreparedStatement pstmt = lease.prepare(sql);
+                query.bind(pstmt);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        found.add(readRecord(rs));
+                    }
+                }
+            }
+            return found;
+        }, List::size);
+    }
+
+    /**
+     * Reports how SQLite would run a range query, without running it.
      *
-     * @param record The FitnessRecord object containing the data to be inserted.
+     * @param query Predicates, order and limit
+     * @return The plan, whose {@link QueryPlan#usesIndex()} tells whether an index is used
+     * @throws SQLException if the plan cannot be obtained
      */
-    public void insertRecord(FitnessRecord record) {
-        String sql = "INSERT INTO FitnessRecords (id, fullName, age, weight, stepsToday, caloriesBurned) VALUES (?, ?, ?, ?, ?, ?)";
+    public QueryPlan explain(RecordQuery query) throws SQLException {
+        String sql = query.toSql(SELECT_COLUMNS);
+        List<String> steps = new ArrayList<>();
+        try (ConnectionPool.Lease lease = pool.acquire();
+             PreparedStatement pstmt = lease.connection().prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            query.bind(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    steps.add(rs.getString("detail"));
+                }
+            }
+        }
+        return new QueryPlan(sql, List.copyOf(steps));
+    }
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    /**
+     * Retrieves one page of records using keyset pagination on the id primary key.
+     * Each call is an index range scan, so paging through a large table costs the same
+     * per page no matter how far in it is.
+     *
+     * @param lastId   ID of the last record of the previous page; use Integer.MIN_VALUE for the first page
+     * @param pageSize Maximum number of records to return
+     * @return Records with id greater than lastId, in ID order; empty when there are no more
+     */
+    public List<FitnessRecord> getRecordsAfter(int lastId, int pageSize) {
+        try {
+            return getRecordsAfterChecked(lastId, pageSize);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error fetching records: {0}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Same as {@link #getRecordsAfter(int, int)}, but reports errors by throwing.
+     */
+    List<FitnessRecord> getRecordsAfterChecked(int lastId, int pageSize) throws SQLException {
+        String sql = SELECT_COLUMNS + " WHERE id > ? ORDER BY id LIMIT ?";
+        return measure(DatabaseOperation.GET_PAGE, () -> {
+            List<FitnessRecord> page = new ArrayList<>(Math.min(pageSize, 1024));
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                PreparedStatement pstmt = lease.prepare(sql);
+                pstmt.setInt(1, lastId);
+                pstmt.setInt(2, pageSize);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        page.add(readRecord(rs));
+                    }
+                }
+            }
+            return page;
+        }, List::size);
+    }
+
+    /**
+     * Opens a cursor over all records in ID order. Rows are read from SQLite as the
+     * cursor advances, so memory use does not grow with the table.
+     * The cursor holds a connection and must be closed.
+     *
+     * @return An open RecordCursor
+     * @throws SQLException if the query cannot be started
+     */
+    public RecordCursor openCursor() throws SQLException {
+        ConnectionPool.Lease lease = pool.acquire();
+        try {
+            ResultSet rs = lease.prepare(SELECT_COLUMNS + " ORDER BY id").executeQuery();
+            return new RecordCursor(lease, rs);
+        } catch (SQLException e) {
+            lease.close();
+            throw e;
+        }
+    }
 
-            pstmt.setInt(1, record.getId());
-            pstmt.setString(2, record.getFullName());
-            pstmt.setInt(3, record.getAge());
-            pstmt.setDouble(4, record.getWeight());
-            pstmt.setInt(5, record.getStepsToday());
-            pstmt.setDouble(6, record.getCaloriesBurned());
+    /**
+     * Opens a cursor like {@link #openCursor()} that also knows the data version of its rows.
+     * The version and the rows are read in one transaction, so in WAL mode they come from the
+     * same database snapshot even while other connections write.
+     */
+    RecordCursor openVersionedCursor() throws SQLException {
+        ConnectionPool.Lease lease = pool.acquire();
+        try {
+            // Rolled back when the lease is released, which ends the read transaction
+            lease.connection().setAutoCommit(false);
+            DataVersion version = readVersion(lease);
+            ResultSet rs = lease.prepare(SELECT_COLUMNS + " ORDER BY id").executeQuery();
+            return new RecordCursor(lease, rs, version);
+        } catch (SQLException e) {
+            lease.close();
+            throw e;
+        }
+    }
 
-            pstmt.executeUpdate();
+    /**
+     * Returns the database's ID and change counter. The counter increases with every insert,
+     * update and delete of a record, so an unchanged version means unchanged records.
+     *
+     * @return The current data version
+     * @throws SQLException if it cannot be read
+     */
+    public DataVersion getDataVersion() throws SQLException {
+        try (ConnectionPool.Lease lease = pool.acquire()) {
+            return readVersion(lease);
+        }
+    }
 
+    /**
+     * Reads the version right after a write on the same connection, for the record cache.
+     *
+     * @return The version, or null if it cannot be read; the write itself has succeeded
+     */
+    private static DataVersion versionAfterWrite(ConnectionPool.Lease lease) {
+        try {
+            return readVersion(lease);
         } catch (SQLException e) {
-            System.out.println("Error inserting record: " + e.getMessage());
+            LOG.log(Level.FINE, "Cannot read data version after a write: {0}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static DataVersion readVersion(ConnectionPool.Lease lease) throws SQLException {
+        try (ResultSet rs = lease.prepare(ChangeTracking.SELECT_VERSION).executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("FitnessVersion is empty");
+            }
+            return new DataVersion(rs.getString(1), rs.getLong(2));
         }
     }
 
     /**
-     * Deletes a fitness record identified by the provided ID.
+     * Streams all records in ID order straight from the database cursor.
+     * The stream holds a connection and must be closed, e.g. with try-with-resources.
      *
-     * @param id The unique ID of the fitness record to delete.
+     * @return A lazily populated stream of records; empty if the query fails
      */
-    public void deleteRecord(int id) {
-        String sql = "DELETE FROM FitnessRecords WHERE id = ?";
+    public Stream<FitnessRecord> streamRecords() {
+        try {
+            RecordCursor cursor = openCursor();
+            return StreamSupport.stream(
+                    Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL),
+                    false).onClose(cursor::close);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error streaming records: {0}", e.getMessage());
+            return Stream.empty();
+        }
+    }
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    /**
+     * Exports all records to a file straight from the database cursor, so memory use stays
+     * bounded regardless of table size. See RecordExporter for the CSV and binary layouts.
+     *
+     * @param file   Destination file, replaced if it exists
+     * @param format CSV or BINARY
+     * @param gzip   true to gzip-compress the output
+     * @return Rows and bytes written and elapsed time
+     * @throws IOException  if the file cannot be written
+     * @throws SQLException if the records cannot be read
+     */
+    public RecordExporter.ExportReport exportRecords(Path file, RecordExporter.Format format, boolean gzip)
+            throws IOException, SQLException {
+        try (RecordCursor cursor = openCursor()) {
+            return new RecordExporter(format, gzip).export(cursor, file);
+        }
+    }
 
-            pstmt.setInt(1, id);
+    /**
+     * Counts the records in the FitnessRecords table.
+     * Reads the running count from FitnessStats, so it does not scan the table.
+     *
+     * @return Number of records; 0 if an error occurs
+     */
+    public int countRecords() {
+        return (int) getColumnStats(RecordField.AGE).count();
+    }
 
-            int affected = pstmt.executeUpdate();
+    /**
+     * Inserts a new fitness record into the FitnessRecords table.
+     * The new row's version is one more than the record's.
+     *
+     * @param record The FitnessRecord object containing the data to be inserted.
+     */
+    public void insertRecord(FitnessRecord record) {
+        try {
+            insertRecordChecked(record);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error inserting record: {0}", e.getMessage());
+        }
+    }
 
-            if (affected == 0) {
-                System.out.println("No record found with ID " + id);
+    /**
+     * Same as {@link #insertRecord(FitnessRecord)}, but reports errors (e.g. a duplicate ID) by throwing.
+     */
+    void insertRecordChecked(FitnessRecord record) throws SQLException {
+        measure(DatabaseOperation.INSERT, () -> {
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                PreparedStatement pstmt = lease.prepare(INSERT_SQL);
+                bindRecord(pstmt, record);
+                pstmt.executeUpdate();
+                cache.put(withVersion(record, record.getVersion() + 1), versionAfterWrite(lease), 1);
             }
+            return null;
+        }, ignored -> 1);
+    }
+
+    /**
+     * Deletes a fitness record identified by the provided ID, whatever its version.
+     *
+     * @param id The unique ID of the fitness record to delete.
+     * @return APPLIED, NOT_FOUND if no record had the ID, or FAILED on a database error
+     */
+    public WriteResult deleteRecord(int id) {
+        return deleteRecord(id, 0);
+    }
 
+    /**
+     * Deletes a fitness record only if it still has the version the caller read,
+     * so a record another editor changed in the meantime is not deleted unseen.
+     *
+     * @param id              The unique ID of the fitness record to delete.
+     * @param expectedVersion The version the caller read; 0 to delete whatever the version
+     * @return APPLIED, CONFLICT with the current record, NOT_FOUND, or FAILED on a database error
+     */
+    public WriteResult deleteRecord(int id, long expectedVersion) {
+        try {
+            return deleteRecordChecked(id, expectedVersion);
         } catch (SQLException e) {
-            System.out.println("Error deleting record: " + e.getMessage());
+            LOG.log(Level.WARNING, "Error deleting record: {0}", e.getMessage());
+            return WriteResult.failed(id);
         }
     }
 
     /**
-     * Updates an existing fitness record in the database.
+     * Same as {@link #deleteRecord(int)}, but reports errors by throwing.
+     */
+    WriteResult deleteRecordChecked(int id) throws SQLException {
+        return deleteRecordChecked(id, 0);
+    }
+
+    /**
+     * Same as {@link #deleteRecord(int, long)}, but reports errors by throwing.
+     */
+    WriteResult deleteRecordChecked(int id, long expectedVersion) throws SQLException {
+        return measure(DatabaseOperation.DELETE, () -> {
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                WriteResult result = delete(lease, id, expectedVersion);
+                cache.invalidate(id, versionAfterWrite(lease), result.applied() ? 1 : 0);
+                return result;
+            } catch (SQLException e) {
+                cache.invalidate(id);
+                throw e;
+            }
+        }, result -> result.applied() ? 1 : 0);
+    }
+
+    /**
+     * Updates an existing fitness record in the database. If the record has a version
+     * (it was read from the database), the update only applies if the row still has that
+     * version; otherwise it overwrites the row whatever its version. The record itself is
+     * not changed: store the returned version in it to keep editing it.
      *
      * @param record FitnessRecord object containing updated data; ID specifies the record to update.
+     * @return APPLIED, CONFLICT with the current record, NOT_FOUND, or FAILED on a database error
      */
-    public void updateRecord(FitnessRecord record) {
-        String sql = """
-            UPDATE FitnessRecords SET
-                fullName = ?,
-                age = ?,
-                weight = ?,
-                stepsToday = ?,
-                caloriesBurned = ?
-            WHERE id = ?;
-            """;
+    public WriteResult updateRecord(FitnessRecord record) {
+        try {
+            return updateRecordChecked(record);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error updating record: {0}", e.getMessage());
+            return WriteResult.failed(record.getId());
+        }
+    }
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    /**
+     * Same as {@link #updateRecord(FitnessRecord)}, but reports errors by throwing.
+     */
+    WriteResult updateRecordChecked(FitnessRecord record) throws SQLException {
+        return measure(DatabaseOperation.UPDATE, () -> {
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                WriteResult result = update(lease, record);
+                if (result.applied()) {
+                    cache.put(withVersion(record, result.version()), versionAfterWrite(lease), 1);
+                } else {
+                    cache.invalidate(record.getId());
+                }
+                return result;
+            } catch (SQLException e) {
+                cache.invalidate(record.getId());
+                throw e;
+            }
+        }, result -> result.applied() ? 1 : 0);
+    }
 
-            pstmt.setString(1, record.getFullName());
-            pstmt.setInt(2, record.getAge());
-            pstmt.setDouble(3, record.getWeight());
-            pstmt.setInt(4, record.getStepsToday());
-            pstmt.setDouble(5, record.getCaloriesBurned());
-            pstmt.setInt(6, record.getId());
+    /**
+     * @return A copy of the record at the given row version, e.g. for the cache after a write
+     */
+    private static FitnessRecord withVersion(FitnessRecord record, long version) {
+        FitnessRecord copy = record.copy();
+        copy.setVersion(version);
+        return copy;
+    }
 
-            int affected = pstmt.executeUpdate();
-            if (affected == 0) {
-                System.out.println("No record found with ID " + record.getId());
+    /**
+     * Compare-and-set update of one row. The record itself is not changed.
+     */
+    private static WriteResult update(ConnectionPool.Lease lease, FitnessRecord record) throws SQLException {
+        PreparedStatement pstmt = lease.prepare(UPDATE_SQL);
+        pstmt.setString(1, record.getFullName());
+        pstmt.setInt(2, record.getAge());
+        pstmt.setDouble(3, record.getWeight());
+        pstmt.setInt(4, record.getStepsToday());
+        pstmt.setDouble(5, record.getCaloriesBurned());
+        pstmt.setInt(6, record.getId());
+        pstmt.setLong(7, record.getVersion());
+        pstmt.setLong(8, record.getVersion());
+        try (ResultSet rs = pstmt.executeQuery()) {
+            if (rs.next()) {
+                return WriteResult.applied(record.getId(), rs.getLong(1));
             }
+        }
+        return conflict(lease, record.getId());
+    }
 
-        } catch (SQLException e) {
-            System.out.println("Error updating record: " + e.getMessage());
+    /**
+     * Insert of a new row that conflicts, instead of overwriting, if the ID is taken.
+     * The record itself is not changed.
+     */
+    private static WriteResult insert(ConnectionPool.Lease lease, FitnessRecord record) throws SQLException {
+        PreparedStatement pstmt = lease.prepare(INSERT_SQL + " ON CONFLICT(id) DO NOTHING RETURNING version");
+        bindRecord(pstmt, record);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            if (rs.next()) {
+                return WriteResult.applied(record.getId(), rs.getLong(1));
+            }
+        }
+        return conflict(lease, record.getId());
+    }
+
+    /**
+     * Unconditional insert or update of one row. The record itself is not changed.
+     */
+    private static WriteResult upsert(ConnectionPool.Lease lease, FitnessRecord record) throws SQLException {
+        PreparedStatement pstmt = lease.prepare(UPSERT_SQL + " RETURNING version");
+        bindRecord(pstmt, record);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return WriteResult.applied(record.getId(), rs.getLong(1));
+        }
+    }
+
+    /**
+     * Compare-and-set delete of one row.
+     */
+    private static WriteResult delete(ConnectionPool.Lease lease, int id, long expectedVersion) throws SQLException {
+        PreparedStatement pstmt = lease.prepare(DELETE_SQL);
+        pstmt.setInt(1, id);
+        pstmt.setLong(2, expectedVersion);
+        pstmt.setLong(3, expectedVersion);
+        if (pstmt.executeUpdate() > 0) {
+            return WriteResult.applied(id, 0);
+        }
+        return expectedVersion == 0 ? WriteResult.notFound(id) : conflict(lease, id);
+    }
+
+    /**
+     * Explains why a conditional write matched no row: the row has another version, or is gone.
+     */
+    private static WriteResult conflict(ConnectionPool.Lease lease, int id) throws SQLException {
+        PreparedStatement select = lease.prepare(SELECT_BY_ID);
+        select.setInt(1, id);
+        try (ResultSet rs = select.executeQuery()) {
+            return rs.next() ? WriteResult.conflict(readRecord(rs)) : WriteResult.notFound(id);
         }
     }
 
     /**
      * Saves all fitness records to the database by deleting existing records
      * and inserting the provided list of records.
+     * The secondary indexes, running aggregates and name search index are rebuilt once
+     * at the end instead of row by row. Records that are kept keep their history;
+     * the history of removed records is deleted.
      *
      * @param records List of FitnessRecord objects to save.
      */
     public void saveAllRecords(List<FitnessRecord> records) {
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             Statement stmt = conn.createStatement()) {
-            // Start transaction
-            conn.setAutoCommit(false);
+        try {
+            saveAllRecordsChecked(records);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error saving all records: {0}", e.getMessage());
+        }
+    }
+
+    /**
+     * Same as {@link #saveAllRecords(List)}, but reports errors by throwing.
+     * On error the transaction is rolled back and the table is unchanged.
+     */
+    void saveAllRecordsChecked(List<FitnessRecord> records) throws SQLException {
+        measure(DatabaseOperation.SAVE_ALL, () -> {
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                Connection conn = lease.connection();
+                // Start transaction
+                conn.setAutoCommit(false);
 
-            // Delete all existing records
-            stmt.executeUpdate("DELETE FROM FitnessRecords");
+                // Suspend per-row aggregate and search index maintenance for the bulk rewrite
+                try (Statement stmt = conn.createStatement()) {
+                    RunningAggregates.dropTriggers(stmt);
+                    NameSearch.dropTriggers(stmt);
+                    DailyHistory.dropRecordTriggers(stmt);
+                    ChangeTracking.dropTriggers(stmt);
+                    RecordIndexes.drop(stmt);
+                }
 
-            // Prepare insert statement
-            String sql = "INSERT INTO FitnessRecords (id, fullName, age, weight, stepsToday, caloriesBurned) VALUES (?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                // Delete all existing records
+                lease.prepare("DELETE FROM FitnessRecords").executeUpdate();
+
+                // Prepare insert statement
+                PreparedStatement pstmt = lease.prepare(INSERT_SQL);
                 // Batch insert all records
                 for (FitnessRecord r : records) {
-                    pstmt.setInt(1, r.getId());
-                    pstmt.setString(2, r.getFullName());
-                    pstmt.setInt(3, r.getAge());
-                    pstmt.setDouble(4, r.getWeight());
-                    pstmt.setInt(5, r.getStepsToday());
-                    pstmt.setDouble(6, r.getCaloriesBurned());
+                    bindRecord(pstmt, r);
                     pstmt.addBatch();
                 }
                 pstmt.executeBatch();
+
+                try (Statement stmt = conn.createStatement()) {
+                    RecordIndexes.create(stmt);
+                    RunningAggregates.rebuild(stmt);
+                    RunningAggregates.createTriggers(stmt);
+                    NameSearch.rebuild(stmt);
+                    NameSearch.createTriggers(stmt);
+                    DailyHistory.syncAfterRewrite(stmt);
+                    DailyHistory.createRecordTriggers(stmt);
+                    ChangeTracking.bump(stmt);
+                    ChangeTracking.createTriggers(stmt);
+                }
+
+                // Commit transaction
+                conn.commit();
+                conn.setAutoCommit(true);
+            } finally {
+                cache.clear();
             }
+            return null;
+        }, ignored -> records.size());
+    }
 
-            // Commit transaction
-            conn.commit();
+    /**
+     * Saves only the pending changes: added or changed records are upserted and removed
+     * IDs deleted, all in a single transaction. Rows that were not touched are left alone,
+     * so the cost is proportional to the change set.
+     * <p>
+     * Changes carrying a version (see {@link RecordChangeSet}) are compare-and-set: a change
+     * whose row another writer updated or deleted since it was read is skipped and reported
+     * in {@link SaveResult#conflicts()} with the row as it is now, while the other changes
+     * are still saved. Upserts without a version are new records and are inserted; one whose
+     * ID another writer has taken meanwhile is reported as a conflict the same way. Upserts of
+     * an {@linkplain RecordChangeSet#isOverwrite() overwriting} change set are written
+     * unconditionally. The new row version of every upserted record is in
+     * {@link SaveResult#versions()}; the records in the change set are not changed.
+     *
+     * @param changes Pending changes tracked by the caller; not cleared by this method.
+     * @return Rows written, conflicts and elapsed time; {@code committed} is false if the save failed.
+     */
+    public SaveResult saveChanges(RecordChangeSet changes) {
+        long start = System.nanoTime();
+        try {
+            return saveChangesChecked(changes);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error saving changes: {0}", e.getMessage());
+            return new SaveResult(0, 0, System.nanoTime() - start, false);
+        }
+    }
+
+    /**
+     * Same as {@link #saveChanges(RecordChangeSet)}, but reports errors by throwing.
+     * On error the transaction is rolled back and nothing is written.
+     */
+    SaveResult saveChangesChecked(RecordChangeSet changes) throws SQLException {
+        return measure(DatabaseOperation.SAVE_CHANGES, () -> {
+            long start = System.nanoTime();
+            List<FitnessRecord> written = new ArrayList<>(changes.getUpserts().size());
+            Map<Integer, Long> versions = new HashMap<>();
+            List<WriteResult> conflicts = new ArrayList<>();
+            int deleted = 0;
+
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                Connection conn = lease.connection();
+                conn.setAutoCommit(false);
+
+                for (FitnessRecord r : changes.getUpserts()) {
+                    WriteResult result = changes.isOverwrite() ? upsert(lease, r)
+                            : r.getVersion() == 0 ? insert(lease, r) : update(lease, r);
+                    if (result.applied()) {
+                        written.add(r);
+                        versions.put(r.getId(), result.version());
+                    } else {
+                        conflicts.add(result);
+                    }
+                }
+
+                for (int id : changes.getDeletes()) {
+                    WriteResult result = delete(lease, id, changes.getExpectedVersion(id));
+                    if (result.applied()) {
+                        deleted++;
+                    } else if (result.status() == WriteResult.Status.CONFLICT) {
+                        conflicts.add(result);
+                    }
+                }
+
+                conn.commit();
+                conn.setAutoCommit(true);
+            } finally {
+                changes.getDeletes().forEach(cache::invalidate);
+                conflicts.forEach(c -> cache.invalidate(c.id()));
+            }
+            for (FitnessRecord r : written) {
+                cache.put(withVersion(r, versions.get(r.getId())));
+            }
+            return new SaveResult(written.size(), deleted, System.nanoTime() - start, true, conflicts, versions);
+        }, SaveResult::rowsWritten);
+    }
+
+    /**
+     * Writes recomputed calorie values in one transaction with a single batched statement.
+     * Each row is compare-and-set on the version it was read with, so a row edited since
+     * is left alone; written rows get a new version. Used by {@link CalorieRecomputeJob}.
+     *
+     * @param ids      Record IDs
+     * @param versions Version each row was read with
+     * @param calories New calories burned of each row
+     * @param count    Number of leading entries of the arrays to write
+     * @return Number of rows written; the rest were changed or deleted by another writer
+     * @throws SQLException if the transaction fails; it is rolled back and nothing is written
+     */
+    int updateCaloriesChecked(int[] ids, long[] versions, double[] calories, int count) throws SQLException {
+        return measure(DatabaseOperation.RECOMPUTE, () -> {
+            int written = 0;
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                Connection conn = lease.connection();
+                conn.setAutoCommit(false);
+                PreparedStatement pstmt = lease.prepare(UPDATE_CALORIES_SQL);
+                for (int i = 0; i < count; i++) {
+                    pstmt.setDouble(1, calories[i]);
+                    pstmt.setInt(2, ids[i]);
+                    pstmt.setLong(3, versions[i]);
+                    pstmt.addBatch();
+                }
+                for (int rows : pstmt.executeBatch()) {
+                    written += Math.max(rows, 0);
+                }
+                conn.commit();
+                conn.setAutoCommit(true);
+            } finally {
+                for (int i = 0; i < count; i++) {
+                    cache.invalidate(ids[i]);
+                }
+            }
+            return written;
+        }, Integer::intValue);
+    }
+
+    /**
+     * Writes records exactly as given, version included, in one transaction: each is inserted,
+     * or overwrites the row with its ID. Used to move records between shards, so clients
+     * holding a version keep a valid one. On error the transaction is rolled back and nothing is written.
+     *
+     * @param records Records read from another database
+     * @throws SQLException if the records cannot be written
+     */
+    void copyRecordsChecked(Collection<FitnessRecord> records) throws SQLException {
+        measure(DatabaseOperation.BULK_COMMIT, () -> {
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                Connection conn = lease.connection();
+                conn.setAutoCommit(false);
+                PreparedStatement pstmt = lease.prepare(COPY_SQL);
+                for (FitnessRecord r : records) {
+                    bindRecord(pstmt, r);
+                    pstmt.setLong(7, r.getVersion());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+                conn.setAutoCommit(true);
+            } finally {
+                records.forEach(r -> cache.invalidate(r.getId()));
+            }
+            return null;
+        }, ignored -> records.size());
+    }
+
+    /**
+     * Opens a bulk writer that upserts records through one connection and commits every
+     * {@code commitEvery} rows. Used by bulk imports; the writer must be closed.
+     * The record cache is cleared now and after every commit of the writer.
+     *
+     * @param commitEvery Rows per committed transaction
+     * @return An open BulkRecordWriter
+     * @throws SQLException if no connection can be obtained
+     */
+    public BulkRecordWriter openBulkWriter(int commitEvery) throws SQLException {
+        cache.clear();
+        return new BulkRecordWriter(pool.acquire(), UPSERT_SQL, commitEvery, cache::clear,
+                metrics.of(DatabaseOperation.BULK_COMMIT));
+    }
+
+    /**
+     * Starts write-behind mode: writes queued on the returned WriteBehindQueue are merged
+     * per ID and committed in batches by one writer thread. The queue must be closed,
+     * which commits whatever is still queued.
+     *
+     * @param flushIntervalMillis Maximum time a write waits before its batch is committed
+     * @param batchSize           IDs per committed batch
+     * @return A running WriteBehindQueue
+     */
+    public WriteBehindQueue openWriteBehind(long flushIntervalMillis, int batchSize) {
+        return new WriteBehindQueue(this, flushIntervalMillis, batchSize);
+    }
+
+    /**
+     * Reads the daily history of one record: one primary-key range scan.
+     *
+     * @param id   Record ID
+     * @param from First day, inclusive
+     * @param to   Last day, inclusive
+     * @return The days with history, in date order; empty list if an error occurs
+     */
+    public List<DailyEntry> getHistory(int id, LocalDate from, LocalDate to) {
+        try {
+            return getHistoryChecked(id, from, to);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error reading history: {0}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Same as {@link #getHistory(int, LocalDate, LocalDate)}, but reports errors by throwing.
+     */
+    List<DailyEntry> getHistoryChecked(int id, LocalDate from, LocalDate to) throws SQLException {
+        return measure(DatabaseOperation.GET_HISTORY, () -> {
+            List<DailyEntry> days = new ArrayList<>();
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                PreparedStatement pstmt = lease.prepare(DailyHistory.SELECT_DAYS);
+                pstmt.setInt(1, id);
+                pstmt.setLong(2, from.toEpochDay());
+                pstmt.setLong(3, to.toEpochDay());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        days.add(new DailyEntry(rs.getInt(1), LocalDate.ofEpochDay(rs.getLong(2)),
+                                rs.getInt(3), rs.getDouble(4)));
+                    }
+                }
+            }
+            return days;
+        }, List::size);
+    }
+
+    /**
+     * Reads weekly totals of one record from the FitnessWeekly rollup, without touching daily rows.
+     *
+     * @param id   Record ID
+     * @param from A day in the first week
+     * @param to   A day in the last week
+     * @return Totals of the weeks (starting on Monday) that have history, in date order;
+     *         empty list if an error occurs
+     */
+    public List<PeriodTotal> getWeeklyTotals(int id, LocalDate from, LocalDate to) {
+        try {
+            return getWeeklyTotalsChecked(id, from, to);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error reading weekly totals: {0}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Same as {@link #getWeeklyTotals(int, LocalDate, LocalDate)}, but reports errors by throwing.
+     */
+    List<PeriodTotal> getWeeklyTotalsChecked(int id, LocalDate from, LocalDate to) throws SQLException {
+        return measure(DatabaseOperation.GET_PERIOD_TOTALS, () -> {
+            List<PeriodTotal> weeks = new ArrayList<>();
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                PreparedStatement pstmt = lease.prepare(DailyHistory.SELECT_WEEKS);
+                pstmt.setInt(1, id);
+                pstmt.setLong(2, DailyHistory.weekStart(from).toEpochDay());
+                pstmt.setLong(3, DailyHistory.weekStart(to).toEpochDay());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        weeks.add(new PeriodTotal(rs.getInt(1), LocalDate.ofEpochDay(rs.getLong(2)),
+                                rs.getInt(3), rs.getLong(4), rs.getDouble(5)));
+                    }
+                }
+            }
+            return weeks;
+        }, List::size);
+    }
+
+    /**
+     * Reads monthly totals of one record from the FitnessMonthly rollup, without touching daily rows.
+     *
+     * @param id   Record ID
+     * @param from First month, inclusive
+     * @param to   Last month, inclusive
+     * @return Totals of the months that have history, in date order; empty list if an error occurs
+     */
+    public List<PeriodTotal> getMonthlyTotals(int id, YearMonth from, YearMonth to) {
+        try {
+            return getMonthlyTotalsChecked(id, from, to);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error reading monthly totals: {0}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Same as {@link #getMonthlyTotals(int, YearMonth, YearMonth)}, but reports errors by throwing.
+     */
+    List<PeriodTotal> getMonthlyTotalsChecked(int id, YearMonth from, YearMonth to) throws SQLException {
+        return measure(DatabaseOperation.GET_PERIOD_TOTALS, () -> {
+            List<PeriodTotal> months = new ArrayList<>();
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                PreparedStatement pstmt = lease.prepare(DailyHistory.SELECT_MONTHS);
+                pstmt.setInt(1, id);
+                pstmt.setString(2, DailyHistory.monthKey(from));
+                pstmt.setString(3, DailyHistory.monthKey(to));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        months.add(new PeriodTotal(rs.getInt(1), YearMonth.parse(rs.getString(2)).atDay(1),
+                                rs.getInt(3), rs.getLong(4), rs.getDouble(5)));
+                    }
+                }
+            }
+            return months;
+        }, List::size);
+    }
+
+    /**
+     * Computes a trailing moving average of one record's daily steps and calories, one value
+     * per calendar day. Reads the days of the range plus the window before it in one range
+     * scan and slides the window in memory.
+     *
+     * @param id         Record ID
+     * @param from       First day to report
+     * @param to         Last day to report
+     * @param windowDays Days per window, e.g. 7; each window ends on the reported day
+     * @return One average per day from {@code from} to {@code to}; days whose window has no
+     *         history have {@code days == 0}. Empty list if an error occurs.
+     */
+    public List<MovingAverage> getMovingAverage(int id, LocalDate from, LocalDate to, int windowDays) {
+        int window = Math.max(1, windowDays);
+        List<DailyEntry> history;
+        try {
+            history = getHistoryChecked(id, from.minusDays(window - 1), to);
         } catch (SQLException e) {
-            System.out.println("Error saving all records: " + e.getMessage());
+            LOG.log(Level.WARNING, "Error computing moving average: {0}", e.getMessage());
+            return new ArrayList<>();
+        }
+        List<MovingAverage> averages = new ArrayList<>();
+        ArrayDeque<DailyEntry> inWindow = new ArrayDeque<>();
+        long steps = 0;
+        double calories = 0;
+        int next = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            while (next < history.size() && !history.get(next).day().isAfter(day)) {
+                DailyEntry entry = history.get(next++);
+                inWindow.addLast(entry);
+                steps += entry.steps();
+                calories += entry.calories();
+            }
+            LocalDate windowStart = day.minusDays(window - 1);
+            while (!inWindow.isEmpty() && inWindow.peekFirst().day().isBefore(windowStart)) {
+                DailyEntry entry = inWindow.removeFirst();
+                steps -= entry.steps();
+                calories -= entry.calories();
+            }
+            int days = inWindow.size();
+            averages.add(new MovingAverage(day, days, days == 0 ? 0 : (double) steps / days,
+                    days == 0 ? 0 : calories / days));
         }
+        return averages;
+    }
+
+    /**
+     * Writes history entries for any days, e.g. to import history kept elsewhere. An entry for
+     * a record and day that already has history replaces it. The rollups follow automatically.
+     *
+     * @param entries Entries to write
+     * @return true if the entries were committed
+     */
+    public boolean saveHistory(Collection<DailyEntry> entries) {
+        try {
+            saveHistoryChecked(entries);
+            return true;
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error saving history: {0}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Same as {@link #saveHistory(Collection)}, but reports errors by throwing.
+     * On error the transaction is rolled back and nothing is written.
+     */
+    void saveHistoryChecked(Collection<DailyEntry> entries) throws SQLException {
+        measure(DatabaseOperation.SAVE_HISTORY, () -> {
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                Connection conn = lease.connection();
+                conn.setAutoCommit(false);
+                PreparedStatement pstmt = lease.prepare(DailyHistory.UPSERT_DAY);
+                for (DailyEntry entry : entries) {
+                    pstmt.setInt(1, entry.id());
+                    pstmt.setLong(2, entry.day().toEpochDay());
+                    pstmt.setInt(3, entry.steps());
+                    pstmt.setDouble(4, entry.calories());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+                conn.setAutoCommit(true);
+            }
+            return null;
+        }, ignored -> entries.size());
     }
 
     /**
      * Calculates the average number of steps recorded today across all fitness records.
+     * Reads the running sum and count kept by triggers, so the cost does not depend on table size.
      *
      * @return The average steps as a double; returns 0 if no records exist or error occurs.
      */
     public double calculateAverageSteps() {
-        String sql = "SELECT AVG(stepsToday) AS avgSteps FROM FitnessRecords";
-        double avgSteps = 0;
+        return getColumnStats(RecordField.STEPS_TODAY).mean();
+    }
 
-        try (Connection conn = DriverManager.getConnection(dbUrl);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+    /**
+     * Returns the running aggregates of one numeric column in constant time.
+     *
+     * @param field The column to read
+     * @return Count, sum, mean, min, max and variance; ColumnStats.EMPTY if there are no records or an error occurs
+     */
+    public ColumnStats getColumnStats(RecordField field) {
+        try {
+            return getColumnStatsChecked(field);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error reading statistics: {0}", e.getMessage());
+            return ColumnStats.EMPTY;
+        }
+    }
 
-            if (rs.next()) {
-                avgSteps = rs.getDouble("avgSteps");
+    /**
+     * Same as {@link #getColumnStats(RecordField)}, but reports errors by throwing.
+     */
+    ColumnStats getColumnStatsChecked(RecordField field) throws SQLException {
+        return measure(DatabaseOperation.COLUMN_STATS, () -> {
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                PreparedStatement pstmt = lease.prepare(SELECT_STATS + " WHERE field = ?");
+                pstmt.setString(1, field.column());
+                return RunningAggregates.read(pstmt).getOrDefault(field, ColumnStats.EMPTY);
+            }
+        }, stats -> 1);
+    }
+
+    /**
+     * Returns the running aggregates of every numeric column in constant time.
+     *
+     * @return Statistics by field; empty map if an error occurs
+     */
+    public Map<RecordField, ColumnStats> getAllColumnStats() {
+        try (ConnectionPool.Lease lease = pool.acquire()) {
+            return RunningAggregates.read(lease.prepare(SELECT_STATS));
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error reading statistics: {0}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    /**
+     * Compares the running aggregates with a full scan of FitnessRecords.
+     * Sums are compared with a small relative tolerance, since floating-point
+     * totals accumulate rounding differently from a fresh scan.
+     *
+     * @return One description per mismatching column; empty if everything agrees
+     */
+    public List<String> verifyAggregates() {
+        List<String> mismatches = new ArrayList<>();
+        try (ConnectionPool.Lease lease = pool.acquire()) {
+            Map<RecordField, ColumnStats> running = RunningAggregates.read(lease.prepare(SELECT_STATS));
+            for (RecordField field : RecordField.values()) {
+                ColumnStats stored = running.getOrDefault(field, ColumnStats.EMPTY);
+                ColumnStats actual = RunningAggregates.scan(lease.connection(), field);
+                if (!sameStats(stored, actual)) {
+                    mismatches.add(field.column() + ": stored [" + stored + "], actual [" + actual + "]");
+                }
             }
+        } catch (SQLException e) {
+            mismatches.add("Error verifying statistics: " + e.getMessage());
+        }
+        return mismatches;
+    }
 
+    /**
+     * Recomputes the running aggregates from a full scan, e.g. after {@link #verifyAggregates()} reports drift.
+     *
+     * @return true if the rebuild committed
+     */
+    public boolean rebuildAggregates() {
+        try (ConnectionPool.Lease lease = pool.acquire();
+             Statement stmt = lease.connection().createStatement()) {
+            lease.connection().setAutoCommit(false);
+            RunningAggregates.rebuild(stmt);
+            lease.connection().commit();
+            lease.connection().setAutoCommit(true);
+            return true;
         } catch (SQLException e) {
-            System.out.println("Error calculating average steps: " + e.getMessage());
+            LOG.log(Level.WARNING, "Error rebuilding statistics: {0}", e.getMessage());
+            return false;
         }
+    }
+
+    private static boolean sameStats(ColumnStats a, ColumnStats b) {
+        return a.count() == b.count()
+                && close(a.sum(), b.sum()) && close(a.sumSquares(), b.sumSquares())
+                && (a.count() == 0 || (a.min() == b.min() && a.max() == b.max()));
+    }
+
+    private static boolean close(double a, double b) {
+        return Math.abs(a - b) <= 1e-9 * Math.max(1, Math.max(Math.abs(a), Math.abs(b)));
+    }
 
-        return avgSteps;
+    /**
+     * Builds a FitnessRecord from the current row of a result set selected with SELECT_COLUMNS.
+     * Columns are read by position to avoid a name lookup per value.
+     */
+    static FitnessRecord readRecord(ResultSet rs) throws SQLException {
+        FitnessRecord record = new FitnessRecord(
+                rs.getInt(1),      // id
+                rs.getString(2),   // fullName
+                rs.getInt(3),      // age
+                rs.getDouble(4),   // weight
+                rs.getInt(5),      // stepsToday
+                rs.getDouble(6)    // caloriesBurned
+        );
+        record.setVersion(rs.getLong(7));
+        return record;
+    }
+
+    /**
+     * Binds a record to the seven parameters of an INSERT/UPSERT statement, in column order.
+     * A newly inserted row gets the version after the record's, so a rewritten row never
+     * reuses a version a concurrent editor may still hold.
+     */
+    static void bindRecord(PreparedStatement pstmt, FitnessRecord r) throws SQLException {
+        pstmt.setInt(1, r.getId());
+        pstmt.setString(2, r.getFullName());
+        pstmt.setInt(3, r.getAge());
+        pstmt.setDouble(4, r.getWeight());
+        pstmt.setInt(5, r.getStepsToday());
+        pstmt.setDouble(6, r.getCaloriesBurned());
+        pstmt.setLong(7, r.getVersion() + 1);
+    }
+
+    /**
+     * Runs one operation, recording its duration, how many rows it read or wrote, and whether it failed.
+     *
+     * @param operation The operation, which decides whether rows count as read or written
+     * @param task      The database work
+     * @param rows      Extracts the row count from the result
+     */
+    private <T> T measure(DatabaseOperation operation, SqlTask<T> task, ToIntFunction<T> rows) throws SQLException {
+        OperationMetrics counters = metrics.of(operation);
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = task.call();
+        } catch (SQLException | RuntimeException e) {
+            counters.recordError(System.nanoTime() - start);
+            throw e;
+        }
+        int count = rows.applyAsInt(result);
+        counters.recordSuccess(System.nanoTime() - start, operation.isWrite() ? 0 : count, operation.isWrite() ? count : 0);
+        return result;
     }
 }
@@ -0,0 +1,463 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Headless JSON service over a FitnessDatabaseManager, built on the JDK's HTTP server.
+ * Every request runs on its own virtual thread, so many clients can be served at once;
+ * database access is still bounded by the manager's connection pool.
+ * <p>
+ * Endpoints:
+ * <ul>
+ *   <li>{@code GET /records}: all records in ID order, streamed from a database cursor;
+ *       with {@code ?name=...&limit=...}, a name search instead</li>
+ *   <li>{@code POST /records}: insert or update one record object or an array of them,
+ *       in a single transaction; answers {@code {"upserted": n, "conflicts": [...]}}, listing
+ *       the records that were skipped because they changed since the client read them, or,
+ *       for records without a version, because their ID is already taken</li>
+ *   <li>{@code GET|PUT|DELETE /records/{id}}: read, replace or delete one record (404 if absent);
+ *       DELETE takes {@code ?version=n} to delete only that version</li>
+ *   <li>{@code GET /stats}: count, sum, mean, min, max and standard deviation of every numeric field</li>
+ *   <li>{@code GET /history/{id}?from=YYYY-MM-DD&to=YYYY-MM-DD}: daily steps and calories,
+ *       the last 30 days by default</li>
+ * </ul>
+ * A record is {@code {"id":1,"fullName":"...","age":30,"weight":175.0,"stepsToday":9000,"caloriesBurned":300.5,"version":3}}.
+ * A written record with a {@code version} is only saved if the row still has that version
+ * (compare-and-set); otherwise the answer is 409 with the current record under {@code "current"}.
+ * Without a version, PUT replaces the row unconditionally and POST only inserts new IDs.
+ * Responses are written with chunked encoding through a JsonWriter as they are produced, so
+ * no response is ever held in memory whole. Errors answer {@code {"error": "..."}} with
+ * 400 for malformed input, 404, 405, 409 for version conflicts, or 500 for database failures.
+ */
+public class FitnessHttpServer implements AutoCloseable {
+    /** Port used when none is given. */
+    public static final int DEFAULT_PORT = 8080;
+
+    private static final Logger LOG = Logger.getLogger(FitnessHttpServer.class.getName());
+    private static final int DEFAULT_SEARCH_LIMIT = 100;
+    private static final int DEFAULT_HISTORY_DAYS = 30;
+    private static final int FLUSH_EVERY = 1000;     // Records per chunk pushed to the client
+
+    private final FitnessDatabaseManager manager;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Binds the server to a port; call {@link #start()} to accept requests.
+     *
+     * @param manager Database to serve; not closed by this server
+     * @param port    TCP port, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public FitnessHttpServer(FitnessDatabaseManager manager, int port) throws IOException {
+        this.manager = manager;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/records", exchange -> handle(exchange, this::records));
+        server.createContext("/stats", exchange -> handle(exchange, this::stats));
+        server.createContext("/history", exchange -> handle(exchange, this::history));
+    }
+
+    /**
+     * Starts accepting requests in the background.
+     */
+    public void start() {
+        server.start();
+        LOG.log(Level.INFO, "Serving fitness records on port {0}", String.valueOf(getPort()));
+    }
+
+    /**
+     * @return The port the server is bound to
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, gives running ones a second to finish, and stops the threads.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    private void records(HttpExchange exchange) throws IOException, SQLException {
+        String id = pathParameter(exchange, "/records");
+        String method = exchange.getRequestMethod();
+        if (id == null) {
+            switch (method) {
+                case "GET" -> listRecords(exchange);
+                case "POST" -> upsertRecords(exchange);
+                default -> sendError(exchange, 405, "Use GET or POST on /records");
+            }
+            return;
+        }
+        int recordId = parseInt(id, "record ID");
+        switch (method) {
+            case "GET" -> {
+                FitnessRecord record = manager.getRecordByIdChecked(recordId);
+                if (record == null) {
+                    sendError(exchange, 404, "No record with ID " + recordId);
+                    return;
+                }
+                try (JsonWriter json = startJson(exchange, 200)) {
+                    writeRecord(json, record);
+                }
+            }
+            case "PUT" -> {
+                FitnessRecord record;
+                try (Reader body = requestBody(exchange)) {
+                    JsonReader reader = new JsonReader(body);
+                    record = readRecord(reader);
+                    reader.endDocument();
+                }
+                if (record.getId() != recordId) {
+                    sendError(exchange, 400, "Body ID " + record.getId() + " does not match path ID " + recordId);
+                    return;
+                }
+                WriteResult result = manager.updateRecordChecked(record);
+                if (result.applied()) {
+                    record.setVersion(result.version());
+                    try (JsonWriter json = startJson(exchange, 200)) {
+                        writeRecord(json, record);
+                    }
+                } else {
+                    sendWriteFailure(exchange, result);
+                }
+            }
+            case "DELETE" -> {
+                String version = queryParameters(exchange).get("version");
+                WriteResult result = manager.deleteRecordChecked(recordId,
+                        version == null ? 0 : parseLong(version, "version"));
+                if (result.applied()) {
+                    exchange.sendResponseHeaders(204, -1);
+                } else {
+                    sendWriteFailure(exchange, result);
+                }
+            }
+            default -> sendError(exchange, 405, "Use GET, PUT or DELETE on /records/{id}");
+        }
+    }
+
+    /**
+     * Streams all records from a cursor, or the results of a name search.
+     * Once the headers are sent the status cannot change, so a read error mid-stream
+     * aborts the response and the client sees truncated JSON.
+     */
+    private void listRecords(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, String> query = queryParameters(exchange);
+        String name = query.get("name");
+        if (name != null) {
+            int limit = query.containsKey("limit") ? parseInt(query.get("limit"), "limit") : DEFAULT_SEARCH_LIMIT;
+            List<FitnessRecord> matches = manager.searchByNameChecked(name, limit);
+            try (JsonWriter json = startJson(exchange, 200)) {
+                json.beginArray();
+                for (FitnessRecord record : matches) {
+                    writeRecord(json, record);
+                }
+                json.endArray();
+            }
+            return;
+        }
+        try (RecordCursor cursor = manager.openCursor();
+             JsonWriter json = startJson(exchange, 200)) {
+            json.beginArray();
+            int written = 0;
+            while (cursor.hasNext()) {
+                writeRecord(json, cursor.next());
+                if (++written % FLUSH_EVERY == 0) {
+                    json.flush();
+                }
+            }
+            json.endArray();
+        }
+    }
+
+    /**
+     * Reads one record or an array of records and upserts them all in one transaction.
+     */
+    private void upsertRecords(HttpExchange exchange) throws IOException, SQLException {
+        RecordChangeSet changes = new RecordChangeSet();
+        try (Reader body = requestBody(exchange)) {
+            JsonReader reader = new JsonReader(body);
+            if (reader.peek() == JsonReader.Kind.ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    changes.markUpserted(readRecord(reader));
+                }
+                reader.endArray();
+            } else {
+                changes.markUpserted(readRecord(reader));
+            }
+            reader.endDocument();
+        }
+        SaveResult result = manager.saveChangesChecked(changes);
+        try (JsonWriter json = startJson(exchange, 200)) {
+            json.beginObject().name("upserted").value(result.upserted());
+            if (result.hasConflicts()) {
+                json.name("conflicts").beginArray();
+                for (WriteResult conflict : result.conflicts()) {
+                    json.beginObject().name("id").value(conflict.id()).name("current");
+                    if (conflict.current() == null) {
+                        json.nullValue();
+                    } else {
+                        writeRecord(json, conflict.current());
+                    }
+                    json.endObject();
+                }
+                json.endArray();
+            }
+            json.endObject();
+        }
+    }
+
+    /**
+     * Answers a compare-and-set write that did not apply: 404 if the row is gone,
+     * 409 with the current record if another writer changed it.
+     */
+    private static void sendWriteFailure(HttpExchange exchange, WriteResult result) throws IOException {
+        if (result.status() != WriteResult.Status.CONFLICT) {
+            sendError(exchange, 404, "No record with ID " + result.id());
+            return;
+        }
+        try (JsonWriter json = startJson(exchange, 409)) {
+            json.beginObject()
+                    .name("error").value("Record " + result.id() + " was changed by another writer")
+                    .name("current");
+            writeRecord(json, result.current());
+            json.endObject();
+        }
+    }
+
+    private void stats(HttpExchange exchange) throws IOException, SQLException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendError(exchange, 405, "Use GET on /stats");
+            return;
+        }
+        Map<RecordField, ColumnStats> stats = new HashMap<>();
+        for (RecordField field : RecordField.values()) {
+            stats.put(field, manager.getColumnStatsChecked(field));
+        }
+        try (JsonWriter json = startJson(exchange, 200)) {
+            json.beginObject().name("count").value(stats.get(RecordField.AGE).count());
+            for (RecordField field : RecordField.values()) {
+                ColumnStats s = stats.get(field);
+                json.name(field.column()).beginObject()
+                        .name("sum").value(s.sum())
+                        .name("mean").value(s.mean())
+                        .name("min").value(s.min())
+                        .name("max").value(s.max())
+                        .name("stddev").value(s.stddev())
+                        .endObject();
+            }
+            json.endObject();
+        }
+    }
+
+    private void history(HttpExchange exchange) throws IOException, SQLException {
+        String id = pathParameter(exchange, "/history");
+        if (!"GET".equals(exchange.getRequestMethod()) || id == null) {
+            sendError(exchange, 405, "Use GET on /history/{id}");
+            return;
+        }
+        Map<String, String> query = queryParameters(exchange);
+        LocalDate to = query.containsKey("to") ? parseDate(query.get("to")) : LocalDate.now();
+        LocalDate from = query.containsKey("from") ? parseDate(query.get("from")) : to.minusDays(DEFAULT_HISTORY_DAYS - 1);
+        List<DailyEntry> days = manager.getHistoryChecked(parseInt(id, "record ID"), from, to);
+        try (JsonWriter json = startJson(exchange, 200)) {
+            json.beginArray();
+            for (DailyEntry day : days) {
+                json.beginObject()
+                        .name("day").value(day.day().toString())
+                        .name("steps").value(day.steps())
+                        .name("calories").value(day.calories())
+                        .endObject();
+            }
+            json.endArray();
+        }
+    }
+
+    /**
+     * Runs a route, turning malformed input into 400 and database errors into 500.
+     */
+    private void handle(HttpExchange exchange, Route route) {
+        try {
+            route.handle(exchange);
+        } catch (IllegalArgumentException e) {
+            sendErrorQuietly(exchange, 400, e.getMessage());
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error serving {0}: {1}", new Object[]{exchange.getRequestURI(), e.getMessage()});
+            sendErrorQuietly(exchange, 500, e.getMessage());
+        } catch (IOException e) {
+            // Usually the client went away or a stream failed after the headers were sent
+            LOG.log(Level.FINE, "Request {0} aborted: {1}", new Object[]{exchange.getRequestURI(), e.toString()});
+            sendErrorQuietly(exchange, 500, e.toString());
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Unexpected error serving " + exchange.getRequestURI(), e);
+            sendErrorQuietly(exchange, 500, e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Sends an error response unless the headers of another response already went out.
+     */
+    private static void sendErrorQuietly(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        try {
+            sendError(exchange, status, message);
+        } catch (IOException ignored) {
+            // Nothing more can be told to this client
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        try (JsonWriter json = startJson(exchange, status)) {
+            json.beginObject().name("error").value(message).endObject();
+        }
+    }
+
+    /**
+     * Sends the headers for a chunked JSON response and returns a writer for its body.
+     */
+    private static JsonWriter startJson(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        return new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 1 << 16));
+    }
+
+    private static Reader requestBody(HttpExchange exchange) {
+        return new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8);
+    }
+
+    static void writeRecord(JsonWriter json, FitnessRecord r) throws IOException {
+        json.beginObject()
+                .name("id").value(r.getId())
+                .name("fullName").value(r.getFullName())
+                .name("age").value(r.getAge())
+                .name("weight").value(r.getWeight())
+                .name("stepsToday").value(r.getStepsToday())
+                .name("caloriesBurned").value(r.getCaloriesBurned())
+                .name("version").value(r.getVersion())
+                .endObject();
+    }
+
+    /**
+     * Reads one record object. Every field but version is required; unknown fields are ignored.
+     */
+    static FitnessRecord readRecord(JsonReader json) throws IOException {
+        Integer id = null, age = null, steps = null;
+        String name = null;
+        Double weight = null, calories = null;
+        long version = 0;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id" -> id = json.nextInt();
+                case "fullName" -> name = json.nextString();
+                case "age" -> age = json.nextInt();
+                case "weight" -> weight = json.nextDouble();
+                case "stepsToday" -> steps = json.nextInt();
+                case "caloriesBurned" -> calories = json.nextDouble();
+                case "version" -> version = json.nextLong();
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        if (id == null || name == null || age == null || weight == null || steps == null || calories == null) {
+            throw json.error("a record needs id, fullName, age, weight, stepsToday and caloriesBurned");
+        }
+        if (name.isBlank()) {
+            throw json.error("fullName cannot be empty");
+        }
+        if (version < 0) {
+            throw json.error("version cannot be negative");
+        }
+        FitnessRecord record = new FitnessRecord(id, name, age, weight, steps, calories);
+        record.setVersion(version);
+        return record;
+    }
+
+    /**
+     * @return The path segment after the context, e.g. "42" for /records/42, or null for the context itself
+     */
+    private static String pathParameter(HttpExchange exchange, String context) {
+        String rest = exchange.getRequestURI().getPath().substring(context.length());
+        if (rest.isEmpty() || rest.equals("/")) {
+            return null;
+        }
+        if (rest.charAt(0) != '/' || rest.indexOf('/', 1) >= 0) {
+            throw new IllegalArgumentException("Unknown path " + exchange.getRequestURI().getPath());
+        }
+        return rest.substring(1);
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            parameters.put(key, value);
+        }
+        return parameters;
+    }
+
+    private static int parseInt(String text, String what) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + what + ": " + text);
+        }
+    }
+
+    private static long parseLong(String text, String what) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + what + ": " + text);
+        }
+    }
+
+    private static LocalDate parseDate(String text) {
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date (use YYYY-MM-DD): " + text);
+        }
+    }
+
+    /**
+     * One endpoint's request handling.
+     */
+    @FunctionalInterface
+    private interface Route {
+        void handle(HttpExchange exchange) throws IOException, SQLException;
+    }
+}
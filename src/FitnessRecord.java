@@ -1,14 +1,25 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
 /**
  * FitnessRecord class represents a single fitness tracking entry for a user.
  * It includes details such as ID, full name, age, weight, steps taken, and calories burned.
  */
 public class FitnessRecord {
+    // Decimal separator used by String.format in the default locale, so appendTo matches toString
+    private static final char DECIMAL_SEPARATOR =
+            DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator();
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1000};
+
     private int id;
     private String fullName;
     private int age;
     private double weight;
     private int stepsToday;
     private double caloriesBurned;
+    private long version;   // Row version this record was read or last written at; 0 if never stored
 
     // Constructor to initialize a fitness record
     public FitnessRecord(int id, String fullName, int age, double weight, int stepsToday, double caloriesBurned) {
@@ -33,10 +44,78 @@ public class FitnessRecord {
     public double getCaloriesBurned() { return caloriesBurned; }
     public void setCaloriesBurned(double caloriesBurned) { this.caloriesBurned = caloriesBurned; }
 
+    /**
+     * @return The database row version this record was read or last written at, or 0 if it was never
+     *         stored. Updates and deletes of a record with a version only apply if the row still has it.
+     */
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    /**
+     * @return A new record with the same field values and version
+     */
+    public FitnessRecord copy() {
+        FitnessRecord copy = new FitnessRecord(id, fullName, age, weight, stepsToday, caloriesBurned);
+        copy.version = version;
+        return copy;
+    }
+
     // String representation for printing record details
     @Override
     public String toString() {
         return String.format("ID: %d | Name: %s | Age: %d | Weight: %.1f lbs | Steps: %d | Calories: %.2f",
                 id, fullName, age, weight, stepsToday, caloriesBurned);
     }
+
+    /**
+     * Appends the same text as {@link #toString()} to the given builder without going through
+     * String.format, so callers that reuse one builder (e.g. list cell renderers) format
+     * records without creating intermediate objects.
+     *
+     * @param sb Builder to append to
+     * @return The same builder, for chaining
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        sb.append("ID: ").append(id)
+                .append(" | Name: ").append(fullName)
+                .append(" | Age: ").append(age)
+                .append(" | Weight: ");
+        appendFixed(sb, weight, 1);
+        sb.append(" lbs | Steps: ").append(stepsToday)
+                .append(" | Calories: ");
+        appendFixed(sb, caloriesBurned, 2);
+        return sb;
+    }
+
+    /**
+     * Appends a value with a fixed number of decimals, rounding half-up like String.format("%.nf").
+     */
+    static void appendFixed(StringBuilder sb, double value, int decimals) {
+        double abs = Math.abs(value);
+        if (!Double.isFinite(value) || abs >= 1e15) {
+            sb.append(String.format("%." + decimals + "f", value));
+            return;
+        }
+        long scale = POWERS_OF_TEN[decimals];
+        double scaled = abs * scale;
+        double fraction = scaled - Math.floor(scaled);
+        long units;
+        if (Math.abs(fraction - 0.5) < 1e-6) {
+            // Near a tie; Formatter rounds the shortest decimal representation, so do the same
+            units = BigDecimal.valueOf(abs).setScale(decimals, RoundingMode.HALF_UP).unscaledValue().longValue();
+        } else {
+            units = Math.round(scaled);
+        }
+        if (Double.doubleToRawLongBits(value) < 0) {
+            sb.append('-');
+        }
+        sb.append(units / scale);
+        if (decimals > 0) {
+            sb.append(DECIMAL_SEPARATOR);
+            long remainder = units % scale;
+            for (long p = scale / 10; p > 0; p /= 10) {
+                sb.append((char) ('0' + (remainder / p) % 10));
+            }
+        }
+    }
 }
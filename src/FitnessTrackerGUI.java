@@ -1,7 +1,16 @@
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * FitnessTrackerGUI class builds a graphical user interface for
@@ -9,15 +18,25 @@ import java.util.List;
  * Now fully integrated with SQLite database via FitnessDatabaseManager.
  */
 public class FitnessTrackerGUI extends JFrame {
+    private static final int PAGE_SIZE = 1000;   // Records fetched per round trip when loading
+    private static final int SEARCH_LIMIT = 1000; // Matches shown by the search box
     private FitnessDatabaseManager dbManager;    // Database manager for CRUD operations
-    private List<FitnessRecord> records;         // Cached list of fitness records
+    private RecordStore records;                 // Cached records, indexed by ID in display order
+    private final RecordChangeSet pendingChanges = new RecordChangeSet(); // Unsaved local edits
+    private EditJournal journal;                 // Crash-safe copy of the unsaved edits, null if unavailable
+    private NameIndex nameIndex = new NameIndex(); // Names of the loaded records, for the search box
 
-    private DefaultListModel<String> listModel;  // Model for JList to display records
-    private JList<String> recordJList;            // JList UI component to show records
+    private RecordListModel listModel;           // Model for JList, backed directly by records
+    private JList<FitnessRecord> recordJList;     // JList UI component to show records
 
     private JTextField idField, nameField, ageField, weightField, stepsField, caloriesField;
     private JTextField filenameField;             // Input for DB filename (e.g., fitness.db)
+    private JTextField searchField;               // Filters the list by name as the user types
     private JLabel statusLabel;                    // Status message display
+    private JProgressBar progressBar;              // Progress of the running background task
+    private JButton cancelButton;                  // Cancels the running background task
+    private final List<JButton> actionButtons = new ArrayList<>(); // Disabled while a task runs
+    private SwingWorker<?, ?> activeTask;          // Background database task, null when idle
 
     /**
      * Constructor sets up the GUI components and event handlers.
@@ -63,7 +82,7 @@ public class FitnessTrackerGUI extends JFrame {
         add(inputPanel, BorderLayout.WEST);
 
         // Buttons panel
-        JPanel buttonPanel = new JPanel(new GridLayout(8, 1, 5, 5));
+        JPanel buttonPanel = new JPanel(new GridLayout(10, 1, 5, 5));
         JButton loadButton = new JButton("Load Data");
         JButton displayButton = new JButton("Display Records");
         JButton addButton = new JButton("Add Record");
@@ -71,6 +90,8 @@ public class FitnessTrackerGUI extends JFrame {
         JButton updateButton = new JButton("Update Record");
         JButton avgStepsButton = new JButton("Calculate Avg Steps");
         JButton saveButton = new JButton("Save Data");
+        JButton importButton = new JButton("Import CSV");
+        cancelButton = new JButton("Cancel");
         JButton exitButton = new JButton("Exit");
 
         buttonPanel.add(loadButton);
@@ -80,19 +101,41 @@ public class FitnessTrackerGUI extends JFrame {
         buttonPanel.add(updateButton);
         buttonPanel.add(avgStepsButton);
         buttonPanel.add(saveButton);
+        buttonPanel.add(importButton);
+        buttonPanel.add(cancelButton);
         buttonPanel.add(exitButton);
 
+        actionButtons.addAll(List.of(loadButton, displayButton, addButton, removeButton,
+                updateButton, avgStepsButton, saveButton, importButton));
+        cancelButton.setEnabled(false);
+
         add(buttonPanel, BorderLayout.EAST);
 
         // List panel to display records
-        listModel = new DefaultListModel<>();
+        listModel = new RecordListModel();
         recordJList = new JList<>(listModel);
+        recordJList.setCellRenderer(new RecordCellRenderer());
+        // A prototype gives every row the same size, so the list never measures rows it does not paint
+        recordJList.setPrototypeCellValue(
+                new FitnessRecord(99999, "Prototype Full Name", 100, 999.9, 99999, 9999.99));
         JScrollPane scrollPane = new JScrollPane(recordJList);
         add(scrollPane, BorderLayout.CENTER);
 
-        // Status label for feedback
+        // Search box above the list
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 5));
+        searchPanel.add(new JLabel("Search name:"), BorderLayout.WEST);
+        searchField = new JTextField();
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        add(searchPanel, BorderLayout.NORTH);
+
+        // Status label and progress bar for feedback
+        JPanel statusPanel = new JPanel(new BorderLayout(5, 5));
         statusLabel = new JLabel("Welcome to Fitness Tracker!");
-        add(statusLabel, BorderLayout.SOUTH);
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setVisible(false);
+        statusPanel.add(statusLabel, BorderLayout.CENTER);
+        statusPanel.add(progressBar, BorderLayout.EAST);
+        add(statusPanel, BorderLayout.SOUTH);
 
         // Button actions
         loadButton.addActionListener(e -> loadData());
@@ -102,7 +145,34 @@ public class FitnessTrackerGUI extends JFrame {
         updateButton.addActionListener(e -> updateRecord());
         avgStepsButton.addActionListener(e -> calculateAverageSteps());
         saveButton.addActionListener(e -> saveData());
-        exitButton.addActionListener(e -> System.exit(0));
+        importButton.addActionListener(e -> importCsv());
+        cancelButton.addActionListener(e -> cancelTask());
+        exitButton.addActionListener(e -> {
+            closeJournal();
+            System.exit(0);
+        });
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                closeJournal();
+            }
+        });
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+        });
 
         setVisible(true);
     }
@@ -110,6 +180,8 @@ public class FitnessTrackerGUI extends JFrame {
     /**
      * Initializes database manager and loads all records from the database.
      * Uses the filename from filenameField to connect.
+     * Loading runs in the background from the record snapshot next to the database file,
+     * which shows every record almost at once; pages are loaded instead if that fails.
      */
     private void loadData() {
         String dbFileName = filenameField.getText().trim();
@@ -118,28 +190,31 @@ public class FitnessTrackerGUI extends JFrame {
             return;
         }
 
-        // Initialize the database manager with the given file
-        dbManager = new FitnessDatabaseManager(dbFileName);
-
-        // Fetch all records from DB
-        records = dbManager.getAllRecords();
+        // Release the previous database before switching files; its unsaved edits stay in its journal
+        closeJournal();
+        if (dbManager != null) {
+            dbManager.close();
+            dbManager = null;
+        }
 
-        statusLabel.setText("Data loaded successfully from database: " + dbFileName);
-        displayRecords();
+        records = new RecordStore();
+        pendingChanges.clear();
+        nameIndex.clear();
+        searchField.setText("");
+        listModel.setRecords(records);
+        startTask(new RecordLoader(dbFileName), "Loading records from " + dbFileName + "...", true);
     }
 
     /**
-     * Displays all loaded records in the JList UI.
+     * Displays all loaded records in the JList UI, clearing any search.
+     * Rows are formatted lazily by the cell renderer as they scroll into view.
      */
     private void displayRecords() {
-        listModel.clear();
+        searchField.setText("");
+        listModel.setRecords(records);
         if (records == null || records.isEmpty()) {
-            listModel.addElement("No records to display.");
             statusLabel.setText("No records found.");
         } else {
-            for (FitnessRecord r : records) {
-                listModel.addElement(r.toString());
-            }
             statusLabel.setText("Displaying " + records.size() + " records.");
         }
     }
@@ -163,17 +238,18 @@ public class FitnessTrackerGUI extends JFrame {
             }
 
             // Check for duplicate ID
-            for (FitnessRecord r : records) {
-                if (r.getId() == id) {
-                    statusLabel.setText("ID already exists. Use Update instead.");
-                    return;
-                }
+            if (records.containsId(id)) {
+                statusLabel.setText("ID already exists. Use Update instead.");
+                return;
             }
 
             FitnessRecord newRecord = new FitnessRecord(id, name, age, weight, steps, calories);
             records.add(newRecord);
+            nameIndex.put(id, name);
+            pendingChanges.markUpserted(newRecord);
+            recordsEdited(() -> listModel.recordAdded(records.size() - 1));
             statusLabel.setText("Record added locally. Remember to save changes.");
-            displayRecords();
+            journalUpsert(newRecord);
 
         } catch (NumberFormatException e) {
             statusLabel.setText("Invalid input. Please enter proper data types.");
@@ -187,13 +263,18 @@ public class FitnessTrackerGUI extends JFrame {
     private void removeRecord() {
         try {
             int id = Integer.parseInt(idField.getText().trim());
-            boolean removed = records.removeIf(r -> r.getId() == id);
-            if (removed) {
-                statusLabel.setText("Record removed locally. Remember to save changes.");
-            } else {
+            FitnessRecord r = records.getById(id);
+            if (r == null) {
                 statusLabel.setText("Record not found.");
+                return;
             }
-            displayRecords();
+            int position = records.removeById(id);
+            nameIndex.remove(id);
+            // The delete only applies if nobody else changed the record since it was loaded
+            pendingChanges.markDeleted(id, r.getVersion());
+            recordsEdited(() -> listModel.recordRemoved(position));
+            statusLabel.setText("Record removed locally. Remember to save changes.");
+            journalDelete(id, r.getVersion());
         } catch (NumberFormatException e) {
             statusLabel.setText("Invalid ID input.");
         }
@@ -206,51 +287,268 @@ public class FitnessTrackerGUI extends JFrame {
     private void updateRecord() {
         try {
             int id = Integer.parseInt(idField.getText().trim());
-            for (FitnessRecord r : records) {
-                if (r.getId() == id) {
-                    String name = nameField.getText().trim();
-                    int age = Integer.parseInt(ageField.getText().trim());
-                    double weight = Double.parseDouble(weightField.getText().trim());
-                    int steps = Integer.parseInt(stepsField.getText().trim());
-                    double calories = Double.parseDouble(caloriesField.getText().trim());
-
-                    if (name.isEmpty()) {
-                        statusLabel.setText("Name cannot be empty.");
-                        return;
-                    }
-
-                    r.setFullName(name);
-                    r.setAge(age);
-                    r.setWeight(weight);
-                    r.setStepsToday(steps);
-                    r.setCaloriesBurned(calories);
+            FitnessRecord r = records.getById(id);
+            if (r == null) {
+                statusLabel.setText("Record not found.");
+                return;
+            }
+            String name = nameField.getText().trim();
+            int age = Integer.parseInt(ageField.getText().trim());
+            double weight = Double.parseDouble(weightField.getText().trim());
+            int steps = Integer.parseInt(stepsField.getText().trim());
+            double calories = Double.parseDouble(caloriesField.getText().trim());
 
-                    statusLabel.setText("Record updated locally. Remember to save changes.");
-                    displayRecords();
-                    return;
-                }
+            if (name.isEmpty()) {
+                statusLabel.setText("Name cannot be empty.");
+                return;
             }
-            statusLabel.setText("Record not found.");
+
+            r.setFullName(name);
+            r.setAge(age);
+            r.setWeight(weight);
+            r.setStepsToday(steps);
+            r.setCaloriesBurned(calories);
+            nameIndex.put(id, name);
+            pendingChanges.markUpserted(r);
+            recordsEdited(() -> listModel.recordChanged(records.indexOfId(id)));
+
+            statusLabel.setText("Record updated locally. Remember to save changes.");
+            journalUpsert(r);
         } catch (NumberFormatException e) {
             statusLabel.setText("Invalid input. Please enter proper data types.");
         }
     }
 
+    /**
+     * Appends a local add or update to the edit journal, so it survives a crash before the next save.
+     */
+    private void journalUpsert(FitnessRecord record) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.appendUpsert(record);
+        } catch (IOException e) {
+            statusLabel.setText("Edit kept in memory only; journal write failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Appends a local removal to the edit journal.
+     */
+    private void journalDelete(int id, long expectedVersion) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.appendDelete(id, expectedVersion);
+        } catch (IOException e) {
+            statusLabel.setText("Edit kept in memory only; journal write failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies the edits recovered from the journal over the loaded records and marks them
+     * pending again, as if they had just been made. They stay in the journal until saved.
+     *
+     * @return Number of records added, updated or removed
+     */
+    private int replayJournal() {
+        RecordChangeSet edits = journal.recovered();
+        for (FitnessRecord edit : edits.getUpserts()) {
+            FitnessRecord r = records.getById(edit.getId());
+            if (r == null) {
+                records.add(edit);
+                r = edit;
+            } else {
+                copyInto(r, edit);  // with the edit's version, so it still conflicts with newer changes
+            }
+            nameIndex.put(r.getId(), r.getFullName());
+            pendingChanges.markUpserted(r);
+        }
+        for (int id : edits.getDeletes()) {
+            records.removeById(id);
+            nameIndex.remove(id);
+            pendingChanges.markDeleted(id, edits.getExpectedVersion(id));
+        }
+        if (!edits.isEmpty()) {
+            listModel.setRecords(records);
+        }
+        return edits.size();
+    }
+
+    /**
+     * Rewrites the edit journal to hold exactly the pending changes, e.g. after a save
+     * that left some of them pending.
+     */
+    private void rewriteJournal() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        journal.reset();
+        for (FitnessRecord r : pendingChanges.getUpserts()) {
+            journal.appendUpsert(r);
+        }
+        for (int id : pendingChanges.getDeletes()) {
+            journal.appendDelete(id, pendingChanges.getExpectedVersion(id));
+        }
+        journal.sync();
+    }
+
+    /**
+     * Copies every field and the version of {@code source} into {@code target}.
+     */
+    private static void copyInto(FitnessRecord target, FitnessRecord source) {
+        target.setFullName(source.getFullName());
+        target.setAge(source.getAge());
+        target.setWeight(source.getWeight());
+        target.setStepsToday(source.getStepsToday());
+        target.setCaloriesBurned(source.getCaloriesBurned());
+        target.setVersion(source.getVersion());
+    }
+
+    /**
+     * Drops the pending changes that were saved, keeping those the save reported as conflicts.
+     */
+    private void keepOnly(List<WriteResult> conflicts) {
+        RecordChangeSet kept = new RecordChangeSet();
+        for (WriteResult conflict : conflicts) {
+            int id = conflict.id();
+            if (pendingChanges.getDeletes().contains(id)) {
+                kept.markDeleted(id, pendingChanges.getExpectedVersion(id));
+            } else {
+                kept.markUpserted(records.getById(id));
+            }
+        }
+        pendingChanges.clear();
+        kept.getUpserts().forEach(pendingChanges::markUpserted);
+        kept.getDeletes().forEach(id -> pendingChanges.markDeleted(id, kept.getExpectedVersion(id)));
+    }
+
+    /**
+     * Shows the changes that could not be saved because someone else saved those records
+     * first, and lets the user keep theirs or take the database's. "Keep mine" rebases the
+     * edits on the current versions, so the next save overwrites; "Use theirs" replaces the
+     * local records with the database's and drops the edits. Closing the dialog leaves the
+     * edits pending as they are, so the next save reports them again.
+     *
+     * @param conflicts Changes the save skipped; pendingChanges holds exactly these
+     * @return Status text describing what was done
+     */
+    private String resolveConflicts(List<WriteResult> conflicts) {
+        StringBuilder message = new StringBuilder(conflicts.size()
+                + " of your changes were not saved because someone else saved those records first:");
+        for (WriteResult conflict : conflicts.subList(0, Math.min(20, conflicts.size()))) {
+            message.append('\n').append(conflict);
+        }
+        if (conflicts.size() > 20) {
+            message.append("\n... and ").append(conflicts.size() - 20).append(" more");
+        }
+        message.append("\n\nKeep your changes (saved over theirs next time), or use theirs?");
+        String[] options = {"Keep mine", "Use theirs"};
+        int choice = JOptionPane.showOptionDialog(this, message, "Save conflicts", JOptionPane.YES_NO_OPTION,
+                JOptionPane.WARNING_MESSAGE, null, options, options[0]);
+        if (choice == JOptionPane.CLOSED_OPTION) {
+            return conflicts.size() + " conflicting changes are still pending.";
+        }
+        boolean keepMine = choice == 0;
+        for (WriteResult conflict : conflicts) {
+            int id = conflict.id();
+            FitnessRecord mine = records.getById(id);
+            if (keepMine) {
+                if (mine != null) {
+                    mine.setVersion(conflict.version()); // 0 if they deleted it: inserted again
+                    pendingChanges.markUpserted(mine);
+                } else {
+                    pendingChanges.markDeleted(id, conflict.version());
+                }
+            } else if (conflict.current() == null) {
+                records.removeById(id);
+                nameIndex.remove(id);
+            } else {
+                if (mine == null) {
+                    records.add(conflict.current());
+                } else {
+                    copyInto(mine, conflict.current());
+                }
+                nameIndex.put(id, conflict.current().getFullName());
+            }
+        }
+        if (keepMine) {
+            return conflicts.size() + " conflicting changes kept; save again to overwrite.";
+        }
+        pendingChanges.clear();
+        recordsEdited(() -> listModel.setRecords(records));
+        return conflicts.size() + " conflicting changes replaced by the saved records.";
+    }
+
+    /**
+     * Syncs and closes the edit journal of the loaded database, if any.
+     */
+    private void closeJournal() {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * Shows the loaded records whose name matches the search box, or all of them when it is empty.
+     * Runs on every keystroke; the NameIndex answers from its posting lists without
+     * scanning the records, so filtering stays instant on large databases.
+     */
+    private void applyFilter() {
+        if (records == null) {
+            return;
+        }
+        String query = searchField.getText();
+        if (query.isBlank()) {
+            listModel.setRecords(records);
+            return;
+        }
+        long start = System.nanoTime();
+        int[] ids = nameIndex.search(query, SEARCH_LIMIT);
+        List<FitnessRecord> matches = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            matches.add(records.getById(id));
+        }
+        listModel.setRecords(matches);
+        statusLabel.setText(String.format("%s%d matches for \"%s\" (%.2f ms).",
+                ids.length == SEARCH_LIMIT ? "First " : "", ids.length, query.trim(),
+                (System.nanoTime() - start) / 1e6));
+    }
+
+    /**
+     * Updates the list after a local edit: with a row event when all records are shown,
+     * or by re-running the search when the list shows search results.
+     *
+     * @param rowEvent Notifies the model of the edited row of the full list
+     */
+    private void recordsEdited(Runnable rowEvent) {
+        if (searchField.getText().isBlank()) {
+            rowEvent.run();
+        } else {
+            applyFilter();
+        }
+    }
+
     /**
      * Calculates average steps from records currently loaded in memory
-     * and displays the result.
+     * and displays the result. The numeric fields are copied into a columnar
+     * store on the EDT and aggregated in parallel in the background.
      */
     private void calculateAverageSteps() {
         if (records == null || records.isEmpty()) {
             statusLabel.setText("No records to calculate.");
             return;
         }
-        double avg = records.stream().mapToInt(FitnessRecord::getStepsToday).average().orElse(0);
-        statusLabel.setText(String.format("Average Steps: %.2f", avg));
+        startTask(new AverageStepsTask(RecordColumns.from(records)), "Calculating average steps...", true);
     }
 
     /**
-     * Saves all records from the local list to the database in a batch operation.
+     * Saves the records added, changed or removed since the last load or save.
+     * Only the change set is written, in one transaction; untouched rows are not rewritten.
+     * The edit journal is emptied once the transaction commits.
      */
     private void saveData() {
         if (dbManager == null) {
@@ -258,13 +556,372 @@ public class FitnessTrackerGUI extends JFrame {
             return;
         }
 
-        if (records == null || records.isEmpty()) {
-            statusLabel.setText("No records to save.");
+        if (pendingChanges.isEmpty()) {
+            statusLabel.setText("No changes to save.");
             return;
         }
 
-        dbManager.saveAllRecords(records);
-        statusLabel.setText("All records saved successfully to database.");
+        // Editing is disabled while the save runs, so the change set is not modified underneath it
+        startTask(new ChangeSaver(dbManager), "Saving " + pendingChanges.size() + " changes...", false);
+    }
+
+    /**
+     * Lets the user pick a CSV file and bulk-imports it into the loaded database in the background,
+     * then reloads the records. Refuses while local edits are unsaved, since the reload would drop them.
+     */
+    private void importCsv() {
+        if (dbManager == null) {
+            statusLabel.setText("Please load data from a database first.");
+            return;
+        }
+        if (!pendingChanges.isEmpty()) {
+            statusLabel.setText("Save your changes before importing.");
+            return;
+        }
+        JFileChooser chooser = new JFileChooser(new File("."));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        startTask(new CsvImportTask(dbManager, file), "Importing " + file.getName() + "...", false);
+    }
+
+    /**
+     * Runs a background task, disabling the action buttons and showing progress until it finishes.
+     *
+     * @param task        The worker to execute
+     * @param message     Status text shown while it runs
+     * @param cancellable Whether the Cancel button may stop it
+     */
+    private void startTask(SwingWorker<?, ?> task, String message, boolean cancellable) {
+        activeTask = task;
+        for (JButton button : actionButtons) {
+            button.setEnabled(false);
+        }
+        cancelButton.setEnabled(cancellable);
+        progressBar.setValue(0);
+        progressBar.setVisible(true);
+        statusLabel.setText(message);
+        task.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                progressBar.setValue((Integer) e.getNewValue());
+            }
+        });
+        task.execute();
+    }
+
+    /**
+     * Restores the controls after a background task completes or is cancelled.
+     * Called from each worker's done() on the EDT.
+     */
+    private void finishTask() {
+        activeTask = null;
+        for (JButton button : actionButtons) {
+            button.setEnabled(true);
+        }
+        cancelButton.setEnabled(false);
+        progressBar.setVisible(false);
+    }
+
+    /**
+     * Requests cancellation of the running background task, if any.
+     */
+    private void cancelTask() {
+        if (activeTask != null) {
+            activeTask.cancel(true);
+        }
+    }
+
+    /**
+     * Opens the database and maps its record snapshot (database file name + ".snapshot"),
+     * rewriting it first if the database changed since it was written. The snapshot is
+     * published as a whole, so the list shows every record as soon as it is mapped; the
+     * name index is then built in the background and swapped in when done.
+     * If the snapshot cannot be used, records are streamed in keyset pages instead,
+     * each page published so the list fills in while the rest is still loading.
+     * <p>
+     * The edit journal (database file name + ".journal") is opened too, and any edits it
+     * holds from a session that ended without saving are replayed over the records.
+     * <p>
+     * A cancelled load keeps the records shown so far but closes the database, including one
+     * the worker is still opening; the database must be loaded again to save.
+     */
+    private class RecordLoader extends SwingWorker<Integer, List<FitnessRecord>> {
+        private final String dbFileName;
+        private FitnessDatabaseManager manager;          // Guarded by this; handed to done() unless abandoned
+        private boolean abandoned;                       // Guarded by this; set when the load was cancelled
+        private volatile NameIndex loadedNames;          // Built off the EDT from the snapshot
+        private EditJournal loadedJournal;               // Guarded by this; null if the journal cannot be opened
+        private volatile String journalError;
+
+        RecordLoader(String dbFileName) {
+            this.dbFileName = dbFileName;
+        }
+
+        /**
+         * Hands the opened journal to done(), or closes it if the load was cancelled meanwhile.
+         */
+        private synchronized void adopt(EditJournal opened) {
+            if (abandoned) {
+                opened.close();
+            } else {
+                loadedJournal = opened;
+            }
+        }
+
+        /**
+         * Hands the opened database to done(), or closes it if the load was cancelled meanwhile.
+         *
+         * @return false if the database was closed
+         */
+        private synchronized boolean adopt(FitnessDatabaseManager opened) {
+            if (abandoned) {
+                opened.close();
+                return false;
+            }
+            manager = opened;
+            return true;
+        }
+
+        /**
+         * Closes what the worker opened, now and whenever it opens something later.
+         * Called from done() when the load was cancelled, possibly while the worker still runs.
+         */
+        private synchronized void abandon() {
+            abandoned = true;
+            if (manager != null) {
+                manager.close();
+                manager = null;
+            }
+            if (loadedJournal != null) {
+                loadedJournal.close(); // Its edits stay on disk and are replayed by the next load
+                loadedJournal = null;
+            }
+        }
+
+        private synchronized FitnessDatabaseManager manager() {
+            return manager;
+        }
+
+        private synchronized EditJournal journal() {
+            return loadedJournal;
+        }
+
+        @Override
+        protected Integer doInBackground() {
+            FitnessDatabaseManager opened = new FitnessDatabaseManager(dbFileName);
+            if (!adopt(opened)) {
+                return 0;
+            }
+            try {
+                adopt(EditJournal.open(Path.of(dbFileName + ".journal")));
+            } catch (IOException e) {
+                journalError = e.getMessage();
+            }
+            try {
+                RecordSnapshot snapshot = RecordSnapshot.load(opened, Path.of(dbFileName + ".snapshot"));
+                publish(snapshot);
+                NameIndex names = new NameIndex();
+                for (int i = 0; i < snapshot.size() && !isCancelled(); i++) {
+                    names.put(snapshot.idAt(i), snapshot.nameAt(i));
+                    if ((i & 0xFFFF) == 0) {
+                        setProgress((int) (i * 100L / snapshot.size()));
+                    }
+                }
+                if (!isCancelled()) {
+                    loadedNames = names;
+                }
+                return snapshot.size();
+            } catch (IOException | SQLException e) {
+                return loadPages(opened);
+            }
+        }
+
+        private int loadPages(FitnessDatabaseManager manager) {
+            int total = manager.countRecords();
+            int loaded = 0;
+            List<FitnessRecord> page = manager.getRecordsAfter(Integer.MIN_VALUE, PAGE_SIZE);
+            while (!page.isEmpty() && !isCancelled()) {
+                publish(page);
+                loaded += page.size();
+                setProgress(total == 0 ? 100 : Math.min(100, (int) (loaded * 100L / total)));
+                page = manager.getRecordsAfter(page.get(page.size() - 1).getId(), PAGE_SIZE);
+            }
+            return loaded;
+        }
+
+        @Override
+        protected void process(List<List<FitnessRecord>> pages) {
+            if (isCancelled()) {
+                return; // Published before the cancel but delivered after done()
+            }
+            for (List<FitnessRecord> page : pages) {
+                if (page instanceof RecordSnapshot snapshot) {
+                    records = new RecordStore(snapshot);
+                    listModel.setRecords(records);
+                    statusLabel.setText("Showing " + records.size() + " records; indexing names...");
+                    return;
+                }
+                int first = records.size();
+                records.addAll(page);
+                for (FitnessRecord r : page) {
+                    nameIndex.put(r.getId(), r.getFullName());
+                }
+                recordsEdited(() -> listModel.recordsAdded(first, records.size() - 1));
+            }
+            statusLabel.setText("Loading... " + records.size() + " records so far.");
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                // The worker may still be opening the database; whatever it opens is closed
+                abandon();
+                finishTask();
+                statusLabel.setText("Load cancelled after " + records.size() + " records; load again to edit and save.");
+                return;
+            }
+            dbManager = manager();
+            journal = journal();
+            if (loadedNames != null) {
+                nameIndex = loadedNames;
+            }
+            finishTask();
+            int replayed = journal == null ? 0 : replayJournal();
+            String recovery = replayed > 0 ? " Recovered " + replayed + " unsaved edits; save to keep them."
+                    : journalError != null ? " Edit journal unavailable (" + journalError + "); save often." : "";
+            try {
+                get();
+                statusLabel.setText("Data loaded successfully from database: " + dbFileName
+                        + " (" + records.size() + " records)." + recovery);
+            } catch (InterruptedException | ExecutionException e) {
+                statusLabel.setText("Error loading data: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the pending change set in one background transaction.
+     */
+    private class ChangeSaver extends SwingWorker<SaveResult, Void> {
+        private final FitnessDatabaseManager manager;
+
+        ChangeSaver(FitnessDatabaseManager manager) {
+            this.manager = manager;
+        }
+
+        @Override
+        protected SaveResult doInBackground() {
+            return manager.saveChanges(pendingChanges);
+        }
+
+        @Override
+        protected void done() {
+            finishTask();
+            try {
+                SaveResult result = get();
+                if (!result.committed()) {
+                    statusLabel.setText("Save failed. Your changes are still pending.");
+                    return;
+                }
+                // Keep editing the saved records at their new versions
+                for (FitnessRecord r : pendingChanges.getUpserts()) {
+                    Long version = result.versions().get(r.getId());
+                    if (version != null) {
+                        r.setVersion(version);
+                    }
+                }
+                String saved = String.format("Saved %d rows (%d upserted, %d deleted) in %.1f ms.",
+                        result.rowsWritten(), result.upserted(), result.deleted(), result.elapsedMillis());
+                if (!result.hasConflicts()) {
+                    pendingChanges.clear();
+                    statusLabel.setText(saved);
+                    if (journal != null) {
+                        journal.reset();
+                    }
+                    return;
+                }
+                keepOnly(result.conflicts());
+                statusLabel.setText(saved + " " + resolveConflicts(result.conflicts()));
+                rewriteJournal();
+            } catch (IOException e) {
+                statusLabel.setText("Saved, but the edit journal could not be emptied: " + e.getMessage());
+            } catch (InterruptedException | ExecutionException e) {
+                statusLabel.setText("Save failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs a bulk CSV import and reloads the records when it finishes.
+     */
+    private class CsvImportTask extends SwingWorker<ImportReport, Void> {
+        private final FitnessDatabaseManager manager;
+        private final File file;
+
+        CsvImportTask(FitnessDatabaseManager manager, File file) {
+            this.manager = manager;
+            this.file = file;
+        }
+
+        @Override
+        protected ImportReport doInBackground() throws Exception {
+            return new CsvRecordImporter(manager).importFile(file.toPath());
+        }
+
+        @Override
+        protected void done() {
+            finishTask();
+            try {
+                ImportReport report = get();
+                StringBuilder message = new StringBuilder(report.summary());
+                for (ImportReport.RejectedLine line : report.rejected().subList(0, Math.min(20, report.rejected().size()))) {
+                    message.append('\n').append(line);
+                }
+                JOptionPane.showMessageDialog(FitnessTrackerGUI.this, message, "Import finished",
+                        report.rejectedCount() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+                loadData(); // show the imported rows
+            } catch (InterruptedException | ExecutionException e) {
+                statusLabel.setText("Import failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Aggregates a columnar snapshot of the records off the EDT: step statistics
+     * plus the correlation between steps and calories.
+     */
+    private class AverageStepsTask extends SwingWorker<ColumnStats, Void> {
+        private final RecordColumns columns;
+        private double correlation;
+
+        AverageStepsTask(RecordColumns columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        protected ColumnStats doInBackground() {
+            ColumnStats stats = columns.stats(RecordField.STEPS_TODAY);
+            setProgress(50);
+            correlation = columns.correlation(RecordField.STEPS_TODAY, RecordField.CALORIES_BURNED);
+            setProgress(100);
+            return stats;
+        }
+
+        @Override
+        protected void done() {
+            finishTask();
+            try {
+                ColumnStats stats = get();
+                statusLabel.setText(String.format(
+                        "Average Steps: %.2f (min %.0f, max %.0f, std dev %.2f, steps/calories r = %.3f)",
+                        stats.mean(), stats.min(), stats.max(), stats.stddev(), correlation));
+            } catch (CancellationException e) {
+                statusLabel.setText("Calculation cancelled.");
+            } catch (InterruptedException | ExecutionException e) {
+                statusLabel.setText("Error calculating average: " + e.getMessage());
+            }
+        }
     }
 
     /**
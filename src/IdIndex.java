@@ -0,0 +1,99 @@
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from int ID to int slot with linear probing and
+ * backward-shift deletion, so no boxing and no tombstones.
+ * Shared by RecordStore (ID to slot) and NameIndex (ID to document).
+ */
+final class IdIndex {
+    private int[] keys = new int[32];
+    private int[] values = newValues(32); // -1 marks an empty bucket
+    private int size;
+
+    private static int[] newValues(int capacity) {
+        int[] values = new int[capacity];
+        Arrays.fill(values, -1);
+        return values;
+    }
+
+    private int bucket(int key, int mask) {
+        int h = key * 0x9E3779B9; // Fibonacci hashing spreads sequential IDs
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    int get(int key) {
+        int mask = keys.length - 1;
+        for (int i = bucket(key, mask); values[i] >= 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return -1;
+    }
+
+    void put(int key, int value) {
+        int mask = keys.length - 1;
+        int i = bucket(key, mask);
+        while (values[i] >= 0) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+    }
+
+    int remove(int key) {
+        int mask = keys.length - 1;
+        int i = bucket(key, mask);
+        while (values[i] >= 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (values[i] < 0) {
+            return -1;
+        }
+        int removed = values[i];
+        size--;
+        // Shift later entries of the probe run back so lookups never hit a gap
+        int gap = i;
+        for (int j = (gap + 1) & mask; values[j] >= 0; j = (j + 1) & mask) {
+            int home = bucket(keys[j], mask);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        values[gap] = -1;
+        return removed;
+    }
+
+    void clear() {
+        keys = new int[32];
+        values = newValues(32);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = newValues(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] >= 0) {
+                int j = bucket(oldKeys[i], mask);
+                while (values[j] >= 0) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
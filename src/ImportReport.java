@@ -0,0 +1,45 @@
+import java.util.List;
+
+/**
+ * Summary of a bulk import: how many rows were written, which lines were rejected and why,
+ * and the overall throughput.
+ *
+ * @param rowsImported  Number of records written to the database
+ * @param linesRead     Number of lines read from the file, including header, blank and rejected lines
+ * @param rejectedCount Total number of rejected lines
+ * @param rejected      The first rejected lines with their reasons (capped, see {@code rejectedCount})
+ * @param commits       Number of transactions committed
+ * @param elapsedNanos  Wall-clock time of the whole import
+ */
+public record ImportReport(long rowsImported, long linesRead, long rejectedCount,
+                           List<RejectedLine> rejected, int commits, long elapsedNanos) {
+
+    /**
+     * A line that failed to parse or validate.
+     *
+     * @param lineNumber One-based line number in the file
+     * @param reason     Why the line was rejected
+     * @param text       The line content (possibly truncated)
+     */
+    public record RejectedLine(long lineNumber, String reason, String text) {
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + ": " + reason + " [" + text + "]";
+        }
+    }
+
+    /**
+     * @return Imported rows per second of wall-clock time
+     */
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsImported * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return One-line human-readable summary
+     */
+    public String summary() {
+        return String.format("Imported %d rows in %.2f s (%.0f rows/sec), %d lines rejected, %d commits.",
+                rowsImported, elapsedNanos / 1e9, rowsPerSecond(), rejectedCount, commits);
+    }
+}
@@ -0,0 +1,330 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Minimal pull parser for JSON request bodies. The caller walks the document with
+ * begin/end/next calls, so values are read straight into the objects being built without
+ * an intermediate tree or reflection, and arrays of any length are read one element at a time.
+ * <p>
+ * Malformed input throws IllegalArgumentException with the character offset of the problem.
+ */
+final class JsonReader {
+    /** Kinds of value that can come next. */
+    enum Kind { OBJECT, ARRAY, STRING, NUMBER, BOOLEAN, NULL }
+
+    private static final int MAX_STRING_CHARS = 1 << 16;
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int pos, limit;
+    private long consumed;                      // Characters before buffer[0], for error offsets
+    private boolean[] pendingComma = new boolean[8]; // Per open container: a value was read, a comma must follow
+    private int depth;
+    private boolean afterName;                  // A name and colon were read; the value comes next
+
+    /**
+     * @param in Source; not closed by this reader
+     */
+    JsonReader(Reader in) {
+        this.in = in;
+    }
+
+    void beginObject() throws IOException {
+        open('{');
+    }
+
+    void endObject() throws IOException {
+        close('}');
+    }
+
+    void beginArray() throws IOException {
+        open('[');
+    }
+
+    void endArray() throws IOException {
+        close(']');
+    }
+
+    /**
+     * @return true if the current array or object has another element
+     */
+    boolean hasNext() throws IOException {
+        int c = peekNonSpace();
+        return c != ']' && c != '}' && c != -1;
+    }
+
+    /**
+     * @return The kind of the next value, without reading it
+     */
+    Kind peek() throws IOException {
+        separator();
+        int c = peekNonSpace();
+        return switch (c) {
+            case '{' -> Kind.OBJECT;
+            case '[' -> Kind.ARRAY;
+            case '"' -> Kind.STRING;
+            case 't', 'f' -> Kind.BOOLEAN;
+            case 'n' -> Kind.NULL;
+            default -> {
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    yield Kind.NUMBER;
+                }
+                throw error(c == -1 ? "unexpected end of input" : "unexpected character '" + (char) c + "'");
+            }
+        };
+    }
+
+    /**
+     * Reads an object member name and its colon.
+     */
+    String nextName() throws IOException {
+        separator();
+        expect('"');
+        String name = readString();
+        expect(':');
+        afterName = true;
+        return name;
+    }
+
+    String nextString() throws IOException {
+        separator();
+        expect('"');
+        String value = readString();
+        valueRead();
+        return value;
+    }
+
+    double nextDouble() throws IOException {
+        String number = readNumber();
+        try {
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw error("invalid number " + number);
+        }
+    }
+
+    /**
+     * Reads a number that must be a whole value within long range. Parsed exactly, not
+     * through a double, so values beyond 2^53 keep every digit.
+     */
+    long nextLong() throws IOException {
+        String number = readNumber();
+        try {
+            return new BigDecimal(number).longValueExact();
+        } catch (NumberFormatException e) {
+            throw error("invalid number " + number);
+        } catch (ArithmeticException e) {
+            throw error("expected a long integer, got " + number);
+        }
+    }
+
+    /**
+     * Reads the text of a number value.
+     */
+    private String readNumber() throws IOException {
+        separator();
+        int start = peekNonSpace();
+        if (start != '-' && (start < '0' || start > '9')) {
+            throw error("expected a number");
+        }
+        StringBuilder number = new StringBuilder(24);
+        for (int c = peekChar(); c != -1 && "+-.0123456789eE".indexOf(c) >= 0; c = peekChar()) {
+            number.append((char) c);
+            pos++;
+        }
+        valueRead();
+        return number.toString();
+    }
+
+    /**
+     * Reads a number that must be a whole value within int range.
+     */
+    int nextInt() throws IOException {
+        double value = nextDouble();
+        if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw error("expected an integer, got " + value);
+        }
+        return (int) value;
+    }
+
+    boolean nextBoolean() throws IOException {
+        separator();
+        boolean value = peekNonSpace() == 't';
+        literal(value ? "true" : "false");
+        valueRead();
+        return value;
+    }
+
+    void nextNull() throws IOException {
+        separator();
+        literal("null");
+        valueRead();
+    }
+
+    /**
+     * Reads and discards the next value, including any nested containers.
+     */
+    void skipValue() throws IOException {
+        switch (peek()) {
+            case OBJECT -> {
+                beginObject();
+                while (hasNext()) {
+                    nextName();
+                    skipValue();
+                }
+                endObject();
+            }
+            case ARRAY -> {
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+            }
+            case STRING -> nextString();
+            case NUMBER -> nextDouble();
+            case BOOLEAN -> nextBoolean();
+            case NULL -> nextNull();
+        }
+    }
+
+    /**
+     * Checks that nothing but whitespace follows the document.
+     */
+    void endDocument() throws IOException {
+        if (peekNonSpace() != -1) {
+            throw error("unexpected content after the document");
+        }
+    }
+
+    /**
+     * @return An exception describing a problem at the current position
+     */
+    IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid JSON at character " + (consumed + pos) + ": " + message);
+    }
+
+    private void open(char bracket) throws IOException {
+        separator();
+        expect(bracket);
+        if (depth == pendingComma.length) {
+            pendingComma = Arrays.copyOf(pendingComma, depth * 2);
+        }
+        pendingComma[depth++] = false;
+    }
+
+    private void close(char bracket) throws IOException {
+        expect(bracket);
+        depth--;
+        valueRead();
+    }
+
+    /**
+     * Consumes the comma owed before the next element, if any. Safe to call more than once.
+     */
+    private void separator() throws IOException {
+        if (afterName) {
+            return;
+        }
+        if (depth > 0 && pendingComma[depth - 1]) {
+            expect(',');
+            pendingComma[depth - 1] = false;
+        }
+    }
+
+    private void valueRead() {
+        afterName = false;
+        if (depth > 0) {
+            pendingComma[depth - 1] = true;
+        }
+    }
+
+    private void expect(char c) throws IOException {
+        if (peekNonSpace() != c) {
+            throw error("expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private void literal(String word) throws IOException {
+        peekNonSpace();
+        for (int i = 0; i < word.length(); i++) {
+            if (peekChar() != word.charAt(i)) {
+                throw error("expected " + word);
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * Reads the rest of a string whose opening quote was consumed.
+     */
+    private String readString() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int c = peekChar();
+            if (c == -1) {
+                throw error("unterminated string");
+            }
+            pos++;
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c == '\\') {
+                int escape = peekChar();
+                pos++;
+                switch (escape) {
+                    case '"', '\\', '/' -> sb.append((char) escape);
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> {
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(peekChar(), 16);
+                            if (digit < 0) {
+                                throw error("invalid \\u escape");
+                            }
+                            pos++;
+                            code = code * 16 + digit;
+                        }
+                        sb.append((char) code);
+                    }
+                    default -> throw error("invalid escape");
+                }
+            } else if (c < 0x20) {
+                throw error("control character in string");
+            } else {
+                sb.append((char) c);
+            }
+            if (sb.length() > MAX_STRING_CHARS) {
+                throw error("string longer than " + MAX_STRING_CHARS + " characters");
+            }
+        }
+    }
+
+    private int peekNonSpace() throws IOException {
+        int c = peekChar();
+        while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+            pos++;
+            c = peekChar();
+        }
+        return c;
+    }
+
+    private int peekChar() throws IOException {
+        if (pos == limit) {
+            consumed += limit;
+            pos = 0;
+            limit = Math.max(0, in.read(buffer));
+            if (limit == 0) {
+                return -1;
+            }
+        }
+        return buffer[pos];
+    }
+}
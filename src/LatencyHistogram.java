@@ -0,0 +1,172 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, in the style of HdrHistogram.
+ * Values below 128 ns get their own bucket; above that every power of two is split into
+ * 64 linear sub-buckets, so any recorded value is reported within about 1.6% while the
+ * whole range up to about two hours fits in under 2,500 counters.
+ * <p>
+ * Recording is a handful of atomic increments, cheap enough for every database call.
+ * Readers take a {@link Snapshot}, which can be subtracted from a later one to get the
+ * distribution of a single reporting interval.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;            // Linear buckets per power of two
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;                // Values below this are exact
+    private static final long MAX_VALUE = (1L << 43) - 1;                   // About 2.4 hours in nanoseconds
+    private static final int BUCKETS = bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos Duration in nanoseconds; negative values count as 0, huge values are capped
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * @return Number of recorded values
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Copies the current counts. Values recorded concurrently may or may not be included.
+     *
+     * @return An immutable snapshot
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        // Use the bucket total so percentiles stay consistent with the copied counts
+        return new Snapshot(copy, total, sum.get(), max.get());
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return The largest value that falls into the given bucket
+     */
+    private static long bucketUpperBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Immutable copy of a histogram's counts.
+     */
+    public static final class Snapshot {
+        /** Snapshot with no values. */
+        public static final Snapshot EMPTY = new Snapshot(new long[BUCKETS], 0, 0, 0);
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * @return Number of values
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * @return Mean in nanoseconds, 0 if empty
+         */
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @return Largest value in nanoseconds (bucket precision for interval snapshots), 0 if empty
+         */
+        public long max() {
+            return max;
+        }
+
+        /**
+         * Returns the value below which the given share of values fall.
+         *
+         * @param percentile Percentile in [0, 100], e.g. 99.9
+         * @return Latency in nanoseconds, 0 if empty
+         */
+        public long valueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * Subtracts an earlier snapshot of the same histogram, giving the values recorded in between.
+         *
+         * @param earlier Snapshot taken before this one
+         * @return Snapshot of the interval
+         */
+        public Snapshot minus(Snapshot earlier) {
+            long[] delta = new long[counts.length];
+            long total = 0;
+            long intervalMax = 0;
+            for (int i = 0; i < counts.length; i++) {
+                delta[i] = counts[i] - earlier.counts[i];
+                total += delta[i];
+                if (delta[i] > 0) {
+                    intervalMax = Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return new Snapshot(delta, total, sum - earlier.sum, intervalMax);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                    count, mean() / 1000, valueAtPercentile(50) / 1000.0, valueAtPercentile(99) / 1000.0,
+                    valueAtPercentile(99.9) / 1000.0, max / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,443 @@
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load test for the persistence layer: N simulated clients call FitnessDatabaseManager
+ * concurrently with a weighted mix of operations and the latency of every call is recorded.
+ * <p>
+ * Clients can share one manager, as threads of one application do, or be spread over
+ * several managers on the same database file, each with its own connection pool, which is
+ * how several GUI or server instances sharing one fitness.db contend for SQLite's write lock.
+ * <p>
+ * In closed-loop mode (no target rate) each client issues its next call as soon as the
+ * previous one returns, which measures capacity. In open-loop mode calls are scheduled at a
+ * fixed total rate whatever the response times, and latency is measured from the scheduled
+ * start, so queueing behind slow calls is reported instead of hidden (no coordinated omission).
+ * <p>
+ * A call that fails with SQLITE_BUSY or SQLITE_LOCKED is retried with a short backoff, up to
+ * {@link Config#maxRetries(int)} times; retries are counted and the call's latency includes them.
+ * Run from the command line with {@code gradle loadTest --args="..."}; see {@link #main(String[])}.
+ */
+public class LoadGenerator {
+    /** Operations a client can issue. */
+    public enum Operation {
+        INSERT("insertRecord"),
+        UPDATE("updateRecord"),
+        DELETE("deleteRecord"),
+        GET_ALL("getAllRecords"),
+        AVERAGE_STEPS("calculateAverageSteps");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return The FitnessDatabaseManager method this operation calls
+         */
+        public String label() {
+            return label;
+        }
+    }
+
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+    private static final long BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private final Config config;
+    private final Map<Operation, Counters> counters = new EnumMap<>(Operation.class);
+    private final SyntheticDataset dataset;
+    private final AtomicInteger nextId = new AtomicInteger();   // Next ID to insert
+
+    /**
+     * @param config Clients, mix, rate and duration; copied, so later changes have no effect
+     */
+    public LoadGenerator(Config config) {
+        this.config = config.copy();
+        this.dataset = new SyntheticDataset(this.config.seed);
+        for (Operation operation : Operation.values()) {
+            counters.put(operation, new Counters());
+        }
+    }
+
+    /**
+     * Seeds the database with the configured number of records, runs the clients for the
+     * configured duration and reports what they measured.
+     *
+     * @param dbFileName Scratch SQLite file to test; any records already in it are deleted
+     * @return Throughput, latency percentiles, retries and errors per operation
+     * @throws SQLException         if the database cannot be seeded
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    public Report run(String dbFileName) throws SQLException, InterruptedException {
+        List<FitnessDatabaseManager> managers = new ArrayList<>();
+        try {
+            managers.add(new FitnessDatabaseManager(dbFileName, true));
+            managers.get(0).saveAllRecordsChecked(List.of());
+            dataset.populate(managers.get(0), config.initialRecords);
+            nextId.set(config.initialRecords + 1);
+            while (managers.size() < config.instances) {
+                managers.add(new FitnessDatabaseManager(dbFileName, true));
+            }
+
+            long start = System.nanoTime();
+            long end = start + config.duration.toNanos();
+            List<Thread> clients = new ArrayList<>(config.clients);
+            for (int i = 0; i < config.clients; i++) {
+                FitnessDatabaseManager manager = managers.get(i % managers.size());
+                int client = i;
+                clients.add(Thread.ofVirtual().name("load-client-" + i)
+                        .start(() -> runClient(manager, client, start, end)));
+            }
+            for (Thread client : clients) {
+                client.join();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            Map<Operation, OperationReport> operations = new EnumMap<>(Operation.class);
+            counters.forEach((operation, c) -> operations.put(operation, new OperationReport(
+                    c.latency.snapshot(), c.errors.get(), c.retries.get())));
+            return new Report(config.copy(), elapsed, operations);
+        } finally {
+            managers.forEach(FitnessDatabaseManager::close);
+        }
+    }
+
+    /**
+     * Issues calls until the end time: back to back, or at this client's share of the target rate.
+     */
+    private void runClient(FitnessDatabaseManager manager, int client, long start, long end) {
+        SplittableRandom random = new SplittableRandom(config.seed * 31 + client);
+        long interval = config.targetRate > 0 ? (long) (1e9 * config.clients / config.targetRate) : 0;
+        // Stagger the clients so an open-loop schedule does not fire in bursts
+        long scheduled = start + (interval == 0 ? 0 : interval * client / config.clients);
+        while (!Thread.currentThread().isInterrupted()) {
+            if (interval > 0) {
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                scheduled = System.nanoTime();
+            }
+            if (scheduled >= end) {
+                return;
+            }
+            Operation operation = config.pick(random);
+            Counters c = counters.get(operation);
+            try {
+                execute(manager, operation, random, c);
+            } catch (SQLException | RuntimeException e) {
+                c.errors.incrementAndGet();
+            }
+            c.latency.record(System.nanoTime() - scheduled);
+            scheduled += interval;
+        }
+    }
+
+    private void execute(FitnessDatabaseManager manager, Operation operation, SplittableRandom random, Counters c)
+            throws SQLException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                call(manager, operation, random);
+                return;
+            } catch (SQLException e) {
+                if (!isBusy(e) || attempt >= config.maxRetries) {
+                    throw e;
+                }
+                c.retries.incrementAndGet();
+                LockSupport.parkNanos(BACKOFF_NANOS << Math.min(attempt, 6));
+            }
+        }
+    }
+
+    private void call(FitnessDatabaseManager manager, Operation operation, SplittableRandom random)
+            throws SQLException {
+        switch (operation) {
+            case INSERT -> manager.insertRecordChecked(dataset.record(nextId.getAndIncrement()));
+            case UPDATE -> {
+                FitnessRecord record = dataset.record(randomId(random));
+                record.setStepsToday(random.nextInt(30_000));
+                manager.updateRecordChecked(record);
+            }
+            case DELETE -> manager.deleteRecordChecked(randomId(random));
+            case GET_ALL -> manager.getAllRecordsChecked();
+            case AVERAGE_STEPS -> manager.getColumnStatsChecked(RecordField.STEPS_TODAY).mean();
+        }
+    }
+
+    private int randomId(SplittableRandom random) {
+        return 1 + random.nextInt(Math.max(1, nextId.get() - 1));
+    }
+
+    /**
+     * @return true for SQLITE_BUSY and SQLITE_LOCKED, including their extended codes
+     */
+    static boolean isBusy(SQLException e) {
+        int primary = e.getErrorCode() & 0xFF;
+        return primary == SQLITE_BUSY || primary == SQLITE_LOCKED
+                || (e.getMessage() != null && e.getMessage().contains("SQLITE_BUSY"));
+    }
+
+    /**
+     * Per-operation measurements shared by all clients.
+     */
+    private static final class Counters {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong retries = new AtomicLong();
+    }
+
+    /**
+     * Load test settings, built fluently. Defaults: 8 clients on one manager, closed loop,
+     * 10 seconds, 2,000 seeded records, and a read-heavy mix of 10% inserts, 20% updates,
+     * 5% deletes, 5% full reads and 60% average-steps queries.
+     */
+    public static class Config {
+        private int clients = 8;
+        private int instances = 1;
+        private double targetRate;        // Calls per second over all clients; 0 = closed loop
+        private Duration duration = Duration.ofSeconds(10);
+        private int initialRecords = 2_000;
+        private int maxRetries = 5;
+        private long seed = SyntheticDataset.DEFAULT_SEED;
+        private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+
+        public Config() {
+            mix.put(Operation.INSERT, 10);
+            mix.put(Operation.UPDATE, 20);
+            mix.put(Operation.DELETE, 5);
+            mix.put(Operation.GET_ALL, 5);
+            mix.put(Operation.AVERAGE_STEPS, 60);
+        }
+
+        /**
+         * @param clients Number of concurrent simulated clients (at least 1)
+         */
+        public Config clients(int clients) {
+            this.clients = Math.max(1, clients);
+            return this;
+        }
+
+        /**
+         * @param instances Number of FitnessDatabaseManager instances the clients are spread over,
+         *                  simulating separate application instances on one database file
+         */
+        public Config instances(int instances) {
+            this.instances = Math.max(1, instances);
+            return this;
+        }
+
+        /**
+         * @param callsPerSecond Open-loop target rate over all clients; 0 for closed loop
+         */
+        public Config targetRate(double callsPerSecond) {
+            this.targetRate = Math.max(0, callsPerSecond);
+            return this;
+        }
+
+        public Config duration(Duration duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        /**
+         * @param records Records with IDs 1..records written before the clients start
+         */
+        public Config initialRecords(int records) {
+            this.initialRecords = Math.max(0, records);
+            return this;
+        }
+
+        /**
+         * @param maxRetries Retries of a call failing with SQLITE_BUSY before it counts as an error
+         */
+        public Config maxRetries(int maxRetries) {
+            this.maxRetries = Math.max(0, maxRetries);
+            return this;
+        }
+
+        public Config seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Sets the relative weight of one operation; 0 removes it from the mix.
+         */
+        public Config weight(Operation operation, int weight) {
+            mix.put(operation, Math.max(0, weight));
+            return this;
+        }
+
+        Operation pick(SplittableRandom random) {
+            int total = 0;
+            for (int weight : mix.values()) {
+                total += weight;
+            }
+            int r = random.nextInt(total);
+            for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+                r -= entry.getValue();
+                if (r < 0) {
+                    return entry.getKey();
+                }
+            }
+            throw new IllegalStateException("Empty operation mix");
+        }
+
+        Config copy() {
+            Config copy = new Config().clients(clients).instances(instances).targetRate(targetRate)
+                    .duration(duration).initialRecords(initialRecords).maxRetries(maxRetries).seed(seed);
+            mix.forEach(copy::weight);
+            if (copy.mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+                throw new IllegalArgumentException("The operation mix needs at least one positive weight");
+            }
+            return copy;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder mixText = new StringBuilder();
+            mix.forEach((operation, weight) -> {
+                if (weight > 0) {
+                    mixText.append(mixText.isEmpty() ? "" : ", ").append(operation.label()).append('=').append(weight);
+                }
+            });
+            return String.format("%d clients on %d instance(s), %s, %.1f s, %d seeded records, mix: %s",
+                    clients, instances, targetRate > 0 ? String.format("open loop at %.0f calls/s", targetRate)
+                            : "closed loop", duration.toMillis() / 1000.0, initialRecords, mixText);
+        }
+    }
+
+    /**
+     * Measurements of one operation.
+     *
+     * @param latency Latency distribution in nanoseconds, including retries and, in open loop, queueing
+     * @param errors  Calls that failed after any retries
+     * @param retries SQLITE_BUSY or SQLITE_LOCKED retries
+     */
+    public record OperationReport(LatencyHistogram.Snapshot latency, long errors, long retries) {
+        public long calls() {
+            return latency.count();
+        }
+    }
+
+    /**
+     * Outcome of a load test.
+     *
+     * @param config       Settings the test ran with
+     * @param elapsedNanos Wall-clock duration of the client phase
+     * @param operations   Measurements per operation
+     */
+    public record Report(Config config, long elapsedNanos, Map<Operation, OperationReport> operations) {
+
+        public long calls() {
+            return operations.values().stream().mapToLong(OperationReport::calls).sum();
+        }
+
+        public long errors() {
+            return operations.values().stream().mapToLong(OperationReport::errors).sum();
+        }
+
+        public long retries() {
+            return operations.values().stream().mapToLong(OperationReport::retries).sum();
+        }
+
+        /**
+         * @return Completed calls per second
+         */
+        public double throughput() {
+            return calls() * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @return Share of calls that failed, in [0, 1]
+         */
+        public double errorRate() {
+            return calls() == 0 ? 0 : (double) errors() / calls();
+        }
+
+        /**
+         * Formats the report as a table with one line per operation that was called.
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Load test: ").append(config).append('\n');
+            sb.append(String.format("Throughput %.1f calls/s, %d calls, %d errors (%.2f%%), %d busy retries%n",
+                    throughput(), calls(), errors(), errorRate() * 100, retries()));
+            sb.append(String.format("%-22s %9s %9s %9s %9s %9s %9s %7s %7s%n",
+                    "operation", "calls", "calls/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors", "retries"));
+            operations.forEach((operation, r) -> {
+                if (r.calls() > 0) {
+                    LatencyHistogram.Snapshot l = r.latency();
+                    sb.append(String.format("%-22s %9d %9.1f %9.3f %9.3f %9.3f %9.3f %7d %7d%n",
+                            operation.label(), r.calls(), r.calls() * 1e9 / elapsedNanos,
+                            l.valueAtPercentile(50) / 1e6, l.valueAtPercentile(99) / 1e6,
+                            l.valueAtPercentile(99.9) / 1e6, l.max() / 1e6, r.errors(), r.retries()));
+                }
+            });
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Runs a load test from the command line and prints the report. Options, all optional:
+     * <pre>
+     *   --db FILE          database file (default load-test.db)
+     *   --clients N        concurrent clients (default 8)
+     *   --instances N      managers the clients are spread over (default 1)
+     *   --rate R           open-loop target calls/s; omit for closed loop
+     *   --seconds S        duration (default 10)
+     *   --records N        records seeded before the run (default 2000)
+     *   --mix insert=10,update=20,delete=5,getall=5,average=60
+     * </pre>
+     */
+    public static void main(String[] args) throws SQLException, InterruptedException {
+        Config config = new Config();
+        String db = "load-test.db";
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--db" -> db = value;
+                case "--clients" -> config.clients(Integer.parseInt(value));
+                case "--instances" -> config.instances(Integer.parseInt(value));
+                case "--rate" -> config.targetRate(Double.parseDouble(value));
+                case "--seconds" -> config.duration(Duration.ofMillis((long) (Double.parseDouble(value) * 1000)));
+                case "--records" -> config.initialRecords(Integer.parseInt(value));
+                case "--mix" -> {
+                    for (Operation operation : Operation.values()) {
+                        config.weight(operation, 0);
+                    }
+                    for (String part : value.split(",")) {
+                        String[] kv = part.split("=");
+                        config.weight(parseOperation(kv[0].trim()), Integer.parseInt(kv[1].trim()));
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        System.out.print(new LoadGenerator(config).run(db));
+    }
+
+    private static Operation parseOperation(String name) {
+        return switch (name.toLowerCase()) {
+            case "insert" -> Operation.INSERT;
+            case "update" -> Operation.UPDATE;
+            case "delete" -> Operation.DELETE;
+            case "getall" -> Operation.GET_ALL;
+            case "average" -> Operation.AVERAGE_STEPS;
+            default -> throw new IllegalArgumentException("Unknown operation " + name);
+        };
+    }
+}
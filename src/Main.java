@@ -1,3 +1,8 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.*;
 import javax.swing.*;
 
@@ -8,17 +13,46 @@ import javax.swing.*;
  * via the FitnessDatabaseManager class.
  */
 public class Main {
+    private static final int PAGE_SIZE = 500; // Records fetched per round trip when listing
+    private static final int SEARCH_LIMIT = 50; // Matches printed by a name search
     private static final Scanner scanner = new Scanner(System.in);
+    private static final Path SNAPSHOT_FILE = Path.of("fitness.db.snapshot"); // Record snapshot for fast loading
+    private static final Path RECOMPUTE_CHECKPOINT = Path.of("fitness.db.recompute"); // Progress of --recompute-calories
+    private static RecordSnapshot snapshot; // Mapped by "Load Records"; displayed from while still fresh
+
+    static {
+        // One-line log messages ("WARNING: Error inserting record: ...") unless configured otherwise;
+        // must be set before the database manager logs anything
+        if (System.getProperty("java.util.logging.SimpleFormatter.format") == null) {
+            System.setProperty("java.util.logging.SimpleFormatter.format", "%4$s: %5$s%n");
+        }
+    }
+
     private static final FitnessDatabaseManager dbManager = new FitnessDatabaseManager("fitness.db");
 
     public static void main(String[] args) {
         // Uncomment this line to launch GUI instead of console
         // SwingUtilities.invokeLater(FitnessTrackerGUI::new);
 
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? parsePort(args[1]) : FitnessHttpServer.DEFAULT_PORT;
+            if (port < 0) {
+                System.out.println("Usage: --server [port], with a port from 0 to 65535");
+                dbManager.close();
+                return;
+            }
+            runServer(port);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--recompute-calories")) {
+            recomputeCalories();
+            return;
+        }
+
         boolean exit = false;
         while (!exit) {
             printMenu(); // Display menu
-            int choice = getValidatedInt("Enter your choice: ", 1, 8);
+            int choice = getValidatedInt("Enter your choice: ", 1, 16);
             switch (choice) {
                 case 1 -> loadFromDatabase();
                 case 2 -> displayRecords();
@@ -27,13 +61,76 @@ public class Main {
                 case 5 -> updateRecord();
                 case 6 -> customFeature();
                 case 7 -> saveSampleRecords();
-                case 8 -> exit = true;
+                case 8 -> importFromCsv();
+                case 9 -> exportRecords();
+                case 10 -> detailedAnalytics();
+                case 11 -> verifyStatistics();
+                case 12 -> showMetrics();
+                case 13 -> searchByName();
+                case 14 -> findByRange();
+                case 15 -> showHistory();
+                case 16 -> exit = true;
                 default -> System.out.println("Invalid choice."); // Just a safeguard
             }
         }
+        refreshSnapshot();
+        dbManager.close(); // Release pooled database connections
         System.out.println("Exiting... Goodbye!");
     }
 
+    /**
+     * @param text Port given on the command line
+     * @return The port, or -1 if the text is not a number from 0 to 65535
+     */
+    private static int parsePort(String text) {
+        try {
+            int port = Integer.parseInt(text.trim());
+            return port >= 0 && port <= 65535 ? port : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Serves the database over HTTP instead of showing the menu (started with {@code --server [port]}).
+     * Runs until the process is stopped; a shutdown hook stops the server and closes the database.
+     *
+     * @param port TCP port to listen on
+     */
+    private static void runServer(int port) {
+        try {
+            FitnessHttpServer server = new FitnessHttpServer(dbManager, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                dbManager.close();
+            }));
+            server.start();
+            System.out.println("Serving fitness.db on http://localhost:" + server.getPort() + "/records (Ctrl+C to stop)");
+        } catch (IOException e) {
+            System.out.println("Error starting server: " + e.getMessage());
+            dbManager.close();
+        }
+    }
+
+    /**
+     * Recomputes calories burned of every record with the walking model instead of showing the menu
+     * (started with {@code --recompute-calories}). Prints throughput after every chunk; if stopped,
+     * the next run resumes from the checkpoint file.
+     */
+    private static void recomputeCalories() {
+        try {
+            CalorieRecomputeJob.Report report = new CalorieRecomputeJob(dbManager, CalorieModel.WALKING)
+                    .checkpoint(RECOMPUTE_CHECKPOINT)
+                    .onProgress(progress -> System.out.println(progress.summary()))
+                    .run();
+            System.out.println(report.summary());
+        } catch (SQLException | IOException e) {
+            System.out.println("Error recomputing calories: " + e.getMessage());
+        } finally {
+            dbManager.close();
+        }
+    }
+
     /**
      * Prints the main menu options to the user.
      */
@@ -47,32 +144,168 @@ public class Main {
             5. Update Record by ID
             6. Calculate Average Steps (Custom Feature)
             7. Save Sample Records to DB
-            8. Exit
+            8. Import Records from CSV File
+            9. Export Records to File
+            10. Detailed Analytics (Steps vs Calories)
+            11. Verify/Rebuild Statistics
+            12. Show Database Metrics
+            13. Search Records by Name
+            14. Find Records by Range
+            15. Show Step History
+            16. Exit
             """);
     }
 
     /**
-     * Simulates loading data from the database.
-     * Actual loading happens in displayRecords method when fetching live.
+     * Maps the record snapshot, rewriting it first if the database changed since it was written,
+     * and reports how long that took. Records are decoded only when read; the snapshot is kept
+     * so "Display All Records" reads from it instead of the database until the records change.
      */
     private static void loadFromDatabase() {
         System.out.println("Attempting to load data from database...");
-        List<FitnessRecord> records = dbManager.getAllRecords();
-        System.out.println(records.size() + " records loaded.");
+        long start = System.nanoTime();
+        try {
+            snapshot = RecordSnapshot.load(dbManager, SNAPSHOT_FILE);
+            System.out.printf("%d records loaded from %s in %.1f ms.%n",
+                    snapshot.size(), SNAPSHOT_FILE, (System.nanoTime() - start) / 1e6);
+        } catch (IOException | SQLException e) {
+            snapshot = null;
+            System.out.println("Error loading snapshot: " + e.getMessage());
+            System.out.println(dbManager.countRecords() + " records in the database.");
+        }
     }
 
     /**
-     * Fetches all records from the database and prints them.
+     * Rewrites the record snapshot on exit if the records changed, so the next load is instant.
+     */
+    private static void refreshSnapshot() {
+        try {
+            if (RecordSnapshot.refresh(dbManager, SNAPSHOT_FILE)) {
+                System.out.println("Record snapshot updated.");
+            }
+        } catch (IOException | SQLException e) {
+            System.out.println("Error updating snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prints all records: from the loaded snapshot if the database has not changed since it was
+     * mapped, otherwise fetched from the database page by page, so only one page is held in
+     * memory at a time.
      */
     private static void displayRecords() {
-        List<FitnessRecord> records = dbManager.getAllRecords();
-        if (records.isEmpty()) {
-            System.out.println("No records found in the database.");
-        } else {
+        if (snapshotIsFresh()) {
+            if (snapshot.isEmpty()) {
+                System.out.println("No records found in the database.");
+                return;
+            }
             System.out.println("Displaying all records:");
-            for (FitnessRecord r : records) {
+            for (FitnessRecord r : snapshot) {
+                System.out.println(r);
+            }
+            return;
+        }
+        List<FitnessRecord> page = dbManager.getRecordsAfter(Integer.MIN_VALUE, PAGE_SIZE);
+        if (page.isEmpty()) {
+            System.out.println("No records found in the database.");
+            return;
+        }
+        System.out.println("Displaying all records:");
+        while (!page.isEmpty()) {
+            for (FitnessRecord r : page) {
                 System.out.println(r);
             }
+            int lastId = page.get(page.size() - 1).getId();
+            page = dbManager.getRecordsAfter(lastId, PAGE_SIZE);
+        }
+    }
+
+    /**
+     * @return true if a snapshot was loaded and still holds exactly the database's records
+     */
+    private static boolean snapshotIsFresh() {
+        try {
+            return snapshot != null && snapshot.isFresh(dbManager.getDataVersion());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Prompts for part of a name and prints the matching records, up to SEARCH_LIMIT of them.
+     */
+    private static void searchByName() {
+        String query = getValidatedString("Enter part of a name: ");
+        List<FitnessRecord> found = dbManager.searchByName(query, SEARCH_LIMIT);
+        if (found.isEmpty()) {
+            System.out.println("No records match \"" + query + "\".");
+            return;
+        }
+        found.forEach(System.out::println);
+        System.out.println(found.size() == SEARCH_LIMIT
+                ? "Showing the first " + SEARCH_LIMIT + " matches; refine the search to see others."
+                : found.size() + " matching records.");
+    }
+
+    /**
+     * Builds a range query from prompts (one or more field ranges, a sort field and a limit),
+     * prints the matching records and reports whether SQLite answered it from an index.
+     */
+    private static void findByRange() {
+        RecordField[] fields = RecordField.values();
+        StringBuilder choices = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            choices.append(i + 1).append(" = ").append(fields[i].column()).append(i + 1 < fields.length ? ", " : "");
+        }
+        RecordQuery query = new RecordQuery();
+        do {
+            RecordField field = fields[getValidatedInt("Field (" + choices + "): ", 1, fields.length) - 1];
+            query.between(field, getValidatedDouble("Minimum " + field.column() + ": "),
+                    getValidatedDouble("Maximum " + field.column() + ": "));
+        } while (getValidatedInt("Add another range? (1 = yes, 2 = no): ", 1, 2) == 1);
+        int sort = getValidatedInt("Sort by (0 = ID, " + choices + ", largest first): ", 0, fields.length);
+        if (sort > 0) {
+            query.orderBy(fields[sort - 1], true);
+        }
+        query.limit(getValidatedInt("Maximum records to show: ", 1, Integer.MAX_VALUE));
+
+        List<FitnessRecord> found = dbManager.findRecords(query);
+        found.forEach(System.out::println);
+        System.out.println(found.size() + " records match " + query + ".");
+        try {
+            System.out.println("Query plan: " + dbManager.explain(query));
+        } catch (SQLException e) {
+            System.out.println("Error explaining query: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prompts for an ID and a number of days and prints that record's daily history with a
+     * 7-day moving average, followed by monthly totals for the last twelve months.
+     */
+    private static void showHistory() {
+        int id = getValidatedInt("Enter ID: ");
+        int days = getValidatedInt("Number of days to show (1-366): ", 1, 366);
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, DailyEntry> history = new HashMap<>();
+        for (DailyEntry entry : dbManager.getHistory(id, today.minusDays(days - 1), today)) {
+            history.put(entry.day(), entry);
+        }
+        if (history.isEmpty()) {
+            System.out.println("No history for ID " + id + " in the last " + days + " days.");
+        } else {
+            System.out.println("Day         Steps   Calories   7-day avg steps");
+            for (MovingAverage average : dbManager.getMovingAverage(id, today.minusDays(days - 1), today, 7)) {
+                DailyEntry entry = history.get(average.day());
+                System.out.printf("%s %7s %10s %17.0f%n", average.day(),
+                        entry == null ? "-" : String.valueOf(entry.steps()),
+                        entry == null ? "-" : String.format("%.2f", entry.calories()), average.steps());
+            }
+        }
+        YearMonth month = YearMonth.from(today);
+        for (PeriodTotal total : dbManager.getMonthlyTotals(id, month.minusMonths(11), month)) {
+            System.out.printf("%s: %,d steps over %d days (%.0f per day), %.2f calories%n",
+                    YearMonth.from(total.start()), total.steps(), total.days(), total.averageSteps(), total.calories());
         }
     }
 
@@ -93,19 +326,34 @@ public class Main {
     }
 
     /**
-     * Prompts user for ID and deletes that record from the database.
+     * Prompts user for ID, shows the record and deletes it from the database after confirmation.
      */
     private static void removeRecord() {
         int id = getValidatedInt("Enter ID to delete: ");
-        dbManager.deleteRecord(id);
-        System.out.println("Record deleted from database.");
+        FitnessRecord current = dbManager.getRecordById(id);
+        if (current == null) {
+            System.out.println("No record found with ID " + id);
+            return;
+        }
+        System.out.println("Current: " + current);
+        if (getValidatedInt("Delete this record? (1 = yes, 2 = no): ", 1, 2) != 1) {
+            return;
+        }
+        WriteResult result = dbManager.deleteRecord(id, current.getVersion());
+        System.out.println(result.applied() ? "Record deleted from database." : "Not deleted: " + result);
     }
 
     /**
-     * Prompts user for updated info and updates the record in the database.
+     * Shows the current record, prompts user for updated info and updates the record in the database.
      */
     private static void updateRecord() {
         int id = getValidatedInt("Enter ID to update: ");
+        FitnessRecord current = dbManager.getRecordById(id);
+        if (current == null) {
+            System.out.println("No record found with ID " + id);
+            return;
+        }
+        System.out.println("Current: " + current);
         String name = getValidatedString("Enter new name: ");
         int age = getValidatedInt("Enter new age: ");
         double weight = getValidatedDouble("Enter new weight (lbs): ");
@@ -113,16 +361,39 @@ public class Main {
         double calories = getValidatedDouble("Enter new calories: ");
 
         FitnessRecord updatedRecord = new FitnessRecord(id, name, age, weight, steps, calories);
-        dbManager.updateRecord(updatedRecord);
-        System.out.println("Record updated in database.");
+        updatedRecord.setVersion(current.getVersion()); // Fails if someone else changed it while we typed
+        WriteResult result = dbManager.updateRecord(updatedRecord);
+        System.out.println(result.applied() ? "Record updated in database." : "Not updated: " + result);
     }
 
     /**
-     * Calculates and displays the average steps from all records.
+     * Calculates and displays the average steps from all records, followed by
+     * the running statistics of every numeric field. Both are constant-time reads.
      */
     private static void customFeature() {
         double avgSteps = dbManager.calculateAverageSteps();
         System.out.printf("Average Steps Today: %.2f%n", avgSteps);
+        dbManager.getAllColumnStats().forEach((field, stats) ->
+                System.out.printf("%-15s %s%n", field.column() + ":", stats));
+    }
+
+    /**
+     * Loads the numeric fields into an in-memory columnar copy and prints
+     * full-scan statistics plus the correlation between steps and calories.
+     */
+    private static void detailedAnalytics() {
+        RecordColumns columns;
+        try (RecordCursor cursor = dbManager.openCursor()) {
+            columns = RecordColumns.from(cursor);
+        } catch (SQLException e) {
+            System.out.println("Error loading statistics: " + e.getMessage());
+            return;
+        }
+        for (RecordField field : RecordField.values()) {
+            System.out.printf("%-15s %s%n", field.column() + ":", columns.stats(field));
+        }
+        System.out.printf("Correlation of steps vs calories: %.3f%n",
+                columns.correlation(RecordField.STEPS_TODAY, RecordField.CALORIES_BURNED));
     }
 
     /**
@@ -134,6 +405,67 @@ public class Main {
         System.out.println("Sample records saved to database.");
     }
 
+    /**
+     * Prompts for a CSV file (id,name,age,weight,steps,calories per line) and bulk-imports it.
+     * Existing records with the same ID are replaced. Reports throughput and rejected lines.
+     */
+    private static void importFromCsv() {
+        String file = getValidatedString("Enter CSV file path: ");
+        try {
+            ImportReport report = new CsvRecordImporter(dbManager).importFile(Path.of(file));
+            System.out.println(report.summary());
+            for (ImportReport.RejectedLine line : report.rejected()) {
+                System.out.println("  " + line);
+            }
+            if (report.rejectedCount() > report.rejected().size()) {
+                System.out.println("  ... and " + (report.rejectedCount() - report.rejected().size()) + " more.");
+            }
+        } catch (IOException | SQLException e) {
+            System.out.println("Error importing file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prompts for a destination file and format and streams all records to it.
+     * A file name ending in ".gz" is gzip-compressed.
+     */
+    private static void exportRecords() {
+        String file = getValidatedString("Enter export file path (add .gz to compress): ");
+        int format = getValidatedInt("Format (1 = CSV, 2 = binary): ", 1, 2);
+        try {
+            RecordExporter.ExportReport report = dbManager.exportRecords(Path.of(file),
+                    format == 1 ? RecordExporter.Format.CSV : RecordExporter.Format.BINARY,
+                    file.endsWith(".gz"));
+            System.out.println(report.summary());
+        } catch (IOException | SQLException e) {
+            System.out.println("Error exporting records: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks the running statistics against a full scan and offers to rebuild them if they differ.
+     */
+    private static void verifyStatistics() {
+        List<String> mismatches = dbManager.verifyAggregates();
+        if (mismatches.isEmpty()) {
+            System.out.println("Statistics are consistent with the records.");
+            return;
+        }
+        mismatches.forEach(System.out::println);
+        if (getValidatedInt("Rebuild statistics now? (1 = yes, 2 = no): ", 1, 2) == 1) {
+            System.out.println(dbManager.rebuildAggregates() ? "Statistics rebuilt." : "Rebuild failed.");
+        }
+    }
+
+    /**
+     * Prints latency percentiles, throughput, rows and errors of every database operation
+     * used so far. The same figures are available live in JConsole under FitnessTracker.
+     */
+    private static void showMetrics() {
+        System.out.print(dbManager.getMetrics().snapshot());
+        System.out.println("Record cache: " + dbManager.getCacheStats());
+    }
+
     // Input validation methods omitted for brevity, keep as is from previous code...
 
     private static int getValidatedInt(String prompt) {
@@ -0,0 +1,13 @@
+import java.time.LocalDate;
+
+/**
+ * Average steps and calories over the window of days ending on a given day.
+ * Days without history are left out of the average rather than counted as zero.
+ *
+ * @param day      Last day of the window
+ * @param days     Days in the window that have history
+ * @param steps    Average steps per day with history
+ * @param calories Average calories per day with history
+ */
+public record MovingAverage(LocalDate day, int days, double steps, double calories) {
+}
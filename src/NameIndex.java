@@ -0,0 +1,235 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory n-gram index over record names, for filter-as-you-type search in the GUI.
+ * <p>
+ * Every name is lower-cased and split into overlapping three-character grams; each gram
+ * keeps a posting list of the names that contain it. A query of three or more characters
+ * looks up the posting lists of its own grams, takes the shortest one and checks only
+ * those candidates, so the cost depends on how selective the query is rather than on the
+ * number of names. Queries of one or two characters cannot be split into grams; they match
+ * the beginning of any word of the name, using posting lists of word prefixes.
+ * The same rules are used by {@link FitnessDatabaseManager#searchByName(String, int)}.
+ * <p>
+ * Names are stored by record ID. Replacing or removing a name only retires its old entry;
+ * retired entries are skipped by searches and dropped when they outnumber the live ones.
+ * Not thread-safe; the GUI uses it from the event dispatch thread only.
+ */
+public class NameIndex {
+    /** Shortest query matched as a substring; shorter queries match word prefixes. */
+    public static final int MIN_SUBSTRING_LENGTH = 3;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long PREFIX_KEY = 1L << 48; // Distinguishes word-prefix keys from grams
+
+    private int[] docIds = new int[INITIAL_CAPACITY];         // Entry -> record ID
+    private String[] docNames = new String[INITIAL_CAPACITY]; // Entry -> normalized name, null if retired
+    private int docCount;                                     // Entries handed out so far
+    private int live;                                         // Entries not retired
+    private final IdIndex entries = new IdIndex();            // Record ID -> current entry
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    /**
+     * Normalizes a name or query the way both this index and the database search compare them.
+     *
+     * @param text Name or query
+     * @return Trimmed, lower-case text
+     */
+    public static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return Number of names indexed
+     */
+    public int size() {
+        return live;
+    }
+
+    /**
+     * Adds or replaces the name of a record.
+     *
+     * @param id   Record ID
+     * @param name Full name
+     */
+    public void put(int id, String name) {
+        String normalized = normalize(name);
+        int existing = entries.get(id);
+        if (existing >= 0) {
+            if (normalized.equals(docNames[existing])) {
+                return;
+            }
+            retire(existing);
+        }
+        if (docCount == docIds.length) {
+            docIds = Arrays.copyOf(docIds, docCount * 2);
+            docNames = Arrays.copyOf(docNames, docCount * 2);
+        }
+        int doc = docCount++;
+        docIds[doc] = id;
+        docNames[doc] = normalized;
+        entries.put(id, doc);
+        live++;
+        index(doc, normalized);
+    }
+
+    /**
+     * Removes the name of a record, if indexed.
+     *
+     * @param id Record ID
+     */
+    public void remove(int id) {
+        int doc = entries.remove(id);
+        if (doc >= 0) {
+            retire(doc);
+        }
+    }
+
+    /**
+     * Removes every name.
+     */
+    public void clear() {
+        docIds = new int[INITIAL_CAPACITY];
+        docNames = new String[INITIAL_CAPACITY];
+        docCount = 0;
+        live = 0;
+        entries.clear();
+        postings.clear();
+    }
+
+    /**
+     * Finds records whose name contains the query (ignoring case), or for queries shorter
+     * than {@value #MIN_SUBSTRING_LENGTH} characters, has a word starting with it.
+     *
+     * @param query Text typed by the user
+     * @param limit Maximum number of IDs returned
+     * @return Matching record IDs in the order their names were added; empty for a blank query
+     */
+    public int[] search(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        Postings candidates;
+        if (q.length() < MIN_SUBSTRING_LENGTH) {
+            candidates = postings.get(prefixKey(q));
+        } else {
+            candidates = null;
+            for (int i = 0; i + MIN_SUBSTRING_LENGTH <= q.length(); i++) {
+                Postings list = postings.get(gramKey(q, i));
+                if (list == null) {
+                    return new int[0]; // A gram no name contains
+                }
+                if (candidates == null || list.size < candidates.size) {
+                    candidates = list;
+                }
+            }
+        }
+        if (candidates == null) {
+            return new int[0];
+        }
+
+        int[] found = new int[Math.min(limit, candidates.size)];
+        int count = 0;
+        for (int i = 0; i < candidates.size && count < found.length; i++) {
+            int doc = candidates.docs[i];
+            String name = docNames[doc];
+            if (name != null && matches(name, q)) {
+                found[count++] = docIds[doc];
+            }
+        }
+        return count == found.length ? found : Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Applies the matching rule of {@link #search(String, int)} to one name.
+     *
+     * @param name  Normalized name
+     * @param query Normalized, non-empty query
+     * @return true if the name matches
+     */
+    static boolean matches(String name, String query) {
+        if (query.length() >= MIN_SUBSTRING_LENGTH) {
+            return name.contains(query);
+        }
+        return name.startsWith(query) || name.contains(" " + query);
+    }
+
+    private void index(int doc, String name) {
+        for (int i = 0; i + MIN_SUBSTRING_LENGTH <= name.length(); i++) {
+            addPosting(gramKey(name, i), doc);
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != ' ' && (i == 0 || name.charAt(i - 1) == ' ')) {
+                addPosting(prefixKey(name.substring(i, i + 1)), doc);
+                if (i + 1 < name.length() && name.charAt(i + 1) != ' ') {
+                    addPosting(prefixKey(name.substring(i, i + 2)), doc);
+                }
+            }
+        }
+    }
+
+    private void addPosting(long key, int doc) {
+        Postings list = postings.computeIfAbsent(key, k -> new Postings());
+        // A gram repeated within one name ("anna" has "an" twice) is listed once
+        if (list.size == 0 || list.docs[list.size - 1] != doc) {
+            list.add(doc);
+        }
+    }
+
+    private void retire(int doc) {
+        docNames[doc] = null;
+        live--;
+        if (docCount - live > INITIAL_CAPACITY && docCount - live > live) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Re-indexes the live entries, dropping retired ones from the posting lists.
+     */
+    private void rebuild() {
+        int[] ids = docIds;
+        String[] names = docNames;
+        int count = docCount;
+        clear();
+        for (int doc = 0; doc < count; doc++) {
+            if (names[doc] != null) {
+                put(ids[doc], names[doc]);
+            }
+        }
+    }
+
+    /**
+     * Packs three characters starting at {@code from} into a key, 16 bits each.
+     */
+    private static long gramKey(String s, int from) {
+        return (long) s.charAt(from) << 32 | (long) s.charAt(from + 1) << 16 | s.charAt(from + 2);
+    }
+
+    /**
+     * Key of a one- or two-character word prefix.
+     */
+    private static long prefixKey(String prefix) {
+        long key = PREFIX_KEY | (long) prefix.length() << 40 | prefix.charAt(0);
+        return prefix.length() == 1 ? key : key | (long) prefix.charAt(1) << 16;
+    }
+
+    /**
+     * Growable list of entry numbers, in the order they were added.
+     */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+}
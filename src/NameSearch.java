@@ -0,0 +1,111 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Schema and SQL for FitnessNames, an FTS5 full-text index over FitnessRecords.fullName
+ * using the trigram tokenizer, so any substring of three or more characters is found
+ * through the index instead of by scanning every name.
+ * <p>
+ * FitnessNames is an external-content table: it stores only the index and reads names
+ * from FitnessRecords. Triggers keep it in sync with every write path; bulk rewrites
+ * drop the triggers and rebuild it in one pass, like {@link RunningAggregates}.
+ * Queries shorter than three characters cannot use trigrams and match the beginning
+ * of any word of the name instead, with a scan that stops at the requested limit.
+ */
+final class NameSearch {
+    static final String TABLE = "FitnessNames";
+
+    private NameSearch() {
+    }
+
+    /**
+     * Creates the index and its triggers if needed, filling the index when it is new.
+     */
+    static void createSchema(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            boolean exists;
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = '" + TABLE + "'")) {
+                exists = rs.next();
+            }
+            stmt.execute("""
+                CREATE VIRTUAL TABLE IF NOT EXISTS FitnessNames USING fts5(
+                    fullName, content = 'FitnessRecords', content_rowid = 'id', tokenize = 'trigram'
+                )""");
+            createTriggers(stmt);
+            if (!exists) {
+                rebuild(stmt);
+            }
+        }
+    }
+
+    /**
+     * Creates the insert, delete and update triggers that mirror fullName into the index.
+     */
+    static void createTriggers(Statement stmt) throws SQLException {
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS FitnessNames_insert AFTER INSERT ON FitnessRecords
+            BEGIN
+                INSERT INTO FitnessNames (rowid, fullName) VALUES (NEW.id, NEW.fullName);
+            END""");
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS FitnessNames_delete AFTER DELETE ON FitnessRecords
+            BEGIN
+                INSERT INTO FitnessNames (FitnessNames, rowid, fullName) VALUES ('delete', OLD.id, OLD.fullName);
+            END""");
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS FitnessNames_update AFTER UPDATE OF id, fullName ON FitnessRecords
+            WHEN OLD.id IS NOT NEW.id OR OLD.fullName IS NOT NEW.fullName
+            BEGIN
+                INSERT INTO FitnessNames (FitnessNames, rowid, fullName) VALUES ('delete', OLD.id, OLD.fullName);
+                INSERT INTO FitnessNames (rowid, fullName) VALUES (NEW.id, NEW.fullName);
+            END""");
+    }
+
+    /**
+     * Drops the sync triggers, e.g. before rewriting the whole table.
+     * Must be followed by {@link #rebuild(Statement)} and {@link #createTriggers(Statement)}
+     * in the same transaction.
+     */
+    static void dropTriggers(Statement stmt) throws SQLException {
+        for (String event : new String[]{"insert", "delete", "update"}) {
+            stmt.execute("DROP TRIGGER IF EXISTS FitnessNames_" + event);
+        }
+    }
+
+    /**
+     * Rebuilds the whole index from FitnessRecords.
+     */
+    static void rebuild(Statement stmt) throws SQLException {
+        stmt.execute("INSERT INTO FitnessNames (FitnessNames) VALUES ('rebuild')");
+    }
+
+    /**
+     * SQL selecting up to {@code ?2} records that match {@code ?1}, in ID order.
+     *
+     * @param selectColumns The SELECT ... FROM FitnessRecords prefix
+     * @param substring     true for queries answered by the trigram index, false for word prefixes
+     */
+    static String searchSql(String selectColumns, boolean substring) {
+        if (substring) {
+            return selectColumns + " WHERE id IN (SELECT rowid FROM FitnessNames WHERE FitnessNames MATCH ?)"
+                    + " ORDER BY id LIMIT ?";
+        }
+        return selectColumns + " WHERE fullName LIKE ?1 || '%' ESCAPE '\\' OR fullName LIKE '% ' || ?1 || '%' ESCAPE '\\'"
+                + " ORDER BY id LIMIT ?2";
+    }
+
+    /**
+     * Converts a normalized query into the parameter of {@link #searchSql(String, boolean)}.
+     * Substring queries become one quoted FTS5 phrase, so operators and punctuation in the
+     * query are matched literally; prefix queries escape the LIKE wildcards.
+     */
+    static String parameter(String query, boolean substring) {
+        if (substring) {
+            return '"' + query.replace("\"", "\"\"") + '"';
+        }
+        return query.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,145 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histogram of one database operation: calls, errors, rows read and
+ * written, and how long each call took. Updated by every call, so all counters are
+ * contention-friendly LongAdders; registered as a JMX MBean by DatabaseMetrics.
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+    private final DatabaseOperation operation;
+    private final long createdNanos = System.nanoTime();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+
+    /**
+     * @param operation The operation measured
+     */
+    public OperationMetrics(DatabaseOperation operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * @return The operation measured
+     */
+    public DatabaseOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Records a successful call.
+     *
+     * @param nanos       Duration of the call
+     * @param read        Rows read
+     * @param written     Rows written
+     */
+    public void recordSuccess(long nanos, long read, long written) {
+        latency.record(nanos);
+        calls.increment();
+        if (read != 0) {
+            rowsRead.add(read);
+        }
+        if (written != 0) {
+            rowsWritten.add(written);
+        }
+    }
+
+    /**
+     * Records a failed call. Its duration is included in the latency histogram.
+     *
+     * @param nanos Duration of the call until it failed
+     */
+    public void recordError(long nanos) {
+        latency.record(nanos);
+        calls.increment();
+        errors.increment();
+    }
+
+    /**
+     * @return Consistent-enough copy of the counters for reporting
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(calls.sum(), errors.sum(), rowsRead.sum(), rowsWritten.sum(), latency.snapshot());
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRowsRead() {
+        return rowsRead.sum();
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return rowsWritten.sum();
+    }
+
+    @Override
+    public double getCallsPerSecond() {
+        return calls.sum() * 1e9 / Math.max(1, System.nanoTime() - createdNanos);
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.snapshot().mean() / 1000;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.snapshot().valueAtPercentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.snapshot().valueAtPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latency.snapshot().valueAtPercentile(99.9) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.snapshot().max() / 1000.0;
+    }
+
+    /**
+     * Counters of one operation at a point in time, or over an interval after {@link #minus(Snapshot)}.
+     *
+     * @param calls       Calls, including failed ones
+     * @param errors      Failed calls
+     * @param rowsRead    Rows read
+     * @param rowsWritten Rows written
+     * @param latency     Latency distribution of the calls
+     */
+    public record Snapshot(long calls, long errors, long rowsRead, long rowsWritten, LatencyHistogram.Snapshot latency) {
+        /** Snapshot of an operation that was never called. */
+        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, LatencyHistogram.Snapshot.EMPTY);
+
+        /**
+         * @param earlier Snapshot of the same operation taken before this one
+         * @return Counters of the calls made in between
+         */
+        public Snapshot minus(Snapshot earlier) {
+            return new Snapshot(calls - earlier.calls, errors - earlier.errors, rowsRead - earlier.rowsRead,
+                    rowsWritten - earlier.rowsWritten, latency.minus(earlier.latency));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("calls=%d errors=%d rowsRead=%d rowsWritten=%d %s",
+                    calls, errors, rowsRead, rowsWritten, latency);
+        }
+    }
+}
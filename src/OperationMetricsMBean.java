@@ -0,0 +1,25 @@
+/**
+ * JMX view of one database operation's metrics, as shown in JConsole.
+ * Latencies are in microseconds and cover the lifetime of the manager.
+ */
+public interface OperationMetricsMBean {
+    long getCalls();
+
+    long getErrors();
+
+    long getRowsRead();
+
+    long getRowsWritten();
+
+    double getCallsPerSecond();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
@@ -0,0 +1,27 @@
+import java.time.LocalDate;
+
+/**
+ * Totals of one record over a week or month, read from the rollup tables.
+ *
+ * @param id       Record ID
+ * @param start    First day of the period: the Monday of a week or the 1st of a month
+ * @param days     Number of days in the period that have history
+ * @param steps    Total steps over those days
+ * @param calories Total calories over those days
+ */
+public record PeriodTotal(int id, LocalDate start, int days, long steps, double calories) {
+
+    /**
+     * @return Average steps per day with history, 0 if there are none
+     */
+    public double averageSteps() {
+        return days == 0 ? 0 : (double) steps / days;
+    }
+
+    /**
+     * @return Average calories per day with history, 0 if there are none
+     */
+    public double averageCalories() {
+        return days == 0 ? 0 : calories / days;
+    }
+}
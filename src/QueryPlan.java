@@ -0,0 +1,37 @@
+import java.util.List;
+
+/**
+ * How SQLite runs a query, as reported by EXPLAIN QUERY PLAN.
+ *
+ * @param sql   The SQL that was explained
+ * @param steps The plan's detail lines, e.g. "SEARCH FitnessRecords USING INDEX FitnessRecords_steps (stepsToday>?)"
+ */
+public record QueryPlan(String sql, List<String> steps) {
+
+    /**
+     * @return true if FitnessRecords is read through an index or the primary key
+     */
+    public boolean usesIndex() {
+        return steps.stream().anyMatch(step -> step.startsWith("SEARCH") || step.contains(" USING "));
+    }
+
+    /**
+     * @return true if any step reads the whole table without an index
+     */
+    public boolean fullScan() {
+        return steps.stream().anyMatch(step -> step.startsWith("SCAN") && !step.contains(" USING "));
+    }
+
+    /**
+     * @return true if the rows are sorted after reading rather than read in index order
+     */
+    public boolean sorts() {
+        return steps.stream().anyMatch(step -> step.contains("TEMP B-TREE"));
+    }
+
+    @Override
+    public String toString() {
+        return (fullScan() ? "full scan" : usesIndex() ? "index" : "no table access")
+                + (sorts() ? " + sort" : "") + ": " + String.join("; ", steps);
+    }
+}
@@ -0,0 +1,202 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded read-through cache of fitness records by ID, used by FitnessDatabaseManager.
+ * Entries are kept in a LinkedHashMap in access order, so the least recently used
+ * record is evicted once the cache is full.
+ * <p>
+ * FitnessRecord is mutable, so records are copied on the way in and out; callers can
+ * modify what they get without corrupting the cache.
+ * <p>
+ * A lookup that misses reads the database without holding the cache lock. Every write
+ * bumps a version counter, and a loaded value is only stored if no write happened since
+ * the lookup started, so a slow read cannot put back a record that was just changed.
+ * <p>
+ * Other processes, and other managers on the same file, write without going through this
+ * cache. So before a lookup the owner passes the database's {@link DataVersion} to
+ * {@link #validate(DataVersion)}; if it moved since the entries were cached, they are all
+ * dropped. The owner's own writes report the version right after them, which keeps the
+ * entries only if that write accounts for the whole move.
+ */
+public class RecordCache {
+    /** Default maximum number of cached records. */
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private final int capacity;
+    private final LinkedHashMap<Integer, FitnessRecord> entries;
+    private long version;      // Incremented by every write-side change
+    private DataVersion dataVersion; // Database version the entries are current at; null if unknown
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity Maximum number of records held; 0 disables caching
+     */
+    public RecordCache(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, FitnessRecord> eldest) {
+                if (size() > RecordCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up a record and counts the hit or miss.
+     *
+     * @param id Record ID
+     * @return A copy of the cached record, or null if it is not cached
+     */
+    public synchronized FitnessRecord get(int id) {
+        FitnessRecord record = entries.get(id);
+        if (record == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return record.copy();
+    }
+
+    /**
+     * @return The current version, to be passed to {@link #putIfUnchanged(FitnessRecord, long)}
+     *         after loading a missed record
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Stores a record loaded from the database, unless a write happened since {@code version}.
+     *
+     * @param record  Record read from the database
+     * @param version Value of {@link #version()} taken before the read
+     */
+    public synchronized void putIfUnchanged(FitnessRecord record, long version) {
+        if (this.version == version && capacity > 0) {
+            entries.put(record.getId(), record.copy());
+        }
+    }
+
+    /**
+     * Stores a record that was just written to the database (write-through).
+     *
+     * @param record The record as written
+     */
+    public synchronized void put(FitnessRecord record) {
+        version++;
+        if (capacity > 0) {
+            entries.put(record.getId(), record.copy());
+        }
+    }
+
+    /**
+     * Stores a record the owner just wrote, see {@link #advance(DataVersion, long)}.
+     *
+     * @param record  The record as written
+     * @param after   The database's version read right after the write; null if unknown
+     * @param changes Rows the write changed
+     */
+    public synchronized void put(FitnessRecord record, DataVersion after, long changes) {
+        advance(after, changes);
+        put(record);
+    }
+
+    /**
+     * Drops a record the owner just deleted, see {@link #advance(DataVersion, long)}.
+     *
+     * @param id      Record ID
+     * @param after   The database's version read right after the delete; null if unknown
+     * @param changes Rows the delete removed
+     */
+    public synchronized void invalidate(int id, DataVersion after, long changes) {
+        advance(after, changes);
+        invalidate(id);
+    }
+
+    /**
+     * Drops every record if the database changed since they were cached, through any
+     * connection or process. Called before every lookup.
+     *
+     * @param current The database's version, read before the lookup
+     */
+    public synchronized void validate(DataVersion current) {
+        if (!current.equals(dataVersion)) {
+            clear();
+            dataVersion = current;
+        }
+    }
+
+    /**
+     * Accounts for a write of the owner's: if the database moved by exactly the rows it
+     * changed, nobody else wrote in between and the entries stay; otherwise they are dropped.
+     */
+    private void advance(DataVersion after, long changes) {
+        if (after != null && dataVersion != null && after.databaseId().equals(dataVersion.databaseId())
+                && after.version() == dataVersion.version() + changes) {
+            dataVersion = after;
+        } else {
+            clear();
+            dataVersion = after;
+        }
+    }
+
+    /**
+     * Drops one record, e.g. after it was deleted or the write outcome is unknown.
+     *
+     * @param id Record ID
+     */
+    public synchronized void invalidate(int id) {
+        version++;
+        entries.remove(id);
+    }
+
+    /**
+     * Drops every record, e.g. after a bulk rewrite or import.
+     */
+    public synchronized void clear() {
+        version++;
+        entries.clear();
+    }
+
+    /**
+     * @return A consistent snapshot of the counters
+     */
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, entries.size(), capacity);
+    }
+
+    /**
+     * Cache counters at one point in time.
+     *
+     * @param hits      Lookups answered from the cache
+     * @param misses    Lookups that went to the database
+     * @param evictions Records dropped to stay within capacity
+     * @param size      Records currently cached
+     * @param capacity  Maximum number of records
+     */
+    public record Stats(long hits, long misses, long evictions, int size, int capacity) {
+
+        /**
+         * @return Fraction of lookups answered from the cache, or 0 if there were none
+         */
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d evictions=%d size=%d/%d hitRate=%.1f%%",
+                    hits, misses, evictions, size, capacity, hitRate() * 100);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JList;
+import java.awt.Component;
+
+/**
+ * Renders a FitnessRecord row on demand, only when the JList paints it.
+ * Formatting goes through one reused StringBuilder instead of String.format,
+ * so scrolling creates little more than the label text itself.
+ */
+public class RecordCellRenderer extends DefaultListCellRenderer {
+    private final StringBuilder buffer = new StringBuilder(128); // Reused for every painted row
+
+    @Override
+    public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                  boolean isSelected, boolean cellHasFocus) {
+        Object text = value;
+        if (value instanceof FitnessRecord record) {
+            buffer.setLength(0);
+            text = record.appendTo(buffer).toString();
+        }
+        return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+    }
+}
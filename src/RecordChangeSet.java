@@ -0,0 +1,117 @@
+import java.util.*;
+
+/**
+ * Tracks which fitness records were added, changed or deleted since the last save.
+ * Successive changes to the same ID collapse into a single pending operation:
+ * an upsert followed by a delete becomes a delete, and a delete followed by an
+ * add becomes an upsert.
+ * <p>
+ * Upserts carry the version of their record (see {@link FitnessRecord#getVersion()}) and
+ * deletes the version the record had when it was removed, so a save applies each change
+ * only if the row was not changed by someone else in the meantime. An upsert of version 0
+ * is a new record, saved only if no row has its ID yet; a delete of version 0 is unconditional.
+ * A change set created to overwrite instead saves every upsert whatever the row holds.
+ */
+public class RecordChangeSet {
+    private final Map<Integer, FitnessRecord> upserts = new LinkedHashMap<>(); // Added or changed records by ID
+    private final Map<Integer, Long> deletes = new LinkedHashMap<>();          // IDs removed locally -> expected version
+    private final boolean overwrite;                                           // Upserts are last-writer-wins
+
+    /**
+     * Creates an empty change set whose upserts are compare-and-set.
+     */
+    public RecordChangeSet() {
+        this(false);
+    }
+
+    /**
+     * Creates an empty change set.
+     *
+     * @param overwrite true to save upserts unconditionally, inserting or overwriting whatever
+     *                  row has the ID (last writer wins), e.g. for write-behind
+     */
+    public RecordChangeSet(boolean overwrite) {
+        this.overwrite = overwrite;
+    }
+
+    /**
+     * @return true if upserts are saved unconditionally
+     */
+    public boolean isOverwrite() {
+        return overwrite;
+    }
+
+    /**
+     * Marks a record as added or changed.
+     *
+     * @param record The record whose current values should be written on save
+     */
+    public void markUpserted(FitnessRecord record) {
+        deletes.remove(record.getId());
+        upserts.put(record.getId(), record);
+    }
+
+    /**
+     * Marks a record ID as deleted, whatever version the row has when saved.
+     *
+     * @param id ID of the removed record
+     */
+    public void markDeleted(int id) {
+        markDeleted(id, 0);
+    }
+
+    /**
+     * Marks a record ID as deleted, if the row still has the given version when saved.
+     *
+     * @param id              ID of the removed record
+     * @param expectedVersion Version the record had when it was removed; 0 for unconditional
+     */
+    public void markDeleted(int id, long expectedVersion) {
+        upserts.remove(id);
+        deletes.put(id, expectedVersion);
+    }
+
+    /**
+     * @return Records to insert or update, in the order they were first changed
+     */
+    public Collection<FitnessRecord> getUpserts() {
+        return Collections.unmodifiableCollection(upserts.values());
+    }
+
+    /**
+     * @return IDs to delete, in the order they were removed
+     */
+    public Collection<Integer> getDeletes() {
+        return Collections.unmodifiableCollection(deletes.keySet());
+    }
+
+    /**
+     * @param id A deleted ID
+     * @return The version the row must have for the delete to apply; 0 if unconditional or not deleted
+     */
+    public long getExpectedVersion(int id) {
+        return deletes.getOrDefault(id, 0L);
+    }
+
+    /**
+     * @return true if nothing is waiting to be saved
+     */
+    public boolean isEmpty() {
+        return upserts.isEmpty() && deletes.isEmpty();
+    }
+
+    /**
+     * @return Number of pending operations (upserts plus deletes)
+     */
+    public int size() {
+        return upserts.size() + deletes.size();
+    }
+
+    /**
+     * Forgets all pending changes, e.g. after a successful save or a reload.
+     */
+    public void clear() {
+        upserts.clear();
+        deletes.clear();
+    }
+}
@@ -0,0 +1,252 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Column-oriented, read-only copy of fitness records for analytics. Each numeric field is
+ * held in its own primitive array, so aggregates scan contiguous memory instead of chasing
+ * FitnessRecord objects, and large columns are split across the fork-join pool.
+ * <p>
+ * The scan loops are plain indexed loops over int[]/double[] with several independent
+ * accumulators, which the JIT can unroll and vectorize.
+ */
+public class RecordColumns {
+    private static final int PARALLEL_THRESHOLD = 1 << 15; // Rows per leaf task
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int size;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] ages = new int[INITIAL_CAPACITY];
+    private double[] weights = new double[INITIAL_CAPACITY];
+    private int[] steps = new int[INITIAL_CAPACITY];
+    private double[] calories = new double[INITIAL_CAPACITY];
+
+    /**
+     * Copies the numeric fields of the given records into columns.
+     *
+     * @param records Records to copy, e.g. the GUI's record store
+     * @return A new column store
+     */
+    public static RecordColumns from(Iterable<FitnessRecord> records) {
+        return from(records.iterator());
+    }
+
+    /**
+     * Copies the numeric fields of the given records into columns, consuming the iterator.
+     * Works with a RecordCursor, so a table can be loaded without building a record list.
+     *
+     * @param records Records to copy
+     * @return A new column store
+     */
+    public static RecordColumns from(Iterator<FitnessRecord> records) {
+        RecordColumns columns = new RecordColumns();
+        while (records.hasNext()) {
+            columns.add(records.next());
+        }
+        return columns;
+    }
+
+    /**
+     * Appends one record's numeric fields.
+     *
+     * @param record Record to copy
+     */
+    public void add(FitnessRecord record) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+            steps = Arrays.copyOf(steps, capacity);
+            calories = Arrays.copyOf(calories, capacity);
+        }
+        ids[size] = record.getId();
+        ages[size] = record.getAge();
+        weights[size] = record.getWeight();
+        steps[size] = record.getStepsToday();
+        calories[size] = record.getCaloriesBurned();
+        size++;
+    }
+
+    /**
+     * @return Number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Computes count, sum, mean, min, max and variance of one field in parallel.
+     *
+     * @param field The field to aggregate
+     * @return Statistics of the field; ColumnStats.EMPTY if there are no rows
+     */
+    public ColumnStats stats(RecordField field) {
+        if (size == 0) {
+            return ColumnStats.EMPTY;
+        }
+        return ForkJoinPool.commonPool().invoke(new StatsTask(field, 0, size));
+    }
+
+    /**
+     * Pearson correlation coefficient between two fields, e.g. steps vs calories.
+     *
+     * @param x First field
+     * @param y Second field
+     * @return Correlation in [-1, 1], or NaN if either field has no variance
+     */
+    public double correlation(RecordField x, RecordField y) {
+        if (size < 2) {
+            return Double.NaN;
+        }
+        double meanX = stats(x).mean();
+        double meanY = stats(y).mean();
+        double[] moments = ForkJoinPool.commonPool().invoke(new CoMomentTask(x, y, meanX, meanY, 0, size));
+        double denominator = Math.sqrt(moments[1] * moments[2]);
+        return denominator == 0 ? Double.NaN : moments[0] / denominator;
+    }
+
+    /**
+     * Reads one value as a double; used where a field-generic access is needed per row.
+     */
+    private double value(RecordField field, int row) {
+        return switch (field) {
+            case AGE -> ages[row];
+            case WEIGHT -> weights[row];
+            case STEPS_TODAY -> steps[row];
+            case CALORIES_BURNED -> calories[row];
+        };
+    }
+
+    private static ColumnStats scan(int[] values, int from, int to) {
+        long sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            int v = values[i];
+            sum += v;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        double mean = (double) sum / (to - from);
+        double m2 = 0;
+        for (int i = from; i < to; i++) {
+            double d = values[i] - mean;
+            m2 += d * d;
+        }
+        return new ColumnStats(to - from, sum, mean, m2, min, max);
+    }
+
+    private static ColumnStats scan(double[] values, int from, int to) {
+        // Four independent sums break the dependency chain of a single floating-point accumulator
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            s0 += values[i];
+            s1 += values[i + 1];
+            s2 += values[i + 2];
+            s3 += values[i + 3];
+            min = Math.min(min, Math.min(Math.min(values[i], values[i + 1]), Math.min(values[i + 2], values[i + 3])));
+            max = Math.max(max, Math.max(Math.max(values[i], values[i + 1]), Math.max(values[i + 2], values[i + 3])));
+        }
+        for (; i < to; i++) {
+            s0 += values[i];
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+        }
+        double sum = (s0 + s1) + (s2 + s3);
+        double mean = sum / (to - from);
+        double m0 = 0, m1 = 0;
+        for (i = from; i + 1 < to; i += 2) {
+            double d0 = values[i] - mean;
+            double d1 = values[i + 1] - mean;
+            m0 += d0 * d0;
+            m1 += d1 * d1;
+        }
+        if (i < to) {
+            double d = values[i] - mean;
+            m0 += d * d;
+        }
+        return new ColumnStats(to - from, sum, mean, m0 + m1, min, max);
+    }
+
+    /**
+     * Splits a row range in half until it is small enough to scan, then merges the partial stats.
+     */
+    private class StatsTask extends RecursiveTask<ColumnStats> {
+        private final RecordField field;
+        private final int from;
+        private final int to;
+
+        StatsTask(RecordField field, int from, int to) {
+            this.field = field;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ColumnStats compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return switch (field) {
+                    case AGE -> scan(ages, from, to);
+                    case WEIGHT -> scan(weights, from, to);
+                    case STEPS_TODAY -> scan(steps, from, to);
+                    case CALORIES_BURNED -> scan(calories, from, to);
+                };
+            }
+            int mid = (from + to) >>> 1;
+            StatsTask left = new StatsTask(field, from, mid);
+            left.fork();
+            ColumnStats right = new StatsTask(field, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * Sums the co-moment and the two second moments around known means: {sum dx*dy, sum dx^2, sum dy^2}.
+     */
+    private class CoMomentTask extends RecursiveTask<double[]> {
+        private final RecordField x;
+        private final RecordField y;
+        private final double meanX;
+        private final double meanY;
+        private final int from;
+        private final int to;
+
+        CoMomentTask(RecordField x, RecordField y, double meanX, double meanY, int from, int to) {
+            this.x = x;
+            this.y = y;
+            this.meanX = meanX;
+            this.meanY = meanY;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                double sxy = 0, sxx = 0, syy = 0;
+                for (int i = from; i < to; i++) {
+                    double dx = value(x, i) - meanX;
+                    double dy = value(y, i) - meanY;
+                    sxy += dx * dy;
+                    sxx += dx * dx;
+                    syy += dy * dy;
+                }
+                return new double[]{sxy, sxx, syy};
+            }
+            int mid = (from + to) >>> 1;
+            CoMomentTask left = new CoMomentTask(x, y, meanX, meanY, from, mid);
+            left.fork();
+            double[] right = new CoMomentTask(x, y, meanX, meanY, mid, to).compute();
+            double[] result = left.join();
+            for (int i = 0; i < result.length; i++) {
+                result[i] += right[i];
+            }
+            return result;
+        }
+    }
+}
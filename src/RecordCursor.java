@@ -0,0 +1,96 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Forward-only iterator over the rows of a query, reading one FitnessRecord at a time
+ * from an open ResultSet. The cursor holds a database connection until it is closed,
+ * so it must always be used in a try-with-resources block.
+ * Memory use is constant regardless of how many rows the query returns.
+ */
+public class RecordCursor implements Iterator<FitnessRecord>, AutoCloseable {
+    private final ConnectionPool.Lease lease; // Connection held for the lifetime of the cursor
+    private final ResultSet rs;               // Open result set positioned before the next row
+    private final DataVersion version;        // Version the rows belong to; null if not read
+    private boolean hasRow;                   // Whether rs is positioned on an unread row
+    private boolean closed;
+
+    /**
+     * Wraps an executed query. Takes ownership of both the result set and the lease.
+     *
+     * @param lease Connection lease to release when the cursor is closed
+     * @param rs    Result set of a SELECT over FitnessRecords columns
+     * @throws SQLException if the first row cannot be read
+     */
+    RecordCursor(ConnectionPool.Lease lease, ResultSet rs) throws SQLException {
+        this(lease, rs, null);
+    }
+
+    /**
+     * Wraps a query that was run in the same read transaction as a version lookup.
+     *
+     * @param version Data version of the rows the query returns
+     */
+    RecordCursor(ConnectionPool.Lease lease, ResultSet rs, DataVersion version) throws SQLException {
+        this.lease = lease;
+        this.rs = rs;
+        this.version = version;
+        this.hasRow = rs.next();
+    }
+
+    /**
+     * @return The data version of the rows, or null if the cursor was not opened with one
+     */
+    DataVersion version() {
+        return version;
+    }
+
+    /**
+     * @return true if another record can be read
+     */
+    @Override
+    public boolean hasNext() {
+        return hasRow && !closed;
+    }
+
+    /**
+     * Reads the current row and advances the cursor.
+     *
+     * @return The next FitnessRecord
+     * @throws NoSuchElementException if the cursor is exhausted or closed
+     * @throws IllegalStateException  if reading from the database fails
+     */
+    @Override
+    public FitnessRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            FitnessRecord record = FitnessDatabaseManager.readRecord(rs);
+            hasRow = rs.next();
+            return record;
+        } catch (SQLException e) {
+            close();
+            throw new IllegalStateException("Error reading record cursor: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Closes the result set and releases the connection. Safe to call more than once.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        hasRow = false;
+        try {
+            rs.close();
+        } catch (SQLException ignored) {
+            // Releasing the lease below is what matters
+        }
+        lease.close();
+    }
+}
@@ -0,0 +1,286 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams fitness records to a file, one record at a time, through a single reused
+ * ByteBuffer and a FileChannel (optionally gzip-compressed). Memory use is bounded by the
+ * buffer size no matter how many rows are exported.
+ * <p>
+ * Two formats are supported:
+ * <ul>
+ *   <li>CSV: a header line followed by {@code id,name,age,weight,steps,calories} lines,
+ *       readable by CsvRecordImporter.</li>
+ *   <li>BINARY: a magic number and version, then for each record an int body length followed by
+ *       id (int), age (int), weight (double), steps (int), calories (double), name length (short)
+ *       and the UTF-8 name bytes; a length of -1 and the long row count end the file.</li>
+ * </ul>
+ */
+public class RecordExporter {
+    /** Output file formats. */
+    public enum Format { CSV, BINARY }
+
+    /** "FTRB": first four bytes of a binary export. */
+    public static final int MAGIC = 0x46545242;
+    /** Current binary format version. */
+    public static final int VERSION = 1;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int FIXED_BODY_BYTES = 4 + 4 + 8 + 4 + 8 + 2; // id, age, weight, steps, calories, name length
+    private static final int END_MARKER = -1;
+    private static final String CSV_HEADER = "id,name,age,weight,steps,calories\n";
+
+    private final Format format;
+    private final boolean gzip;
+    private final ByteBuffer buffer;                              // Reused for every record
+    private final StringBuilder text = new StringBuilder(128);    // Reused for CSV number formatting
+
+    /**
+     * @param format Output format
+     * @param gzip   true to gzip-compress the output
+     */
+    public RecordExporter(Format format, boolean gzip) {
+        this.format = format;
+        this.gzip = gzip;
+        // A direct buffer lets FileChannel write without an extra copy; gzip needs heap arrays anyway
+        this.buffer = gzip ? ByteBuffer.allocate(BUFFER_BYTES) : ByteBuffer.allocateDirect(BUFFER_BYTES);
+    }
+
+    /**
+     * Writes every record from the iterator to the file, replacing any existing file.
+     *
+     * @param records Records to export, typically an open RecordCursor
+     * @param file    Destination path
+     * @return Rows and bytes written and elapsed time
+     * @throws IOException if the file cannot be written
+     */
+    public ExportReport export(Iterator<FitnessRecord> records, Path file) throws IOException {
+        long start = System.nanoTime();
+        long rows = 0;
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             WritableByteChannel out = gzip
+                     ? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(fileChannel), BUFFER_BYTES))
+                     : fileChannel) {
+            buffer.clear();
+            writeHeader(out);
+            while (records.hasNext()) {
+                FitnessRecord record = records.next();
+                if (format == Format.CSV) {
+                    writeCsv(out, record);
+                } else {
+                    writeBinary(out, record);
+                }
+                rows++;
+            }
+            if (format == Format.BINARY) {
+                ensureRoom(out, 12);
+                buffer.putInt(END_MARKER).putLong(rows);
+            }
+            flush(out);
+        }
+        return new ExportReport(rows, Files.size(file), System.nanoTime() - start);
+    }
+
+    private void writeHeader(WritableByteChannel out) throws IOException {
+        if (format == Format.CSV) {
+            putUtf8(out, CSV_HEADER);
+        } else {
+            buffer.putInt(MAGIC).putInt(VERSION);
+        }
+    }
+
+    private void writeBinary(WritableByteChannel out, FitnessRecord r) throws IOException {
+        byte[] name = r.getFullName().getBytes(StandardCharsets.UTF_8);
+        int nameLength = Math.min(name.length, Short.MAX_VALUE);
+        int body = FIXED_BODY_BYTES + nameLength;
+        ensureRoom(out, 4 + body);
+        buffer.putInt(body)
+                .putInt(r.getId())
+                .putInt(r.getAge())
+                .putDouble(r.getWeight())
+                .putInt(r.getStepsToday())
+                .putDouble(r.getCaloriesBurned())
+                .putShort((short) nameLength)
+                .put(name, 0, nameLength);
+    }
+
+    private void writeCsv(WritableByteChannel out, FitnessRecord r) throws IOException {
+        text.setLength(0);
+        text.append(r.getId()).append(',');
+        appendCsvField(text, r.getFullName());
+        text.append(',').append(r.getAge())
+                .append(',').append(r.getWeight())
+                .append(',').append(r.getStepsToday())
+                .append(',').append(r.getCaloriesBurned())
+                .append('\n');
+        putUtf8(out, text);
+    }
+
+    /**
+     * Appends a field, quoting it if it contains a comma, quote, line break or edge spaces.
+     */
+    private static void appendCsvField(StringBuilder sb, String value) {
+        boolean quote = !value.isEmpty() && (value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ');
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            sb.append(value);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Encodes characters as UTF-8 straight into the buffer, flushing whenever it fills up.
+     */
+    private void putUtf8(WritableByteChannel out, CharSequence chars) throws IOException {
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (buffer.remaining() < 4) {
+                flush(out);
+            }
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)))
+                        .put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars.length()
+                    && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, chars.charAt(++i));
+                buffer.put((byte) (0xF0 | (cp >> 18)))
+                        .put((byte) (0x80 | ((cp >> 12) & 0x3F)))
+                        .put((byte) (0x80 | ((cp >> 6) & 0x3F)))
+                        .put((byte) (0x80 | (cp & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?'); // unpaired surrogate, same as String.getBytes
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)))
+                        .put((byte) (0x80 | ((c >> 6) & 0x3F)))
+                        .put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private void ensureRoom(WritableByteChannel out, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(out);
+        }
+        if (buffer.remaining() < bytes) {
+            throw new IOException("Record of " + bytes + " bytes does not fit the export buffer");
+        }
+    }
+
+    private void flush(WritableByteChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads a binary export (plain or gzip-compressed) and passes each record to the consumer.
+     *
+     * @param file     Binary export file
+     * @param consumer Receives each record in file order
+     * @return Number of records read
+     * @throws IOException if the file is not a valid binary export or is truncated
+     */
+    public static long readBinary(Path file, Consumer<FitnessRecord> consumer) throws IOException {
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), BUFFER_BYTES)) {
+            raw.mark(2);
+            boolean compressed = raw.read() == 0x1F && raw.read() == 0x8B; // gzip magic
+            raw.reset();
+            InputStream in = compressed ? new BufferedInputStream(new GZIPInputStream(raw, BUFFER_BYTES), BUFFER_BYTES) : raw;
+            DataInputStream data = new DataInputStream(in);
+            if (data.readInt() != MAGIC) {
+                throw new IOException("Not a binary fitness export: " + file);
+            }
+            int version = data.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary export version " + version);
+            }
+            long rows = 0;
+            byte[] name = new byte[256];
+            try {
+                while (true) {
+                    int body = data.readInt();
+                    if (body == END_MARKER) {
+                        long expected = data.readLong();
+                        if (expected != rows) {
+                            throw new IOException("Row count mismatch: trailer says " + expected + ", read " + rows);
+                        }
+                        return rows;
+                    }
+                    int id = data.readInt();
+                    int age = data.readInt();
+                    double weight = data.readDouble();
+                    int steps = data.readInt();
+                    double calories = data.readDouble();
+                    int nameLength = data.readShort();
+                    if (nameLength < 0 || body != FIXED_BODY_BYTES + nameLength) {
+                        throw new IOException("Corrupt record at row " + rows);
+                    }
+                    if (name.length < nameLength) {
+                        name = new byte[nameLength];
+                    }
+                    data.readFully(name, 0, nameLength);
+                    consumer.accept(new FitnessRecord(id, new String(name, 0, nameLength, StandardCharsets.UTF_8),
+                            age, weight, steps, calories));
+                    rows++;
+                }
+            } catch (EOFException e) {
+                throw new IOException("Binary export is truncated after " + rows + " rows", e);
+            }
+        }
+    }
+
+    /**
+     * Result of an export.
+     *
+     * @param rows         Records written
+     * @param bytes        Size of the output file
+     * @param elapsedNanos Wall-clock time of the export
+     */
+    public record ExportReport(long rows, long bytes, long elapsedNanos) {
+        /**
+         * @return Output megabytes (10^6 bytes) per second
+         */
+        public double megabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytes * 1e3 / elapsedNanos;
+        }
+
+        /**
+         * @return One-line human-readable summary
+         */
+        public String summary() {
+            return String.format("Exported %d rows (%.1f MB) in %.2f s (%.1f MB/s).",
+                    rows, bytes / 1e6, elapsedNanos / 1e9, megabytesPerSecond());
+        }
+    }
+}
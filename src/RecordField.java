@@ -0,0 +1,37 @@
+/**
+ * Numeric columns of a FitnessRecord that can be aggregated, with their SQL column names.
+ */
+public enum RecordField {
+    AGE("age"),
+    WEIGHT("weight"),
+    STEPS_TODAY("stepsToday"),
+    CALORIES_BURNED("caloriesBurned");
+
+    private final String column; // Column name in the FitnessRecords table
+
+    RecordField(String column) {
+        this.column = column;
+    }
+
+    /**
+     * @return The column name in the FitnessRecords table
+     */
+    public String column() {
+        return column;
+    }
+
+    /**
+     * Reads this field from a record as a double.
+     *
+     * @param record The record to read
+     * @return The field value
+     */
+    public double valueOf(FitnessRecord record) {
+        return switch (this) {
+            case AGE -> record.getAge();
+            case WEIGHT -> record.getWeight();
+            case STEPS_TODAY -> record.getStepsToday();
+            case CALORIES_BURNED -> record.getCaloriesBurned();
+        };
+    }
+}
@@ -0,0 +1,43 @@
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Secondary indexes on the numeric FitnessRecords columns, used by RecordQuery range filters
+ * and orderings. Every column has an index whose first column it is, so a range or an
+ * ORDER BY on any field can be answered by an index range scan; age is paired with
+ * stepsToday because "age band, then steps" is the common analytic filter.
+ * <p>
+ * The indexes also make the MIN/MAX lookups of the FitnessStats triggers logarithmic
+ * instead of full scans. Bulk rewrites drop them and recreate them once at the end,
+ * which is faster than updating them row by row.
+ */
+final class RecordIndexes {
+    private static final String[][] INDEXES = {
+        {"FitnessRecords_age_steps", "age, stepsToday"},
+        {"FitnessRecords_weight", "weight"},
+        {"FitnessRecords_steps", "stepsToday"},
+        {"FitnessRecords_calories", "caloriesBurned"},
+    };
+
+    private RecordIndexes() {
+    }
+
+    /**
+     * Creates the indexes that do not exist yet.
+     */
+    static void create(Statement stmt) throws SQLException {
+        for (String[] index : INDEXES) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS " + index[0] + " ON FitnessRecords (" + index[1] + ")");
+        }
+    }
+
+    /**
+     * Drops the indexes, e.g. before rewriting the whole table.
+     * Must be followed by {@link #create(Statement)} in the same transaction.
+     */
+    static void drop(Statement stmt) throws SQLException {
+        for (String[] index : INDEXES) {
+            stmt.execute("DROP INDEX IF EXISTS " + index[0]);
+        }
+    }
+}
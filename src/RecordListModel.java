@@ -0,0 +1,87 @@
+import javax.swing.AbstractListModel;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ListModel that reads rows directly from the GUI's record collection instead of copying
+ * a formatted String per record. The JList only asks for the rows it paints, and
+ * single-record edits fire single-row events, so a refresh no longer touches every record.
+ */
+public class RecordListModel extends AbstractListModel<FitnessRecord> {
+    private List<FitnessRecord> records = Collections.emptyList(); // Backing collection, not copied
+
+    /**
+     * Replaces the backing collection and tells the list that every row changed.
+     *
+     * @param records Records to display; the model keeps a reference, not a copy
+     */
+    public void setRecords(List<FitnessRecord> records) {
+        int oldSize = this.records.size();
+        this.records = records == null ? Collections.emptyList() : records;
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+        if (!this.records.isEmpty()) {
+            fireIntervalAdded(this, 0, this.records.size() - 1);
+        }
+    }
+
+    /**
+     * Notifies the list that every row may have changed, without replacing the collection.
+     */
+    public void reload() {
+        if (!records.isEmpty()) {
+            fireContentsChanged(this, 0, records.size() - 1);
+        }
+    }
+
+    /**
+     * Notifies the list that a record was inserted into the backing collection.
+     *
+     * @param index Position of the new record
+     */
+    public void recordAdded(int index) {
+        fireIntervalAdded(this, index, index);
+    }
+
+    /**
+     * Notifies the list that a contiguous block of records was appended or inserted,
+     * e.g. one page of a background load.
+     *
+     * @param first Position of the first new record
+     * @param last  Position of the last new record (inclusive)
+     */
+    public void recordsAdded(int first, int last) {
+        if (last >= first) {
+            fireIntervalAdded(this, first, last);
+        }
+    }
+
+    /**
+     * Notifies the list that the record at the given position was modified.
+     *
+     * @param index Position of the changed record
+     */
+    public void recordChanged(int index) {
+        fireContentsChanged(this, index, index);
+    }
+
+    /**
+     * Notifies the list that a record was removed from the backing collection.
+     *
+     * @param index Position the record had before it was removed
+     */
+    public void recordRemoved(int index) {
+        fireIntervalRemoved(this, index, index);
+    }
+
+    @Override
+    public int getSize() {
+        return records.size();
+    }
+
+    @Override
+    public FitnessRecord getElementAt(int index) {
+        return records.get(index);
+    }
+}
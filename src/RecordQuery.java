@@ -0,0 +1,258 @@
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Range query over the numeric fields of FitnessRecords, run by
+ * {@link FitnessDatabaseManager#findRecords(RecordQuery)}.
+ * <p>
+ * Predicates are built fluently, e.g. people aged 30 to 40 with more than 10,000 steps,
+ * most active first:
+ * <pre>{@code
+ * new RecordQuery()
+ *         .between(RecordField.AGE, 30, 40)
+ *         .greaterThan(RecordField.STEPS_TODAY, 10_000)
+ *         .orderBy(RecordField.STEPS_TODAY, true)
+ *         .limit(20);
+ * }</pre>
+ * Several predicates on the same field are merged into the tightest range. The generated SQL
+ * compares bare columns with bound parameters ({@code age >= ? AND age <= ?}), which SQLite
+ * can answer with a range scan of the indexes in RecordIndexes, and queries with the same
+ * shape share one cached prepared statement. Whether an index is actually used is up to
+ * SQLite's planner: for a one-sided range in ID order it may prefer to walk the primary key
+ * and stop at the limit. {@link FitnessDatabaseManager#explain(RecordQuery)} shows its choice.
+ */
+public class RecordQuery {
+    private final Map<RecordField, Range> ranges = new EnumMap<>(RecordField.class);
+    private RecordField orderBy;      // null = ID order
+    private boolean descending;
+    private int limit = -1;           // -1 = no limit, as in SQLite
+
+    /**
+     * Keeps records whose field is at least {@code min}.
+     */
+    public RecordQuery atLeast(RecordField field, double min) {
+        range(field).raiseLower(min, true);
+        return this;
+    }
+
+    /**
+     * Keeps records whose field is greater than {@code min}.
+     */
+    public RecordQuery greaterThan(RecordField field, double min) {
+        range(field).raiseLower(min, false);
+        return this;
+    }
+
+    /**
+     * Keeps records whose field is at most {@code max}.
+     */
+    public RecordQuery atMost(RecordField field, double max) {
+        range(field).reduceUpper(max, true);
+        return this;
+    }
+
+    /**
+     * Keeps records whose field is less than {@code max}.
+     */
+    public RecordQuery lessThan(RecordField field, double max) {
+        range(field).reduceUpper(max, false);
+        return this;
+    }
+
+    /**
+     * Keeps records whose field lies in {@code [min, max]}.
+     */
+    public RecordQuery between(RecordField field, double min, double max) {
+        return atLeast(field, min).atMost(field, max);
+    }
+
+    /**
+     * Keeps records whose field equals {@code value}.
+     */
+    public RecordQuery equalTo(RecordField field, double value) {
+        return between(field, value, value);
+    }
+
+    /**
+     * Sorts by a field, with ties in ID order. Without this, results are in ID order.
+     *
+     * @param field      Sort key
+     * @param descending true for largest first
+     */
+    public RecordQuery orderBy(RecordField field, boolean descending) {
+        this.orderBy = field;
+        this.descending = descending;
+        return this;
+    }
+
+    /**
+     * @param limit Maximum number of records returned; negative for no limit
+     */
+    public RecordQuery limit(int limit) {
+        this.limit = Math.max(-1, limit);
+        return this;
+    }
+
+    /**
+     * Evaluates the predicates against one record in memory, with the same semantics as the SQL.
+     *
+     * @param record Record to test
+     * @return true if the record satisfies every predicate
+     */
+    public boolean matches(FitnessRecord record) {
+        for (Map.Entry<RecordField, Range> entry : ranges.entrySet()) {
+            if (!entry.getValue().contains(entry.getKey().valueOf(record))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Maximum number of records returned, or -1 for no limit
+     */
+    int limit() {
+        return limit;
+    }
+
+    /**
+     * The order of the results, matching the SQL's ORDER BY: the sort field if any, then ID,
+     * both reversed when descending. Used to merge results of several databases.
+     */
+    Comparator<FitnessRecord> comparator() {
+        Comparator<FitnessRecord> order = Comparator.comparingInt(FitnessRecord::getId);
+        if (orderBy != null) {
+            RecordField field = orderBy;
+            order = Comparator.<FitnessRecord>comparingDouble(field::valueOf).thenComparing(order);
+        }
+        return descending ? order.reversed() : order;
+    }
+
+    /**
+     * Builds the SQL. Predicates appear in RecordField order so equal shapes give equal SQL.
+     *
+     * @param selectColumns The SELECT ... FROM FitnessRecords prefix
+     */
+    String toSql(String selectColumns) {
+        StringBuilder sql = new StringBuilder(selectColumns);
+        String glue = " WHERE ";
+        for (Map.Entry<RecordField, Range> entry : ranges.entrySet()) {
+            String column = entry.getKey().column();
+            Range range = entry.getValue();
+            if (range.isPoint()) {
+                sql.append(glue).append(column).append(" = ?");
+                glue = " AND ";
+                continue;
+            }
+            if (range.hasLower) {
+                sql.append(glue).append(column).append(range.lowerInclusive ? " >= ?" : " > ?");
+                glue = " AND ";
+            }
+            if (range.hasUpper) {
+                sql.append(glue).append(column).append(range.upperInclusive ? " <= ?" : " < ?");
+                glue = " AND ";
+            }
+        }
+        String direction = descending ? " DESC" : "";
+        sql.append(" ORDER BY ");
+        if (orderBy != null) {
+            sql.append(orderBy.column()).append(direction).append(", ");
+        }
+        sql.append("id").append(direction).append(" LIMIT ?");
+        return sql.toString();
+    }
+
+    /**
+     * Binds the parameters of {@link #toSql(String)}, in the same order.
+     */
+    void bind(PreparedStatement pstmt) throws SQLException {
+        int parameter = 1;
+        for (Range range : ranges.values()) {
+            if (range.isPoint()) {
+                pstmt.setDouble(parameter++, range.lower);
+                continue;
+            }
+            if (range.hasLower) {
+                pstmt.setDouble(parameter++, range.lower);
+            }
+            if (range.hasUpper) {
+                pstmt.setDouble(parameter++, range.upper);
+            }
+        }
+        pstmt.setInt(parameter, limit);
+    }
+
+    private Range range(RecordField field) {
+        return ranges.computeIfAbsent(field, f -> new Range());
+    }
+
+    /**
+     * Describes the query, e.g. {@code age >= 30.0 AND age <= 40.0 ORDER BY stepsToday DESC LIMIT 20}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        ranges.forEach((field, range) -> {
+            if (!sb.isEmpty()) {
+                sb.append(" AND ");
+            }
+            range.appendTo(sb, field.column());
+        });
+        if (orderBy != null) {
+            sb.append(sb.isEmpty() ? "" : " ").append("ORDER BY ").append(orderBy.column()).append(descending ? " DESC" : "");
+        }
+        if (limit >= 0) {
+            sb.append(sb.isEmpty() ? "" : " ").append("LIMIT ").append(limit);
+        }
+        return sb.isEmpty() ? "all records" : sb.toString();
+    }
+
+    /**
+     * Lower and upper bound of one field; each bound is optional.
+     */
+    private static final class Range {
+        private boolean hasLower, lowerInclusive, hasUpper, upperInclusive;
+        private double lower, upper;
+
+        void raiseLower(double value, boolean inclusive) {
+            if (!hasLower || value > lower || (value == lower && !inclusive)) {
+                hasLower = true;
+                lower = value;
+                lowerInclusive = inclusive;
+            }
+        }
+
+        void reduceUpper(double value, boolean inclusive) {
+            if (!hasUpper || value < upper || (value == upper && !inclusive)) {
+                hasUpper = true;
+                upper = value;
+                upperInclusive = inclusive;
+            }
+        }
+
+        boolean isPoint() {
+            return hasLower && hasUpper && lowerInclusive && upperInclusive && lower == upper;
+        }
+
+        boolean contains(double value) {
+            return (!hasLower || (lowerInclusive ? value >= lower : value > lower))
+                    && (!hasUpper || (upperInclusive ? value <= upper : value < upper));
+        }
+
+        void appendTo(StringBuilder sb, String column) {
+            if (isPoint()) {
+                sb.append(column).append(" = ").append(lower);
+                return;
+            }
+            if (hasLower) {
+                sb.append(column).append(lowerInclusive ? " >= " : " > ").append(lower);
+            }
+            if (hasUpper) {
+                sb.append(hasLower ? " AND " : "").append(column).append(upperInclusive ? " <= " : " < ").append(upper);
+            }
+        }
+    }
+}
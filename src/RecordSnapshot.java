@@ -0,0 +1,356 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Read-only copy of all records in a memory-mapped file, so a large database can be shown
+ * at startup without reading every row through JDBC. Opening a snapshot maps the file and
+ * checks its header; records are decoded only when {@link #get(int)} asks for one, and the
+ * operating system pages the file in as those reads touch it.
+ * <p>
+ * The file is columnar, little-endian, with every column aligned to its element size:
+ * <pre>
+ *   header (64 bytes): magic int, format version int, record count int, reserved int,
+ *                      data version long, database ID (32 ASCII bytes), name heap size long
+ *   weight double[n], caloriesBurned double[n], row version long[n],
+ *   id int[n], age int[n], stepsToday int[n],
+ *   name offsets int[n + 1] into the heap,
+ *   name heap: the UTF-8 names back to back
+ * </pre>
+ * Records are in ID order, so {@link #indexOfId(int)} is a binary search of the id column.
+ * <p>
+ * The header records the {@link DataVersion} the records were read at. A snapshot whose
+ * version differs from the database's is stale; {@link #load(FitnessDatabaseManager, Path)}
+ * then rewrites it before opening it. Writing goes to a temporary file that is moved over
+ * the old one, so a crash never leaves a half-written snapshot behind.
+ */
+public final class RecordSnapshot extends AbstractList<FitnessRecord> implements RandomAccess {
+    /** "FTRS": first four bytes of a snapshot file. */
+    public static final int MAGIC = 0x46545253;
+    /** Current snapshot format version. */
+    public static final int VERSION = 2;
+
+    private static final int HEADER_BYTES = 64;
+    private static final int DATABASE_ID_BYTES = 32;
+    private static final int BYTES_PER_RECORD = 8 + 8 + 8 + 4 + 4 + 4 + 4; // columns plus one name offset
+    private static final int INTERRUPT_CHECK_ROWS = 4096;
+
+    private final Path file;
+    private final ByteBuffer buffer;    // The mapped file; only absolute gets, so it is never repositioned
+    private final int count;
+    private final DataVersion version;
+    // Byte offsets of the columns within the file
+    private final int weights, calories, versions, ids, ages, steps, nameOffsets, heap;
+
+    private RecordSnapshot(Path file, ByteBuffer buffer, int count, DataVersion version) {
+        this.file = file;
+        this.buffer = buffer;
+        this.count = count;
+        this.version = version;
+        this.weights = HEADER_BYTES;
+        this.calories = weights + 8 * count;
+        this.versions = calories + 8 * count;
+        this.ids = versions + 8 * count;
+        this.ages = ids + 4 * count;
+        this.steps = ages + 4 * count;
+        this.nameOffsets = steps + 4 * count;
+        this.heap = nameOffsets + 4 * (count + 1);
+    }
+
+    /**
+     * Opens the snapshot if it matches the database, otherwise writes a new one first.
+     *
+     * @param manager Database the snapshot belongs to
+     * @param file    Snapshot file, created if it does not exist
+     * @return An up-to-date snapshot
+     * @throws IOException  if the file cannot be written or mapped
+     * @throws SQLException if the database cannot be read
+     */
+    public static RecordSnapshot load(FitnessDatabaseManager manager, Path file) throws IOException, SQLException {
+        DataVersion current = manager.getDataVersion();
+        try {
+            RecordSnapshot snapshot = open(file);
+            if (snapshot.isFresh(current)) {
+                return snapshot;
+            }
+        } catch (IOException e) {
+            // Missing, corrupt or from another format version: replaced below
+        }
+        write(manager, file);
+        return open(file);
+    }
+
+    /**
+     * Rewrites the snapshot only if it is missing or stale, e.g. on shutdown so the next start is fast.
+     *
+     * @return true if the file was written, false if it was already up to date
+     */
+    public static boolean refresh(FitnessDatabaseManager manager, Path file) throws IOException, SQLException {
+        DataVersion current = manager.getDataVersion();
+        try {
+            if (open(file).isFresh(current)) {
+                return false;
+            }
+        } catch (IOException e) {
+            // Missing or unreadable: write a new one
+        }
+        write(manager, file);
+        return true;
+    }
+
+    /**
+     * Writes all records to a snapshot file, replacing any existing one.
+     * The records and their data version are read in one transaction, so they always agree.
+     *
+     * @param manager Database to copy
+     * @param file    Destination file
+     * @return Number of records written
+     * @throws IOException  if the file cannot be written, or the thread was interrupted
+     * @throws SQLException if the database cannot be read
+     */
+    public static int write(FitnessDatabaseManager manager, Path file) throws IOException, SQLException {
+        Columns columns = new Columns();
+        DataVersion version;
+        try (RecordCursor cursor = manager.openVersionedCursor()) {
+            version = cursor.version();
+            while (cursor.hasNext()) {
+                columns.add(cursor.next());
+                if (columns.count % INTERRUPT_CHECK_ROWS == 0 && Thread.currentThread().isInterrupted()) {
+                    throw new IOException("Snapshot interrupted");
+                }
+            }
+        }
+        long size = HEADER_BYTES + (long) BYTES_PER_RECORD * columns.count + 4 + columns.heapSize;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot of " + columns.count + " records exceeds 2 GB");
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            columns.writeTo(out, version);
+            out.force();
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return columns.count;
+    }
+
+    /**
+     * Maps a snapshot file and validates its header. Nothing else is read.
+     *
+     * @param file Snapshot file
+     * @return The snapshot, whatever its version
+     * @throws IOException if the file is missing, truncated, or not a snapshot of this format
+     */
+    public static RecordSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException(file + " is not a record snapshot");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " exceeds 2 GB");
+            }
+            // The mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a record snapshot");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported snapshot version " + buffer.getInt(4));
+            }
+            int count = buffer.getInt(8);
+            long dataVersion = buffer.getLong(16);
+            byte[] databaseId = new byte[DATABASE_ID_BYTES];
+            buffer.get(24, databaseId);
+            long heapSize = buffer.getLong(56);
+            if (count < 0 || size != HEADER_BYTES + (long) BYTES_PER_RECORD * count + 4 + heapSize) {
+                throw new IOException(file + " is truncated or corrupt");
+            }
+            DataVersion version = new DataVersion(new String(databaseId, StandardCharsets.US_ASCII).trim(), dataVersion);
+            return new RecordSnapshot(file, buffer, count, version);
+        }
+    }
+
+    /**
+     * @return The file this snapshot was mapped from
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * @return The database version the records were read at
+     */
+    public DataVersion version() {
+        return version;
+    }
+
+    /**
+     * @param current The database's current version, from {@link FitnessDatabaseManager#getDataVersion()}
+     * @return true if the snapshot holds exactly the database's current records
+     */
+    public boolean isFresh(DataVersion current) {
+        return version.equals(current);
+    }
+
+    /**
+     * @return Number of records in the snapshot
+     */
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Decodes one record. Each call returns a new, independent FitnessRecord.
+     *
+     * @param index Zero-based position, in ID order
+     */
+    @Override
+    public FitnessRecord get(int index) {
+        checkIndex(index);
+        FitnessRecord record = new FitnessRecord(
+                buffer.getInt(ids + 4 * index),
+                nameAt(index),
+                buffer.getInt(ages + 4 * index),
+                buffer.getDouble(weights + 8 * index),
+                buffer.getInt(steps + 4 * index),
+                buffer.getDouble(calories + 8 * index));
+        record.setVersion(buffer.getLong(versions + 8 * index));
+        return record;
+    }
+
+    /**
+     * @return The ID of the record at a position, without decoding the rest of it
+     */
+    public int idAt(int index) {
+        checkIndex(index);
+        return buffer.getInt(ids + 4 * index);
+    }
+
+    /**
+     * @return The name of the record at a position, without decoding the rest of it
+     */
+    public String nameAt(int index) {
+        checkIndex(index);
+        int start = buffer.getInt(nameOffsets + 4 * index);
+        int end = buffer.getInt(nameOffsets + 4 * (index + 1));
+        byte[] utf8 = new byte[end - start];
+        buffer.get(heap + start, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds a record by ID with a binary search of the id column.
+     *
+     * @param id Record ID
+     * @return Position of the record, or -1 if the snapshot has no such ID
+     */
+    public int indexOfId(int id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = buffer.getInt(ids + 4 * mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + count);
+        }
+    }
+
+    /**
+     * Growable column arrays filled from the cursor before the file size is known.
+     */
+    private static final class Columns {
+        private int count;
+        private double[] weights = new double[1024];
+        private double[] calories = new double[1024];
+        private long[] versions = new long[1024];
+        private int[] ids = new int[1024];
+        private int[] ages = new int[1024];
+        private int[] steps = new int[1024];
+        private int[] nameEnds = new int[1024];    // Heap offset just past each name
+        private byte[] heap = new byte[16 * 1024];
+        private int heapSize;
+
+        void add(FitnessRecord r) {
+            if (count == ids.length) {
+                int capacity = count * 2;
+                weights = Arrays.copyOf(weights, capacity);
+                calories = Arrays.copyOf(calories, capacity);
+                versions = Arrays.copyOf(versions, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                steps = Arrays.copyOf(steps, capacity);
+                nameEnds = Arrays.copyOf(nameEnds, capacity);
+            }
+            byte[] name = r.getFullName().getBytes(StandardCharsets.UTF_8);
+            if (heap.length - heapSize < name.length) {
+                heap = Arrays.copyOf(heap, Math.max(heap.length * 2, heapSize + name.length));
+            }
+            System.arraycopy(name, 0, heap, heapSize, name.length);
+            heapSize += name.length;
+            weights[count] = r.getWeight();
+            calories[count] = r.getCaloriesBurned();
+            versions[count] = r.getVersion();
+            ids[count] = r.getId();
+            ages[count] = r.getAge();
+            steps[count] = r.getStepsToday();
+            nameEnds[count] = heapSize;
+            count++;
+        }
+
+        void writeTo(ByteBuffer out, DataVersion version) {
+            byte[] databaseId = Arrays.copyOf(version.databaseId().getBytes(StandardCharsets.US_ASCII), DATABASE_ID_BYTES);
+            for (int i = version.databaseId().length(); i < DATABASE_ID_BYTES; i++) {
+                databaseId[i] = ' ';
+            }
+            out.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0)
+                    .putLong(version.version()).put(databaseId).putLong(heapSize);
+            out.asDoubleBuffer().put(weights, 0, count);
+            out.position(out.position() + 8 * count);
+            out.asDoubleBuffer().put(calories, 0, count);
+            out.position(out.position() + 8 * count);
+            out.asLongBuffer().put(versions, 0, count);
+            out.position(out.position() + 8 * count);
+            for (int[] column : new int[][]{ids, ages, steps}) {
+                out.asIntBuffer().put(column, 0, count);
+                out.position(out.position() + 4 * count);
+            }
+            out.putInt(0);
+            out.asIntBuffer().put(nameEnds, 0, count);
+            out.position(out.position() + 4 * count);
+            out.put(heap, 0, heapSize);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * In-memory record collection for the GUI that keeps display order while giving
+ * constant-time lookup by ID.
+ * <p>
+ * Records are appended to an array of slots; removing a record only clears its slot.
+ * An int-keyed open-addressing table maps each ID to its slot, and a Fenwick tree over
+ * the occupied slots converts between slots and list positions in O(log n), so the
+ * list view (used by the JList model) stays correct without shifting the array.
+ * Cleared slots are compacted away once they outnumber the live records.
+ * <p>
+ * A store can also start from a {@link RecordSnapshot}: its records take the first slots
+ * but are only decoded, and then kept, when first read, and their IDs are found by binary
+ * search in the snapshot rather than through the ID table. Opening a store over a million
+ * records therefore costs a few arrays instead of a million objects. Snapshot records that
+ * are removed are marked in a bit set; a compaction decodes the remaining ones and drops the snapshot.
+ */
+public class RecordStore extends AbstractList<FitnessRecord> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private FitnessRecord[] slots = new FitnessRecord[INITIAL_CAPACITY]; // null = removed or not decoded yet
+    private int[] tree = new int[INITIAL_CAPACITY + 1]; // Fenwick tree of occupied slots (1-based)
+    private int slotCount;                              // Slots handed out so far
+    private int live;                                   // Records currently stored
+    private final IdIndex index = new IdIndex();        // ID -> slot, for slots not in the snapshot
+    private RecordSnapshot base;                        // Records of the first baseCount slots; null if none
+    private int baseCount;
+    private BitSet baseRemoved = new BitSet();          // Snapshot slots whose records were removed
+
+    /**
+     * Creates an empty store.
+     */
+    public RecordStore() {
+    }
+
+    /**
+     * Creates a store holding the records of a snapshot, in its order, without decoding them.
+     *
+     * @param snapshot Records to start with; must stay mapped while the store is in use
+     */
+    public RecordStore(RecordSnapshot snapshot) {
+        base = snapshot;
+        baseCount = snapshot.size();
+        slotCount = baseCount;
+        live = baseCount;
+        slots = new FitnessRecord[Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, baseCount)) * 2)];
+        rebuildTree();
+    }
+
+    /**
+     * @return Number of records in the store
+     */
+    @Override
+    public int size() {
+        return live;
+    }
+
+    /**
+     * Returns the record at a display position.
+     *
+     * @param position Zero-based position in display order
+     * @return The record at that position
+     */
+    @Override
+    public FitnessRecord get(int position) {
+        if (position < 0 || position >= live) {
+            throw new IndexOutOfBoundsException("Position " + position + ", size " + live);
+        }
+        // Without removed slots, positions and slots coincide
+        return record(live == slotCount ? position : slotAt(position));
+    }
+
+    /**
+     * @param id Record ID
+     * @return The record with that ID, or null if there is none
+     */
+    public FitnessRecord getById(int id) {
+        int slot = slotOf(id);
+        return slot < 0 ? null : record(slot);
+    }
+
+    /**
+     * @param id Record ID
+     * @return true if a record with that ID is stored
+     */
+    public boolean containsId(int id) {
+        return slotOf(id) >= 0;
+    }
+
+    /**
+     * @param id Record ID
+     * @return Display position of the record, or -1 if it is not stored
+     */
+    public int indexOfId(int id) {
+        int slot = slotOf(id);
+        return slot < 0 ? -1 : positionOf(slot);
+    }
+
+    /**
+     * Appends a record to the end of the display order.
+     *
+     * @param record Record to add
+     * @return true
+     * @throws IllegalArgumentException if a record with the same ID is already stored
+     */
+    @Override
+    public boolean add(FitnessRecord record) {
+        if (slotOf(record.getId()) >= 0) {
+            throw new IllegalArgumentException("Duplicate record ID " + record.getId());
+        }
+        if (slotCount == slots.length) {
+            grow();
+        }
+        int slot = slotCount++;
+        slots[slot] = record;
+        treeAdd(slot, 1);
+        index.put(record.getId(), slot);
+        live++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes the record with the given ID.
+     *
+     * @param id Record ID
+     * @return The display position the record had, or -1 if it was not stored
+     */
+    public int removeById(int id) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return -1;
+        }
+        if (slot < baseCount) {
+            baseRemoved.set(slot);
+        } else {
+            index.remove(id);
+        }
+        int position = positionOf(slot);
+        slots[slot] = null;
+        treeAdd(slot, -1);
+        live--;
+        modCount++;
+        if (slotCount - live > INITIAL_CAPACITY && slotCount - live > live) {
+            compact();
+        }
+        return position;
+    }
+
+    /**
+     * Removes the record at a display position.
+     *
+     * @param position Zero-based position in display order
+     * @return The removed record
+     */
+    @Override
+    public FitnessRecord remove(int position) {
+        FitnessRecord record = get(position);
+        removeById(record.getId());
+        return record;
+    }
+
+    /**
+     * Removes all records.
+     */
+    @Override
+    public void clear() {
+        slots = new FitnessRecord[INITIAL_CAPACITY];
+        tree = new int[INITIAL_CAPACITY + 1];
+        slotCount = 0;
+        live = 0;
+        index.clear();
+        base = null;
+        baseCount = 0;
+        baseRemoved = new BitSet();
+        modCount++;
+    }
+
+    /**
+     * Iterates in display order by walking the slots directly, skipping removed ones.
+     */
+    @Override
+    public Iterator<FitnessRecord> iterator() {
+        return new Iterator<>() {
+            private int slot = nextOccupied(0);
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return slot < slotCount;
+            }
+
+            @Override
+            public FitnessRecord next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (slot >= slotCount) {
+                    throw new NoSuchElementException();
+                }
+                FitnessRecord record = record(slot);
+                slot = nextOccupied(slot + 1);
+                return record;
+            }
+        };
+    }
+
+    private int nextOccupied(int from) {
+        while (from < slotCount && !isOccupied(from)) {
+            from++;
+        }
+        return from;
+    }
+
+    private boolean isOccupied(int slot) {
+        return slots[slot] != null || (slot < baseCount && !baseRemoved.get(slot));
+    }
+
+    /**
+     * The record in an occupied slot, decoding it from the snapshot on first access.
+     */
+    private FitnessRecord record(int slot) {
+        FitnessRecord record = slots[slot];
+        if (record == null) {
+            record = base.get(slot);
+            slots[slot] = record;
+        }
+        return record;
+    }
+
+    /**
+     * Slot of the record with an ID, or -1: the ID table first, then the snapshot.
+     */
+    private int slotOf(int id) {
+        int slot = index.get(id);
+        if (slot < 0 && base != null) {
+            slot = base.indexOfId(id);
+            if (slot >= 0 && baseRemoved.get(slot)) {
+                slot = -1;
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Display position of an occupied slot: the number of occupied slots before it.
+     */
+    private int positionOf(int slot) {
+        if (live == slotCount) {
+            return slot;
+        }
+        int count = 0;
+        for (int i = slot; i > 0; i -= i & -i) { // prefix sum over slots [0, slot)
+            count += tree[i];
+        }
+        return count;
+    }
+
+    /**
+     * Slot holding the record at a display position (Fenwick tree descent).
+     */
+    private int slotAt(int position) {
+        int node = 0;
+        int remaining = position + 1;
+        for (int step = Integer.highestOneBit(slots.length); step > 0; step >>= 1) {
+            int next = node + step;
+            if (next <= slots.length && tree[next] < remaining) {
+                node = next;
+                remaining -= tree[next];
+            }
+        }
+        return node; // tree index node+1 is 1-based, so slot = node
+    }
+
+    private void treeAdd(int slot, int delta) {
+        for (int i = slot + 1; i <= slots.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private void grow() {
+        slots = Arrays.copyOf(slots, slots.length * 2);
+        rebuildTree();
+    }
+
+    /**
+     * Moves live records to the front of the slot array, preserving order.
+     * Decodes any snapshot records not read yet, since slots no longer match snapshot positions.
+     */
+    private void compact() {
+        int target = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isOccupied(slot)) {
+                FitnessRecord record = record(slot);
+                slots[target] = record;
+                index.put(record.getId(), target);
+                target++;
+            }
+        }
+        Arrays.fill(slots, target, slotCount, null);
+        slotCount = target;
+        base = null;
+        baseCount = 0;
+        baseRemoved = new BitSet();
+        rebuildTree();
+    }
+
+    /**
+     * Rebuilds the Fenwick tree from the slot array in O(n).
+     */
+    private void rebuildTree() {
+        tree = new int[slots.length + 1];
+        for (int i = 1; i <= slots.length; i++) {
+            if (i - 1 < slotCount && isOccupied(i - 1)) {
+                tree[i]++;
+            }
+            int parent = i + (i & -i);
+            if (parent <= slots.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
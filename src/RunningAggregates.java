@@ -0,0 +1,160 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Schema and SQL for the FitnessStats summary table, which holds running aggregates
+ * (count, sum, sum of squares, min, max) for every numeric FitnessRecords column.
+ * <p>
+ * Triggers on FitnessRecords update the summary in O(1) per written row, so the totals
+ * survive restarts and cover every write path. The only non-constant case is deleting
+ * (or lowering/raising) the row that currently holds the min or max, which looks up the
+ * new extreme with a MIN/MAX query. Bulk rewrites drop the triggers and rebuild the
+ * table with one scan instead.
+ */
+final class RunningAggregates {
+    static final String TABLE = "FitnessStats";
+
+    private RunningAggregates() {
+    }
+
+    /**
+     * Creates the summary table and triggers if needed, and fills the table from
+     * FitnessRecords when it is new or incomplete.
+     */
+    static void createSchema(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS FitnessStats (
+                    field TEXT PRIMARY KEY,
+                    cnt INTEGER NOT NULL,
+                    total REAL NOT NULL,
+                    totalSquares REAL NOT NULL,
+                    minValue REAL,
+                    maxValue REAL
+                )""");
+            createTriggers(stmt);
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM FitnessStats")) {
+                if (!rs.next() || rs.getInt(1) < RecordField.values().length) {
+                    rebuild(stmt);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the insert, update and delete triggers for every numeric column.
+     */
+    static void createTriggers(Statement stmt) throws SQLException {
+        for (RecordField field : RecordField.values()) {
+            String c = field.column();
+            stmt.execute("""
+                CREATE TRIGGER IF NOT EXISTS FitnessStats_%1$s_insert AFTER INSERT ON FitnessRecords
+                BEGIN
+                    UPDATE FitnessStats SET
+                        cnt = cnt + 1,
+                        total = total + NEW.%1$s,
+                        totalSquares = totalSquares + NEW.%1$s * NEW.%1$s,
+                        minValue = CASE WHEN minValue IS NULL OR NEW.%1$s < minValue THEN NEW.%1$s ELSE minValue END,
+                        maxValue = CASE WHEN maxValue IS NULL OR NEW.%1$s > maxValue THEN NEW.%1$s ELSE maxValue END
+                    WHERE field = '%1$s';
+                END""".formatted(c));
+            stmt.execute("""
+                CREATE TRIGGER IF NOT EXISTS FitnessStats_%1$s_delete AFTER DELETE ON FitnessRecords
+                BEGIN
+                    UPDATE FitnessStats SET
+                        cnt = cnt - 1,
+                        total = total - OLD.%1$s,
+                        totalSquares = totalSquares - OLD.%1$s * OLD.%1$s,
+                        minValue = CASE WHEN OLD.%1$s <= minValue THEN (SELECT MIN(%1$s) FROM FitnessRecords) ELSE minValue END,
+                        maxValue = CASE WHEN OLD.%1$s >= maxValue THEN (SELECT MAX(%1$s) FROM FitnessRecords) ELSE maxValue END
+                    WHERE field = '%1$s';
+                END""".formatted(c));
+            stmt.execute("""
+                CREATE TRIGGER IF NOT EXISTS FitnessStats_%1$s_update AFTER UPDATE OF %1$s ON FitnessRecords
+                WHEN OLD.%1$s IS NOT NEW.%1$s
+                BEGIN
+                    UPDATE FitnessStats SET
+                        total = total - OLD.%1$s + NEW.%1$s,
+                        totalSquares = totalSquares - OLD.%1$s * OLD.%1$s + NEW.%1$s * NEW.%1$s,
+                        minValue = CASE WHEN NEW.%1$s <= minValue THEN NEW.%1$s
+                                        WHEN OLD.%1$s <= minValue THEN (SELECT MIN(%1$s) FROM FitnessRecords)
+                                        ELSE minValue END,
+                        maxValue = CASE WHEN NEW.%1$s >= maxValue THEN NEW.%1$s
+                                        WHEN OLD.%1$s >= maxValue THEN (SELECT MAX(%1$s) FROM FitnessRecords)
+                                        ELSE maxValue END
+                    WHERE field = '%1$s';
+                END""".formatted(c));
+        }
+    }
+
+    /**
+     * Drops the maintenance triggers, e.g. before rewriting the whole table.
+     * Must be followed by {@link #rebuild(Statement)} and {@link #createTriggers(Statement)}
+     * in the same transaction.
+     */
+    static void dropTriggers(Statement stmt) throws SQLException {
+        for (RecordField field : RecordField.values()) {
+            for (String event : new String[]{"insert", "delete", "update"}) {
+                stmt.execute("DROP TRIGGER IF EXISTS FitnessStats_" + field.column() + "_" + event);
+            }
+        }
+    }
+
+    /**
+     * Recomputes every summary row with one scan of FitnessRecords per column.
+     */
+    static void rebuild(Statement stmt) throws SQLException {
+        for (RecordField field : RecordField.values()) {
+            stmt.execute("""
+                INSERT OR REPLACE INTO FitnessStats (field, cnt, total, totalSquares, minValue, maxValue)
+                SELECT '%1$s', COUNT(%1$s), TOTAL(%1$s), TOTAL(%1$s * %1$s), MIN(%1$s), MAX(%1$s)
+                FROM FitnessRecords""".formatted(field.column()));
+        }
+    }
+
+    /**
+     * Reads the summary rows: one primary-key lookup per column.
+     */
+    static Map<RecordField, ColumnStats> read(PreparedStatement select) throws SQLException {
+        Map<RecordField, ColumnStats> stats = new EnumMap<>(RecordField.class);
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                for (RecordField field : RecordField.values()) {
+                    if (field.column().equals(rs.getString(1))) {
+                        stats.put(field, toStats(rs));
+                    }
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Converts the current FitnessStats row (field, cnt, total, totalSquares, minValue, maxValue).
+     */
+    static ColumnStats toStats(ResultSet rs) throws SQLException {
+        long count = rs.getLong(2);
+        if (count == 0) {
+            return ColumnStats.EMPTY;
+        }
+        return ColumnStats.fromSums(count, rs.getDouble(3), rs.getDouble(4), rs.getDouble(5), rs.getDouble(6));
+    }
+
+    /**
+     * Computes the same statistics with a full scan, for verification.
+     */
+    static ColumnStats scan(Connection conn, RecordField field) throws SQLException {
+        String sql = """
+            SELECT '%1$s', COUNT(%1$s), TOTAL(%1$s), TOTAL(%1$s * %1$s), MIN(%1$s), MAX(%1$s)
+            FROM FitnessRecords""".formatted(field.column());
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return toStats(rs);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of an incremental save: how many rows were written, how long it took, and which
+ * changes were skipped because another writer changed or deleted their rows first.
+ *
+ * @param upserted     Number of rows inserted or updated
+ * @param deleted      Number of rows deleted
+ * @param elapsedNanos Wall-clock time spent in the save transaction
+ * @param committed    false if the transaction failed and was rolled back
+ * @param conflicts    Changes that were not applied, each with the row as it is now; empty if all applied
+ * @param versions     New row version of each upserted record, by ID
+ */
+public record SaveResult(int upserted, int deleted, long elapsedNanos, boolean committed,
+                         List<WriteResult> conflicts, Map<Integer, Long> versions) {
+
+    /**
+     * A result without conflicts or versions, e.g. of a failed save.
+     */
+    public SaveResult(int upserted, int deleted, long elapsedNanos, boolean committed) {
+        this(upserted, deleted, elapsedNanos, committed, List.of(), Map.of());
+    }
+
+    /**
+     * @return true if some changes were skipped because of concurrent writes
+     */
+    public boolean hasConflicts() {
+        return !conflicts.isEmpty();
+    }
+
+    /**
+     * @return Total number of rows written (upserted plus deleted)
+     */
+    public int rowsWritten() {
+        return upserted + deleted;
+    }
+
+    /**
+     * @return Elapsed time in milliseconds
+     */
+    public double elapsedMillis() {
+        return elapsedNanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,88 @@
+import java.util.Arrays;
+
+/**
+ * Decides which shard owns a record ID in a {@link ShardedFitnessDatabase}.
+ * A router must be a pure function of the ID, so every caller agrees on where a record lives.
+ */
+public interface ShardRouter {
+
+    /**
+     * @param id Record ID
+     * @return Index of the shard that owns the ID, in {@code [0, shardCount())}
+     */
+    int shardOf(int id);
+
+    /**
+     * @return Number of shards this router distributes IDs over
+     */
+    int shardCount();
+
+    /**
+     * Spreads IDs evenly over the shards by a hash of the ID, so consecutive IDs land on
+     * different shards and writes are balanced. A range of IDs touches every shard.
+     *
+     * @param shardCount Number of shards (at least 1)
+     */
+    static ShardRouter hash(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        return new ShardRouter() {
+            @Override
+            public int shardOf(int id) {
+                // Murmur3 finalizer, so IDs that differ only in high bits still spread out
+                int h = id;
+                h ^= h >>> 16;
+                h *= 0x85ebca6b;
+                h ^= h >>> 13;
+                h *= 0xc2b2ae35;
+                h ^= h >>> 16;
+                return Math.floorMod(h, shardCount);
+            }
+
+            @Override
+            public int shardCount() {
+                return shardCount;
+            }
+
+            @Override
+            public String toString() {
+                return "hash(" + shardCount + ")";
+            }
+        };
+    }
+
+    /**
+     * Gives each shard a contiguous ID range, so an ID range touches few shards and
+     * a new shard can take over the top of the ID space without moving other rows.
+     * With boundaries {@code b0 < b1 < ...}, shard 0 owns IDs below b0, shard 1 owns
+     * [b0, b1), and the last shard owns everything from the last boundary up.
+     *
+     * @param boundaries First ID of each shard after the first, strictly increasing
+     */
+    static ShardRouter ranges(int... boundaries) {
+        int[] bounds = boundaries.clone();
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("Range boundaries must be strictly increasing");
+            }
+        }
+        return new ShardRouter() {
+            @Override
+            public int shardOf(int id) {
+                int i = Arrays.binarySearch(bounds, id);
+                return i >= 0 ? i + 1 : -i - 1;
+            }
+
+            @Override
+            public int shardCount() {
+                return bounds.length + 1;
+            }
+
+            @Override
+            public String toString() {
+                return "ranges" + Arrays.toString(bounds);
+            }
+        };
+    }
+}
@@ -0,0 +1,488 @@
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Spreads fitness records over several SQLite files, one FitnessDatabaseManager each, so
+ * writes to different shards proceed in parallel instead of queueing on one database's
+ * single writer.
+ * <p>
+ * A {@link ShardRouter} assigns every record ID to one shard. Writes and lookups by ID go to
+ * that shard only. Queries over all records fan out to every shard at once, each on its own
+ * virtual thread, and the partial results are merged: records in the order the query asks
+ * for, limits applied after merging, and statistics combined from counts and sums with
+ * {@link ColumnStats#merge(ColumnStats)}, never by averaging averages.
+ * <p>
+ * Each shard commits its own transaction, so a {@link #saveChanges(RecordChangeSet)} that
+ * touches several shards can partly fail; the result reports it as not committed.
+ * {@link #rebalance(ShardRouter)} moves rows when the routing changes, e.g. to add a shard file.
+ * <p>
+ * Errors are logged and answered with an empty result, as in FitnessDatabaseManager.
+ */
+public class ShardedFitnessDatabase implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(ShardedFitnessDatabase.class.getName());
+    private static final int MOVE_BATCH = 1000;   // Records moved per transaction pair when rebalancing
+
+    private final List<FitnessDatabaseManager> shards = new ArrayList<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Held shared by every operation and exclusively by rebalance(), so no write races a move
+    private final ReadWriteLock routing = new ReentrantReadWriteLock();
+    private volatile ShardRouter router;
+
+    /**
+     * Opens one database per file. Files that the router does not route to yet are still
+     * read by fan-out queries, so rows can be moved onto them with {@link #rebalance(ShardRouter)}.
+     *
+     * @param dbFileNames SQLite files, one per shard, in shard order
+     * @param router      Assigns IDs to shards; may not route to more shards than there are files
+     */
+    public ShardedFitnessDatabase(List<String> dbFileNames, ShardRouter router) {
+        checkRouter(router, dbFileNames.size());
+        this.router = router;
+        for (String dbFileName : dbFileNames) {
+            shards.add(new FitnessDatabaseManager(dbFileName));
+        }
+    }
+
+    /**
+     * @return Number of shard files
+     */
+    public int shardCount() {
+        return shards.size();
+    }
+
+    /**
+     * @return The router currently in use
+     */
+    public ShardRouter getRouter() {
+        return router;
+    }
+
+    /**
+     * @param index Shard index
+     * @return The database of one shard, e.g. for its metrics
+     */
+    public FitnessDatabaseManager getShard(int index) {
+        return shards.get(index);
+    }
+
+    /**
+     * Inserts a record into the shard that owns its ID.
+     */
+    public void insertRecord(FitnessRecord record) {
+        routed(record.getId(), shard -> {
+            shard.insertRecord(record);
+            return null;
+        });
+    }
+
+    /**
+     * Updates a record in the shard that owns its ID; see {@link FitnessDatabaseManager#updateRecord(FitnessRecord)}.
+     */
+    public WriteResult updateRecord(FitnessRecord record) {
+        return routed(record.getId(), shard -> shard.updateRecord(record));
+    }
+
+    /**
+     * Deletes a record from the shard that owns its ID, whatever its version.
+     */
+    public WriteResult deleteRecord(int id) {
+        return routed(id, shard -> shard.deleteRecord(id));
+    }
+
+    /**
+     * Deletes a record from the shard that owns its ID if it still has the expected version.
+     */
+    public WriteResult deleteRecord(int id, long expectedVersion) {
+        return routed(id, shard -> shard.deleteRecord(id, expectedVersion));
+    }
+
+    /**
+     * @param id Record ID
+     * @return The record from its owning shard, or null if there is none
+     */
+    public FitnessRecord getRecordById(int id) {
+        return routed(id, shard -> shard.getRecordById(id));
+    }
+
+    /**
+     * Fetches many records, querying only the shards that own them, in parallel.
+     *
+     * @param ids IDs to look up
+     * @return The found records by ID, in the order requested
+     */
+    public Map<Integer, FitnessRecord> getRecordsByIds(Collection<Integer> ids) {
+        routing.readLock().lock();
+        try {
+            ShardRouter current = router;
+            List<List<Integer>> idsByShard = new ArrayList<>();
+            for (int i = 0; i < shards.size(); i++) {
+                idsByShard.add(new ArrayList<>());
+            }
+            for (int id : ids) {
+                idsByShard.get(current.shardOf(id)).add(id);
+            }
+            Map<Integer, FitnessRecord> found = new LinkedHashMap<>();
+            for (Map<Integer, FitnessRecord> part : fanOut((shard, i) -> idsByShard.get(i).isEmpty()
+                    ? Map.<Integer, FitnessRecord>of() : shard.getRecordsByIdsChecked(idsByShard.get(i)))) {
+                found.putAll(part);
+            }
+            Map<Integer, FitnessRecord> ordered = new LinkedHashMap<>();
+            for (int id : ids) {
+                FitnessRecord record = found.get(id);
+                if (record != null) {
+                    ordered.put(id, record);
+                }
+            }
+            return ordered;
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error fetching records: {0}", e.getMessage());
+            return Map.of();
+        } finally {
+            routing.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads every shard in parallel and merges the records into one list in ID order.
+     *
+     * @return All records in ID order; empty if any shard fails
+     */
+    public List<FitnessRecord> getAllRecords() {
+        return merged((shard, i) -> shard.getAllRecordsChecked(), Comparator.comparingInt(FitnessRecord::getId), -1,
+                "Error fetching records");
+    }
+
+    /**
+     * Searches every shard by name in parallel.
+     *
+     * @param query Part of a name; see {@link FitnessDatabaseManager#searchByName(String, int)}
+     * @param limit Maximum number of records returned in total
+     * @return Matching records in ID order
+     */
+    public List<FitnessRecord> searchByName(String query, int limit) {
+        return merged((shard, i) -> shard.searchByNameChecked(query, limit),
+                Comparator.comparingInt(FitnessRecord::getId), limit, "Error searching records");
+    }
+
+    /**
+     * Runs a range query on every shard in parallel. Each shard returns at most the query's
+     * limit in the query's order, which is enough to merge the overall first {@code limit}.
+     *
+     * @param query Predicates, order and limit
+     * @return Matching records in the query's order
+     */
+    public List<FitnessRecord> findRecords(RecordQuery query) {
+        return merged((shard, i) -> shard.findRecordsChecked(query), query.comparator(), query.limit(),
+                "Error finding records");
+    }
+
+    /**
+     * Combines the running statistics of every shard, read in parallel.
+     *
+     * @param field The column to read
+     * @return Count, sum, mean, min, max and variance over all shards; ColumnStats.EMPTY on error
+     */
+    public ColumnStats getColumnStats(RecordField field) {
+        routing.readLock().lock();
+        try {
+            ColumnStats total = ColumnStats.EMPTY;
+            for (ColumnStats part : fanOut((shard, i) -> shard.getColumnStatsChecked(field))) {
+                total = total.merge(part);
+            }
+            return total;
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error reading statistics: {0}", e.getMessage());
+            return ColumnStats.EMPTY;
+        } finally {
+            routing.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Average steps over all shards: total steps divided by total records
+     */
+    public double calculateAverageSteps() {
+        return getColumnStats(RecordField.STEPS_TODAY).mean();
+    }
+
+    /**
+     * @return Number of records over all shards
+     */
+    public int countRecords() {
+        return (int) getColumnStats(RecordField.AGE).count();
+    }
+
+    /**
+     * Splits the change set by owning shard and saves the parts in parallel, one transaction per shard.
+     *
+     * @param changes Pending changes; not cleared by this method
+     * @return Rows written over all shards; {@code committed} is false if any shard's save failed,
+     *         in which case the other shards' parts may still have been written
+     */
+    public SaveResult saveChanges(RecordChangeSet changes) {
+        long start = System.nanoTime();
+        routing.readLock().lock();
+        try {
+            ShardRouter current = router;
+            List<RecordChangeSet> parts = new ArrayList<>();
+            for (int i = 0; i < shards.size(); i++) {
+                parts.add(new RecordChangeSet(changes.isOverwrite()));
+            }
+            changes.getUpserts().forEach(r -> parts.get(current.shardOf(r.getId())).markUpserted(r));
+            changes.getDeletes().forEach(id ->
+                    parts.get(current.shardOf(id)).markDeleted(id, changes.getExpectedVersion(id)));
+            int upserted = 0;
+            int deleted = 0;
+            boolean committed = true;
+            List<WriteResult> conflicts = new ArrayList<>();
+            Map<Integer, Long> versions = new HashMap<>();
+            for (SaveResult part : fanOut((shard, i) -> parts.get(i).isEmpty()
+                    ? new SaveResult(0, 0, 0, true) : shard.saveChanges(parts.get(i)))) {
+                upserted += part.upserted();
+                deleted += part.deleted();
+                committed &= part.committed();
+                conflicts.addAll(part.conflicts());
+                versions.putAll(part.versions());
+            }
+            return new SaveResult(upserted, deleted, System.nanoTime() - start, committed, conflicts, versions);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error saving changes: {0}", e.getMessage());
+            return new SaveResult(0, 0, System.nanoTime() - start, false);
+        } finally {
+            routing.readLock().unlock();
+        }
+    }
+
+    /**
+     * Moves every record whose owner differs under a new router to its new shard, together
+     * with its daily history, then switches to the new router. Other operations wait until
+     * the move is done.
+     * <p>
+     * Records are copied in batches: a batch is written to the target shard and committed
+     * before it is deleted from the source, so an interrupted rebalance can leave a record
+     * on both shards but never on neither. Running the rebalance again completes it.
+     *
+     * @param newRouter Router to move to; may route to at most {@link #shardCount()} shards
+     * @return Records scanned and moved, and elapsed time
+     * @throws SQLException if a shard cannot be read or written; the old router stays in use
+     */
+    public RebalanceReport rebalance(ShardRouter newRouter) throws SQLException {
+        checkRouter(newRouter, shards.size());
+        long start = System.nanoTime();
+        long scanned = 0;
+        long moved = 0;
+        routing.writeLock().lock();
+        try {
+            for (int source = 0; source < shards.size(); source++) {
+                FitnessDatabaseManager from = shards.get(source);
+                List<FitnessRecord> batch = new ArrayList<>(MOVE_BATCH);
+                try (RecordCursor cursor = from.openCursor()) {
+                    while (cursor.hasNext()) {
+                        FitnessRecord record = cursor.next();
+                        scanned++;
+                        if (newRouter.shardOf(record.getId()) != source) {
+                            batch.add(record);
+                            if (batch.size() == MOVE_BATCH) {
+                                moved += move(from, batch, newRouter);
+                                batch.clear();
+                            }
+                        }
+                    }
+                }
+                moved += move(from, batch, newRouter);
+            }
+            router = newRouter;
+            LOG.log(Level.INFO, "Rebalanced to {0}: moved {1} of {2} records",
+                    new Object[]{newRouter, moved, scanned});
+            return new RebalanceReport(scanned, moved, System.nanoTime() - start);
+        } finally {
+            routing.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies a batch of records and their history to their new shards, then deletes them from the source.
+     * The copies keep their row versions, so clients holding a version can still write after the
+     * move, and each target's copy is one transaction that leaves nothing behind if it fails.
+     */
+    private int move(FitnessDatabaseManager from, List<FitnessRecord> batch, ShardRouter newRouter)
+            throws SQLException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Map<Integer, List<FitnessRecord>> copies = new LinkedHashMap<>();
+        Map<Integer, List<DailyEntry>> histories = new LinkedHashMap<>();
+        RecordChangeSet deletes = new RecordChangeSet();
+        for (FitnessRecord record : batch) {
+            int target = newRouter.shardOf(record.getId());
+            copies.computeIfAbsent(target, t -> new ArrayList<>()).add(record);
+            histories.computeIfAbsent(target, t -> new ArrayList<>())
+                    .addAll(from.getHistoryChecked(record.getId(), LocalDate.MIN, LocalDate.MAX));
+            deletes.markDeleted(record.getId());
+        }
+        for (Map.Entry<Integer, List<FitnessRecord>> copy : copies.entrySet()) {
+            FitnessDatabaseManager to = shards.get(copy.getKey());
+            to.copyRecordsChecked(copy.getValue());
+            to.saveHistoryChecked(histories.get(copy.getKey()));
+        }
+        from.saveChangesChecked(deletes);
+        return batch.size();
+    }
+
+    /**
+     * Stops the fan-out threads and closes every shard.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        shards.forEach(FitnessDatabaseManager::close);
+    }
+
+    private static void checkRouter(ShardRouter router, int files) {
+        if (router.shardCount() > files) {
+            throw new IllegalArgumentException("Router " + router + " needs " + router.shardCount()
+                    + " shards but only " + files + " files were given");
+        }
+    }
+
+    /**
+     * Runs a task on the shard that owns an ID.
+     */
+    private <T> T routed(int id, Function<FitnessDatabaseManager, T> task) {
+        routing.readLock().lock();
+        try {
+            return task.apply(shards.get(router.shardOf(id)));
+        } finally {
+            routing.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fans a query out to every shard and merges the sorted partial results, keeping at most {@code limit}.
+     */
+    private List<FitnessRecord> merged(ShardTask<List<FitnessRecord>> task, Comparator<FitnessRecord> order,
+                                       int limit, String errorMessage) {
+        routing.readLock().lock();
+        try {
+            return mergeSorted(fanOut(task), order, limit);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, errorMessage + ": {0}", e.getMessage());
+            return new ArrayList<>();
+        } finally {
+            routing.readLock().unlock();
+        }
+    }
+
+    /**
+     * K-way merge of lists that are each sorted by {@code order}.
+     *
+     * @param limit Maximum size of the result; negative for no limit
+     */
+    static List<FitnessRecord> mergeSorted(List<List<FitnessRecord>> parts, Comparator<FitnessRecord> order, int limit) {
+        int total = 0;
+        for (List<FitnessRecord> part : parts) {
+            total += part.size();
+        }
+        int size = limit < 0 ? total : Math.min(limit, total);
+        List<FitnessRecord> result = new ArrayList<>(size);
+        // Heap of {part, position} cursors ordered by the record each points at
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, parts.size()),
+                (a, b) -> order.compare(parts.get(a[0]).get(a[1]), parts.get(b[0]).get(b[1])));
+        for (int i = 0; i < parts.size(); i++) {
+            if (!parts.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+        while (result.size() < size) {
+            int[] head = heads.poll();
+            List<FitnessRecord> part = parts.get(head[0]);
+            result.add(part.get(head[1]));
+            if (++head[1] < part.size()) {
+                heads.add(head);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs a task on every shard in parallel and returns the results in shard order.
+     *
+     * @throws SQLException the first shard's failure, after all tasks have finished
+     */
+    private <T> List<T> fanOut(ShardTask<T> task) throws SQLException {
+        List<Future<T>> futures = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            FitnessDatabaseManager shard = shards.get(i);
+            int index = i;
+            futures.add(executor.submit(() -> task.call(shard, index)));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        SQLException failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof SQLException sql ? sql : new SQLException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted waiting for shards", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Work done on one shard during a fan-out.
+     */
+    @FunctionalInterface
+    private interface ShardTask<T> {
+        T call(FitnessDatabaseManager shard, int index) throws SQLException;
+    }
+
+    /**
+     * Outcome of a rebalance.
+     *
+     * @param scanned      Records read from all shards; a record moved to a shard not scanned yet is read twice
+     * @param moved        Records moved to another shard
+     * @param elapsedNanos Wall-clock time of the whole rebalance
+     */
+    public record RebalanceReport(long scanned, long moved, long elapsedNanos) {
+        /**
+         * @return One-line description, e.g. "Moved 250 of 1000 records in 84 ms."
+         */
+        public String summary() {
+            return String.format("Moved %d of %d records in %.0f ms.", moved, scanned, elapsedNanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+import java.sql.SQLException;
+
+/**
+ * A database operation that may throw SQLException.
+ *
+ * @param <T> Result type
+ */
+@FunctionalInterface
+interface SqlTask<T> {
+    T call() throws SQLException;
+}
@@ -0,0 +1,83 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of realistic-looking fitness records for benchmarks and load tests.
+ * Every record is a pure function of (seed, id), so the same seed produces the same data on
+ * every machine and run, and any ID range can be generated without generating the ones before it.
+ */
+public class SyntheticDataset {
+    /** Seed used by the benchmarks, so their results compare across releases. */
+    public static final long DEFAULT_SEED = 20240601L;
+
+    private static final String[] FIRST_NAMES = {
+        "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda",
+        "William", "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica",
+        "Thomas", "Sarah", "Carlos", "Ana", "Wei", "Mei", "Ahmed", "Fatima", "Olga", "Ivan"
+    };
+    private static final String[] LAST_NAMES = {
+        "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis",
+        "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas",
+        "Pereira", "Silva", "Chen", "Wang", "Khan", "Ali", "Novak", "Petrov", "O'Brien", "Muller"
+    };
+
+    private final long seed;
+
+    /**
+     * @param seed Seed; equal seeds give equal datasets
+     */
+    public SyntheticDataset(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Generates the record with the given ID.
+     * Steps follow a skewed distribution and calories roughly track steps and weight.
+     *
+     * @param id Record ID
+     * @return The record for (seed, id)
+     */
+    public FitnessRecord record(int id) {
+        SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + id);
+        String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        int age = 16 + random.nextInt(70);
+        double weight = Math.round((100 + random.nextDouble() * 180) * 10) / 10.0;
+        double activity = random.nextDouble();
+        int steps = (int) (activity * activity * 25_000) + random.nextInt(1500);
+        double calories = Math.round((steps * 0.04 * weight / 160 + random.nextDouble() * 50) * 100) / 100.0;
+        return new FitnessRecord(id, name, age, weight, steps, calories);
+    }
+
+    /**
+     * Generates records with IDs {@code 1..count}.
+     *
+     * @param count Number of records
+     * @return The records in ID order
+     */
+    public List<FitnessRecord> records(int count) {
+        List<FitnessRecord> records = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            records.add(record(id));
+        }
+        return records;
+    }
+
+    /**
+     * Writes records with IDs {@code 1..count} to a database through a bulk writer,
+     * replacing existing records with the same IDs.
+     *
+     * @param manager Target database
+     * @param count   Number of records
+     * @throws SQLException if the records cannot be written
+     */
+    public void populate(FitnessDatabaseManager manager, int count) throws SQLException {
+        try (BulkRecordWriter writer = manager.openBulkWriter(10_000)) {
+            for (int id = 1; id <= count; id++) {
+                writer.write(record(id));
+            }
+        }
+    }
+}
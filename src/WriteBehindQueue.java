@@ -0,0 +1,307 @@
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind mode for FitnessDatabaseManager. Callers queue upserts and deletes, and
+ * one writer thread commits them in batches, one transaction per batch. SQLite allows
+ * only one writer at a time, so funnelling all writes through one thread avoids
+ * SQLITE_BUSY contention and pays for one commit per batch instead of one per row.
+ * <p>
+ * Writes to the same ID that are still queued are merged (see RecordChangeSet), so only
+ * the last value of each ID is written. A batch is committed when it reaches
+ * {@code batchSize} IDs, when {@code flushIntervalMillis} has passed since its first
+ * write, or on {@link #flush()} and {@link #close()}.
+ * <p>
+ * Every write returns a future that completes when its batch commits, or fails with the
+ * SQLException (or unexpected RuntimeException) if the batch is rolled back; the writer
+ * thread carries on with the next batch either way. Wait on it for a durability acknowledgement,
+ * or ignore it for fire-and-forget. Queued writes are not visible to reads until they commit.
+ * While the open batch is full, writers block until the writer thread takes it, so the
+ * queue holds at most two batches: one committing and one filling.
+ */
+public class WriteBehindQueue implements AutoCloseable {
+    /** Default maximum time a write waits in the queue before its batch is committed. */
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 50;
+    /** Default number of IDs per committed batch. */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final Logger LOG = Logger.getLogger(WriteBehindQueue.class.getName());
+
+    private final FitnessDatabaseManager manager;
+    private final long flushIntervalNanos;
+    private final int batchSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchReady = lock.newCondition();   // Signalled to wake the writer
+    private final Condition batchTaken = lock.newCondition();   // Signalled when the writer swaps batches
+    private final Thread writer;
+
+    // Guarded by lock
+    private Batch open = new Batch();       // Batch currently accepting writes
+    private boolean committing;             // Writer is committing the previous batch
+    private CompletableFuture<Void> lastCommitted = CompletableFuture.completedFuture(null); // Batch being committed
+    private boolean flushRequested;
+    private boolean closed;
+    private long writesAccepted;
+    private long rowsCommitted;
+    private long batchesCommitted;
+    private long batchesFailed;
+
+    /**
+     * Writes collected for one transaction and the future completed when it commits.
+     */
+    private static final class Batch {
+        final RecordChangeSet changes = new RecordChangeSet(true);
+        final CompletableFuture<Void> committed = new CompletableFuture<>();
+        long firstWriteNanos;
+    }
+
+    /**
+     * Starts the writer thread. Obtained from {@link FitnessDatabaseManager#openWriteBehind(long, int)}.
+     *
+     * @param manager             Manager whose saveChanges commits each batch
+     * @param flushIntervalMillis Maximum time a write waits before its batch is committed
+     * @param batchSize           IDs per batch (at least 1)
+     */
+    WriteBehindQueue(FitnessDatabaseManager manager, long flushIntervalMillis, int batchSize) {
+        this.manager = manager;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, flushIntervalMillis));
+        this.batchSize = Math.max(1, batchSize);
+        this.writer = new Thread(this::runWriter, "fitness-write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues an insert or update of a record. A copy is queued, so the caller may keep modifying it.
+     * The write is unconditional: it overwrites the row whatever version it has when committed.
+     *
+     * @param record Record to write
+     * @return A future completed when the write is committed
+     * @throws IllegalStateException if the queue is closed
+     */
+    public CompletableFuture<Void> upsert(FitnessRecord record) {
+        FitnessRecord copy = record.copy();
+        copy.setVersion(0);
+        return enqueue(batch -> batch.changes.markUpserted(copy));
+    }
+
+    /**
+     * Queues a delete. Deleting an ID that does not exist is not an error.
+     *
+     * @param id ID of the record to delete
+     * @return A future completed when the delete is committed
+     * @throws IllegalStateException if the queue is closed
+     */
+    public CompletableFuture<Void> delete(int id) {
+        return enqueue(batch -> batch.changes.markDeleted(id));
+    }
+
+    /**
+     * Commits the queued writes without waiting for the flush interval.
+     *
+     * @return A future completed when everything queued so far is committed
+     */
+    public CompletableFuture<Void> flush() {
+        lock.lock();
+        try {
+            if (open.changes.isEmpty()) {
+                return committing ? lastCommitted : CompletableFuture.completedFuture(null);
+            }
+            flushRequested = true;
+            batchReady.signal();
+            return open.committed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Writes accepted so far, before merging
+     */
+    public long getWritesAccepted() {
+        lock.lock();
+        try {
+            return writesAccepted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Rows written by committed batches, after merging
+     */
+    public long getRowsCommitted() {
+        lock.lock();
+        try {
+            return rowsCommitted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of committed batches (transactions)
+     */
+    public long getBatchesCommitted() {
+        lock.lock();
+        try {
+            return batchesCommitted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of batches that were rolled back
+     */
+    public long getBatchesFailed() {
+        lock.lock();
+        try {
+            return batchesFailed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting writes, commits everything still queued and stops the writer thread.
+     * The manager stays open.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            batchReady.signal();
+            batchTaken.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Applies a change to the open batch, blocking while it is full until the writer takes it.
+     */
+    private CompletableFuture<Void> enqueue(Consumer<Batch> change) {
+        lock.lock();
+        try {
+            while (!closed && open.changes.size() >= batchSize) {
+                batchTaken.awaitUninterruptibly();
+            }
+            if (closed) {
+                throw new IllegalStateException("Write-behind queue is closed");
+            }
+            if (open.changes.isEmpty()) {
+                open.firstWriteNanos = System.nanoTime();
+                batchReady.signal();
+            }
+            change.accept(open);
+            writesAccepted++;
+            if (open.changes.size() >= batchSize) {
+                batchReady.signal();
+            }
+            return open.committed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writer loop: waits for a batch to become due, swaps in a new open batch and commits the old one.
+     */
+    private void runWriter() {
+        while (true) {
+            Batch batch;
+            lock.lock();
+            try {
+                while (!isDue()) {
+                    if (open.changes.isEmpty()) {
+                        if (closed) {
+                            return;
+                        }
+                        batchReady.awaitUninterruptibly();
+                    } else {
+                        long waitNanos = open.firstWriteNanos + flushIntervalNanos - System.nanoTime();
+                        try {
+                            batchReady.awaitNanos(waitNanos);
+                        } catch (InterruptedException e) {
+                            // Only the queue owns this thread; commit what is queued and carry on
+                        }
+                    }
+                }
+                batch = open;
+                open = new Batch();
+                flushRequested = false;
+                committing = true;
+                lastCommitted = batch.committed;
+                batchTaken.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            commit(batch);
+        }
+    }
+
+    /**
+     * @return true if the open batch should be committed now (caller holds the lock)
+     */
+    private boolean isDue() {
+        if (open.changes.isEmpty()) {
+            return false;
+        }
+        return closed || flushRequested || open.changes.size() >= batchSize
+                || System.nanoTime() - open.firstWriteNanos >= flushIntervalNanos;
+    }
+
+    /**
+     * Commits one batch in a single transaction and completes its future. Never throws, so
+     * a failed batch cannot stop the writer thread and strand the writes queued after it.
+     */
+    private void commit(Batch batch) {
+        SaveResult result = null;
+        Exception failure = null;
+        try {
+            result = manager.saveChangesChecked(batch.changes);
+        } catch (SQLException e) {
+            failure = e;
+            LOG.log(Level.WARNING, "Error committing queued writes: {0}", e.getMessage());
+        } catch (RuntimeException e) {
+            failure = e;
+            LOG.log(Level.WARNING, "Unexpected error committing queued writes", e);
+        }
+
+        lock.lock();
+        try {
+            committing = false;
+            if (result != null) {
+                batchesCommitted++;
+                rowsCommitted += batch.changes.size();
+            } else {
+                batchesFailed++;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (result != null) {
+            batch.committed.complete(null);
+        } else {
+            batch.committed.completeExceptionally(failure);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Outcome of a compare-and-set write of one record: an update or delete that only applies
+ * if the row still has the version the writer read.
+ *
+ * @param id      ID of the record written
+ * @param status  Whether the write applied, and if not, why
+ * @param version Row version after an applied write (0 after a delete); for a conflict,
+ *                the version now in the database
+ * @param current For a conflict, the record as it is now in the database; otherwise null
+ */
+public record WriteResult(int id, Status status, long version, FitnessRecord current) {
+    /** Outcomes of a conditional write. */
+    public enum Status {
+        /** The write was applied. */
+        APPLIED,
+        /** Another writer changed the row since it was read; nothing was written. */
+        CONFLICT,
+        /** No row has the ID, e.g. another writer deleted it; nothing was written. */
+        NOT_FOUND,
+        /** The write failed with a database error; nothing was written. */
+        FAILED
+    }
+
+    static WriteResult applied(int id, long version) {
+        return new WriteResult(id, Status.APPLIED, version, null);
+    }
+
+    static WriteResult conflict(FitnessRecord current) {
+        return new WriteResult(current.getId(), Status.CONFLICT, current.getVersion(), current);
+    }
+
+    static WriteResult notFound(int id) {
+        return new WriteResult(id, Status.NOT_FOUND, 0, null);
+    }
+
+    static WriteResult failed(int id) {
+        return new WriteResult(id, Status.FAILED, 0, null);
+    }
+
+    /**
+     * @return true if the write was applied
+     */
+    public boolean applied() {
+        return status == Status.APPLIED;
+    }
+
+    @Override
+    public String toString() {
+        return switch (status) {
+            case APPLIED -> "ID " + id + ": saved at version " + version;
+            case CONFLICT -> "ID " + id + ": changed by another editor (now version " + version + ": " + current + ")";
+            case NOT_FOUND -> "ID " + id + ": not in the database";
+            case FAILED -> "ID " + id + ": failed";
+        };
+    }
+}
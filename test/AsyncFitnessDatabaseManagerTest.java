@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the CompletableFuture facade: many concurrent callers sharing one manager,
+ * and errors surfacing as failed futures.
+ */
+class AsyncFitnessDatabaseManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FitnessDatabaseManager dbManager;
+    private AsyncFitnessDatabaseManager async;
+
+    @BeforeEach
+    void setUp() {
+        dbManager = new FitnessDatabaseManager(tempDir.resolve("async.db").toString(), true);
+        async = new AsyncFitnessDatabaseManager(dbManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        async.close();
+        dbManager.close();
+    }
+
+    /**
+     * Verifies that a thousand concurrent inserts and reads all complete against one manager.
+     */
+    @Test
+    void testConcurrentCallers() {
+        List<CompletableFuture<Void>> inserts = new ArrayList<>();
+        for (int id = 1; id <= 1000; id++) {
+            inserts.add(async.insertRecordAsync(new FitnessRecord(id, "User " + id, 30, 150.0, id, 10.0)));
+        }
+        CompletableFuture.allOf(inserts.toArray(new CompletableFuture<?>[0])).join();
+
+        assertEquals(1000, async.countRecordsAsync().join());
+        assertEquals(500.5, async.calculateAverageStepsAsync().join());
+        List<CompletableFuture<FitnessRecord>> reads = new ArrayList<>();
+        for (int id = 1; id <= 1000; id++) {
+            reads.add(async.getRecordByIdAsync(id));
+        }
+        for (int i = 0; i < reads.size(); i++) {
+            assertEquals(i + 1, reads.get(i).join().getStepsToday());
+        }
+    }
+
+    /**
+     * Verifies that failures complete the future exceptionally with the SQLException.
+     */
+    @Test
+    void testErrorsFailTheFuture() {
+        FitnessRecord record = new FitnessRecord(1, "Only", 30, 150.0, 100, 10.0);
+        async.insertRecordAsync(record).join();
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> async.insertRecordAsync(record).get(), "Duplicate ID must fail.");
+        assertInstanceOf(SQLException.class, error.getCause());
+
+        assertEquals(WriteResult.Status.NOT_FOUND,
+                async.updateRecordAsync(new FitnessRecord(99, "Missing", 1, 1.0, 1, 1.0)).join().status());
+        assertTrue(async.deleteRecordAsync(1).join().applied());
+        assertNull(async.getRecordByIdAsync(1).join());
+    }
+}
@@ -0,0 +1,144 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the calorie recompute job: values match the model afterwards, unchanged rows are
+ * not written, an interrupted job resumes from its checkpoint, and edited rows are left alone.
+ */
+class CalorieRecomputeJobTest {
+    private static final int RECORDS = 5_000;
+
+    @TempDir
+    Path tempDir;
+
+    private FitnessDatabaseManager dbManager;
+
+    /**
+     * Opens a fresh database with synthetic records, every tenth of which already has the model's value.
+     */
+    @BeforeEach
+    void setUp() throws SQLException {
+        dbManager = new FitnessDatabaseManager(tempDir.resolve("recompute.db").toString(), true);
+        List<FitnessRecord> records = new SyntheticDataset(SyntheticDataset.DEFAULT_SEED).records(RECORDS);
+        for (int i = 0; i < records.size(); i += 10) {
+            FitnessRecord r = records.get(i);
+            r.setCaloriesBurned(Math.round(CalorieModel.WALKING.caloriesBurned(r) * 100) / 100.0);
+        }
+        dbManager.saveAllRecordsChecked(records);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dbManager.close();
+    }
+
+    /**
+     * Verifies that every row ends up with the model's value and only changed rows get a new version.
+     */
+    @Test
+    void testRecomputesOnlyChangedRows() throws Exception {
+        List<CalorieRecomputeJob.Report> progress = new ArrayList<>();
+        CalorieRecomputeJob.Report report = new CalorieRecomputeJob(dbManager, CalorieModel.WALKING)
+                .chunkSize(700)
+                .onProgress(progress::add)
+                .run();
+
+        assertTrue(report.complete());
+        assertFalse(report.resumed());
+        assertEquals(RECORDS, report.scanned());
+        assertEquals(RECORDS - RECORDS / 10, report.changed());
+        assertEquals(report.changed(), report.written());
+        assertEquals(8, report.chunks());
+        assertEquals(8, progress.size());
+        assertEquals(700, progress.get(0).scanned());
+
+        for (FitnessRecord r : dbManager.getAllRecords()) {
+            assertEquals(Math.round(CalorieModel.WALKING.caloriesBurned(r) * 100) / 100.0, r.getCaloriesBurned(), 0.0);
+            assertEquals(r.getId() % 10 == 1 ? 1 : 2, r.getVersion(), "Version of record " + r.getId());
+        }
+
+        CalorieRecomputeJob.Report again = new CalorieRecomputeJob(dbManager, CalorieModel.WALKING).run();
+        assertEquals(RECORDS, again.scanned());
+        assertEquals(0, again.changed(), "A second run finds nothing to change.");
+    }
+
+    /**
+     * Verifies that an interrupted job keeps its checkpoint and a second run finishes the rest.
+     */
+    @Test
+    void testResumesFromCheckpoint() throws Exception {
+        Path checkpoint = tempDir.resolve("recompute.checkpoint");
+        CalorieRecomputeJob.Report first = new CalorieRecomputeJob(dbManager, CalorieModel.WALKING)
+                .chunkSize(1000)
+                .checkpoint(checkpoint)
+                .onProgress(p -> {
+                    if (p.chunks() == 2) {
+                        Thread.currentThread().interrupt();
+                    }
+                })
+                .run();
+        assertTrue(Thread.interrupted());
+        assertFalse(first.complete());
+        assertEquals(2000, first.scanned());
+        assertTrue(Files.exists(checkpoint));
+
+        CalorieRecomputeJob.Report second = new CalorieRecomputeJob(dbManager, CalorieModel.WALKING)
+                .chunkSize(1000)
+                .checkpoint(checkpoint)
+                .run();
+        assertTrue(second.complete());
+        assertEquals(2000, second.resumedAfterId());
+        assertEquals(RECORDS - 2000, second.scanned());
+        assertEquals(RECORDS - RECORDS / 10, first.changed() + second.changed());
+        assertFalse(Files.exists(checkpoint), "A finished job removes its checkpoint.");
+    }
+
+    /**
+     * Verifies that a checkpoint written with another model is ignored.
+     */
+    @Test
+    void testIgnoresCheckpointOfOtherModel() throws Exception {
+        Path checkpoint = tempDir.resolve("recompute.checkpoint");
+        Files.writeString(checkpoint, "model=walking(0.05)\nlastId=4000\n");
+        CalorieRecomputeJob.Report report = new CalorieRecomputeJob(dbManager, CalorieModel.WALKING)
+                .checkpoint(checkpoint)
+                .run();
+        assertFalse(report.resumed());
+        assertEquals(RECORDS, report.scanned());
+    }
+
+    /**
+     * Verifies that a recomputed value is not written over a row edited since it was read.
+     */
+    @Test
+    void testSkipsRowsEditedMeanwhile() throws SQLException {
+        FitnessRecord read = dbManager.getRecordById(1);
+        FitnessRecord edited = read.copy();
+        edited.setStepsToday(1);
+        assertTrue(dbManager.updateRecord(edited).applied());
+
+        int written = dbManager.updateCaloriesChecked(new int[]{1, 2}, new long[]{read.getVersion(), 1},
+                new double[]{1.0, 2.0}, 2);
+        assertEquals(1, written);
+        assertEquals(edited.getCaloriesBurned(), dbManager.getRecordById(1).getCaloriesBurned());
+        assertEquals(2.0, dbManager.getRecordById(2).getCaloriesBurned(), "The cache sees the new value.");
+        assertEquals(2, dbManager.getRecordById(2).getVersion());
+    }
+
+    /**
+     * Verifies that invalid model output stops the job before anything of the chunk is written.
+     */
+    @Test
+    void testRejectsInvalidModelOutput() {
+        CalorieModel broken = CalorieModel.of("broken", (age, weight, steps) -> steps == 0 ? Double.NaN : steps);
+        dbManager.insertRecord(new FitnessRecord(RECORDS + 1, "Zero", 30, 150, 0, 0));
+        CalorieRecomputeJob job = new CalorieRecomputeJob(dbManager, broken).chunkSize(RECORDS * 2);
+        assertThrows(IllegalStateException.class, job::run);
+        assertNotEquals(dbManager.getRecordById(1).getStepsToday(), dbManager.getRecordById(1).getCaloriesBurned());
+    }
+}
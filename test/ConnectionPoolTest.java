@@ -0,0 +1,62 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the connection pool's capacity handling: callers waiting for a connection
+ * are woken when a slot frees up, however it frees up.
+ */
+class ConnectionPoolTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ConnectionPool pool;
+    private final ExecutorService waiter = Executors.newSingleThreadExecutor();
+
+    @BeforeEach
+    void setUp() {
+        pool = new ConnectionPool("jdbc:sqlite:" + tempDir.resolve("pool.db"), 1, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        waiter.shutdownNow();
+        pool.close();
+    }
+
+    /**
+     * Verifies that discarding a broken connection lets a waiting caller open a new one.
+     */
+    @Test
+    void testDiscardedConnectionWakesWaiter() throws Exception {
+        ConnectionPool.Lease lease = pool.acquire();
+        Future<ConnectionPool.Lease> waiting = waiter.submit(pool::acquire);
+        assertThrows(TimeoutException.class, () -> waiting.get(100, TimeUnit.MILLISECONDS));
+
+        lease.connection().close(); // Broken: the pool cannot reset it and discards it
+        lease.close();
+        try (ConnectionPool.Lease next = waiting.get(5, TimeUnit.SECONDS)) {
+            assertFalse(next.connection().isClosed());
+        }
+    }
+
+    /**
+     * Verifies that closing the pool fails waiting callers instead of leaving them blocked.
+     */
+    @Test
+    void testCloseWakesWaiters() throws Exception {
+        ConnectionPool.Lease lease = pool.acquire();
+        Future<ConnectionPool.Lease> waiting = waiter.submit(pool::acquire);
+        assertThrows(TimeoutException.class, () -> waiting.get(100, TimeUnit.MILLISECONDS));
+
+        pool.close();
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> waiting.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(SQLException.class, failure.getCause());
+        lease.close();
+    }
+}
@@ -0,0 +1,110 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.*;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the bulk CSV importer using the same id,name,age,weight,steps,calories
+ * format as MainTest.testLoadFromFile.
+ */
+class CsvRecordImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FitnessDatabaseManager dbManager;
+
+    @BeforeEach
+    void setUp() {
+        dbManager = new FitnessDatabaseManager(tempDir.resolve("import.db").toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        dbManager.close();
+    }
+
+    /**
+     * Verifies that valid lines are imported across several chunks and commit groups,
+     * and that invalid lines are rejected with their line numbers.
+     */
+    @Test
+    void testImportWithRejects() throws Exception {
+        Path file = tempDir.resolve("vendor.csv");
+        try (PrintWriter writer = new PrintWriter(file.toFile())) {
+            writer.print("id,name,age,weight,steps,calories\r\n");           // line 1: header, skipped
+            writer.println("3,Sample User,35,170.0,5000,350.0");              // line 2
+            writer.println("4,\"Smith, \"\"JJ\"\" John\",40,180.5,7000,420.25"); // line 3: quoted name
+            writer.println("x5,Bad Id,20,150,1000,10");                       // line 4: rejected
+            writer.println("6,Too Old,200,150,1000,10");                      // line 5: rejected
+            writer.println();                                                 // line 6: blank, skipped
+            writer.println("7,Missing Field,30,150,1000");                    // line 7: rejected
+            for (int id = 100; id < 600; id++) {                              // lines 8..507
+                writer.println(id + ",Bulk User " + id + "," + (20 + id % 50) + ",1.5e2," + id * 10 + ",12.5");
+            }
+            writer.print("9999,No Newline,50,160,1,0.125");                   // line 508, no trailing newline
+        }
+
+        ImportReport report = new CsvRecordImporter(dbManager, 64, 1024, 3).importFile(file);
+
+        assertEquals(503, report.rowsImported(), "Valid rows imported.");
+        assertEquals(508, report.linesRead());
+        assertEquals(3, report.rejectedCount());
+        assertEquals(List.of(4L, 5L, 7L), report.rejected().stream().map(ImportReport.RejectedLine::lineNumber).toList());
+        assertTrue(report.commits() >= 8, "Rows should be committed in groups of 64.");
+
+        assertEquals(503, dbManager.countRecords());
+        List<FitnessRecord> first = dbManager.getRecordsAfter(Integer.MIN_VALUE, 2);
+        assertEquals("Smith, \"JJ\" John", first.get(1).getFullName());
+        assertEquals(420.25, first.get(1).getCaloriesBurned());
+        FitnessRecord last = dbManager.getRecordsAfter(9998, 1).get(0);
+        assertEquals(0.125, last.getCaloriesBurned());
+        assertEquals(150.0, dbManager.getRecordsAfter(99, 1).get(0).getWeight(), "Exponent notation falls back correctly.");
+    }
+
+    /**
+     * Verifies that re-importing the same IDs replaces the stored records instead of failing.
+     */
+    @Test
+    void testReimportReplacesRecords() throws Exception {
+        Path file = tempDir.resolve("again.csv");
+        try (PrintWriter writer = new PrintWriter(file.toFile())) {
+            writer.println("1,First,30,150,1000,10");
+        }
+        new CsvRecordImporter(dbManager).importFile(file);
+        try (PrintWriter writer = new PrintWriter(file.toFile())) {
+            writer.println("1,First Updated,31,151,2000,20");
+        }
+        ImportReport report = new CsvRecordImporter(dbManager).importFile(file);
+        assertEquals(1, report.rowsImported());
+        assertEquals(1, dbManager.countRecords());
+        assertEquals("First Updated", dbManager.getAllRecords().get(0).getFullName());
+    }
+
+    /**
+     * Verifies that a group failing part-way is rolled back as a whole, that closing the
+     * writer commits nothing more, and that earlier groups stay committed.
+     */
+    @Test
+    void testFailedGroupIsRolledBack() throws Exception {
+        BulkRecordWriter writer = dbManager.openBulkWriter(5);
+        try (writer) {
+            for (int id = 1; id <= 5; id++) {
+                writer.write(new FitnessRecord(id, "Committed " + id, 30, 150, id, 10));
+            }
+            for (int id = 6; id <= 8; id++) {
+                writer.write(new FitnessRecord(id, "Pending " + id, 30, 150, id, 10));
+            }
+            writer.write(new FitnessRecord(9, null, 30, 150, 9, 10)); // NOT NULL violation
+            assertThrows(SQLException.class, () -> writer.write(new FitnessRecord(10, "Last", 30, 150, 10, 10)));
+            assertThrows(SQLException.class, () -> writer.write(new FitnessRecord(11, "After", 30, 150, 11, 10)),
+                    "A failed writer refuses further rows.");
+        }
+        assertEquals(5, writer.getRowsWritten());
+        assertEquals(5, dbManager.countRecords());
+        assertNull(dbManager.getRecordById(6), "Rows of the failed group are rolled back.");
+    }
+}
@@ -0,0 +1,143 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the daily history: trigger-recorded days, rollups that match sums of the raw
+ * days through inserts, replacements and deletes, and moving averages.
+ */
+class DailyHistoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FitnessDatabaseManager dbManager;
+
+    /**
+     * Opens a fresh database with two records before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        dbManager = new FitnessDatabaseManager(tempDir.resolve("history.db").toString(), true);
+        dbManager.insertRecord(new FitnessRecord(1, "Test User", 25, 160.0, 8000, 500.0));
+        dbManager.insertRecord(new FitnessRecord(2, "User Two", 30, 180.0, 6000, 450.0));
+    }
+
+    /**
+     * Releases the pooled connections after each test.
+     */
+    @AfterEach
+    void tearDown() {
+        dbManager.close();
+    }
+
+    /**
+     * Verifies that writes record today's values, a second change on the same day replaces them,
+     * and deleting a record deletes its history.
+     */
+    @Test
+    void testWritesRecordToday() {
+        LocalDate today = LocalDate.now();
+        assertEquals(List.of(new DailyEntry(1, today, 8000, 500.0)), dbManager.getHistory(1, today, today));
+
+        dbManager.updateRecord(new FitnessRecord(1, "Test User", 25, 160.0, 9500, 560.0));
+        dbManager.updateRecord(new FitnessRecord(1, "Renamed", 25, 160.0, 9500, 560.0)); // steps unchanged
+        assertEquals(List.of(new DailyEntry(1, today, 9500, 560.0)), dbManager.getHistory(1, today.minusDays(7), today));
+
+        dbManager.saveAllRecords(List.of(new FitnessRecord(2, "User Two", 30, 180.0, 7000, 450.0)));
+        assertEquals(List.of(), dbManager.getHistory(1, today, today), "Removed records lose their history.");
+        assertEquals(7000, dbManager.getHistory(2, today, today).get(0).steps());
+        assertEquals(7000, dbManager.getMonthlyTotals(2, YearMonth.now(), YearMonth.now()).get(0).steps());
+
+        dbManager.deleteRecord(2);
+        assertEquals(List.of(), dbManager.getHistory(2, today, today));
+        assertEquals(List.of(), dbManager.getWeeklyTotals(2, today, today));
+    }
+
+    /**
+     * Verifies that weekly and monthly rollups equal the sums of the daily rows after
+     * a year of backfill, replaced days and a deleted record.
+     */
+    @Test
+    void testRollupsMatchDailySums() {
+        LocalDate first = LocalDate.of(2023, 12, 20);
+        Random random = new Random(7);
+        Map<Integer, Map<LocalDate, DailyEntry>> expected = new HashMap<>();
+        List<DailyEntry> entries = new ArrayList<>();
+        for (int id = 1; id <= 3; id++) {
+            for (LocalDate day = first; day.isBefore(first.plusDays(400)); day = day.plusDays(1 + random.nextInt(2))) {
+                DailyEntry entry = new DailyEntry(id, day, random.nextInt(20_000), random.nextInt(1000) / 4.0);
+                entries.add(entry);
+                expected.computeIfAbsent(id, k -> new TreeMap<>()).put(day, entry);
+            }
+        }
+        assertTrue(dbManager.saveHistory(entries));
+        // Replace a few days, including one already replaced within the same batch
+        List<DailyEntry> replacements = List.of(
+                new DailyEntry(2, first.plusDays(40), 123, 1.25),
+                new DailyEntry(2, first.plusDays(40), 321, 2.5),
+                new DailyEntry(3, first.plusDays(100), 5, 0.25));
+        assertTrue(dbManager.saveHistory(replacements));
+        replacements.forEach(e -> expected.get(e.id()).put(e.day(), e));
+
+        for (int id = 2; id <= 3; id++) {
+            Collection<DailyEntry> days = expected.get(id).values();
+            assertEquals(List.copyOf(days), dbManager.getHistory(id, first, first.plusDays(400)));
+
+            Map<LocalDate, long[]> weeks = new TreeMap<>();
+            Map<YearMonth, long[]> months = new TreeMap<>();
+            for (DailyEntry e : days) {
+                long[] w = weeks.computeIfAbsent(DailyHistory.weekStart(e.day()), k -> new long[2]);
+                w[0]++;
+                w[1] += e.steps();
+                long[] m = months.computeIfAbsent(YearMonth.from(e.day()), k -> new long[2]);
+                m[0]++;
+                m[1] += e.steps();
+            }
+            List<PeriodTotal> weekly = dbManager.getWeeklyTotals(id, first, first.plusDays(400));
+            assertEquals(weeks.size(), weekly.size());
+            for (PeriodTotal total : weekly) {
+                assertEquals(java.time.DayOfWeek.MONDAY, total.start().getDayOfWeek());
+                assertArrayEquals(weeks.get(total.start()), new long[]{total.days(), total.steps()}, total.toString());
+            }
+            List<PeriodTotal> monthly = dbManager.getMonthlyTotals(id, YearMonth.from(first), YearMonth.from(first).plusMonths(13));
+            assertEquals(months.size(), monthly.size());
+            for (PeriodTotal total : monthly) {
+                assertArrayEquals(months.get(YearMonth.from(total.start())), new long[]{total.days(), total.steps()});
+            }
+            double calories = days.stream().mapToDouble(DailyEntry::calories).sum();
+            assertEquals(calories, monthly.stream().mapToDouble(PeriodTotal::calories).sum(), 1e-6);
+        }
+
+        dbManager.deleteRecord(1); // history saved for record 1 goes with it
+        assertEquals(List.of(), dbManager.getMonthlyTotals(1, YearMonth.of(2000, 1), YearMonth.of(2100, 1)));
+    }
+
+    /**
+     * Verifies moving averages skip days without history and slide across gaps.
+     */
+    @Test
+    void testMovingAverage() {
+        LocalDate monday = LocalDate.of(2024, 6, 3);
+        dbManager.saveHistory(List.of(
+                new DailyEntry(5, monday, 1000, 10.0),
+                new DailyEntry(5, monday.plusDays(1), 3000, 30.0),
+                new DailyEntry(5, monday.plusDays(5), 8000, 80.0)));
+
+        List<MovingAverage> averages = dbManager.getMovingAverage(5, monday.plusDays(1), monday.plusDays(7), 3);
+        assertEquals(7, averages.size());
+        assertEquals(new MovingAverage(monday.plusDays(1), 2, 2000.0, 20.0), averages.get(0));
+        assertEquals(new MovingAverage(monday.plusDays(3), 1, 3000.0, 30.0), averages.get(2));
+        assertEquals(0, averages.get(3).days(), "Window with no history.");
+        assertEquals(8000.0, averages.get(4).steps());
+        assertEquals(new MovingAverage(monday.plusDays(7), 1, 8000.0, 80.0), averages.get(6));
+
+        dbManager.close();
+        assertTrue(dbManager.getMovingAverage(5, monday, monday.plusDays(7), 3).isEmpty(),
+                "A database error gives an empty list, not days without history.");
+    }
+}
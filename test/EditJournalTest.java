@@ -0,0 +1,177 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the edit journal: replay after reopening, merging per ID, versions, torn and corrupt
+ * tails, reset after a save, and rejection of files that are not journals.
+ */
+class EditJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() {
+        file = tempDir.resolve("fitness.db.journal");
+    }
+
+    /**
+     * Verifies that appended edits are read back on reopen, merged per ID in order.
+     */
+    @Test
+    void testReplayAfterReopen() throws IOException {
+        try (EditJournal journal = EditJournal.open(file)) {
+            assertTrue(journal.recovered().isEmpty());
+            journal.appendUpsert(new FitnessRecord(1, "Zoë Müller", 25, 160.0, 8000, 500.5));
+            journal.appendUpsert(new FitnessRecord(2, "Bo", 30, 175.0, 100, 10.0));
+            journal.appendDelete(2);
+            FitnessRecord edited = new FitnessRecord(1, "Zoë Müller", 26, 161.0, 9000, 600.0);
+            edited.setVersion(4);
+            journal.appendUpsert(edited);
+            journal.appendDelete(3, 7);
+            assertEquals(5, journal.entries());
+        }
+
+        try (EditJournal journal = EditJournal.open(file)) {
+            assertEquals(5, journal.recoveredEntries());
+            RecordChangeSet changes = journal.recovered();
+            List<FitnessRecord> upserts = new ArrayList<>(changes.getUpserts());
+            assertEquals(1, upserts.size());
+            FitnessRecord r = upserts.get(0);
+            assertEquals("Zoë Müller", r.getFullName());
+            assertEquals(26, r.getAge());
+            assertEquals(161.0, r.getWeight());
+            assertEquals(9000, r.getStepsToday());
+            assertEquals(600.0, r.getCaloriesBurned());
+            assertEquals(4, r.getVersion(), "Replayed edits keep the version they were based on.");
+            assertEquals(List.of(2, 3), new ArrayList<>(changes.getDeletes()));
+            assertEquals(0, changes.getExpectedVersion(2));
+            assertEquals(7, changes.getExpectedVersion(3));
+
+            // New entries follow the recovered ones
+            journal.appendDelete(1);
+        }
+        try (EditJournal journal = EditJournal.open(file)) {
+            assertEquals(6, journal.recoveredEntries());
+            assertTrue(journal.recovered().getUpserts().isEmpty());
+        }
+    }
+
+    /**
+     * Verifies that the background thread makes edits durable without an explicit sync.
+     */
+    @Test
+    void testPeriodicSync() throws Exception {
+        try (EditJournal journal = EditJournal.open(file, 10)) {
+            journal.appendDelete(7);
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (Files.size(file) == 8 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(Files.size(file) > 8, "The sync thread should have written the entry.");
+        }
+    }
+
+    /**
+     * Verifies that a torn last entry and a corrupt checksum end the journal, and are cut off.
+     */
+    @Test
+    void testTornAndCorruptTail() throws IOException {
+        try (EditJournal journal = EditJournal.open(file)) {
+            journal.appendDelete(1);
+            journal.appendDelete(2);
+            journal.appendDelete(3);
+        }
+        long entryBytes = (Files.size(file) - 8) / 3;
+
+        // Crash in the middle of the last entry
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 2);
+        }
+        try (EditJournal journal = EditJournal.open(file)) {
+            assertEquals(List.of(1, 2), new ArrayList<>(journal.recovered().getDeletes()));
+            assertEquals(8 + 2 * entryBytes, Files.size(file));
+        }
+
+        // Flip a payload bit of the second entry: it and everything after it are dropped
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[(int) (8 + entryBytes + 8 + 2)] ^= 1;
+        Files.write(file, bytes);
+        try (EditJournal journal = EditJournal.open(file)) {
+            assertEquals(List.of(1), new ArrayList<>(journal.recovered().getDeletes()));
+            assertEquals(1, journal.recoveredEntries());
+        }
+    }
+
+    /**
+     * Verifies that reset empties the journal on disk.
+     */
+    @Test
+    void testReset() throws IOException {
+        try (EditJournal journal = EditJournal.open(file)) {
+            journal.appendUpsert(new FitnessRecord(1, "Ann", 30, 150.0, 1, 2.0));
+            journal.sync();
+            journal.reset();
+            assertEquals(0, journal.entries());
+            assertEquals(8, Files.size(file));
+            journal.appendDelete(4);
+        }
+        try (EditJournal journal = EditJournal.open(file)) {
+            assertEquals(List.of(4), new ArrayList<>(journal.recovered().getDeletes()));
+            assertTrue(journal.recovered().getUpserts().isEmpty());
+        }
+    }
+
+    /**
+     * Verifies that no entry is lost or reordered when appends race with syncs that swap
+     * the buffer out from under them, including appends that outgrow the buffer.
+     */
+    @Test
+    void testAppendsDuringSyncs() throws Exception {
+        int count = 20_000;
+        try (EditJournal journal = EditJournal.open(file, 1)) {
+            AtomicBoolean stop = new AtomicBoolean(); // Not an interrupt, which would close the channel
+            Thread syncing = new Thread(() -> {
+                try {
+                    while (!stop.get()) {
+                        journal.sync();
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            syncing.start();
+            for (int id = 1; id <= count; id++) {
+                journal.appendUpsert(new FitnessRecord(id, "User " + "x".repeat(id % 500), 30, 150.0, id, 1.0));
+            }
+            stop.set(true);
+            syncing.join();
+        }
+        try (EditJournal journal = EditJournal.open(file)) {
+            assertEquals(count, journal.recoveredEntries());
+            List<FitnessRecord> upserts = new ArrayList<>(journal.recovered().getUpserts());
+            assertEquals(count, upserts.size());
+            assertEquals(count, upserts.get(count - 1).getStepsToday());
+        }
+    }
+
+    /**
+     * Verifies that a file that is not a journal is rejected and left untouched.
+     */
+    @Test
+    void testRejectsForeignFile() throws IOException {
+        Files.writeString(file, "id,fullName,age\n1,Ann,30\n");
+        assertThrows(IOException.class, () -> EditJournal.open(file));
+        assertEquals("id,fullName,age\n1,Ann,30\n", Files.readString(file));
+    }
+}
@@ -0,0 +1,424 @@
+import org.junit.jupiter.api.*;            // JUnit 5 testing annotations
+import org.junit.jupiter.api.io.TempDir;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for FitnessDatabaseManager against a temporary SQLite database file.
+ * Each test gets its own database so results do not depend on test order.
+ */
+class FitnessDatabaseManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FitnessDatabaseManager dbManager;
+
+    /**
+     * Opens a fresh pooled database with two sample records before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        dbManager = new FitnessDatabaseManager(tempDir.resolve("test.db").toString(), true);
+        dbManager.insertRecord(new FitnessRecord(1, "Test User", 25, 160.0, 8000, 500.0));
+        dbManager.insertRecord(new FitnessRecord(2, "User Two", 30, 180.0, 6000, 450.0));
+    }
+
+    /**
+     * Releases the pooled connections after each test.
+     */
+    @AfterEach
+    void tearDown() {
+        dbManager.close();
+    }
+
+    /**
+     * Verifies compare-and-set writes between two managers on one file, as two GUI instances would be:
+     * a write based on a stale version is refused with the current row instead of overwriting it.
+     */
+    @Test
+    void testOptimisticConcurrency() {
+        try (FitnessDatabaseManager other = new FitnessDatabaseManager(tempDir.resolve("test.db").toString(), true)) {
+            FitnessRecord mine = dbManager.getAllRecords().get(0);
+            FitnessRecord theirs = other.getAllRecords().get(0);
+            assertEquals(1, mine.getVersion());
+
+            theirs.setStepsToday(9000);
+            WriteResult first = other.updateRecord(theirs);
+            assertTrue(first.applied());
+            assertEquals(2, first.version());
+            assertEquals(1, theirs.getVersion(), "The caller's record is not changed.");
+
+            mine.setStepsToday(100);
+            WriteResult stale = dbManager.updateRecord(mine);
+            assertEquals(WriteResult.Status.CONFLICT, stale.status());
+            assertEquals(9000, stale.current().getStepsToday());
+            assertEquals(2, stale.version());
+            assertEquals(WriteResult.Status.CONFLICT, dbManager.deleteRecord(1, 1).status());
+            assertEquals(9000, dbManager.getRecordById(1).getStepsToday());
+
+            // Merged: redo the edit on top of the current version
+            mine.setVersion(stale.version());
+            assertTrue(dbManager.updateRecord(mine).applied());
+
+            // A save applies what it can and reports the rest
+            RecordChangeSet changes = new RecordChangeSet();
+            theirs.setAge(99);                                   // still at version 1: stale
+            changes.markUpserted(theirs);
+            changes.markUpserted(new FitnessRecord(3, "New", 20, 150.0, 1, 1.0));
+            changes.markDeleted(2, 1);
+            SaveResult result = other.saveChanges(changes);
+            assertTrue(result.committed());
+            assertEquals(1, result.upserted());
+            assertEquals(1, result.deleted());
+            assertEquals(List.of(1), result.conflicts().stream().map(WriteResult::id).toList());
+            assertEquals(3, result.conflicts().get(0).version());
+            assertEquals(Map.of(3, 1L), result.versions());
+
+            assertNull(other.getRecordById(2));
+            assertEquals(WriteResult.Status.NOT_FOUND,
+                    dbManager.updateRecord(new FitnessRecord(2, "Gone", 1, 1.0, 1, 1.0)).status());
+            assertEquals(WriteResult.Status.NOT_FOUND, dbManager.deleteRecord(2).status());
+        }
+    }
+
+    /**
+     * Verifies that a table created before rows were versioned gets the column, at version 1.
+     */
+    @Test
+    void testAddsVersionColumnToOldTable() throws Exception {
+        String file = tempDir.resolve("old.db").toString();
+        try (java.sql.Connection conn = java.sql.DriverManager.getConnection("jdbc:sqlite:" + file);
+             java.sql.Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE FitnessRecords (id INTEGER PRIMARY KEY, fullName TEXT NOT NULL, age INTEGER NOT NULL,"
+                    + " weight REAL NOT NULL, stepsToday INTEGER NOT NULL, caloriesBurned REAL NOT NULL)");
+            stmt.execute("INSERT INTO FitnessRecords VALUES (7, 'Old Timer', 70, 150.0, 100, 10.0)");
+        }
+        try (FitnessDatabaseManager old = new FitnessDatabaseManager(file, true)) {
+            FitnessRecord record = old.getRecordById(7);
+            assertEquals(1, record.getVersion());
+            record.setAge(71);
+            assertEquals(2, old.updateRecord(record).version());
+        }
+    }
+
+    /**
+     * Verifies that inserted records can be read back in ID order.
+     */
+    @Test
+    void testInsertAndGetAll() {
+        List<FitnessRecord> records = dbManager.getAllRecords();
+        assertEquals(2, records.size(), "Both records should be stored.");
+        assertEquals("Test User", records.get(0).getFullName());
+        assertEquals(6000, records.get(1).getStepsToday());
+    }
+
+    /**
+     * Verifies update and delete through the pooled connection reuse cached statements correctly.
+     */
+    @Test
+    void testUpdateAndDelete() {
+        dbManager.updateRecord(new FitnessRecord(2, "User Two", 31, 178.0, 7000, 460.0));
+        dbManager.deleteRecord(1);
+
+        List<FitnessRecord> records = dbManager.getAllRecords();
+        assertEquals(1, records.size(), "Record 1 should be deleted.");
+        assertEquals(31, records.get(0).getAge(), "Age was not updated.");
+        assertEquals(7000.0, dbManager.calculateAverageSteps(), "Average should reflect the update.");
+    }
+
+    /**
+     * Verifies that saving the full list replaces the table contents in one transaction.
+     */
+    @Test
+    void testSaveAllRecords() {
+        dbManager.saveAllRecords(List.of(new FitnessRecord(5, "Only One", 40, 190.0, 12000, 600.0)));
+        List<FitnessRecord> records = dbManager.getAllRecords();
+        assertEquals(1, records.size());
+        assertEquals(5, records.get(0).getId());
+    }
+
+    /**
+     * Verifies that the unpooled mode sees the same data as the pooled one.
+     */
+    @Test
+    void testUnpooledManagerSeesSameData() {
+        try (FitnessDatabaseManager unpooled =
+                     new FitnessDatabaseManager(tempDir.resolve("test.db").toString(), false)) {
+            assertFalse(unpooled.isPooled());
+            assertEquals(2, unpooled.getAllRecords().size());
+            assertEquals(7000.0, unpooled.calculateAverageSteps());
+        }
+    }
+
+    /**
+     * Verifies that an incremental save writes only the coalesced change set.
+     */
+    @Test
+    void testSaveChanges() {
+        RecordChangeSet changes = new RecordChangeSet();
+        changes.markUpserted(new FitnessRecord(3, "New User", 28, 175.0, 7000, 470.0));
+        FitnessRecord two = dbManager.getRecordById(2);
+        two.setStepsToday(9000);
+        changes.markUpserted(two);
+        changes.markDeleted(1);
+        changes.markUpserted(new FitnessRecord(4, "Short Lived", 50, 200.0, 100, 10.0));
+        changes.markDeleted(4); // add then delete collapses into a single delete
+        assertEquals(4, changes.size());
+
+        SaveResult result = dbManager.saveChanges(changes);
+        assertTrue(result.committed(), "Save should commit.");
+        assertEquals(2, result.upserted());
+        assertEquals(1, result.deleted(), "Only record 1 existed in the database.");
+
+        List<FitnessRecord> records = dbManager.getAllRecords();
+        assertEquals(2, records.size());
+        assertEquals(9000, records.get(0).getStepsToday(), "Record 2 should be updated in place.");
+        assertEquals(3, records.get(1).getId());
+    }
+
+    /**
+     * Verifies keyset pagination returns every record exactly once, page by page.
+     */
+    @Test
+    void testGetRecordsAfterPagesThroughTable() {
+        for (int id = 3; id <= 10; id++) {
+            dbManager.insertRecord(new FitnessRecord(id, "User " + id, 20 + id, 150.0, 1000 * id, 100.0));
+        }
+        List<Integer> seen = new ArrayList<>();
+        List<FitnessRecord> page = dbManager.getRecordsAfter(Integer.MIN_VALUE, 3);
+        while (!page.isEmpty()) {
+            assertTrue(page.size() <= 3, "Page size limit exceeded.");
+            page.forEach(r -> seen.add(r.getId()));
+            page = dbManager.getRecordsAfter(page.get(page.size() - 1).getId(), 3);
+        }
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), seen);
+        assertEquals(10, dbManager.countRecords());
+    }
+
+    /**
+     * Verifies the streaming cursor yields records in ID order and releases its connection on close.
+     */
+    @Test
+    void testStreamRecords() {
+        for (int i = 0; i < 10; i++) { // more streams than pooled connections
+            try (var stream = dbManager.streamRecords()) {
+                assertEquals(14000, stream.mapToInt(FitnessRecord::getStepsToday).sum());
+            }
+        }
+        try (var stream = dbManager.streamRecords()) {
+            assertEquals(List.of(1, 2), stream.map(FitnessRecord::getId).toList());
+        }
+    }
+
+    /**
+     * Verifies that the trigger-maintained statistics follow every write path,
+     * including removal of the current minimum and maximum, and survive a restart.
+     */
+    @Test
+    void testRunningAggregates() {
+        ColumnStats steps = dbManager.getColumnStats(RecordField.STEPS_TODAY);
+        assertEquals(2, steps.count());
+        assertEquals(6000, steps.min());
+        assertEquals(8000, steps.max());
+
+        dbManager.insertRecord(new FitnessRecord(3, "Third", 40, 200.0, 10000, 700.0));
+        dbManager.updateRecord(new FitnessRecord(2, "User Two", 30, 180.0, 7000, 450.0)); // old minimum raised
+        dbManager.deleteRecord(3);                                                      // maximum removed
+        steps = dbManager.getColumnStats(RecordField.STEPS_TODAY);
+        assertEquals(2, steps.count());
+        assertEquals(7000, steps.min());
+        assertEquals(8000, steps.max());
+        assertEquals(7500.0, dbManager.calculateAverageSteps());
+        assertEquals(500.0, steps.stddev(), 1e-6);
+
+        RecordChangeSet changes = new RecordChangeSet();
+        changes.markUpserted(new FitnessRecord(9, "Ninth", 60, 140.5, 100, 5.0));
+        dbManager.saveChanges(changes);
+        dbManager.saveAllRecords(dbManager.getAllRecords()); // bulk rewrite rebuilds instead of per-row triggers
+        assertEquals(List.of(), dbManager.verifyAggregates());
+
+        String file = tempDir.resolve("test.db").toString();
+        dbManager.close();
+        dbManager = new FitnessDatabaseManager(file);
+        assertEquals(3, dbManager.countRecords());
+        assertEquals(100, dbManager.getColumnStats(RecordField.STEPS_TODAY).min());
+        assertEquals(140.5, dbManager.getAllColumnStats().get(RecordField.WEIGHT).min());
+        assertTrue(dbManager.rebuildAggregates());
+        assertEquals(List.of(), dbManager.verifyAggregates());
+    }
+
+    /**
+     * Verifies lookups by ID, that writes keep the cache current, and that callers
+     * cannot modify cached records through the returned copies.
+     */
+    @Test
+    void testGetRecordByIdWithCache() {
+        dbManager.saveAllRecords(dbManager.getAllRecords()); // Clears the write-through entries from setUp
+
+        FitnessRecord first = dbManager.getRecordById(1);
+        assertEquals("Test User", first.getFullName());
+        first.setFullName("Changed Locally");
+        assertEquals("Test User", dbManager.getRecordById(1).getFullName(), "Cache must hold its own copy.");
+        assertNull(dbManager.getRecordById(42));
+
+        RecordCache.Stats stats = dbManager.getCacheStats();
+        assertEquals(1, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(1, stats.size());
+
+        dbManager.updateRecord(new FitnessRecord(1, "Renamed", 26, 161.0, 8100, 510.0));
+        assertEquals("Renamed", dbManager.getRecordById(1).getFullName());
+        dbManager.deleteRecord(1);
+        assertNull(dbManager.getRecordById(1));
+
+        RecordChangeSet changes = new RecordChangeSet();
+        FitnessRecord renamed = new FitnessRecord(2, "Saved Name", 30, 180.0, 6000, 450.0);
+        renamed.setVersion(dbManager.getRecordById(2).getVersion());
+        changes.markUpserted(renamed);
+        dbManager.saveChanges(changes);
+        assertEquals("Saved Name", dbManager.getRecordById(2).getFullName());
+    }
+
+    /**
+     * Verifies that cached records are not served after another manager on the same file
+     * changed the database, and that this manager's own writes keep the cache warm.
+     */
+    @Test
+    void testCacheSeesOtherManagersWrites() {
+        try (FitnessDatabaseManager other = new FitnessDatabaseManager(tempDir.resolve("test.db").toString(), true)) {
+            assertEquals("Test User", dbManager.getRecordById(1).getFullName());
+            assertEquals(1, dbManager.getRecordsByIds(List.of(2)).size());
+
+            FitnessRecord renamed = other.getRecordById(1);
+            renamed.setFullName("Renamed Elsewhere");
+            assertTrue(other.updateRecord(renamed).applied());
+            FitnessRecord cached = dbManager.getRecordById(1);
+            assertEquals("Renamed Elsewhere", cached.getFullName());
+            assertEquals(2, cached.getVersion());
+
+            other.deleteRecord(2);
+            assertTrue(dbManager.getRecordsByIds(List.of(2)).isEmpty());
+            assertNull(dbManager.getRecordById(2));
+
+            cached.setStepsToday(1);
+            assertTrue(dbManager.updateRecord(cached).applied());
+            long hits = dbManager.getCacheStats().hits();
+            assertEquals(1, dbManager.getRecordById(1).getStepsToday());
+            assertEquals(hits + 1, dbManager.getCacheStats().hits(), "An own write keeps the cache current.");
+        }
+    }
+
+    /**
+     * Verifies that two editors adding a record with the same ID do not overwrite each other:
+     * the second insert is reported as a conflict with the first one's row, unless the change
+     * set overwrites.
+     */
+    @Test
+    void testNewRecordsConflictOnTakenId() {
+        RecordChangeSet mine = new RecordChangeSet();
+        mine.markUpserted(new FitnessRecord(3, "Mine", 28, 175.0, 7000, 470.0));
+        assertTrue(dbManager.saveChanges(mine).conflicts().isEmpty());
+
+        RecordChangeSet theirs = new RecordChangeSet();
+        theirs.markUpserted(new FitnessRecord(3, "Theirs", 40, 190.0, 100, 10.0));
+        SaveResult result = dbManager.saveChanges(theirs);
+        assertEquals(0, result.upserted());
+        assertEquals(1, result.conflicts().size());
+        WriteResult conflict = result.conflicts().get(0);
+        assertEquals(WriteResult.Status.CONFLICT, conflict.status());
+        assertEquals("Mine", conflict.current().getFullName());
+        assertEquals("Mine", dbManager.getRecordById(3).getFullName());
+
+        RecordChangeSet overwrite = new RecordChangeSet(true);
+        overwrite.markUpserted(new FitnessRecord(3, "Theirs", 40, 190.0, 100, 10.0));
+        result = dbManager.saveChanges(overwrite);
+        assertEquals(1, result.upserted());
+        assertEquals(2, result.versions().get(3));
+        assertEquals("Theirs", dbManager.getRecordById(3).getFullName());
+    }
+
+    /**
+     * Verifies batched lookups across more IDs than fit in one query, in request order.
+     */
+    @Test
+    void testGetRecordsByIds() {
+        RecordChangeSet changes = new RecordChangeSet();
+        for (int id = 10; id < 610; id++) {
+            changes.markUpserted(new FitnessRecord(id, "User " + id, 30, 150.0, id, 10.0));
+        }
+        dbManager.saveChanges(changes);
+
+        List<Integer> ids = new ArrayList<>(List.of(2, 999, 2, 1));
+        for (int id = 609; id >= 10; id--) {
+            ids.add(id);
+        }
+        Map<Integer, FitnessRecord> found = dbManager.getRecordsByIds(ids);
+        assertEquals(602, found.size(), "Missing and duplicate IDs are skipped.");
+        Iterator<Integer> order = found.keySet().iterator();
+        assertEquals(2, order.next());
+        assertEquals(1, order.next());
+        assertEquals(609, order.next());
+        assertEquals(10, found.get(10).getStepsToday());
+    }
+
+    /**
+     * Verifies that operations are counted with their rows and errors, and published over JMX.
+     */
+    @Test
+    void testOperationMetrics() throws Exception {
+        DatabaseMetrics.Snapshot before = dbManager.getMetrics().snapshot();
+        dbManager.getAllRecords();
+        dbManager.insertRecord(new FitnessRecord(1, "Duplicate", 25, 160.0, 8000, 500.0)); // fails
+        DatabaseMetrics.Snapshot interval = dbManager.getMetrics().snapshot().minus(before);
+
+        OperationMetrics.Snapshot getAll = interval.get(DatabaseOperation.GET_ALL);
+        assertEquals(1, getAll.calls());
+        assertEquals(2, getAll.rowsRead());
+        assertEquals(1, interval.get(DatabaseOperation.INSERT).errors());
+        assertEquals(0, interval.get(DatabaseOperation.INSERT).rowsWritten());
+        assertTrue(interval.get(DatabaseOperation.CONNECTION_WAIT).calls() >= 2);
+        assertTrue(getAll.latency().valueAtPercentile(50) > 0);
+
+        javax.management.ObjectName pattern = new javax.management.ObjectName("FitnessTracker:name=insertRecord,*");
+        Set<javax.management.ObjectName> names = ManagementFactory.getPlatformMBeanServer().queryNames(pattern, null);
+        assertFalse(names.isEmpty(), "Each manager publishes its operations as MBeans.");
+    }
+
+    /**
+     * Verifies that name search follows every write path and agrees with the in-memory index.
+     */
+    @Test
+    void testSearchByName() {
+        assertEquals(List.of(2), ids(dbManager.searchByName("user t", 10)));
+        assertEquals(List.of(1, 2), ids(dbManager.searchByName("USER", 10)));
+        assertEquals(List.of(2), ids(dbManager.searchByName("tw", 10)), "Short queries match word starts.");
+        assertEquals(List.of(), ids(dbManager.searchByName("se", 10)));
+        assertEquals(List.of(), ids(dbManager.searchByName("\"% OR", 10)), "Operators are matched literally.");
+
+        dbManager.updateRecord(new FitnessRecord(2, "Ana O'Brien", 30, 180.0, 6000, 450.0));
+        dbManager.insertRecord(new FitnessRecord(3, "Anna Johnson", 40, 200.0, 10000, 700.0));
+        dbManager.deleteRecord(1);
+        assertEquals(List.of(), ids(dbManager.searchByName("user", 10)));
+        assertEquals(List.of(2, 3), ids(dbManager.searchByName("an", 10)));
+        assertEquals(List.of(2), ids(dbManager.searchByName("o'br", 10)));
+
+        SyntheticDataset dataset = new SyntheticDataset(SyntheticDataset.DEFAULT_SEED);
+        dbManager.saveAllRecords(dataset.records(2000));
+        NameIndex index = new NameIndex();
+        dataset.records(2000).forEach(r -> index.put(r.getId(), r.getFullName()));
+        for (String query : List.of("Wa", "ang", "mary s", "ez")) {
+            List<Integer> expected = new ArrayList<>();
+            for (int id : index.search(query, 25)) {
+                expected.add(id);
+            }
+            assertEquals(expected, ids(dbManager.searchByName(query, 25)), query);
+        }
+    }
+
+    private static List<Integer> ids(List<FitnessRecord> records) {
+        return records.stream().map(FitnessRecord::getId).toList();
+    }
+}
@@ -0,0 +1,239 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the HTTP service against localhost: CRUD and batch endpoints, streamed lists,
+ * error statuses, concurrent clients, and the JSON reader and writer behind them.
+ */
+class FitnessHttpServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FitnessDatabaseManager dbManager;
+    private FitnessHttpServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    /**
+     * Starts a server on a free port over a fresh database before each test.
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        dbManager = new FitnessDatabaseManager(tempDir.resolve("http.db").toString(), true);
+        server = new FitnessHttpServer(dbManager, 0);
+        server.start();
+    }
+
+    /**
+     * Stops the server and closes the database after each test.
+     */
+    @AfterEach
+    void tearDown() {
+        server.close();
+        dbManager.close();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String json(int id, String name, int steps) {
+        return "{\"id\":" + id + ",\"fullName\":\"" + name + "\",\"age\":30,\"weight\":150.5,"
+                + "\"stepsToday\":" + steps + ",\"caloriesBurned\":200.0}";
+    }
+
+    /**
+     * Verifies batch insert, read, update, delete and the 404 answers for missing records.
+     */
+    @Test
+    void testCrud() throws Exception {
+        HttpResponse<String> created = send("POST", "/records",
+                "[" + json(1, "Ann", 1000) + ", " + json(2, "Bo \\\"B\\\"", 2000) + "]");
+        assertEquals(200, created.statusCode());
+        assertEquals("{\"upserted\":2}", created.body());
+        assertEquals("Bo \"B\"", dbManager.getRecordById(2).getFullName());
+
+        HttpResponse<String> one = send("GET", "/records/2", null);
+        assertEquals(200, one.statusCode());
+        assertEquals("application/json; charset=utf-8", one.headers().firstValue("Content-Type").orElse(""));
+        assertEquals(json(2, "Bo \\\"B\\\"", 2000).replace("}", ",\"version\":1}"), one.body());
+
+        assertEquals(200, send("PUT", "/records/1", json(1, "Ann", 5000)).statusCode());
+        assertEquals(5000, dbManager.getRecordById(1).getStepsToday());
+        assertEquals(404, send("PUT", "/records/9", json(9, "Nobody", 1)).statusCode());
+        assertEquals(400, send("PUT", "/records/1", json(2, "Wrong", 1)).statusCode());
+
+        assertEquals(204, send("DELETE", "/records/1", null).statusCode());
+        assertEquals(404, send("DELETE", "/records/1", null).statusCode());
+        assertEquals(404, send("GET", "/records/1", null).statusCode());
+        assertEquals(1, dbManager.countRecords());
+    }
+
+    /**
+     * Verifies that writes carrying a stale version are refused with 409 and the current record.
+     */
+    @Test
+    void testVersionConflicts() throws Exception {
+        send("POST", "/records", json(1, "Ann", 1000));
+        String v1 = json(1, "Ann", 2000).replace("}", ",\"version\":1}");
+        HttpResponse<String> updated = send("PUT", "/records/1", v1);
+        assertEquals(200, updated.statusCode());
+        assertTrue(updated.body().endsWith("\"version\":2}"), updated.body());
+
+        HttpResponse<String> stale = send("PUT", "/records/1", json(1, "Ann", 3000).replace("}", ",\"version\":1}"));
+        assertEquals(409, stale.statusCode());
+        assertTrue(stale.body().contains("\"current\":{\"id\":1,\"fullName\":\"Ann\",\"age\":30,\"weight\":150.5,"
+                + "\"stepsToday\":2000,"), stale.body());
+
+        String batch = send("POST", "/records", "[" + v1 + "," + json(2, "Bo", 1) + "]").body();
+        assertTrue(batch.startsWith("{\"upserted\":1,\"conflicts\":[{\"id\":1,\"current\":{"), batch);
+        String huge = json(1, "Ann", 4000).replace("}", ",\"version\":9007199254740993}");
+        assertEquals(409, send("PUT", "/records/1", huge).statusCode(), "Versions beyond int range are read as longs.");
+        assertEquals(400, send("PUT", "/records/1", huge.replace("93}", "93.5}")).statusCode());
+
+        assertEquals(409, send("DELETE", "/records/1?version=1", null).statusCode());
+        assertEquals(204, send("DELETE", "/records/1?version=2", null).statusCode());
+        assertEquals(404, send("PUT", "/records/1", v1).statusCode());
+    }
+
+    /**
+     * Verifies the streamed list, name search, statistics and history responses.
+     */
+    @Test
+    void testListsAndAggregates() throws Exception {
+        StringBuilder batch = new StringBuilder("[");
+        for (int id = 1; id <= 2500; id++) {
+            batch.append(id == 1 ? "" : ",").append(json(id, id % 100 == 0 ? "Hundred " + id : "User " + id, id));
+        }
+        assertEquals(200, send("POST", "/records", batch.append("]").toString()).statusCode());
+
+        JsonReader list = new JsonReader(new StringReader(send("GET", "/records", null).body()));
+        List<FitnessRecord> records = new ArrayList<>();
+        list.beginArray();
+        while (list.hasNext()) {
+            records.add(FitnessHttpServer.readRecord(list));
+        }
+        list.endArray();
+        list.endDocument();
+        assertEquals(2500, records.size());
+        assertEquals(2500, records.get(2499).getId());
+
+        String search = send("GET", "/records?name=hundred&limit=3", null).body();
+        assertEquals(3, search.split("\"id\"").length - 1);
+        assertTrue(search.startsWith("[{\"id\":100,"));
+
+        JsonReader stats = new JsonReader(new StringReader(send("GET", "/stats", null).body()));
+        Map<String, Double> steps = new HashMap<>();
+        stats.beginObject();
+        while (stats.hasNext()) {
+            String name = stats.nextName();
+            if (name.equals("count")) {
+                assertEquals(2500, stats.nextInt());
+            } else if (name.equals("stepsToday")) {
+                stats.beginObject();
+                while (stats.hasNext()) {
+                    steps.put(stats.nextName(), stats.nextDouble());
+                }
+                stats.endObject();
+            } else {
+                stats.skipValue();
+            }
+        }
+        stats.endObject();
+        assertEquals(1250.5, steps.get("mean"));
+        assertEquals(2500.0, steps.get("max"));
+
+        String history = send("GET", "/history/7", null).body();
+        assertEquals("[{\"day\":\"" + LocalDate.now() + "\",\"steps\":7,\"calories\":200.0}]", history);
+    }
+
+    /**
+     * Verifies error statuses for bad input, unknown paths and unsupported methods.
+     */
+    @Test
+    void testErrors() throws Exception {
+        assertEquals(400, send("POST", "/records", "{\"id\": 1, \"fullName\": ").statusCode());
+        assertEquals(400, send("POST", "/records", "{\"id\": 1}").statusCode());
+        assertEquals(400, send("POST", "/records", "{\"id\": 1.5, \"fullName\": \"x\"}").statusCode());
+        assertEquals(400, send("GET", "/records/abc", null).statusCode());
+        assertEquals(400, send("GET", "/records/1/extra", null).statusCode());
+        assertEquals(400, send("GET", "/history/1?from=yesterday", null).statusCode());
+        assertEquals(405, send("DELETE", "/records", null).statusCode());
+        assertEquals(405, send("POST", "/stats", "{}").statusCode());
+        HttpResponse<String> error = send("POST", "/records", "[1]");
+        assertEquals(400, error.statusCode());
+        assertTrue(error.body().startsWith("{\"error\":\"Invalid JSON at character"), error.body());
+        assertEquals(0, dbManager.countRecords(), "Failed batches write nothing.");
+    }
+
+    /**
+     * Verifies that many concurrent clients are all served.
+     */
+    @Test
+    void testConcurrentClients() {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int id = 1; id <= 200; id++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/records"))
+                    .POST(HttpRequest.BodyPublishers.ofString(json(id, "User " + id, id)))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(200, response.join().statusCode());
+        }
+        assertEquals(200, dbManager.countRecords());
+    }
+
+    /**
+     * Verifies that the JSON writer and reader round-trip escapes, nesting and non-ASCII text.
+     */
+    @Test
+    void testJsonRoundTrip() throws IOException {
+        StringWriter text = new StringWriter();
+        try (JsonWriter json = new JsonWriter(text)) {
+            json.beginObject()
+                    .name("s").value("quote \" backslash \\ tab \t nl \n ctl \u0001 é")
+                    .name("n").value(-12.5)
+                    .name("nan").value(Double.NaN)
+                    .name("list").beginArray().value(1).value(true).nullValue().beginObject().endObject().endArray()
+                    .endObject();
+        }
+        assertEquals("{\"s\":\"quote \\\" backslash \\\\ tab \\t nl \\n ctl \\u0001 é\",\"n\":-12.5,"
+                + "\"nan\":null,\"list\":[1,true,null,{}]}", text.toString());
+
+        JsonReader reader = new JsonReader(new StringReader(text.toString()));
+        reader.beginObject();
+        assertEquals("s", reader.nextName());
+        assertEquals("quote \" backslash \\ tab \t nl \n ctl \u0001 é", reader.nextString());
+        assertEquals("n", reader.nextName());
+        assertEquals(-12.5, reader.nextDouble());
+        assertEquals("nan", reader.nextName());
+        assertEquals(JsonReader.Kind.NULL, reader.peek());
+        reader.nextNull();
+        assertEquals("list", reader.nextName());
+        reader.skipValue();
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        reader.endDocument();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new JsonReader(new StringReader("[1 2]")).skipValue());
+        assertThrows(IllegalArgumentException.class,
+                () -> new JsonReader(new StringReader("{\"a\" 1}")).skipValue());
+    }
+}
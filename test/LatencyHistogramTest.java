@@ -0,0 +1,52 @@
+import org.junit.jupiter.api.*;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies histogram percentiles against exact percentiles of the same values.
+ */
+class LatencyHistogramTest {
+
+    /**
+     * Verifies that percentiles of a wide, skewed distribution are within the bucket precision.
+     */
+    @Test
+    void testPercentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(3);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 20); // 1 ns .. ~0.5 s
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(values.length, snapshot.count());
+        assertEquals(values[values.length - 1], snapshot.max());
+        for (double p : new double[]{50, 90, 99, 99.9, 100}) {
+            long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long reported = snapshot.valueAtPercentile(p);
+            assertTrue(reported >= exact && reported <= exact + exact / 64 + 1,
+                    "p" + p + ": exact " + exact + ", reported " + reported);
+        }
+    }
+
+    /**
+     * Verifies that subtracting snapshots yields only the values recorded in between.
+     */
+    @Test
+    void testIntervalSnapshot() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_000);
+        LatencyHistogram.Snapshot first = histogram.snapshot();
+        histogram.record(100);
+        histogram.record(200);
+        LatencyHistogram.Snapshot interval = histogram.snapshot().minus(first);
+
+        assertEquals(2, interval.count());
+        assertEquals(150.0, interval.mean());
+        assertEquals(200, interval.valueAtPercentile(100), 200 / 64, "Within bucket precision.");
+        assertEquals(0, LatencyHistogram.Snapshot.EMPTY.valueAtPercentile(99));
+    }
+}
@@ -0,0 +1,75 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the load generator: closed and open loop, the operation mix, several
+ * manager instances on one file, and the busy-error classification.
+ */
+class LoadGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Verifies that a closed-loop run calls every operation in the mix and reports them.
+     */
+    @Test
+    void testClosedLoop() throws Exception {
+        LoadGenerator.Config config = new LoadGenerator.Config()
+                .clients(4).duration(Duration.ofMillis(500)).initialRecords(200);
+        LoadGenerator.Report report = new LoadGenerator(config).run(tempDir.resolve("load.db").toString());
+
+        assertTrue(report.calls() > 0);
+        assertEquals(0, report.errors(), report.toString());
+        for (LoadGenerator.Operation operation : LoadGenerator.Operation.values()) {
+            assertTrue(report.operations().get(operation).calls() > 0, operation + " was never called");
+        }
+        String text = report.toString();
+        assertTrue(text.contains("closed loop"), text);
+        assertTrue(text.contains("calculateAverageSteps"), text);
+    }
+
+    /**
+     * Verifies that an open-loop run issues about the target number of calls, only of the
+     * operations with a weight, with clients spread over two manager instances.
+     */
+    @Test
+    void testOpenLoopMix() throws Exception {
+        LoadGenerator.Config config = new LoadGenerator.Config()
+                .clients(4).instances(2).targetRate(200).duration(Duration.ofSeconds(1)).initialRecords(100)
+                .weight(LoadGenerator.Operation.DELETE, 0)
+                .weight(LoadGenerator.Operation.GET_ALL, 0)
+                .weight(LoadGenerator.Operation.AVERAGE_STEPS, 0);
+        LoadGenerator.Report report = new LoadGenerator(config).run(tempDir.resolve("open.db").toString());
+
+        assertEquals(200, report.calls(), 20, report.toString());
+        assertEquals(0, report.operations().get(LoadGenerator.Operation.DELETE).calls());
+        assertEquals(0, report.operations().get(LoadGenerator.Operation.GET_ALL).calls());
+        assertTrue(report.operations().get(LoadGenerator.Operation.INSERT).calls() > 0);
+        assertEquals(0, report.errorRate(), report.toString());
+
+        try (FitnessDatabaseManager manager = new FitnessDatabaseManager(tempDir.resolve("open.db").toString(), true)) {
+            assertEquals(100 + report.operations().get(LoadGenerator.Operation.INSERT).calls(), manager.countRecords());
+        }
+    }
+
+    /**
+     * Verifies which SQLite errors count as busy and that an empty mix is rejected.
+     */
+    @Test
+    void testBusyClassificationAndValidation() {
+        assertTrue(LoadGenerator.isBusy(new SQLException("[SQLITE_BUSY] The database file is locked", null, 5)));
+        assertTrue(LoadGenerator.isBusy(new SQLException("locked", null, 6 | (1 << 8))));
+        assertFalse(LoadGenerator.isBusy(new SQLException("[SQLITE_CONSTRAINT] UNIQUE", null, 19)));
+
+        LoadGenerator.Config empty = new LoadGenerator.Config();
+        for (LoadGenerator.Operation operation : LoadGenerator.Operation.values()) {
+            empty.weight(operation, 0);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new LoadGenerator(empty));
+    }
+}
@@ -92,4 +92,28 @@ class MainTest {
         assertEquals(1, loaded.size(), "Incorrect number of records loaded.");
         assertEquals("Sample User", loaded.get(0).getFullName(), "Record data does not match.");
     }
+
+    /**
+     * Verifies that the allocation-free formatter used by the GUI list matches toString,
+     * including values that sit exactly on a rounding boundary.
+     */
+    @Test
+    void testAppendToMatchesToString() {
+        double[] values = {0, -0.04, 0.05, 0.15, 0.125, 1.005, 2.675, 1.45, 160.0, 99999.995, -12.345, 1e16};
+        StringBuilder sb = new StringBuilder();
+        for (double weight : values) {
+            for (double calories : values) {
+                FitnessRecord r = new FitnessRecord(7, "Format Check", 40, weight, 1234, calories);
+                sb.setLength(0);
+                assertEquals(r.toString(), r.appendTo(sb).toString(), "Formatting differs for " + weight + ", " + calories);
+            }
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            FitnessRecord r = new FitnessRecord(i, "Random", i % 90, random.nextDouble() * 400,
+                    random.nextInt(50_000), Math.round(random.nextDouble() * 1e5) / 1000.0);
+            sb.setLength(0);
+            assertEquals(r.toString(), r.appendTo(sb).toString());
+        }
+    }
 }
@@ -0,0 +1,76 @@
+import org.junit.jupiter.api.*;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the in-memory name index: substring and word-prefix matching, updates,
+ * and agreement with a plain scan over generated names.
+ */
+class NameIndexTest {
+
+    /**
+     * Verifies substring matches ignore case and short queries match word starts only.
+     */
+    @Test
+    void testSubstringAndPrefixMatching() {
+        NameIndex index = new NameIndex();
+        index.put(1, "John Smith");
+        index.put(2, "Ana O'Brien");
+        index.put(3, "Anna Johnson");
+
+        assertArrayEquals(new int[]{1, 3}, index.search("JOHN", 10));
+        assertArrayEquals(new int[]{1}, index.search("hn sm", 10));
+        assertArrayEquals(new int[]{2}, index.search("o'b", 10));
+        assertArrayEquals(new int[]{2, 3}, index.search(" an ", 10), "Short queries are trimmed.");
+        assertArrayEquals(new int[]{1}, index.search("sm", 10));
+        assertArrayEquals(new int[0], index.search("mi", 10), "Short queries match word starts only.");
+        assertArrayEquals(new int[0], index.search("xyz", 10));
+        assertArrayEquals(new int[0], index.search("  ", 10));
+        assertArrayEquals(new int[]{1}, index.search("j", 1), "Limit applies.");
+    }
+
+    /**
+     * Verifies that renamed and removed records stop matching, including after retired entries are purged.
+     */
+    @Test
+    void testPutReplacesAndRemoveRetires() {
+        NameIndex index = new NameIndex();
+        index.put(1, "John Smith");
+        index.put(1, "Jane Doe");
+        assertArrayEquals(new int[0], index.search("smith", 10));
+        assertArrayEquals(new int[]{1}, index.search("doe", 10));
+
+        for (int id = 2; id < 100; id++) {
+            index.put(id, "User " + id);
+        }
+        for (int id = 2; id < 100; id++) {
+            index.remove(id);
+        }
+        index.remove(42); // already removed
+        assertEquals(1, index.size());
+        assertArrayEquals(new int[0], index.search("user", 10));
+        assertArrayEquals(new int[]{1}, index.search("ja", 10));
+    }
+
+    /**
+     * Verifies the index returns exactly what a scan with the same rule returns.
+     */
+    @Test
+    void testAgreesWithScan() {
+        SyntheticDataset dataset = new SyntheticDataset(SyntheticDataset.DEFAULT_SEED);
+        NameIndex index = new NameIndex();
+        Map<Integer, String> names = new LinkedHashMap<>();
+        for (int id = 1; id <= 5000; id++) {
+            String name = dataset.record(id).getFullName();
+            index.put(id, name);
+            names.put(id, NameIndex.normalize(name));
+        }
+        for (String query : List.of("a", "Wa", "ang", "mary s", "o'b", "ez", "Ivan Petrov", "zzz")) {
+            String q = NameIndex.normalize(query);
+            int[] expected = names.entrySet().stream()
+                    .filter(e -> NameIndex.matches(e.getValue(), q))
+                    .mapToInt(Map.Entry::getKey).toArray();
+            assertArrayEquals(expected, index.search(query, Integer.MAX_VALUE), query);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the LRU record cache: eviction order, counters and the version checks
+ * that keep stale reads out of the cache.
+ */
+class RecordCacheTest {
+
+    private static FitnessRecord record(int id) {
+        return new FitnessRecord(id, "User " + id, 30, 150.0, 1000, 100.0);
+    }
+
+    /**
+     * Verifies that the least recently used record is evicted first.
+     */
+    @Test
+    void testLeastRecentlyUsedIsEvicted() {
+        RecordCache cache = new RecordCache(2);
+        cache.put(record(1));
+        cache.put(record(2));
+        assertNotNull(cache.get(1)); // 2 is now the eldest
+        cache.put(record(3));
+
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(1));
+        assertNotNull(cache.get(3));
+        RecordCache.Stats stats = cache.stats();
+        assertEquals(1, stats.evictions());
+        assertEquals(3, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(0.75, stats.hitRate());
+    }
+
+    /**
+     * Verifies that a record loaded before a concurrent write is not stored.
+     */
+    @Test
+    void testLoadRacingWriteIsDropped() {
+        RecordCache cache = new RecordCache(10);
+        long version = cache.version();
+        cache.invalidate(5); // A writer changed record 5 while it was being read
+        cache.putIfUnchanged(record(5), version);
+        assertNull(cache.get(5));
+
+        cache.putIfUnchanged(record(5), cache.version());
+        assertNotNull(cache.get(5));
+    }
+
+    /**
+     * Verifies that entries are dropped when the database version moves, unless the
+     * owner's own write accounts for the move.
+     */
+    @Test
+    void testDataVersionChecks() {
+        RecordCache cache = new RecordCache(10);
+        cache.validate(new DataVersion("db", 5));
+        cache.putIfUnchanged(record(1), cache.version());
+
+        cache.put(record(2), new DataVersion("db", 6), 1);
+        cache.validate(new DataVersion("db", 6));
+        assertNotNull(cache.get(1), "The own write was the only change.");
+
+        cache.put(record(3), new DataVersion("db", 8), 1); // Someone else wrote too
+        assertNull(cache.get(1));
+        assertNotNull(cache.get(3));
+
+        cache.validate(new DataVersion("db", 9));
+        assertNull(cache.get(3), "Another writer changed the database.");
+        assertEquals(0, cache.stats().size());
+    }
+
+    /**
+     * Verifies that a zero capacity disables caching.
+     */
+    @Test
+    void testZeroCapacity() {
+        RecordCache cache = new RecordCache(0);
+        cache.put(record(1));
+        assertNull(cache.get(1));
+        assertEquals(0, cache.stats().size());
+    }
+}
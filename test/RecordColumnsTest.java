@@ -0,0 +1,76 @@
+import org.junit.jupiter.api.*;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies the columnar analytics store against straightforward calculations
+ * over the same records, on data large enough to use the parallel path.
+ */
+class RecordColumnsTest {
+
+    private List<FitnessRecord> records;
+    private RecordColumns columns;
+
+    @BeforeEach
+    void setUp() {
+        records = new ArrayList<>();
+        Random random = new Random(11);
+        for (int id = 0; id < 200_000; id++) {
+            int steps = random.nextInt(30_000);
+            records.add(new FitnessRecord(id, "User " + id, 18 + random.nextInt(70),
+                    100 + random.nextDouble() * 200, steps, steps * 0.04 + random.nextGaussian() * 20));
+        }
+        columns = RecordColumns.from(records);
+    }
+
+    /**
+     * Verifies count, mean, min, max and variance for every field.
+     */
+    @Test
+    void testStatsMatchNaiveCalculation() {
+        assertEquals(records.size(), columns.size());
+        for (RecordField field : RecordField.values()) {
+            double[] values = records.stream().mapToDouble(field::valueOf).toArray();
+            DoubleSummaryStatistics expected = Arrays.stream(values).summaryStatistics();
+            double variance = Arrays.stream(values).map(v -> (v - expected.getAverage()) * (v - expected.getAverage()))
+                    .sum() / values.length;
+
+            ColumnStats stats = columns.stats(field);
+            assertEquals(expected.getCount(), stats.count(), field.name());
+            assertEquals(expected.getAverage(), stats.mean(), 1e-9 * Math.abs(expected.getAverage()), field.name());
+            assertEquals(expected.getMin(), stats.min(), field.name());
+            assertEquals(expected.getMax(), stats.max(), field.name());
+            assertEquals(variance, stats.variance(), 1e-9 * variance, field.name());
+        }
+    }
+
+    /**
+     * Verifies that steps and calories are strongly correlated in the generated data,
+     * and that a field is perfectly correlated with itself.
+     */
+    @Test
+    void testCorrelation() {
+        double r = columns.correlation(RecordField.STEPS_TODAY, RecordField.CALORIES_BURNED);
+        assertTrue(r > 0.9 && r <= 1.0, "Expected strong positive correlation, got " + r);
+        assertEquals(1.0, columns.correlation(RecordField.WEIGHT, RecordField.WEIGHT), 1e-12);
+    }
+
+    /**
+     * Verifies that merging partial results equals aggregating everything at once,
+     * and that running totals convert back to the same statistics.
+     */
+    @Test
+    void testMergeAndFromSums() {
+        RecordColumns firstHalf = RecordColumns.from(records.subList(0, 70_000));
+        RecordColumns secondHalf = RecordColumns.from(records.subList(70_000, records.size()));
+        ColumnStats merged = firstHalf.stats(RecordField.WEIGHT).merge(secondHalf.stats(RecordField.WEIGHT));
+        ColumnStats whole = columns.stats(RecordField.WEIGHT);
+        assertEquals(whole.count(), merged.count());
+        assertEquals(whole.mean(), merged.mean(), 1e-9);
+        assertEquals(whole.variance(), merged.variance(), 1e-6);
+
+        ColumnStats fromSums = ColumnStats.fromSums(whole.count(), whole.sum(), whole.sumSquares(), whole.min(), whole.max());
+        assertEquals(whole.variance(), fromSums.variance(), 1e-6 * whole.variance());
+        assertSame(ColumnStats.EMPTY, new RecordColumns().stats(RecordField.AGE));
+    }
+}
@@ -0,0 +1,82 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the streaming exporter: CSV exports import back unchanged, and the binary
+ * format round-trips, plain and compressed.
+ */
+class RecordExporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FitnessDatabaseManager dbManager;
+
+    @BeforeEach
+    void setUp() {
+        dbManager = new FitnessDatabaseManager(tempDir.resolve("export.db").toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        dbManager.close();
+    }
+
+    /**
+     * Verifies that a CSV export can be imported back unchanged, including awkward names.
+     */
+    @Test
+    void testCsvExportRoundTrip() throws Exception {
+        dbManager.insertRecord(new FitnessRecord(1, "Plain Name", 30, 150.5, 1000, 10.125));
+        dbManager.insertRecord(new FitnessRecord(2, "Comma, \"Quoted\" Zoë 🏃", 40, 0.1, 0, 1e-3));
+        Path file = tempDir.resolve("export.csv.gz");
+
+        RecordExporter.ExportReport report = dbManager.exportRecords(file, RecordExporter.Format.CSV, true);
+        assertEquals(2, report.rows());
+
+        // The importer reads plain text, so decompress first
+        Path plain = tempDir.resolve("export.csv");
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file.toFile()))) {
+            Files.copy(in, plain);
+        }
+        try (FitnessDatabaseManager copy = new FitnessDatabaseManager(tempDir.resolve("copy.db").toString())) {
+            ImportReport imported = new CsvRecordImporter(copy).importFile(plain);
+            assertEquals(0, imported.rejectedCount(), "Exported CSV should import cleanly: " + imported.rejected());
+            assertRecordsEqual(dbManager.getAllRecords(), copy.getAllRecords());
+        }
+    }
+
+    /**
+     * Verifies that the binary format round-trips, plain and compressed.
+     */
+    @Test
+    void testBinaryExportRoundTrip() throws Exception {
+        for (int id = 1; id <= 5000; id++) {
+            dbManager.insertRecord(new FitnessRecord(id, "Binary User " + id, id % 90, 100 + id / 7.0, id * 3, id / 3.0));
+        }
+        for (boolean gzip : new boolean[]{false, true}) {
+            Path file = tempDir.resolve("export-" + gzip + ".bin");
+            RecordExporter.ExportReport report = dbManager.exportRecords(file, RecordExporter.Format.BINARY, gzip);
+            assertEquals(5000, report.rows());
+
+            List<FitnessRecord> read = new ArrayList<>();
+            assertEquals(5000, RecordExporter.readBinary(file, read::add));
+            assertRecordsEqual(dbManager.getAllRecords(), read);
+        }
+    }
+
+    private static void assertRecordsEqual(List<FitnessRecord> expected, List<FitnessRecord> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+            assertEquals(expected.get(i).getWeight(), actual.get(i).getWeight());
+            assertEquals(expected.get(i).getCaloriesBurned(), actual.get(i).getCaloriesBurned());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for range queries: results agree with an in-memory filter of the same records,
+ * and the generated SQL is answered from the secondary indexes.
+ */
+class RecordQueryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FitnessDatabaseManager dbManager;
+    private List<FitnessRecord> records;
+
+    /**
+     * Opens a database filled with generated records before each test.
+     */
+    @BeforeEach
+    void setUp() throws SQLException {
+        dbManager = new FitnessDatabaseManager(tempDir.resolve("query.db").toString(), true);
+        SyntheticDataset dataset = new SyntheticDataset(SyntheticDataset.DEFAULT_SEED);
+        dataset.populate(dbManager, 3000);
+        records = dataset.records(3000);
+    }
+
+    /**
+     * Releases the pooled connections after each test.
+     */
+    @AfterEach
+    void tearDown() {
+        dbManager.close();
+    }
+
+    /**
+     * Verifies that queries return the records an in-memory filter and sort would, in the same order.
+     */
+    @Test
+    void testResultsMatchInMemoryFilter() {
+        RecordQuery query = new RecordQuery()
+                .between(RecordField.AGE, 30, 40)
+                .greaterThan(RecordField.STEPS_TODAY, 10_000)
+                .orderBy(RecordField.STEPS_TODAY, true)
+                .limit(25);
+        List<FitnessRecord> expected = records.stream()
+                .filter(query::matches)
+                .sorted(Comparator.comparingInt(FitnessRecord::getStepsToday)
+                        .thenComparingInt(FitnessRecord::getId).reversed())
+                .limit(25)
+                .toList();
+        assertFalse(expected.isEmpty());
+        assertEquals(ids(expected), ids(dbManager.findRecords(query)));
+
+        // Tightest bound wins, and exclusive beats inclusive at the same value
+        RecordQuery merged = new RecordQuery()
+                .atLeast(RecordField.WEIGHT, 120).greaterThan(RecordField.WEIGHT, 150)
+                .lessThan(RecordField.WEIGHT, 200).atMost(RecordField.WEIGHT, 200)
+                .equalTo(RecordField.AGE, 50);
+        assertEquals("age = 50.0 AND weight > 150.0 AND weight < 200.0", merged.toString());
+        assertEquals(ids(records.stream().filter(merged::matches).toList()), ids(dbManager.findRecords(merged)));
+
+        assertEquals(3000, dbManager.findRecords(new RecordQuery()).size(), "No predicates selects everything.");
+        assertEquals(List.of(), dbManager.findRecords(new RecordQuery().between(RecordField.AGE, 40, 30)));
+    }
+
+    /**
+     * Verifies that bounded ranges and orderings on every field are answered from an index.
+     */
+    @Test
+    void testQueriesUseIndexes() throws SQLException {
+        for (RecordField field : RecordField.values()) {
+            QueryPlan plan = dbManager.explain(new RecordQuery().between(field, 30, 40));
+            assertTrue(plan.usesIndex() && !plan.fullScan(), field + ": " + plan);
+        }
+        QueryPlan ordered = dbManager.explain(new RecordQuery().orderBy(RecordField.CALORIES_BURNED, true).limit(10));
+        assertFalse(ordered.sorts(), "Top-N by an indexed field reads the index in order: " + ordered);
+
+        dbManager.saveAllRecords(records.subList(0, 100)); // drops and recreates the indexes
+        assertTrue(dbManager.explain(new RecordQuery().between(RecordField.AGE, 30, 40)).usesIndex());
+        assertEquals(ids(records.subList(0, 100).stream().filter(r -> r.getAge() == 30).toList()),
+                ids(dbManager.findRecords(new RecordQuery().equalTo(RecordField.AGE, 30))));
+    }
+
+    private static List<Integer> ids(List<FitnessRecord> records) {
+        return records.stream().map(FitnessRecord::getId).toList();
+    }
+}
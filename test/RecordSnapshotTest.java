@@ -0,0 +1,141 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the memory-mapped record snapshot: round trip through the file, staleness
+ * detection against the database's change counter, and a RecordStore started from a snapshot.
+ */
+class RecordSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FitnessDatabaseManager dbManager;
+    private Path snapshotFile;
+
+    /**
+     * Opens a fresh database with three records, one with a non-ASCII name, before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        dbManager = new FitnessDatabaseManager(tempDir.resolve("snapshot.db").toString(), true);
+        dbManager.insertRecord(new FitnessRecord(30, "Third User", 40, 190.5, 12000, 700.25));
+        dbManager.insertRecord(new FitnessRecord(10, "Zoë Müller", 25, 160.0, 8000, 500.0));
+        dbManager.insertRecord(new FitnessRecord(20, "Second", 30, 175.0, 0, 0.0));
+        snapshotFile = tempDir.resolve("snapshot.db.snapshot");
+    }
+
+    /**
+     * Releases the pooled connections after each test.
+     */
+    @AfterEach
+    void tearDown() {
+        dbManager.close();
+    }
+
+    /**
+     * Verifies that a written snapshot decodes to the database's records in ID order.
+     */
+    @Test
+    void testRoundTrip() throws IOException, SQLException {
+        assertEquals(3, RecordSnapshot.write(dbManager, snapshotFile));
+        RecordSnapshot snapshot = RecordSnapshot.open(snapshotFile);
+
+        List<FitnessRecord> expected = dbManager.getAllRecords();
+        assertEquals(expected.size(), snapshot.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), snapshot.get(i).toString());
+        }
+        assertEquals("Zoë Müller", snapshot.nameAt(0));
+        assertEquals(30, snapshot.idAt(2));
+        assertEquals(1, snapshot.indexOfId(20));
+        assertEquals(-1, snapshot.indexOfId(15));
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.get(3));
+        assertTrue(snapshot.isFresh(dbManager.getDataVersion()));
+    }
+
+    /**
+     * Verifies that every kind of write makes the snapshot stale and that load() rewrites it.
+     */
+    @Test
+    void testStaleSnapshotIsRebuilt() throws IOException, SQLException {
+        RecordSnapshot first = RecordSnapshot.load(dbManager, snapshotFile);
+        assertEquals(3, first.size());
+        assertFalse(RecordSnapshot.refresh(dbManager, snapshotFile), "Unchanged database needs no rewrite.");
+
+        dbManager.updateRecord(new FitnessRecord(20, "Second", 30, 175.0, 4000, 120.0));
+        assertFalse(first.isFresh(dbManager.getDataVersion()));
+        RecordSnapshot second = RecordSnapshot.load(dbManager, snapshotFile);
+        assertEquals(4000, second.get(1).getStepsToday());
+
+        dbManager.deleteRecord(30);
+        assertEquals(2, RecordSnapshot.load(dbManager, snapshotFile).size());
+
+        dbManager.saveAllRecords(List.of(new FitnessRecord(1, "Only", 50, 200.0, 100, 10.0)));
+        RecordSnapshot rewritten = RecordSnapshot.load(dbManager, snapshotFile);
+        assertEquals(List.of("Only"), List.of(rewritten.get(0).getFullName()));
+        assertTrue(rewritten.isFresh(dbManager.getDataVersion()));
+    }
+
+    /**
+     * Verifies that a snapshot of another database counts as stale, and a corrupt file is replaced.
+     */
+    @Test
+    void testForeignOrCorruptSnapshot() throws IOException, SQLException {
+        RecordSnapshot.write(dbManager, snapshotFile);
+        try (FitnessDatabaseManager other = new FitnessDatabaseManager(tempDir.resolve("other.db").toString(), true)) {
+            assertFalse(RecordSnapshot.open(snapshotFile).isFresh(other.getDataVersion()));
+            assertEquals(0, RecordSnapshot.load(other, snapshotFile).size());
+        }
+
+        Files.write(snapshotFile, new byte[100]);
+        assertThrows(IOException.class, () -> RecordSnapshot.open(snapshotFile));
+        assertEquals(3, RecordSnapshot.load(dbManager, snapshotFile).size());
+    }
+
+    /**
+     * Verifies that a RecordStore over a snapshot looks up, edits, removes and appends
+     * records like one filled with add(), including through a compaction.
+     */
+    @Test
+    void testStoreOverSnapshot() throws IOException, SQLException {
+        for (int id = 100; id < 200; id++) {
+            dbManager.insertRecord(new FitnessRecord(id, "User " + id, 30, 160.0, id, 1.0));
+        }
+        RecordStore store = new RecordStore(RecordSnapshot.load(dbManager, snapshotFile));
+        List<Integer> reference = new ArrayList<>();
+        dbManager.getAllRecords().forEach(r -> reference.add(r.getId()));
+        assertEquals(reference.size(), store.size());
+
+        FitnessRecord edited = store.getById(150);
+        edited.setStepsToday(99);
+        assertEquals(99, store.getById(150).getStepsToday(), "Decoded records are kept, so edits stick.");
+        assertThrows(IllegalArgumentException.class, () -> store.add(new FitnessRecord(10, "Dup", 1, 1.0, 1, 1.0)));
+
+        assertEquals(reference.indexOf(20), store.removeById(20));
+        reference.remove(Integer.valueOf(20));
+        assertFalse(store.containsId(20));
+        store.add(new FitnessRecord(20, "Back", 1, 1.0, 1, 1.0));
+        reference.add(20);
+        assertEquals(reference.size() - 1, store.indexOfId(20));
+
+        for (int id = 100; id < 180; id++) {   // enough removals to trigger a compaction
+            store.removeById(id);
+            reference.remove(Integer.valueOf(id));
+        }
+        List<Integer> ids = new ArrayList<>();
+        store.forEach(r -> ids.add(r.getId()));
+        assertEquals(reference, ids);
+        for (int i = 0; i < reference.size(); i++) {
+            assertEquals(reference.get(i), store.get(i).getId());
+            assertEquals(i, store.indexOfId(reference.get(i)));
+        }
+        assertEquals("Back", store.getById(20).getFullName());
+    }
+}
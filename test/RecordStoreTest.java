@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.*;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the GUI's indexed in-memory record store.
+ * Verifies ID lookups, display order and positions against a plain ArrayList.
+ */
+class RecordStoreTest {
+
+    private RecordStore store;
+
+    /**
+     * Creates a store with five records (IDs 10, 20, ..., 50) before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        store = new RecordStore();
+        for (int id = 10; id <= 50; id += 10) {
+            store.add(new FitnessRecord(id, "User " + id, 30, 160.0, id * 100, 300.0));
+        }
+    }
+
+    /**
+     * Verifies lookup by ID and that duplicate IDs are rejected.
+     */
+    @Test
+    void testLookupAndDuplicate() {
+        assertEquals("User 30", store.getById(30).getFullName());
+        assertNull(store.getById(35), "Unknown ID should return null.");
+        assertTrue(store.containsId(50));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.add(new FitnessRecord(20, "Dup", 1, 1.0, 1, 1.0)));
+    }
+
+    /**
+     * Verifies that removing from the middle keeps display order and reports the old position.
+     */
+    @Test
+    void testRemoveKeepsOrder() {
+        assertEquals(1, store.removeById(20));
+        assertEquals(-1, store.removeById(20), "Second removal should find nothing.");
+        assertEquals(4, store.size());
+        assertEquals(30, store.get(1).getId());
+        assertEquals(2, store.indexOfId(40));
+
+        store.add(new FitnessRecord(5, "Late", 20, 150.0, 1000, 100.0));
+        List<Integer> ids = new ArrayList<>();
+        store.forEach(r -> ids.add(r.getId()));
+        assertEquals(List.of(10, 30, 40, 50, 5), ids, "New records are appended at the end.");
+        assertEquals(4, store.indexOfId(5));
+    }
+
+    /**
+     * Verifies a long random sequence of adds and removes against an ArrayList reference,
+     * which also exercises growth and compaction.
+     */
+    @Test
+    void testRandomOperationsMatchReference() {
+        store.clear();
+        List<FitnessRecord> reference = new ArrayList<>();
+        Random random = new Random(7);
+        for (int step = 0; step < 20_000; step++) {
+            int id = random.nextInt(2_000) - 500; // includes negative IDs
+            if (random.nextInt(3) > 0 && !store.containsId(id)) {
+                FitnessRecord r = new FitnessRecord(id, "R" + id, 1, 1.0, id, 1.0);
+                store.add(r);
+                reference.add(r);
+            } else {
+                int expected = -1;
+                for (int i = 0; i < reference.size(); i++) {
+                    if (reference.get(i).getId() == id) {
+                        expected = i;
+                        break;
+                    }
+                }
+                assertEquals(expected, store.removeById(id), "Position mismatch removing " + id);
+                if (expected >= 0) {
+                    reference.remove(expected);
+                }
+            }
+        }
+        assertEquals(reference, store, "Store contents differ from the reference list.");
+        for (int i = 0; i < reference.size(); i++) {
+            assertEquals(i, store.indexOfId(reference.get(i).getId()));
+        }
+    }
+}
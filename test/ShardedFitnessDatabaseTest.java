@@ -0,0 +1,182 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the sharded database: routing, fan-out queries whose merged results match a
+ * single database, aggregates merged from sums rather than averages, and rebalancing.
+ */
+class ShardedFitnessDatabaseTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ShardedFitnessDatabase sharded;
+    private FitnessDatabaseManager single;   // Same records in one database, as the reference
+
+    /**
+     * Opens three hash-routed shards and a reference database holding the same 300 records.
+     */
+    @BeforeEach
+    void setUp() {
+        sharded = new ShardedFitnessDatabase(files("shard", 3), ShardRouter.hash(3));
+        single = new FitnessDatabaseManager(tempDir.resolve("single.db").toString(), true);
+        RecordChangeSet changes = new RecordChangeSet();
+        for (int id = 1; id <= 300; id++) {
+            changes.markUpserted(new FitnessRecord(id, (id % 7 == 0 ? "Seven " : "User ") + id,
+                    20 + id % 50, 150.0 + id % 40, id * 37 % 20_000, id % 900 + 0.5));
+        }
+        assertTrue(sharded.saveChanges(changes).committed());
+        single.saveChanges(changes);
+    }
+
+    /**
+     * Closes both databases after each test.
+     */
+    @AfterEach
+    void tearDown() {
+        sharded.close();
+        single.close();
+    }
+
+    private List<String> files(String prefix, int count) {
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            files.add(tempDir.resolve(prefix + i + ".db").toString());
+        }
+        return files;
+    }
+
+    private static List<Integer> ids(Collection<FitnessRecord> records) {
+        return records.stream().map(FitnessRecord::getId).toList();
+    }
+
+    /**
+     * Verifies both routers' assignments and that each record is stored only on its owning shard.
+     */
+    @Test
+    void testRouting() {
+        ShardRouter ranges = ShardRouter.ranges(100, 200);
+        assertEquals(3, ranges.shardCount());
+        assertEquals(0, ranges.shardOf(Integer.MIN_VALUE));
+        assertEquals(0, ranges.shardOf(99));
+        assertEquals(1, ranges.shardOf(100));
+        assertEquals(1, ranges.shardOf(199));
+        assertEquals(2, ranges.shardOf(200));
+        assertThrows(IllegalArgumentException.class, () -> ShardRouter.ranges(5, 5));
+
+        int total = 0;
+        for (int i = 0; i < sharded.shardCount(); i++) {
+            int count = sharded.getShard(i).countRecords();
+            assertTrue(count > 50, "Hashing should spread records, shard " + i + " has " + count);
+            total += count;
+            for (FitnessRecord r : sharded.getShard(i).getAllRecords()) {
+                assertEquals(i, sharded.getRouter().shardOf(r.getId()));
+            }
+        }
+        assertEquals(300, total);
+
+        sharded.updateRecord(new FitnessRecord(42, "Moved On", 33, 170.0, 1, 2.0));
+        assertEquals("Moved On", sharded.getRecordById(42).getFullName());
+        sharded.deleteRecord(42);
+        assertNull(sharded.getRecordById(42));
+        assertEquals(299, sharded.countRecords());
+    }
+
+    /**
+     * Verifies that fan-out queries return what one database holding all records returns.
+     */
+    @Test
+    void testFanOutMatchesSingleDatabase() {
+        assertEquals(ids(single.getAllRecords()), ids(sharded.getAllRecords()));
+        assertEquals(ids(single.searchByName("seven", 10)), ids(sharded.searchByName("seven", 10)));
+
+        RecordQuery query = new RecordQuery()
+                .between(RecordField.AGE, 30, 45)
+                .orderBy(RecordField.STEPS_TODAY, true)
+                .limit(25);
+        assertEquals(ids(single.findRecords(query)), ids(sharded.findRecords(query)));
+
+        List<Integer> wanted = List.of(250, 3, 999, 17, 1);
+        assertEquals(List.of(250, 3, 17, 1), List.copyOf(sharded.getRecordsByIds(wanted).keySet()));
+    }
+
+    /**
+     * Verifies that statistics merge from counts and sums, not from per-shard averages.
+     */
+    @Test
+    void testAggregatesMergeExactly() {
+        for (RecordField field : RecordField.values()) {
+            ColumnStats expected = single.getColumnStats(field);
+            ColumnStats actual = sharded.getColumnStats(field);
+            assertEquals(expected.count(), actual.count());
+            assertEquals(expected.sum(), actual.sum(), 1e-6);
+            assertEquals(expected.min(), actual.min());
+            assertEquals(expected.max(), actual.max());
+            assertEquals(expected.variance(), actual.variance(), 1e-6);
+        }
+        assertEquals(single.calculateAverageSteps(), sharded.calculateAverageSteps(), 1e-9);
+
+        // Unequal shard sizes make the average of averages wrong, so this case tells them apart
+        sharded.getShard(0).saveAllRecords(List.of());
+        double stepsLeft = 0;
+        int left = 0;
+        for (int i = 1; i < 3; i++) {
+            for (FitnessRecord r : sharded.getShard(i).getAllRecords()) {
+                stepsLeft += r.getStepsToday();
+                left++;
+            }
+        }
+        assertEquals(stepsLeft / left, sharded.calculateAverageSteps(), 1e-9);
+    }
+
+    /**
+     * Verifies that rebalancing onto an added shard file moves exactly the rows whose owner
+     * changed, with their history, and keeps every query answering the same.
+     */
+    @Test
+    void testRebalanceOntoNewShard() throws SQLException {
+        sharded.getShard(0).saveHistory(List.of(new DailyEntry(
+                firstIdOn(0), LocalDate.now().minusDays(3), 1234, 56.0)));
+        int historyId = firstIdOn(0);
+        List<Integer> before = ids(sharded.getAllRecords());
+        Map<Integer, Long> versions = new HashMap<>();
+        sharded.getAllRecords().forEach(r -> versions.put(r.getId(), r.getVersion()));
+        sharded.close();
+
+        sharded = new ShardedFitnessDatabase(files("shard", 4), ShardRouter.hash(3));
+        assertEquals(before, ids(sharded.getAllRecords()), "An empty extra shard changes nothing.");
+
+        ShardRouter four = ShardRouter.hash(4);
+        long expectedMoves = before.stream().filter(id -> ShardRouter.hash(3).shardOf(id) != four.shardOf(id)).count();
+        ShardedFitnessDatabase.RebalanceReport report = sharded.rebalance(four);
+        assertTrue(report.scanned() >= 300, "Moved rows may be read again on their new shard.");
+        assertEquals(expectedMoves, report.moved());
+        assertSame(four, sharded.getRouter());
+
+        assertEquals(before, ids(sharded.getAllRecords()));
+        for (FitnessRecord r : sharded.getAllRecords()) {
+            assertEquals(versions.get(r.getId()), r.getVersion(), "Moved rows keep their version.");
+        }
+        for (int i = 0; i < 4; i++) {
+            for (FitnessRecord r : sharded.getShard(i).getAllRecords()) {
+                assertEquals(i, four.shardOf(r.getId()));
+            }
+        }
+        assertTrue(sharded.getShard(3).countRecords() > 0);
+        assertEquals(single.calculateAverageSteps(), sharded.calculateAverageSteps(), 1e-9);
+
+        FitnessDatabaseManager owner = sharded.getShard(four.shardOf(historyId));
+        assertEquals(1234, owner.getHistory(historyId, LocalDate.now().minusDays(3), LocalDate.now().minusDays(3))
+                .get(0).steps());
+        assertEquals(0, sharded.rebalance(four).moved(), "A second run has nothing to move.");
+    }
+
+    private int firstIdOn(int shard) {
+        return sharded.getShard(shard).getAllRecords().get(0).getId();
+    }
+}
@@ -0,0 +1,24 @@
+import org.junit.jupiter.api.*;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that generated benchmark data is reproducible.
+ */
+class SyntheticDatasetTest {
+
+    /**
+     * Verifies that equal seeds give equal records, independent of generation order,
+     * and that a different seed gives different data.
+     */
+    @Test
+    void testDeterministic() {
+        List<FitnessRecord> first = new SyntheticDataset(7).records(1000);
+        List<FitnessRecord> second = new SyntheticDataset(7).records(1000);
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).toString(), second.get(i).toString());
+        }
+        assertEquals(first.get(499).toString(), new SyntheticDataset(7).record(500).toString());
+        assertNotEquals(first.get(0).toString(), new SyntheticDataset(8).record(1).toString());
+    }
+}
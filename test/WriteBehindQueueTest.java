@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for write-behind mode: merging per ID, batching, commit acknowledgement and failures.
+ */
+class WriteBehindQueueTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FitnessDatabaseManager dbManager;
+
+    @BeforeEach
+    void setUp() {
+        dbManager = new FitnessDatabaseManager(tempDir.resolve("queue.db").toString(), true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dbManager.close();
+    }
+
+    /**
+     * Verifies that repeated writes to one ID are merged and only the last value is committed.
+     */
+    @Test
+    void testWritesToSameIdAreMerged() {
+        try (WriteBehindQueue queue = dbManager.openWriteBehind(10_000, 1000)) {
+            for (int steps = 1; steps <= 100; steps++) {
+                queue.upsert(new FitnessRecord(1, "Walker", 30, 150.0, steps, 10.0));
+            }
+            queue.upsert(new FitnessRecord(2, "Deleted", 30, 150.0, 1, 1.0));
+            queue.delete(2);
+            queue.flush().join();
+
+            assertEquals(102, queue.getWritesAccepted());
+            assertEquals(2, queue.getRowsCommitted(), "One upsert and one delete after merging.");
+            assertEquals(1, queue.getBatchesCommitted());
+        }
+        assertEquals(100, dbManager.getRecordById(1).getStepsToday());
+        assertNull(dbManager.getRecordById(2));
+    }
+
+    /**
+     * Verifies that concurrent writers are committed in batches of at most the batch size,
+     * and that waiting on every future means every write is durable.
+     */
+    @Test
+    void testConcurrentWritersAreBatched() throws InterruptedException {
+        List<CompletableFuture<Void>> acks = Collections.synchronizedList(new ArrayList<>());
+        try (WriteBehindQueue queue = dbManager.openWriteBehind(5, 500)) {
+            Thread[] writers = new Thread[8];
+            for (int t = 0; t < writers.length; t++) {
+                int base = t * 1000;
+                writers[t] = new Thread(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        acks.add(queue.upsert(new FitnessRecord(base + i, "User", 30, 150.0, i, 1.0)));
+                    }
+                });
+                writers[t].start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            CompletableFuture.allOf(acks.toArray(new CompletableFuture<?>[0])).join();
+            assertTrue(queue.getBatchesCommitted() >= 16, "8000 rows need at least 16 batches of 500.");
+        }
+        assertEquals(8000, dbManager.countRecords());
+    }
+
+    /**
+     * Verifies that a rolled-back batch fails the futures of its writes, and that close
+     * commits what is still queued.
+     */
+    @Test
+    void testFailureAndClose() {
+        CompletableFuture<Void> pending;
+        try (WriteBehindQueue queue = dbManager.openWriteBehind(10_000, 1000)) {
+            CompletableFuture<Void> bad = queue.upsert(new FitnessRecord(1, null, 30, 150.0, 1, 1.0));
+            queue.flush();
+            ExecutionException error = assertThrows(ExecutionException.class, bad::get);
+            assertInstanceOf(SQLException.class, error.getCause());
+            assertEquals(1, queue.getBatchesFailed());
+
+            pending = queue.upsert(new FitnessRecord(2, "Good", 30, 150.0, 1, 1.0));
+        }
+        assertTrue(pending.isDone() && !pending.isCompletedExceptionally());
+        assertEquals(1, dbManager.countRecords());
+    }
+
+    /**
+     * Verifies that an unexpected RuntimeException fails only its own batch and the writer
+     * thread keeps committing later ones.
+     */
+    @Test
+    void testRuntimeFailureKeepsWriterAlive() throws Exception {
+        AtomicBoolean failNext = new AtomicBoolean(true);
+        try (FitnessDatabaseManager failing = new FitnessDatabaseManager(tempDir.resolve("failing.db").toString()) {
+            @Override
+            SaveResult saveChangesChecked(RecordChangeSet changes) throws SQLException {
+                if (failNext.getAndSet(false)) {
+                    throw new IllegalStateException("Simulated bug");
+                }
+                return super.saveChangesChecked(changes);
+            }
+        }; WriteBehindQueue queue = failing.openWriteBehind(10_000, 1000)) {
+            CompletableFuture<Void> bad = queue.upsert(new FitnessRecord(1, "Lost", 30, 150.0, 1, 1.0));
+            queue.flush();
+            ExecutionException error = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, error.getCause());
+            assertEquals(1, queue.getBatchesFailed());
+
+            CompletableFuture<Void> good = queue.upsert(new FitnessRecord(2, "Kept", 30, 150.0, 1, 1.0));
+            queue.flush();
+            good.get(5, TimeUnit.SECONDS);
+            assertEquals(1, failing.countRecords());
+            assertNull(failing.getRecordById(1));
+        }
+    }
+}